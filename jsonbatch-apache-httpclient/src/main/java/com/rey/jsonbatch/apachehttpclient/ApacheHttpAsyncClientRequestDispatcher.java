@@ -0,0 +1,92 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.DispatchTimingListener;
+import com.rey.jsonbatch.ProjectingRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.DispatchTiming;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.projection.Projection;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static com.rey.jsonbatch.apachehttpclient.ApacheHttpMessageConverter.toHttpRequest;
+import static com.rey.jsonbatch.apachehttpclient.ApacheHttpMessageConverter.toResponse;
+
+public class ApacheHttpAsyncClientRequestDispatcher implements AsyncRequestDispatcher, ProjectingRequestDispatcher {
+
+    private HttpAsyncClient httpAsyncClient;
+
+    private DispatchTimingListener timingListener;
+
+    public ApacheHttpAsyncClientRequestDispatcher(HttpAsyncClient httpAsyncClient) {
+        this.httpAsyncClient = httpAsyncClient;
+    }
+
+    // HttpAsyncClient has no connection events and buffers the body before completing: only total, body copy and parse times are measured
+    public ApacheHttpAsyncClientRequestDispatcher(HttpAsyncClient httpAsyncClient, DispatchTimingListener timingListener) {
+        this.httpAsyncClient = httpAsyncClient;
+        this.timingListener = timingListener;
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) throws Exception {
+        try {
+            return dispatchAsync(request, jsonProvider, options, projection).get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception)
+                throw (Exception) ex.getCause();
+            throw ex;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        return dispatchAsync(request, jsonProvider, options, Projection.ALL);
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        ConnectionTimer timer = timingListener == null ? null : new ConnectionTimer();
+        try {
+            httpAsyncClient.execute(toHttpRequest(request, jsonProvider), new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse httpResponse) {
+                    try {
+                        Response response = toResponse(httpResponse, jsonProvider, options, projection, timer);
+                        if (timer != null) {
+                            DispatchTiming timing = timer.toTiming();
+                            response.setTiming(timing);
+                            timingListener.onDispatchTiming(request, response, timing);
+                        }
+                        future.complete(response);
+                    } catch (Exception ex) {
+                        future.completeExceptionally(ex);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    future.completeExceptionally(new CancellationException("Request is cancelled"));
+                }
+            });
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+}
@@ -1,96 +1,64 @@
 package com.rey.jsonbatch.apachehttpclient;
 
 import com.jayway.jsonpath.spi.json.JsonProvider;
-import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.DispatchTimingListener;
+import com.rey.jsonbatch.ProjectingRequestDispatcher;
 import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.DispatchTiming;
 import com.rey.jsonbatch.model.Request;
 import com.rey.jsonbatch.model.Response;
-import org.apache.http.Header;
+import com.rey.jsonbatch.projection.Projection;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.entity.StringEntity;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import static com.rey.jsonbatch.apachehttpclient.ApacheHttpMessageConverter.toHttpRequest;
+import static com.rey.jsonbatch.apachehttpclient.ApacheHttpMessageConverter.toResponse;
 
-public class ApacheHttpClientRequestDispatcher implements RequestDispatcher {
-
-    private Logger logger = LoggerFactory.getLogger(ApacheHttpClientRequestDispatcher.class);
+public class ApacheHttpClientRequestDispatcher implements ProjectingRequestDispatcher {
 
     private HttpClient httpClient;
 
+    private DispatchTimingListener timingListener;
+
     public ApacheHttpClientRequestDispatcher(HttpClient httpClient) {
         this.httpClient = httpClient;
     }
 
+    /*
+     * Records the network timing of each response (Response.getTiming()) and passes it to timingListener.
+     * Pool wait, connection reuse, DNS, connect and TLS times need the client to be built with TimingHttpClientConnectionManager,
+     * TimingDnsResolver and TimingSSLConnectionSocketFactory. Response bodies are read fully before being parsed.
+     */
+    public ApacheHttpClientRequestDispatcher(HttpClient httpClient, DispatchTimingListener timingListener) {
+        this.httpClient = httpClient;
+        this.timingListener = timingListener;
+    }
+
     @Override
     public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
-        RequestBuilder requestBuilder = RequestBuilder.create(request.getHttpMethod().toUpperCase());
-        requestBuilder.setUri(request.getUrl());
-        logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
-        request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
-        if(request.getBody() != null) {
-            String json = jsonProvider.toJson(request.getBody());
-            logger.debug("Request body: {}", json);
-            requestBuilder.setEntity(new StringEntity(json));
-        }
-        HttpResponse httpResponse = httpClient.execute(requestBuilder.build());
-        Response response = new Response();
-        Map<String, List<String>> headerMap = new HashMap<>();
-        for(Header header : httpResponse.getAllHeaders()) {
-            headerMap.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
-        }
-
-        response.setStatus(httpResponse.getStatusLine().getStatusCode());
-        response.setHeaders(headerMap);
-        if(options.getFailBackAsString())
-            try {
-                String bodyAsString = readString(httpResponse.getEntity().getContent(), "UTF-8");
-                response.setBody(bodyAsString);
-                try {
-                    response.setBody(jsonProvider.parse(bodyAsString));
-                }
-                catch (Exception ex) {
-                    logger.warn("Cannot parse response body as JSON", ex);
-                }
-            }
-            catch (Exception e) {
-                logger.warn("Cannot parse response body as String", e);
-                if(!options.getIgnoreParsingError())
-                    throw e;
-            }
-        else
-            try {
-                response.setBody(jsonProvider.parse(httpResponse.getEntity().getContent(), "UTF-8"));
-            }
-            catch (Exception ex) {
-                logger.warn("Cannot parse response body as JSON", ex);
-                if(!options.getIgnoreParsingError())
-                    throw ex;
-            }
-        return response;
+        return dispatch(request, jsonProvider, options, Projection.ALL);
     }
 
-    private String readString(InputStream inputStream, String charset) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        char[] buffer = new char[1024];
-        try (Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset))) {
-            int c;
-            while((c = reader.read(buffer)) != -1) {
-                builder.append(buffer, 0, c);
-            }
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) throws Exception {
+        if (timingListener == null) {
+            HttpResponse httpResponse = httpClient.execute(toHttpRequest(request, jsonProvider));
+            return toResponse(httpResponse, jsonProvider, options, projection);
+        }
+
+        ConnectionTimer timer = ConnectionTimer.start();
+        HttpResponse httpResponse;
+        try {
+            httpResponse = httpClient.execute(toHttpRequest(request, jsonProvider));
+            timer.responded();
+        } finally {
+            timer.stop();
         }
-        return builder.toString();
+        Response response = toResponse(httpResponse, jsonProvider, options, projection, timer);
+        DispatchTiming timing = timer.toTiming();
+        response.setTiming(timing);
+        timingListener.onDispatchTiming(request, response, timing);
+        return response;
     }
 
 }
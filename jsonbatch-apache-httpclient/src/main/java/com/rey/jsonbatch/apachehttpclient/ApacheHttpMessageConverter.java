@@ -0,0 +1,136 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.projection.ProjectingJsonReader;
+import com.rey.jsonbatch.projection.Projection;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ApacheHttpMessageConverter {
+
+    private static Logger logger = LoggerFactory.getLogger(ApacheHttpMessageConverter.class);
+
+    static HttpUriRequest toHttpRequest(Request request, JsonProvider jsonProvider) throws UnsupportedEncodingException {
+        RequestBuilder requestBuilder = RequestBuilder.create(request.getHttpMethod().toUpperCase());
+        requestBuilder.setUri(request.getUrl());
+        logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
+        request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
+        if(request.getBody() != null) {
+            String json = jsonProvider.toJson(request.getBody());
+            logger.debug("Request body: {}", json);
+            requestBuilder.setEntity(new StringEntity(json));
+        }
+        return requestBuilder.build();
+    }
+
+    static Response toResponse(HttpResponse httpResponse, JsonProvider jsonProvider, DispatchOptions options, Projection projection) throws Exception {
+        return toResponse(httpResponse, jsonProvider, options, projection, null);
+    }
+
+    // with a timer, the body is read fully before being parsed to time both separately
+    static Response toResponse(HttpResponse httpResponse, JsonProvider jsonProvider, DispatchOptions options, Projection projection, ConnectionTimer timer) throws Exception {
+        Response response = new Response();
+        Map<String, List<String>> headerMap = new HashMap<>();
+        for(Header header : httpResponse.getAllHeaders()) {
+            headerMap.computeIfAbsent(header.getName(), key -> new ArrayList<>()).add(header.getValue());
+        }
+
+        response.setStatus(httpResponse.getStatusLine().getStatusCode());
+        response.setHeaders(headerMap);
+        boolean hasBody = hasBody(httpResponse);
+        if(hasBody && httpResponse.getEntity().getContentLength() >= 0)
+            response.setBodySize(httpResponse.getEntity().getContentLength());
+        if(timer != null && hasBody && !projection.isNone()) {
+            HttpEntity entity = httpResponse.getEntity();
+            long start = System.nanoTime();
+            byte[] bytes = EntityUtils.toByteArray(entity);
+            timer.bodyReadTime = System.nanoTime() - start;
+            response.setBodySize((long) bytes.length);
+            httpResponse.setEntity(new ByteArrayEntity(bytes));
+        }
+        long parseStart = System.nanoTime();
+        if(!hasBody) {
+            logger.debug("Response with [{}] status has no body", response.getStatus());
+            EntityUtils.consume(httpResponse.getEntity());
+        }
+        else if(projection.isNone()) {
+            logger.debug("Skip unreferenced response body");
+            EntityUtils.consume(httpResponse.getEntity());
+        }
+        else if(options.getFailBackAsString())
+            try {
+                String bodyAsString = readString(httpResponse.getEntity().getContent(), "UTF-8");
+                response.setBody(bodyAsString);
+                try {
+                    response.setBody(projection.isAll() ? jsonProvider.parse(bodyAsString) : ProjectingJsonReader.read(new StringReader(bodyAsString), projection, jsonProvider));
+                }
+                catch (Exception ex) {
+                    logger.warn("Cannot parse response body as JSON", ex);
+                }
+            }
+            catch (Exception e) {
+                logger.warn("Cannot parse response body as String", e);
+                if(!options.getIgnoreParsingError())
+                    throw e;
+            }
+        else
+            try {
+                if(projection.isAll())
+                    response.setBody(jsonProvider.parse(httpResponse.getEntity().getContent(), "UTF-8"));
+                else
+                    try (Reader reader = new BufferedReader(new InputStreamReader(httpResponse.getEntity().getContent(), "UTF-8"))) {
+                        response.setBody(ProjectingJsonReader.read(reader, projection, jsonProvider));
+                    }
+            }
+            catch (Exception ex) {
+                logger.warn("Cannot parse response body as JSON", ex);
+                if(!options.getIgnoreParsingError())
+                    throw ex;
+            }
+        if(timer != null && hasBody && !projection.isNone())
+            timer.parseTime = System.nanoTime() - parseStart;
+        return response;
+    }
+
+    // HttpClient leaves the entity null for HEAD requests, 204 and 304 responses never have a body either
+    private static boolean hasBody(HttpResponse httpResponse) {
+        int status = httpResponse.getStatusLine().getStatusCode();
+        return httpResponse.getEntity() != null && status != 204 && status != 304;
+    }
+
+    private static String readString(InputStream inputStream, String charset) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[1024];
+        try (Reader reader = new BufferedReader(new InputStreamReader(inputStream, charset))) {
+            int c;
+            while((c = reader.read(buffer)) != -1) {
+                builder.append(buffer, 0, c);
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import com.rey.jsonbatch.model.DispatchTiming;
+
+/*
+ * Timing of the request executing on the current thread. HttpClient leases, connects and sends the request on the thread
+ * calling execute, so the connection manager, DNS resolver and socket factory decorators find it in a ThreadLocal.
+ */
+class ConnectionTimer {
+
+    private static final ThreadLocal<ConnectionTimer> CURRENT = new ThreadLocal<>();
+
+    final long startTime = System.nanoTime();
+
+    long poolWaitTime = -1;
+    long dnsTime;
+    long connectTime;
+    long tlsTime;
+    Boolean connectionReused;
+
+    boolean ready;
+    long readyTime;
+    boolean responded;
+    long responseTime;
+
+    long bodyReadTime = -1;
+    long parseTime = -1;
+
+    static ConnectionTimer start() {
+        ConnectionTimer timer = new ConnectionTimer();
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    static ConnectionTimer current() {
+        return CURRENT.get();
+    }
+
+    void stop() {
+        CURRENT.remove();
+    }
+
+    void ready() {
+        ready = true;
+        readyTime = System.nanoTime();
+    }
+
+    void responded() {
+        responded = true;
+        responseTime = System.nanoTime();
+    }
+
+    DispatchTiming toTiming() {
+        DispatchTiming timing = new DispatchTiming();
+        timing.setTotalTime(System.nanoTime() - startTime);
+        timing.setBodyReadTime(bodyReadTime);
+        timing.setParseTime(parseTime);
+        // HttpAsyncClient completes once the body is read: only the total, body copy and parse times are known
+        if (!responded)
+            return timing;
+        // without TimingHttpClientConnectionManager only the time until the response headers is known
+        if (!ready) {
+            timing.setTimeToFirstByte(responseTime - startTime);
+            return timing;
+        }
+
+        timing.setPoolWaitTime(poolWaitTime);
+        timing.setConnectionReused(connectionReused);
+        timing.setDnsTime(dnsTime);
+        timing.setConnectTime(connectTime);
+        timing.setTlsTime(tlsTime);
+        timing.setTimeToFirstByte(responseTime - readyTime);
+        return timing;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import org.apache.http.conn.DnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/*
+ * Measures DNS resolution for ApacheHttpClientRequestDispatcher, pass it to the connection manager:
+ * new PoolingHttpClientConnectionManager(registry, new TimingDnsResolver(SystemDefaultDnsResolver.INSTANCE))
+ */
+public class TimingDnsResolver implements DnsResolver {
+
+    private final DnsResolver delegate;
+
+    public TimingDnsResolver(DnsResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        ConnectionTimer timer = ConnectionTimer.current();
+        if (timer == null)
+            return delegate.resolve(host);
+        long start = System.nanoTime();
+        try {
+            return delegate.resolve(host);
+        } finally {
+            timer.dnsTime += System.nanoTime() - start;
+        }
+    }
+
+}
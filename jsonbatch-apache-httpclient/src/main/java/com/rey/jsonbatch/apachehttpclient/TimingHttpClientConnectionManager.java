@@ -0,0 +1,107 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Connection manager decorator measuring the pool wait, connection reuse and connect time for ApacheHttpClientRequestDispatcher:
+ * HttpClients.custom().setConnectionManager(new TimingHttpClientConnectionManager(poolingConnectionManager)).build()
+ * DNS and TLS times are only split out of the connect time with TimingDnsResolver and TimingSSLConnectionSocketFactory.
+ */
+public class TimingHttpClientConnectionManager implements HttpClientConnectionManager {
+
+    private final HttpClientConnectionManager delegate;
+
+    public TimingHttpClientConnectionManager(HttpClientConnectionManager delegate) {
+        this.delegate = delegate;
+    }
+
+    public HttpClientConnectionManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = delegate.requestConnection(route, state);
+        ConnectionTimer timer = ConnectionTimer.current();
+        if (timer == null)
+            return request;
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                HttpClientConnection connection = request.get(timeout, tunit);
+                timer.poolWaitTime = System.nanoTime() - start;
+                // a pooled connection is already open, a new one is connected by the client right after
+                timer.connectionReused = connection.isOpen();
+                if (timer.connectionReused)
+                    timer.ready();
+                return connection;
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+        delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+        ConnectionTimer timer = ConnectionTimer.current();
+        if (timer == null) {
+            delegate.connect(conn, route, connectTimeout, context);
+            return;
+        }
+        long dnsTime = timer.dnsTime;
+        long tlsTime = timer.tlsTime;
+        long start = System.nanoTime();
+        try {
+            delegate.connect(conn, route, connectTimeout, context);
+        } finally {
+            timer.connectTime += Math.max(0, System.nanoTime() - start - (timer.dnsTime - dnsTime) - (timer.tlsTime - tlsTime));
+        }
+    }
+
+    @Override
+    public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        delegate.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+        delegate.routeComplete(conn, route, context);
+        ConnectionTimer timer = ConnectionTimer.current();
+        if (timer != null)
+            timer.ready();
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+        delegate.closeIdleConnections(idletime, tunit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        delegate.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.rey.jsonbatch.apachehttpclient;
+
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.Socket;
+
+/*
+ * SSLConnectionSocketFactory measuring the TLS handshake for ApacheHttpClientRequestDispatcher,
+ * register it for "https" in the connection manager.
+ */
+public class TimingSSLConnectionSocketFactory extends SSLConnectionSocketFactory {
+
+    public TimingSSLConnectionSocketFactory(SSLContext sslContext) {
+        super(sslContext);
+    }
+
+    public TimingSSLConnectionSocketFactory(SSLContext sslContext, HostnameVerifier hostnameVerifier) {
+        super(sslContext, hostnameVerifier);
+    }
+
+    public TimingSSLConnectionSocketFactory(SSLSocketFactory socketFactory, String[] supportedProtocols, String[] supportedCipherSuites, HostnameVerifier hostnameVerifier) {
+        super(socketFactory, supportedProtocols, supportedCipherSuites, hostnameVerifier);
+    }
+
+    // called by connectSocket too, once the TCP connection is established
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        ConnectionTimer timer = ConnectionTimer.current();
+        if (timer == null)
+            return super.createLayeredSocket(socket, target, port, context);
+        long start = System.nanoTime();
+        try {
+            return super.createLayeredSocket(socket, target, port, context);
+        } finally {
+            timer.tlsTime += System.nanoTime() - start;
+        }
+    }
+
+}
@@ -8,19 +8,37 @@ import com.jayway.jsonpath.Configuration
 import com.jayway.jsonpath.spi.json.JacksonJsonProvider
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
 import com.rey.jsonbatch.BatchEngine
+import com.rey.jsonbatch.DispatchTimingListener
 import com.rey.jsonbatch.JsonBuilder
 import com.rey.jsonbatch.function.*
 import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchTiming
 import com.rey.jsonbatch.model.Request
+import org.apache.http.config.RegistryBuilder
+import org.apache.http.conn.socket.ConnectionSocketFactory
+import org.apache.http.conn.socket.PlainConnectionSocketFactory
 import org.apache.http.impl.client.HttpClients
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager
+import org.apache.http.impl.conn.SystemDefaultDnsResolver
+import org.apache.http.impl.nio.client.HttpAsyncClients
+import org.apache.http.ssl.SSLContexts
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
 
 class BatchEngineTest {
 
     private lateinit var batchEngine: BatchEngine
 
+    private lateinit var asyncBatchEngine: BatchEngine
+
+    private lateinit var timedBatchEngine: BatchEngine
+
+    private val timings = mutableListOf<Pair<String, DispatchTiming>>()
+
     private lateinit var objectMapper: ObjectMapper
 
     @Before
@@ -36,6 +54,20 @@ class BatchEngineTest {
                 .build()
         val jsonBuilder = JsonBuilder(*Functions.basic())
         batchEngine = BatchEngine(conf, jsonBuilder, ApacheHttpClientRequestDispatcher(HttpClients.createDefault()))
+        val asyncClient = HttpAsyncClients.createDefault()
+        asyncClient.start()
+        asyncBatchEngine = BatchEngine(conf, jsonBuilder, ApacheHttpAsyncClientRequestDispatcher(asyncClient))
+
+        val connectionManager = PoolingHttpClientConnectionManager(
+                RegistryBuilder.create<ConnectionSocketFactory>()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", TimingSSLConnectionSocketFactory(SSLContexts.createDefault()))
+                        .build(),
+                TimingDnsResolver(SystemDefaultDnsResolver.INSTANCE))
+        val timedClient = HttpClients.custom()
+                .setConnectionManager(TimingHttpClientConnectionManager(connectionManager))
+                .build()
+        timedBatchEngine = BatchEngine(conf, jsonBuilder, ApacheHttpClientRequestDispatcher(timedClient, DispatchTimingListener { request, _, timing -> timings.add(request.url to timing) }))
     }
     
     @Test
@@ -188,5 +220,73 @@ class BatchEngineTest {
         val finalResponse = batchEngine.execute(originalRequest, batchTemplate)
         println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(finalResponse))
     }
-    
-}
\ No newline at end of file
+
+    @Test
+    fun testAsync() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://jsonplaceholder.typicode.com/posts/1",
+                        "headers": {
+                            "Accept": "str application/json, */*"
+                        },
+                        "body": null
+                    }
+                ],
+                "responses": [
+                    {
+                        "status": "$.responses[0].status",
+                        "headers": null,
+                        "body": {
+                            "first_post": "obj $.responses[0].body"
+                        }
+                    }
+                ]
+            }
+        """.trimIndent()
+        val batchTemplate = objectMapper.readValue(template, BatchTemplate::class.java)
+
+        val finalResponse = asyncBatchEngine.executeAsync(Request(), batchTemplate).get(60, TimeUnit.SECONDS)
+        println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(finalResponse))
+    }
+
+    @Test
+    fun testTiming() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://jsonplaceholder.typicode.com/posts/1",
+                        "body": null,
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://jsonplaceholder.typicode.com/posts/2",
+                                "body": null
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.trimIndent()
+        val batchTemplate = objectMapper.readValue(template, BatchTemplate::class.java)
+
+        timedBatchEngine.execute(Request(), batchTemplate)
+        timings.forEach { println(it) }
+        assertEquals(2, timings.size)
+        val (_, first) = timings[0]
+        val (_, second) = timings[1]
+        assertEquals(false, first.connectionReused)
+        assertTrue(first.dnsTime > 0)
+        assertTrue(first.tlsTime > 0)
+        assertEquals(true, second.connectionReused)
+        assertEquals(0L, second.tlsTime)
+        assertTrue(second.timeToFirstByte > 0)
+        assertTrue(second.bodyReadTime >= 0)
+    }
+
+}
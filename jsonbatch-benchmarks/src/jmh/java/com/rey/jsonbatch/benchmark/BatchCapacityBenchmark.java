@@ -0,0 +1,155 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.loom.VirtualThreadBatchEngine;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchCapacityBenchmark {
+
+    private static final int REQUESTS_PER_BATCH = 3;
+    private static final long ROUND_TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "virtual";
+        int maxBatches = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        Configuration configuration = BenchmarkUtils.configuration();
+        JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+        BatchPlan plan = new TemplateCompiler(jsonBuilder).compile(BenchmarkUtils.readResource("/templates/fanout_batch.json", BatchTemplate.class));
+        Response response = BenchmarkUtils.readResource("/templates/user_response.json", Response.class);
+
+        System.out.printf("mode=%s maxHeap=%dMB%n", mode, Runtime.getRuntime().maxMemory() / 1024 / 1024);
+        for (int batches = 1000; batches <= maxBatches; batches *= 2) {
+            GateRequestDispatcher requestDispatcher = new GateRequestDispatcher(batches * REQUESTS_PER_BATCH, response);
+            Round round = "platform".equals(mode)
+                    ? runPlatformRound(configuration, jsonBuilder, requestDispatcher, plan, batches)
+                    : runVirtualRound(configuration, jsonBuilder, requestDispatcher, plan, batches);
+            System.out.printf("batches=%d inFlightRequests=%d completed=%d time=%dms peakHeapUsed=%dMB%s%n",
+                    batches, requestDispatcher.peak.get(), round.completed, round.time, round.peakHeapUsed / 1024 / 1024,
+                    round.error == null ? "" : " error=" + round.error);
+            if (round.error != null)
+                break;
+        }
+        System.exit(0);
+    }
+
+    private static Round runPlatformRound(Configuration configuration, JsonBuilder jsonBuilder,
+                                          GateRequestDispatcher requestDispatcher, BatchPlan plan, int batches) {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try {
+            BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, requestDispatcher, executorService);
+            return runRound(requestDispatcher, batches, request -> executorService.submit(() -> batchEngine.execute(request, plan)));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static Round runVirtualRound(Configuration configuration, JsonBuilder jsonBuilder,
+                                         GateRequestDispatcher requestDispatcher, BatchPlan plan, int batches) {
+        try (VirtualThreadBatchEngine batchEngine = new VirtualThreadBatchEngine(configuration, jsonBuilder, requestDispatcher)) {
+            return runRound(requestDispatcher, batches, request -> batchEngine.submit(request, plan));
+        }
+    }
+
+    private static Round runRound(GateRequestDispatcher requestDispatcher, int batches, Submitter submitter) {
+        Round round = new Round();
+        long start = System.nanoTime();
+        List<Future<Response>> futures = new ArrayList<>(batches);
+        try {
+            for (int i = 0; i < batches; i++) {
+                Request request = new Request();
+                request.setBody(Collections.singletonMap("id", i));
+                futures.add(submitter.submit(request));
+            }
+            if (!requestDispatcher.awaitAll())
+                round.error = "timeout before all requests were in flight";
+            round.peakHeapUsed = heapUsed();
+            requestDispatcher.release();
+            for (Future<Response> future : futures) {
+                future.get(ROUND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                round.completed++;
+            }
+        } catch (Throwable ex) {
+            round.error = ex.toString();
+            requestDispatcher.release();
+            futures.forEach(future -> future.cancel(true));
+        }
+        round.time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return round;
+    }
+
+    private static long heapUsed() {
+        MemoryUsage usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return usage.getUsed();
+    }
+
+    private interface Submitter {
+        Future<Response> submit(Request request) throws Exception;
+    }
+
+    private static class Round {
+        int completed;
+        long time;
+        long peakHeapUsed;
+        String error;
+    }
+
+    private static class GateRequestDispatcher implements RequestDispatcher {
+
+        private final CountDownLatch arrived;
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final Response response;
+
+        GateRequestDispatcher(int requests, Response response) {
+            this.arrived = new CountDownLatch(requests);
+            this.response = response;
+        }
+
+        @Override
+        public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            arrived.countDown();
+            try {
+                if (!gate.await(ROUND_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                    throw new IllegalStateException("Request was not released");
+                return response;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        boolean awaitAll() throws InterruptedException {
+            return arrived.await(ROUND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+    }
+
+}
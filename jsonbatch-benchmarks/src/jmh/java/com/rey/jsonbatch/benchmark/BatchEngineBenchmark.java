@@ -0,0 +1,64 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchEngineBenchmark {
+
+    @Param({"user_batch", "fanout_batch", "loop_batch"})
+    private String template;
+
+    private BatchEngine batchEngine;
+    private BatchTemplate batchTemplate;
+    private BatchPlan plan;
+
+    private Request originalRequest;
+
+    @Setup
+    public void setUp() {
+        JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+        batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder,
+                new StubRequestDispatcher(BenchmarkUtils.readResource("/templates/user_response.json", Response.class)));
+
+        batchTemplate = BenchmarkUtils.readResource("/templates/" + template + ".json", BatchTemplate.class).freeze();
+        plan = new TemplateCompiler(jsonBuilder).compile(batchTemplate);
+
+        originalRequest = BenchmarkUtils.readResource("/templates/user_request.json", Request.class);
+    }
+
+    @Benchmark
+    public Response execute__template() throws Exception {
+        return batchEngine.execute(originalRequest, batchTemplate);
+    }
+
+    @Benchmark
+    public Response execute__plan() throws Exception {
+        return batchEngine.execute(originalRequest, plan);
+    }
+
+}
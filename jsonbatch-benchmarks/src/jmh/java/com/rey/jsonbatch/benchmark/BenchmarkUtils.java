@@ -0,0 +1,34 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class BenchmarkUtils {
+
+    public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+
+    public static Configuration configuration() {
+        return Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(OBJECT_MAPPER))
+                .mappingProvider(new JacksonMappingProvider(OBJECT_MAPPER))
+                .build();
+    }
+
+    public static <T> T readResource(String name, Class<T> clazz) {
+        try (InputStream inputStream = BenchmarkUtils.class.getResourceAsStream(name)) {
+            if (inputStream == null)
+                throw new IllegalArgumentException("Not found resource: " + name);
+            return OBJECT_MAPPER.readValue(inputStream, clazz);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot read resource: " + name, ex);
+        }
+    }
+
+}
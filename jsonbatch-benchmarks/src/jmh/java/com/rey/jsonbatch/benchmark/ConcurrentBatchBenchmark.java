@@ -0,0 +1,87 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBatchBenchmark {
+
+    private BatchEngine batchEngine;
+
+    private BatchTemplate template;
+    private BatchPlan plan;
+
+    private Request originalRequest;
+
+    @Setup
+    public void setUp() {
+        JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+        batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder,
+                new StubRequestDispatcher(BenchmarkUtils.readResource("/templates/user_response.json", Response.class)));
+
+        template = BenchmarkUtils.readResource("/templates/user_batch.json", BatchTemplate.class).freeze();
+        plan = new TemplateCompiler(jsonBuilder).compile(template);
+
+        originalRequest = BenchmarkUtils.readResource("/templates/user_request.json", Request.class);
+    }
+
+    @Benchmark
+    public Response sharedTemplate() throws Exception {
+        return batchEngine.execute(originalRequest, template);
+    }
+
+    @Benchmark
+    public Response sharedPlan() throws Exception {
+        return batchEngine.execute(originalRequest, plan);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String benchmark = args.length > 0 ? args[0] : "sharedPlan";
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        double baseline = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentBatchBenchmark.class.getName() + "." + benchmark + "$")
+                    .threads(threads)
+                    .shouldDoGC(true)
+                    .build();
+            RunResult result = new Runner(options).runSingle();
+            double score = result.getPrimaryResult().getScore();
+            if (threads == 1)
+                baseline = score;
+            System.out.printf("threads=%d throughput=%.0f ops/s speedup=%.2f efficiency=%.0f%%%n",
+                    threads, score, score / baseline, 100 * score / baseline / threads);
+            if (threads >= maxThreads)
+                break;
+        }
+    }
+
+}
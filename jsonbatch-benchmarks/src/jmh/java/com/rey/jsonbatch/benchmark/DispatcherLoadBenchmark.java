@@ -0,0 +1,245 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.BatchResults;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.apachehttpclient.ApacheHttpAsyncClientRequestDispatcher;
+import com.rey.jsonbatch.apachehttpclient.ApacheHttpClientRequestDispatcher;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchResult;
+import com.rey.jsonbatch.model.BatchStatistics;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.okhttp.OkHttpRequestDispatcher;
+import com.rey.jsonbatch.plan.BatchPlan;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class DispatcherLoadBenchmark {
+
+    private static final List<String> DISPATCHERS = Arrays.asList("okhttp", "apache", "apache-async");
+    private static final int REQUESTS_PER_BATCH = 3;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        List<String> dispatchers = args.length > 0 && !args[0].equals("all") ? Arrays.asList(args[0].split(",")) : DISPATCHERS;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int batches = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int payloadBytes = args.length > 3 ? Integer.parseInt(args[3]) : 4096;
+        long latencyMicros = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+        File output = new File(args.length > 5 ? args[5] : "build/reports/dispatchers/results.json");
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("java_version", System.getProperty("java.version"));
+        report.put("available_processors", Runtime.getRuntime().availableProcessors());
+        report.put("concurrency", concurrency);
+        report.put("batches", batches);
+        report.put("requests_per_batch", REQUESTS_PER_BATCH);
+        report.put("payload_bytes", payloadBytes);
+        report.put("latency_micros", latencyMicros);
+        List<Object> results = new ArrayList<>();
+        report.put("dispatchers", results);
+
+        THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+        try (StubHttpServer server = new StubHttpServer(latencyMicros)) {
+            JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+            BatchPlan plan = new TemplateCompiler(jsonBuilder).compile(
+                    BenchmarkUtils.readResource("/load/batch.json", BatchTemplate.class));
+            List<Request> requests = requests(server.getBaseUrl(), payloadBytes, batches);
+
+            for (String name : dispatchers) {
+                try (Client client = client(name, concurrency)) {
+                    BatchEngine batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder, client.requestDispatcher);
+                    run(batchEngine, plan, requests.subList(0, Math.max(1, batches / 5)), executorService, concurrency);
+
+                    System.gc();
+                    server.resetCounters();
+                    Map<Long, long[]> usageBefore = clientThreadUsage();
+                    BatchStatistics statistics = run(batchEngine, plan, requests, executorService, concurrency);
+                    Map<Long, long[]> usageAfter = clientThreadUsage();
+
+                    Map<String, Object> result = result(name, statistics, server, diff(usageBefore, usageAfter));
+                    results.add(result);
+                    System.out.println(result);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        if (output.getParentFile() != null)
+            output.getParentFile().mkdirs();
+        BenchmarkUtils.OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, report);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    private static BatchStatistics run(BatchEngine batchEngine, BatchPlan plan, List<Request> requests,
+                                       ExecutorService executorService, int concurrency) {
+        try (BatchResults results = batchEngine.executeAll(requests, plan, executorService, concurrency)) {
+            while (results.hasNext()) {
+                BatchResult result = results.next();
+                if (result.getException() != null)
+                    throw new IllegalStateException("Batch " + result.getIndex() + " failed", result.getException());
+            }
+            return results.getStatistics();
+        }
+    }
+
+    private static Client client(String name, int concurrency) {
+        switch (name) {
+            case "okhttp": {
+                Dispatcher dispatcher = new Dispatcher();
+                dispatcher.setMaxRequests(concurrency);
+                dispatcher.setMaxRequestsPerHost(concurrency);
+                OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                        .dispatcher(dispatcher)
+                        .connectionPool(new ConnectionPool(concurrency, 5, TimeUnit.MINUTES))
+                        .build();
+                return new Client(new OkHttpRequestDispatcher(okHttpClient), () -> {
+                    okHttpClient.dispatcher().executorService().shutdownNow();
+                    okHttpClient.connectionPool().evictAll();
+                });
+            }
+            case "apache": {
+                PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+                connectionManager.setMaxTotal(concurrency);
+                connectionManager.setDefaultMaxPerRoute(concurrency);
+                CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+                return new Client(new ApacheHttpClientRequestDispatcher(httpClient), httpClient);
+            }
+            case "apache-async": {
+                CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+                        .setMaxConnTotal(concurrency)
+                        .setMaxConnPerRoute(concurrency)
+                        .build();
+                httpAsyncClient.start();
+                return new Client(new ApacheHttpAsyncClientRequestDispatcher(httpAsyncClient), httpAsyncClient);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown dispatcher: " + name);
+        }
+    }
+
+    private static List<Request> requests(String baseUrl, int payloadBytes, int count) {
+        List<Request> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("base_url", baseUrl);
+            body.put("payload_bytes", payloadBytes);
+            Request request = new Request();
+            request.setHttpMethod("POST");
+            request.setHeaders(Collections.emptyMap());
+            request.setBody(body);
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    // cpu time and allocated bytes of every live thread except the stub server ones
+    private static Map<Long, long[]> clientThreadUsage() {
+        Map<Long, long[]> usage = new HashMap<>();
+        for (ThreadInfo info : THREAD_MX_BEAN.getThreadInfo(THREAD_MX_BEAN.getAllThreadIds())) {
+            if (info == null || StubHttpServer.isServerThread(info.getThreadName()))
+                continue;
+            long id = info.getThreadId();
+            usage.put(id, new long[]{THREAD_MX_BEAN.getThreadCpuTime(id), THREAD_MX_BEAN.getThreadAllocatedBytes(id)});
+        }
+        return usage;
+    }
+
+    private static long[] diff(Map<Long, long[]> before, Map<Long, long[]> after) {
+        long[] total = new long[2];
+        after.forEach((id, usage) -> {
+            long[] start = before.getOrDefault(id, new long[2]);
+            total[0] += Math.max(0, usage[0] - start[0]);
+            total[1] += Math.max(0, usage[1] - start[1]);
+        });
+        return total;
+    }
+
+    private static Map<String, Object> result(String name, BatchStatistics statistics, StubHttpServer server, long[] usage) {
+        long requests = server.getRequestCount();
+        int connections = server.getConnectionCount();
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", toMillis(statistics.getLatency(50)));
+        latency.put("p90", toMillis(statistics.getLatency(90)));
+        latency.put("p99", toMillis(statistics.getLatency(99)));
+        latency.put("p999", toMillis(statistics.getLatency(99.9)));
+        latency.put("max", toMillis(statistics.getMaxLatency()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("batches", statistics.getCount());
+        result.put("requests", requests);
+        result.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(statistics.getElapsedTime()));
+        result.put("batches_per_second", round(statistics.getThroughput()));
+        result.put("requests_per_second", round(statistics.getThroughput() * REQUESTS_PER_BATCH));
+        result.put("batch_latency_ms", latency);
+        result.put("connections_opened", connections);
+        result.put("requests_per_connection", connections == 0 ? 0 : round((double) requests / connections));
+        result.put("cpu_micros_per_request", requests == 0 ? 0 : round(usage[0] / 1_000.0 / requests));
+        result.put("allocated_bytes_per_request", requests == 0 ? 0 : usage[1] / requests);
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static class Client implements Closeable {
+
+        private final RequestDispatcher requestDispatcher;
+        private final Closeable closeable;
+
+        Client(RequestDispatcher requestDispatcher, Closeable closeable) {
+            this.requestDispatcher = requestDispatcher;
+            this.closeable = closeable;
+        }
+
+        @Override
+        public void close() {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Cannot close client", ex);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.schema.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FunctionBenchmark {
+
+    private static final Map<String, String> SCHEMAS = new HashMap<>();
+
+    static {
+        SCHEMAS.put("sum", "int __sum(\"$.integers[*]\")");
+        SCHEMAS.put("sum_decimal", "num __sum(\"$.decimals[*]\")");
+        SCHEMAS.put("min", "int __min(\"$.integers[*]\")");
+        SCHEMAS.put("max", "int __max(\"$.integers[*]\")");
+        SCHEMAS.put("average", "num __average(\"$.integers[*]\")");
+        SCHEMAS.put("and", "bool __and(\"$.booleans[*]\")");
+        SCHEMAS.put("or", "bool __or(\"$.falses[*]\")");
+        SCHEMAS.put("cmp", "bool __cmp(\"@{$.integers[0]}@ < @{$.integers[1]}@\")");
+        SCHEMAS.put("regex", "str __regex(\"$.text\", \"user-(\\\\d+)\", 1)");
+    }
+
+    @Param({"sum", "sum_decimal", "min", "max", "average", "and", "or", "cmp", "regex"})
+    private String function;
+
+    @Param({"100"})
+    private int size;
+
+    private JsonBuilder jsonBuilder;
+    private DocumentContext context;
+    private Schema schema;
+
+    @Setup
+    public void setUp() {
+        jsonBuilder = new JsonBuilder(Functions.basic());
+        List<Object> integers = new ArrayList<>(size);
+        List<Object> decimals = new ArrayList<>(size);
+        List<Object> booleans = new ArrayList<>(size);
+        List<Object> falses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            integers.add(i);
+            decimals.add(i + 0.5);
+            booleans.add(true);
+            falses.add(false);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("integers", integers);
+        data.put("decimals", decimals);
+        data.put("booleans", booleans);
+        data.put("falses", falses);
+        data.put("text", "user-12345");
+        context = JsonPath.using(BenchmarkUtils.configuration()).parse(data);
+        schema = jsonBuilder.compile(SCHEMAS.get(function));
+    }
+
+    @Benchmark
+    public Object build() {
+        return jsonBuilder.build(schema, context);
+    }
+
+}
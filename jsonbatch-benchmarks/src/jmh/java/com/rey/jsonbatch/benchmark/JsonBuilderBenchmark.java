@@ -0,0 +1,72 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.function.Functions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBuilderBenchmark {
+
+    @Param({"false", "true"})
+    private boolean compiled;
+
+    private JsonBuilder jsonBuilder;
+    private DocumentContext context;
+
+    private Object objectSchema;
+    private Object arraySchema;
+    private Object inlineSchema;
+
+    @Setup
+    public void setUp() {
+        jsonBuilder = new JsonBuilder(Functions.basic());
+        context = JsonPath.using(BenchmarkUtils.configuration())
+                .parse(BenchmarkUtils.readResource("/templates/user_response.json", Map.class));
+
+        Map<?, ?> schema = BenchmarkUtils.readResource("/templates/user_schema.json", Map.class);
+        objectSchema = schema;
+        arraySchema = schema.get("items");
+        inlineSchema = schema.get("title");
+        if (compiled) {
+            objectSchema = jsonBuilder.compile(objectSchema);
+            arraySchema = jsonBuilder.compile(arraySchema);
+            inlineSchema = jsonBuilder.compile(inlineSchema);
+        }
+    }
+
+    @Benchmark
+    public Object object() {
+        return jsonBuilder.build(objectSchema, context);
+    }
+
+    @Benchmark
+    public Object array() {
+        return jsonBuilder.build(arraySchema, context);
+    }
+
+    @Benchmark
+    public Object inlineVariable() {
+        return jsonBuilder.build(inlineSchema, context);
+    }
+
+}
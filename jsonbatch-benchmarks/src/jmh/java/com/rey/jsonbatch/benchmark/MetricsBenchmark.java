@@ -0,0 +1,91 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.metrics.BatchMetrics;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of BatchMetrics on all cores: record__batch replays the listener callbacks of one fanout_batch execution,
+ * execute__* compare the engine with and without the metrics listener.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"fanout_batch"})
+    private String template;
+
+    private BatchMetrics metrics;
+    private BatchPlan plan;
+    private RequestPlan[] requestTemplates;
+    private Request originalRequest;
+    private Response response;
+
+    private BatchEngine batchEngine;
+    private BatchEngine measuredBatchEngine;
+
+    @Setup
+    public void setUp() {
+        JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+        plan = new TemplateCompiler(jsonBuilder).compile(BenchmarkUtils.readResource("/templates/" + template + ".json", BatchTemplate.class).freeze());
+        requestTemplates = plan.getRequests().toArray(new RequestPlan[0]);
+        metrics = new BatchMetrics().register(template, plan);
+
+        originalRequest = BenchmarkUtils.readResource("/templates/user_request.json", Request.class);
+        response = BenchmarkUtils.readResource("/templates/user_response.json", Response.class);
+        response.setBodySize(2048L);
+
+        StubRequestDispatcher dispatcher = new StubRequestDispatcher(response);
+        batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder, dispatcher);
+        measuredBatchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder, dispatcher, null, metrics);
+    }
+
+    @Benchmark
+    public BatchMetrics record__batch() {
+        long time = System.nanoTime();
+        for (RequestPlan requestTemplate : requestTemplates) {
+            metrics.onRequestBuilt(0, requestTemplate, originalRequest, time, time + 1_000);
+            metrics.onDispatchEnd(0, requestTemplate, originalRequest, response, null, time + 1_000, time + 500_000);
+            metrics.onTransform(0, requestTemplate, response, time + 500_000, time + 510_000);
+        }
+        metrics.onBatchEnd(0, originalRequest, plan, response, null, time, time + 600_000);
+        return metrics;
+    }
+
+    @Benchmark
+    public Response execute__withoutMetrics() throws Exception {
+        return batchEngine.execute(originalRequest, plan);
+    }
+
+    @Benchmark
+    public Response execute__withMetrics() throws Exception {
+        return measuredBatchEngine.execute(originalRequest, plan);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.parser.Parser;
+import com.rey.jsonbatch.parser.TokenValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    private static final Map<String, String> EXPRESSIONS = new HashMap<>();
+
+    static {
+        EXPRESSIONS.put("path", "$.responses[0].body.items[*].price");
+        EXPRESSIONS.put("function", "__sum(\"$.responses[0].body.items[*].price\")");
+        EXPRESSIONS.put("nested", "__sum(__max(\"$.responses[*].body.a\"), __min(\"$.responses[*].body.b\"), 10)");
+        EXPRESSIONS.put("deep", "__and(__cmp(\"@{__sum(__max(\\\"$.a[*]\\\"), __min(\\\"$.b[*]\\\"))}@ > 5\"), __or(\"$.c[*]\", __cmp(\"@{$.d}@ == 1\")))");
+    }
+
+    @Param({"path", "function", "nested", "deep"})
+    private String expression;
+
+    private Parser parser;
+
+    private String value;
+
+    @Setup
+    public void setUp() {
+        parser = new Parser();
+        value = EXPRESSIONS.get(expression);
+    }
+
+    @Benchmark
+    public List<TokenValue> parse() {
+        return parser.parse(value);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.dispatcher.RecordingRequestDispatcher;
+import com.rey.jsonbatch.dispatcher.ReplayRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplayDispatcherBenchmark {
+
+    @Param({"100000"})
+    private int records;
+
+    private Path file;
+    private ReplayRequestDispatcher replayRequestDispatcher;
+    private JsonProvider jsonProvider;
+    private DispatchOptions options;
+    private Request[] requests;
+
+    @Setup
+    public void setUp() throws Exception {
+        jsonProvider = BenchmarkUtils.configuration().jsonProvider();
+        options = new DispatchOptions();
+        Response response = BenchmarkUtils.readResource("/templates/user_response.json", Response.class);
+        requests = new Request[records];
+        file = Files.createTempFile("jsonbatch-replay", ".bin");
+        try (RecordingRequestDispatcher recorder = new RecordingRequestDispatcher(new StubRequestDispatcher(response), file)) {
+            for (int i = 0; i < records; i++) {
+                Request request = new Request();
+                request.setHttpMethod("GET");
+                request.setUrl("https://localhost/users/" + i);
+                request.setHeaders(Collections.emptyMap());
+                requests[i] = request;
+                recorder.dispatch(request, jsonProvider, options);
+            }
+        }
+        replayRequestDispatcher = new ReplayRequestDispatcher(file);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        replayRequestDispatcher.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Response replay() throws Exception {
+        return replayRequestDispatcher.dispatch(requests[ThreadLocalRandom.current().nextInt(records)], jsonProvider, options);
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.BatchResults;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchResult;
+import com.rey.jsonbatch.model.BatchStatistics;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.okhttp.OkHttpRequestDispatcher;
+import com.rey.jsonbatch.plan.BatchPlan;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ScenarioBenchmark {
+
+    private static final List<String> SCENARIOS = Arrays.asList("pagination", "fanout", "large_array", "transformers");
+
+    public static void main(String[] args) throws Exception {
+        List<String> scenarios = args.length > 0 && !args[0].equals("all") ? Arrays.asList(args[0].split(",")) : SCENARIOS;
+        long latencyMicros = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int batches = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        File output = new File(args.length > 4 ? args[4] : "build/reports/scenarios/results.json");
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("java_version", System.getProperty("java.version"));
+        report.put("max_heap_mb", Runtime.getRuntime().maxMemory() / 1024 / 1024);
+        report.put("latency_micros", latencyMicros);
+        report.put("batches", batches);
+        report.put("concurrency", concurrency);
+        List<Object> results = new ArrayList<>();
+        report.put("scenarios", results);
+
+        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher(concurrency * 16))
+                .connectionPool(new ConnectionPool(concurrency * 16, 5, TimeUnit.MINUTES))
+                .build();
+        ExecutorService engineExecutor = Executors.newCachedThreadPool();
+        ExecutorService batchExecutor = Executors.newFixedThreadPool(concurrency);
+        try (StubHttpServer server = new StubHttpServer(latencyMicros)) {
+            JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+            BatchEngine batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder,
+                    new OkHttpRequestDispatcher(okHttpClient), engineExecutor);
+            TemplateCompiler templateCompiler = new TemplateCompiler(jsonBuilder);
+
+            for (String scenario : scenarios) {
+                BatchPlan plan = templateCompiler.compile(
+                        BenchmarkUtils.readResource("/scenarios/" + scenario + ".json", BatchTemplate.class));
+                List<Request> requests = requests(server.getBaseUrl(), batches);
+
+                run(batchEngine, plan, requests.subList(0, Math.max(1, batches / 5)), batchExecutor, concurrency);
+                System.gc();
+                resetPeakHeap();
+                BatchStatistics statistics = run(batchEngine, plan, requests, batchExecutor, concurrency);
+                Map<String, Object> result = result(scenario, statistics, peakHeap());
+                results.add(result);
+                System.out.println(result);
+            }
+        } finally {
+            batchExecutor.shutdownNow();
+            engineExecutor.shutdownNow();
+            okHttpClient.dispatcher().executorService().shutdownNow();
+            okHttpClient.connectionPool().evictAll();
+        }
+
+        if (output.getParentFile() != null)
+            output.getParentFile().mkdirs();
+        BenchmarkUtils.OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, report);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    private static BatchStatistics run(BatchEngine batchEngine, BatchPlan plan, List<Request> requests,
+                                       ExecutorService executorService, int concurrency) {
+        try (BatchResults results = batchEngine.executeAll(requests, plan, executorService, concurrency)) {
+            while (results.hasNext()) {
+                BatchResult result = results.next();
+                if (result.getException() != null)
+                    throw new IllegalStateException("Batch " + result.getIndex() + " failed", result.getException());
+            }
+            return results.getStatistics();
+        }
+    }
+
+    private static List<Request> requests(String baseUrl, int count) {
+        List<Request> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> body = new HashMap<>();
+            body.put("base_url", baseUrl);
+            body.put("user_id", i);
+            Request request = new Request();
+            request.setHttpMethod("POST");
+            request.setHeaders(Collections.emptyMap());
+            request.setBody(body);
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private static Map<String, Object> result(String scenario, BatchStatistics statistics, long peakHeap) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("min", toMillis(statistics.getMinLatency()));
+        latency.put("mean", toMillis(statistics.getMeanLatency()));
+        latency.put("p50", toMillis(statistics.getLatency(50)));
+        latency.put("p90", toMillis(statistics.getLatency(90)));
+        latency.put("p99", toMillis(statistics.getLatency(99)));
+        latency.put("p999", toMillis(statistics.getLatency(99.9)));
+        latency.put("max", toMillis(statistics.getMaxLatency()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", scenario);
+        result.put("count", statistics.getCount());
+        result.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(statistics.getElapsedTime()));
+        result.put("throughput", Math.round(statistics.getThroughput() * 100) / 100.0);
+        result.put("latency_ms", latency);
+        result.put("peak_heap_mb", peakHeap / 1024 / 1024);
+        return result;
+    }
+
+    private static Dispatcher dispatcher(int maxRequests) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        return dispatcher;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.fixtures.LatencyDistribution;
+import com.rey.jsonbatch.fixtures.SimulatedRequestDispatcher;
+import com.rey.jsonbatch.fixtures.VirtualClock;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs a user lookup followed by a parallel loop over its pages on a virtual clock for every loop parallelism,
+ * so thousands of batches with long-tail latencies and errors finish in seconds and give the same numbers for the same seed.
+ */
+public class SchedulingSimulationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> parallelisms = new ArrayList<>();
+        for (String value : (args.length > 0 ? args[0] : "1,2,4,8,16").split(","))
+            parallelisms.add(Integer.parseInt(value));
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int pages = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+        double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.001;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        File output = new File(args.length > 5 ? args[5] : "build/reports/simulation/results.json");
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("runs", runs);
+        report.put("pages", pages);
+        report.put("error_rate", errorRate);
+        report.put("seed", seed);
+        List<Object> results = new ArrayList<>();
+        report.put("parallelisms", results);
+
+        JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+        BatchTemplate template = BenchmarkUtils.readResource("/simulation/fanout_pages.json", BatchTemplate.class);
+        for (int parallelism : parallelisms) {
+            template.getLoopOptions().setParallelism(parallelism);
+            BatchPlan plan = new TemplateCompiler(jsonBuilder).compile(template);
+            Map<String, Object> result = simulate(plan, jsonBuilder, parallelism, runs, pages, errorRate, seed);
+            results.add(result);
+            System.out.println(result);
+        }
+
+        if (output.getParentFile() != null)
+            output.getParentFile().mkdirs();
+        BenchmarkUtils.OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(output, report);
+        System.out.println("Results written to " + output.getAbsolutePath());
+    }
+
+    private static Map<String, Object> simulate(BatchPlan plan, JsonBuilder jsonBuilder, int parallelism, int runs,
+                                                int pages, double errorRate, long seed) throws Exception {
+        long[] times = new long[runs];
+        int failures = 0;
+        int maxInFlight = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            VirtualClock clock = new VirtualClock();
+            SimulatedRequestDispatcher dispatcher = new SimulatedRequestDispatcher(clock, seed + i)
+                    .addRoute(".*/pages/.*", LatencyDistribution.pareto(20, 1.5), errorRate)
+                    .addRoute(".*/users/.*", LatencyDistribution.normal(50, 10), errorRate, request -> user(pages));
+            BatchEngine batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder, dispatcher);
+            try {
+                clock.run(batchEngine.executeAsync(request(), plan));
+            } catch (Exception ex) {
+                failures++;
+            }
+            times[i] = clock.nanoTime();
+            maxInFlight = Math.max(maxInFlight, dispatcher.getMaxInFlight());
+        }
+        long wallTime = System.nanoTime() - start;
+        Arrays.sort(times);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", toMillis(times[percentileIndex(runs, 50)]));
+        latency.put("p90", toMillis(times[percentileIndex(runs, 90)]));
+        latency.put("p99", toMillis(times[percentileIndex(runs, 99)]));
+        latency.put("max", toMillis(times[runs - 1]));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parallelism", parallelism);
+        result.put("max_in_flight", maxInFlight);
+        result.put("failed_batches", failures);
+        result.put("simulated_batch_ms", latency);
+        result.put("wall_ms", TimeUnit.NANOSECONDS.toMillis(wallTime));
+        return result;
+    }
+
+    private static int percentileIndex(int count, double percentile) {
+        return Math.min(count - 1, (int) Math.ceil(percentile / 100 * count) - 1);
+    }
+
+    private static Response user(int pages) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("total_page", pages);
+        Response response = new Response();
+        response.setStatus(200);
+        response.setHeaders(Collections.emptyMap());
+        response.setBody(body);
+        return response;
+    }
+
+    private static Request request() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("base_url", "http://simulated");
+        Request request = new Request();
+        request.setHttpMethod("POST");
+        request.setHeaders(Collections.emptyMap());
+        request.setBody(body);
+        return request;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+}
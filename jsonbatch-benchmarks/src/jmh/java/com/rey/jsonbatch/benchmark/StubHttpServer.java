@@ -0,0 +1,173 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StubHttpServer implements AutoCloseable {
+
+    private static final int PAGE_SIZE = 10;
+    private static final String THREAD_PREFIX = "stub-http-";
+    private static final String DISPATCHER_THREAD = "HTTP-Dispatcher";
+
+    static {
+        // without it the JDK server waits for delayed ACKs and adds ~40ms to every keep-alive response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executorService;
+    private final long latencyMicros;
+
+    private final Map<Integer, byte[]> itemBodies = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> payloadBodies = new ConcurrentHashMap<>();
+    private final byte[] userBody;
+
+    private final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public StubHttpServer(long latencyMicros) throws IOException {
+        this.latencyMicros = latencyMicros;
+        this.userBody = toBytes(user(1));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executorService = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_PREFIX + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.setExecutor(executorService);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void resetCounters() {
+        connections.clear();
+        requestCount.set(0);
+    }
+
+    public static boolean isServerThread(String threadName) {
+        return threadName != null && (threadName.startsWith(THREAD_PREFIX) || threadName.startsWith(DISPATCHER_THREAD));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress().getPort());
+        requestCount.incrementAndGet();
+        try {
+            if (latencyMicros > 0)
+                TimeUnit.MICROSECONDS.sleep(latencyMicros);
+            String[] segments = exchange.getRequestURI().getPath().split("/");
+            byte[] body;
+            if (segments.length > 2 && segments[1].equals("pages"))
+                body = toBytes(page(Integer.parseInt(segments[2])));
+            else if (segments.length > 2 && segments[1].equals("items"))
+                body = itemBodies.computeIfAbsent(Integer.parseInt(segments[2]), size -> toBytes(items(size)));
+            else if (segments.length > 2 && segments[1].equals("payload"))
+                body = payloadBodies.computeIfAbsent(Integer.parseInt(segments[2]), StubHttpServer::payload);
+            else
+                body = userBody;
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } catch (RuntimeException ex) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, Object> page(int page) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("page", page);
+        body.put("next", page + 1);
+        body.put("items", itemList(PAGE_SIZE));
+        return body;
+    }
+
+    private static Map<String, Object> user(int id) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", id);
+        body.put("name", "Leanne Graham");
+        body.put("email", "leanne@localhost");
+        body.put("items", itemList(5));
+        return body;
+    }
+
+    private static Map<String, Object> items(int size) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", size);
+        body.put("items", itemList(size));
+        return body;
+    }
+
+    private static byte[] payload(int bytes) {
+        List<Object> items = new ArrayList<>();
+        byte[] body = toBytes(Collections.singletonMap("items", items));
+        while (body.length < bytes) {
+            items.addAll(itemList(Math.max(1, (bytes - body.length) / 40)));
+            body = toBytes(Collections.singletonMap("items", items));
+        }
+        return body;
+    }
+
+    private static List<Object> itemList(int size) {
+        List<Object> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", i);
+            item.put("name", "item " + i);
+            item.put("price", i % 100 + 0.5);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static byte[] toBytes(Object body) {
+        try {
+            return BenchmarkUtils.OBJECT_MAPPER.writeValueAsBytes(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot write body", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+public class StubRequestDispatcher implements RequestDispatcher {
+
+    private Response response;
+
+    public StubRequestDispatcher(Response response) {
+        this.response = response;
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        return response;
+    }
+
+}
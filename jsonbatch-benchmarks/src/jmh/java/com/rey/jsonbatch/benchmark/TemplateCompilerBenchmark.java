@@ -0,0 +1,86 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.schema.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateCompilerBenchmark {
+
+    private JsonBuilder jsonBuilder;
+    private BatchEngine batchEngine;
+
+    private BatchTemplate template;
+    private BatchPlan plan;
+
+    private Object schema;
+    private Schema compiledSchema;
+    private DocumentContext context;
+
+    private Request originalRequest;
+
+    @Setup
+    public void setUp() {
+        Configuration configuration = BenchmarkUtils.configuration();
+        jsonBuilder = new JsonBuilder(Functions.basic());
+        batchEngine = new BatchEngine(configuration, jsonBuilder,
+                new StubRequestDispatcher(BenchmarkUtils.readResource("/templates/user_response.json", Response.class)));
+
+        template = BenchmarkUtils.readResource("/templates/user_batch.json", BatchTemplate.class);
+        plan = new TemplateCompiler(jsonBuilder).compile(template);
+
+        originalRequest = BenchmarkUtils.readResource("/templates/user_request.json", Request.class);
+
+        schema = BenchmarkUtils.readResource("/templates/user_schema.json", Map.class);
+        compiledSchema = jsonBuilder.compile(schema);
+        context = JsonPath.using(configuration).parse(BenchmarkUtils.readResource("/templates/user_response.json", Map.class));
+    }
+
+    @Benchmark
+    public Object jsonBuilder__interpreted() {
+        return jsonBuilder.build(schema, context);
+    }
+
+    @Benchmark
+    public Object jsonBuilder__compiled() {
+        return jsonBuilder.build(compiledSchema, context);
+    }
+
+    @Benchmark
+    public Response batchEngine__interpreted() throws Exception {
+        return batchEngine.execute(originalRequest, template);
+    }
+
+    @Benchmark
+    public Response batchEngine__compiled() throws Exception {
+        return batchEngine.execute(originalRequest, plan);
+    }
+
+}
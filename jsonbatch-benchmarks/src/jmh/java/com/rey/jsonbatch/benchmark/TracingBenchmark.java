@@ -0,0 +1,109 @@
+package com.rey.jsonbatch.benchmark;
+
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.opentelemetry.TracingBatchEventListener;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of TracingBatchEventListener with a sampled SDK tracer and an exporter that drops spans:
+ * span__dispatch opens and ends one dispatch span (with traceparent injection),
+ * execute__* compare the engine with and without tracing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TracingBenchmark {
+
+    @Param({"fanout_batch"})
+    private String template;
+
+    private TracingBatchEventListener listener;
+    private BatchPlan plan;
+    private RequestPlan requestTemplate;
+    private Request originalRequest;
+    private Request request;
+    private Response response;
+
+    private BatchEngine batchEngine;
+    private BatchEngine tracedBatchEngine;
+
+    @Setup
+    public void setUp() {
+        JsonBuilder jsonBuilder = new JsonBuilder(Functions.basic());
+        plan = new TemplateCompiler(jsonBuilder).compile(BenchmarkUtils.readResource("/templates/" + template + ".json", BatchTemplate.class).freeze());
+        requestTemplate = plan.getRequests().get(0);
+
+        listener = new TracingBatchEventListener(OpenTelemetrySdk.builder()
+                .setTracerProvider(SdkTracerProvider.builder()
+                        .addSpanProcessor(SimpleSpanProcessor.create(SpanExporter.composite()))
+                        .build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build());
+
+        originalRequest = BenchmarkUtils.readResource("/templates/user_request.json", Request.class);
+        request = BenchmarkUtils.readResource("/templates/user_request.json", Request.class);
+        response = BenchmarkUtils.readResource("/templates/user_response.json", Response.class);
+        response.setBodySize(2048L);
+
+        listener.onBatchStart(0, originalRequest, plan, System.nanoTime());
+        listener.onRequestBuilt(0, requestTemplate, request, System.nanoTime(), System.nanoTime());
+
+        StubRequestDispatcher dispatcher = new StubRequestDispatcher(response);
+        batchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder, dispatcher);
+        tracedBatchEngine = new BatchEngine(BenchmarkUtils.configuration(), jsonBuilder, dispatcher, null, listener);
+    }
+
+    @TearDown
+    public void tearDown() {
+        listener.onBatchEnd(0, originalRequest, plan, response, null, 0, System.nanoTime());
+    }
+
+    @Benchmark
+    public Request span__dispatch() {
+        long time = System.nanoTime();
+        listener.onDispatchStart(0, requestTemplate, request, time);
+        listener.onDispatchEnd(0, requestTemplate, request, response, null, time, time + 500_000);
+        return request;
+    }
+
+    @Benchmark
+    public Response execute__withoutTracing() throws Exception {
+        return batchEngine.execute(originalRequest, plan);
+    }
+
+    @Benchmark
+    public Response execute__withTracing() throws Exception {
+        return tracedBatchEngine.execute(originalRequest, plan);
+    }
+
+}
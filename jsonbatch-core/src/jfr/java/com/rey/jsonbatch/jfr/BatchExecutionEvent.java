@@ -0,0 +1,29 @@
+package com.rey.jsonbatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.rey.jsonbatch.BatchExecution")
+@Label("Batch Execution")
+@Description("A batch executed by BatchEngine, from the original request to the final response")
+@Category("JsonBatch")
+@StackTrace(false)
+public class BatchExecutionEvent extends Event {
+
+    @Label("HTTP Method")
+    public String httpMethod;
+
+    @Label("URL")
+    public String url;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Error")
+    public String error;
+
+}
@@ -0,0 +1,40 @@
+package com.rey.jsonbatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.rey.jsonbatch.Dispatch")
+@Label("Step Dispatch")
+@Description("A request of a batch step passed to the RequestDispatcher, until its response or error")
+@Category("JsonBatch")
+@StackTrace(false)
+public class DispatchEvent extends Event {
+
+    @Label("Template Id")
+    public String templateId;
+
+    @Label("Index")
+    public int index;
+
+    @Label("HTTP Method")
+    public String httpMethod;
+
+    @Label("URL")
+    public String url;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bodySize = -1;
+
+    @Label("Error")
+    public String error;
+
+}
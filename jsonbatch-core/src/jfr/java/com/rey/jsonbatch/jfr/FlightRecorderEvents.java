@@ -0,0 +1,144 @@
+package com.rey.jsonbatch.jfr;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/*
+ * Loaded by JfrSupport, it tracks the recording state with a FlightRecorderListener.
+ */
+class FlightRecorderEvents implements JfrEvents, FlightRecorderListener {
+
+    FlightRecorderEvents() {
+        try {
+            FlightRecorder.addListener(this);
+            if (FlightRecorder.isInitialized())
+                update();
+        } catch (SecurityException ex) {
+            JfrSupport.setRecording(false);
+        }
+    }
+
+    @Override
+    public void recordingStateChanged(Recording changed) {
+        update();
+    }
+
+    private void update() {
+        boolean running = false;
+        for (Recording current : FlightRecorder.getFlightRecorder().getRecordings())
+            running |= current.getState() == RecordingState.RUNNING;
+        JfrSupport.setRecording(running);
+    }
+
+    @Override
+    public Object beginBatch() {
+        BatchExecutionEvent event = new BatchExecutionEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitBatch(Object batchEvent, String httpMethod, String url, Integer status, Throwable error) {
+        BatchExecutionEvent event = (BatchExecutionEvent) batchEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.httpMethod = httpMethod;
+            event.url = url;
+            event.status = status == null ? 0 : status;
+            if (error != null)
+                event.error = error.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginDispatch() {
+        DispatchEvent event = new DispatchEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitDispatch(Object dispatchEvent, String templateId, int index, String httpMethod, String url, Integer status, Long bodySize, Throwable error) {
+        DispatchEvent event = (DispatchEvent) dispatchEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.templateId = templateId;
+            event.index = index;
+            event.httpMethod = httpMethod;
+            event.url = url;
+            event.status = status == null ? 0 : status;
+            event.bodySize = bodySize == null ? -1 : bodySize;
+            if (error != null)
+                event.error = error.toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginFunction() {
+        FunctionEvent event = new FunctionEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitFunction(Object functionEvent, String function, boolean reduce, int arguments) {
+        FunctionEvent event = (FunctionEvent) functionEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.function = function;
+            event.reduce = reduce;
+            event.arguments = arguments;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginJsonPathRead() {
+        JsonPathReadEvent event = new JsonPathReadEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitJsonPathRead(Object jsonPathReadEvent, String path) {
+        JsonPathReadEvent event = (JsonPathReadEvent) jsonPathReadEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginSchemaBuild() {
+        SchemaBuildEvent event = new SchemaBuildEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitSchemaBuild(Object schemaBuildEvent, String schemaType, boolean streaming) {
+        SchemaBuildEvent event = (SchemaBuildEvent) schemaBuildEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.schemaType = schemaType;
+            event.streaming = streaming;
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.rey.jsonbatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.rey.jsonbatch.Function")
+@Label("Function Call")
+@Description("A function of a schema evaluated with its arguments (Function.invoke, or all Function.handle calls of a reduce function)")
+@Category("JsonBatch")
+@StackTrace(false)
+public class FunctionEvent extends Event {
+
+    @Label("Function")
+    public String function;
+
+    @Label("Reduce")
+    public boolean reduce;
+
+    @Label("Arguments")
+    public int arguments;
+
+}
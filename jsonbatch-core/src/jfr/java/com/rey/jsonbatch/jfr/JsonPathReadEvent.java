@@ -0,0 +1,20 @@
+package com.rey.jsonbatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.rey.jsonbatch.JsonPathRead")
+@Label("JsonPath Read")
+@Description("A JsonPath read from the batch context that took longer than the threshold")
+@Category("JsonBatch")
+@Threshold("1 ms")
+public class JsonPathReadEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+}
@@ -0,0 +1,24 @@
+package com.rey.jsonbatch.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.rey.jsonbatch.SchemaBuild")
+@Label("Schema Build")
+@Description("JsonBuilder building or writing a top-level schema")
+@Category("JsonBatch")
+@StackTrace(false)
+public class SchemaBuildEvent extends Event {
+
+    @Label("Schema Type")
+    public String schemaType;
+
+    @Label("Streaming")
+    @Description("The schema is written to a JsonSink instead of built")
+    public boolean streaming;
+
+}
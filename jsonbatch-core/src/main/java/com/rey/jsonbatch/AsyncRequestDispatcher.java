@@ -0,0 +1,27 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+public interface AsyncRequestDispatcher extends RequestDispatcher {
+
+    CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options);
+
+    @Override
+    default Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        try {
+            return dispatchAsync(request, jsonProvider, options).get();
+        } catch (ExecutionException | CompletionException ex) {
+            if (ex.getCause() instanceof Exception)
+                throw (Exception) ex.getCause();
+            throw ex;
+        }
+    }
+
+}
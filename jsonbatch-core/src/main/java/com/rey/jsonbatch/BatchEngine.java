@@ -4,20 +4,31 @@ import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.rey.jsonbatch.function.MathUtils;
+import com.rey.jsonbatch.jfr.JfrSupport;
+import com.rey.jsonbatch.model.BatchResult;
+import com.rey.jsonbatch.model.BatchStatistics;
 import com.rey.jsonbatch.model.BatchTemplate;
 import com.rey.jsonbatch.model.DispatchOptions;
-import com.rey.jsonbatch.model.LoopOptions;
-import com.rey.jsonbatch.model.LoopTemplate;
 import com.rey.jsonbatch.model.Request;
-import com.rey.jsonbatch.model.RequestTemplate;
 import com.rey.jsonbatch.model.Response;
-import com.rey.jsonbatch.model.ResponseTemplate;
-import com.rey.jsonbatch.model.VarTemplate;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.Liveness;
+import com.rey.jsonbatch.plan.LoopPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import com.rey.jsonbatch.plan.ResponsePlan;
+import com.rey.jsonbatch.plan.VarPlan;
+import com.rey.jsonbatch.profile.BatchProfiler;
+import com.rey.jsonbatch.profile.ProfiledResponse;
+import com.rey.jsonbatch.projection.Projection;
+import com.rey.jsonbatch.sink.JsonSink;
+import com.rey.jsonbatch.sink.JsonWriterSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.OutputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -25,6 +36,16 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked")
@@ -32,9 +53,14 @@ public class BatchEngine {
 
     private Logger logger = LoggerFactory.getLogger(BatchEngine.class);
 
-    private Configuration configuration;
-    private JsonBuilder jsonBuilder;
-    private RequestDispatcher requestDispatcher;
+    private final Configuration configuration;
+    private final JsonBuilder jsonBuilder;
+    private final RequestDispatcher requestDispatcher;
+    private final TemplateCompiler templateCompiler;
+    private final Executor executor;
+    private final BatchEventListener eventListener;
+
+    private final AtomicLong batchIds = new AtomicLong();
 
     private static final String KEY_ORIGINAL = "original";
     private static final String KEY_REQUESTS = "requests";
@@ -42,153 +68,445 @@ public class BatchEngine {
     private static final String KEY_COUNTER = "counter";
     private static final String KEY_TIMES = "times";
     private static final String KEY_VARS = "vars";
+    private static final String KEY_PRUNED = "pruned";
+
+    private static final Map<String, Object> TOMBSTONE = Collections.singletonMap(KEY_PRUNED, true);
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
 
     public BatchEngine(Configuration configuration,
                        JsonBuilder jsonBuilder,
                        RequestDispatcher requestDispatcher) {
+        this(configuration, jsonBuilder, requestDispatcher, null);
+    }
+
+    public BatchEngine(Configuration configuration,
+                       JsonBuilder jsonBuilder,
+                       RequestDispatcher requestDispatcher,
+                       Executor executor) {
+        this(configuration, jsonBuilder, requestDispatcher, executor, null);
+    }
+
+    public BatchEngine(Configuration configuration,
+                       JsonBuilder jsonBuilder,
+                       RequestDispatcher requestDispatcher,
+                       Executor executor,
+                       BatchEventListener eventListener) {
         this.configuration = configuration;
         this.jsonBuilder = jsonBuilder;
         this.requestDispatcher = requestDispatcher;
+        this.templateCompiler = new TemplateCompiler(jsonBuilder);
+        this.executor = executor;
+        this.eventListener = eventListener;
     }
 
     public Response execute(Request originalRequest, BatchTemplate template) throws Exception {
-        logger.info("Start executing batch with [{}] original request", originalRequest);
-        DocumentContext context = JsonPath.using(configuration).parse("{}");
-        Map<String, Object> jsonContext = context.json();
-        jsonContext.put(KEY_ORIGINAL, originalRequest.toMap());
-        jsonContext.put(KEY_REQUESTS, new ArrayList<>());
-        jsonContext.put(KEY_RESPONSES, new ArrayList<>());
-        if (template.getDispatchOptions() == null)
-            template.setDispatchOptions(new DispatchOptions());
-        if (template.getLoopOptions() == null)
-            template.setLoopOptions(new LoopOptions());
-
-        Deque<Step> queue = new ArrayDeque<>();
-        Step step = buildStep(template.getRequests(), (List) jsonContext.get(KEY_REQUESTS), (List) jsonContext.get(KEY_RESPONSES), context, 0);
-        if (step != null)
-            queue.push(step);
-
-        while (!queue.isEmpty()) {
-            step = queue.pop();
-
-            if (isLoopStep(step)) {
-                LoopTemplate loopTemplate = step.requestTemplate.getLoop();
-                logger.info("Start loop request with [{}] index and [{}] loop time", step.index, step.loopTime);
-                if (step.loopTime == 0) {
-                    Object counter = jsonBuilder.build(loopTemplate.getCounterInit(), context);
-
-                    step.loopRequest = new HashMap<>();
-                    step.loopRequest.put(KEY_COUNTER, counter);
-                    step.loopRequest.put(KEY_TIMES, new ArrayList<>());
-                    step.requests.add(step.loopRequest);
-
-                    step.loopResponse = new HashMap<>();
-                    step.loopResponse.put(KEY_TIMES, new ArrayList<>());
-                    step.responses.add(step.loopResponse);
-                } else {
-                    Object counter = jsonBuilder.build(loopTemplate.getCounterUpdate(), context);
-                    step.loopRequest.put(KEY_COUNTER, counter);
-                }
+        return execute(originalRequest, templateCompiler.compile(template));
+    }
 
-                if (step.loopTime >= template.getLoopOptions().getMaxLoopTime()) {
-                    logger.warn("Loop request with [{}] index exceed max loop time", step.index);
-                } else {
-                    boolean shouldLoop = MathUtils.toBoolean(jsonBuilder.build(loopTemplate.getCounterPredicate(), context), true);
-                    if (shouldLoop) {
-                        Step nextStep = buildStep(loopTemplate.getRequests(), new ArrayList<>(), new ArrayList<>(), context, 0);
-                        if (nextStep != null) {
-                            ((List<Object>) step.loopRequest.get(KEY_TIMES)).add(nextStep.requests);
-                            ((List<Object>) step.loopResponse.get(KEY_TIMES)).add(nextStep.responses);
-                            queue.push(step);
-                            queue.push(nextStep);
-                            step.loopTime++;
-                            continue;
-                        }
-                    }
-                }
+    public Response execute(Request originalRequest, BatchPlan template) throws Exception {
+        return run(new Execution(originalRequest, template, false));
+    }
 
-                processVars(step.requestTemplate.getVars(), context, jsonContext);
+    public Response execute(Request originalRequest, BatchTemplate template, OutputStream outputStream) throws Exception {
+        return execute(originalRequest, templateCompiler.compile(template), outputStream);
+    }
+
+    public Response execute(Request originalRequest, BatchPlan template, OutputStream outputStream) throws Exception {
+        return execute(originalRequest, template, new JsonWriterSink(outputStream, configuration.jsonProvider()));
+    }
 
-                ResponseTemplate responseTemplate = chooseResponseTemplate(step.requestTemplate.getResponses(), context);
-                if (responseTemplate != null) {
-                    logger.info("Found break response");
-                    Response response = buildResponse(responseTemplate, context, 200);
-                    logger.info("Done executing batch with [{}] original request", originalRequest);
-                    return response;
+    public Response execute(Request originalRequest, BatchTemplate template, JsonSink sink) throws Exception {
+        return execute(originalRequest, templateCompiler.compile(template), sink);
+    }
+
+    public Response execute(Request originalRequest, BatchPlan template, JsonSink sink) throws Exception {
+        Execution execution = new Execution(originalRequest, template, true);
+        Response response = run(execution);
+        if (execution.responseTemplate == null) {
+            sink.value(response.getBody());
+            response.setBody(null);
+        } else if (execution.responseTemplate.getBody() == null)
+            sink.value(null);
+        else
+            jsonBuilder.write(execution.responseTemplate.getBody(), execution.context, sink);
+        sink.flush();
+        return response;
+    }
+
+    public ProfiledResponse executeWithProfile(Request originalRequest, BatchTemplate template) throws Exception {
+        return executeWithProfile(originalRequest, templateCompiler.compile(template));
+    }
+
+    public ProfiledResponse executeWithProfile(Request originalRequest, BatchPlan template) throws Exception {
+        BatchProfiler profiler = new BatchProfiler(template, configuration.jsonProvider());
+        BatchEventListener listener = eventListener == null ? profiler : BatchEventListener.composite(eventListener, profiler);
+        Response response = run(new Execution(originalRequest, template, false, listener));
+        return new ProfiledResponse(response, profiler.getProfile());
+    }
+
+    private Response run(Execution execution) throws Exception {
+        try {
+            List<Step> steps;
+            while ((steps = execution.next()) != null) {
+                if (execution.complete(steps, dispatchAll(execution, steps)))
+                    break;
+            }
+        } catch (Exception ex) {
+            commitBatchEvent(execution, null, ex);
+            if (execution.eventListener != null)
+                execution.eventListener.onBatchEnd(execution.batchId, execution.originalRequest, execution.template, null, ex, execution.startTime, System.nanoTime());
+            throw ex;
+        }
+        commitBatchEvent(execution, execution.response, null);
+        if (execution.eventListener != null)
+            execution.eventListener.onBatchEnd(execution.batchId, execution.originalRequest, execution.template, execution.response, null, execution.startTime, System.nanoTime());
+        return execution.response;
+    }
+
+    public BatchResults executeAll(Iterable<Request> originalRequests, BatchTemplate template, ExecutorService executorService) {
+        return executeAll(originalRequests, template, executorService, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public BatchResults executeAll(Iterable<Request> originalRequests, BatchTemplate template, ExecutorService executorService, int maxInFlight) {
+        return executeAll(originalRequests, templateCompiler.compile(template), executorService, maxInFlight);
+    }
+
+    public BatchResults executeAll(Iterable<Request> originalRequests, BatchPlan template, ExecutorService executorService, int maxInFlight) {
+        return new BatchResults(this, template, originalRequests.iterator(), executorService, maxInFlight);
+    }
+
+    public BatchStatistics executeAll(Iterable<Request> originalRequests, BatchTemplate template, ExecutorService executorService,
+                                      Consumer<BatchResult> callback) {
+        return executeAll(originalRequests, template, executorService, DEFAULT_MAX_IN_FLIGHT, callback);
+    }
+
+    public BatchStatistics executeAll(Iterable<Request> originalRequests, BatchTemplate template, ExecutorService executorService,
+                                      int maxInFlight, Consumer<BatchResult> callback) {
+        try (BatchResults results = executeAll(originalRequests, template, executorService, maxInFlight)) {
+            while (results.hasNext())
+                callback.accept(results.next());
+            return results.getStatistics();
+        }
+    }
+
+    public CompletableFuture<Response> executeAsync(Request originalRequest, BatchTemplate template) {
+        try {
+            return executeAsync(originalRequest, templateCompiler.compile(template));
+        } catch (Exception ex) {
+            return failedFuture(ex);
+        }
+    }
+
+    public CompletableFuture<Response> executeAsync(Request originalRequest, BatchPlan template) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        try {
+            Execution execution = new Execution(originalRequest, template, false);
+            if (execution.batchEvent != null)
+                result.whenComplete((response, throwable) -> commitBatchEvent(execution, response, throwable));
+            if (execution.eventListener != null)
+                result.whenComplete((response, throwable) -> execution.eventListener.onBatchEnd(execution.batchId, originalRequest, template, response, throwable, execution.startTime, System.nanoTime()));
+            resume(execution, result);
+        } catch (Exception ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    private void resume(Execution execution, CompletableFuture<Response> result) {
+        try {
+            List<Step> steps;
+            while ((steps = execution.next()) != null) {
+                List<Step> dispatchedSteps = steps;
+                CompletableFuture<List<Response>> future = dispatchAllAsync(execution, steps);
+                if (!future.isDone()) {
+                    future.whenComplete((responses, throwable) -> {
+                        if (throwable != null) {
+                            result.completeExceptionally(unwrap(throwable));
+                            return;
+                        }
+                        try {
+                            if (execution.complete(dispatchedSteps, responses))
+                                result.complete(execution.response);
+                            else
+                                resume(execution, result);
+                        } catch (Exception ex) {
+                            result.completeExceptionally(ex);
+                        }
+                    });
+                    return;
                 }
-                step = buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, context, step.index + 1);
-                if (step != null)
-                    queue.push(step);
-            } else {
-                logger.info("Start executing request with [{}] index", step.index);
-                Request request = buildRequest(step.requestTemplate, context);
-                Response response = requestDispatcher.dispatch(request, configuration.jsonProvider(), template.getDispatchOptions());
-                logger.info("Done executing request with [{}] index", step.index);
+                List<Response> responses;
+                try {
+                    responses = future.join();
+                } catch (CompletionException ex) {
+                    result.completeExceptionally(unwrap(ex));
+                    return;
+                }
+                if (execution.complete(steps, responses))
+                    break;
+            }
+            result.complete(execution.response);
+        } catch (Exception ex) {
+            result.completeExceptionally(ex);
+        }
+    }
 
-                Response transformedResponse = transformResponse(response, step.requestTemplate.getTransformers());
-                step.requests.add(request.toMap());
-                step.responses.add(transformedResponse.toMap());
+    private List<Step> chainIndependentSteps(Execution execution, Step step) {
+        List<Step> steps = new ArrayList<>();
+        steps.add(step);
+        if (executor == null)
+            return steps;
+
+        while (canChain(step.requestTemplate)) {
+            Step nextStep = execution.buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, step.index + 1);
+            if (nextStep == null || !nextStep.requestTemplate.isIndependent())
+                break;
+            steps.add(nextStep);
+            step = nextStep;
+        }
+        if (steps.size() > 1)
+            logger.debug("Found [{}] independent requests from [{}] index", steps.size(), steps.get(0).index);
+        return steps;
+    }
 
-                processVars(step.requestTemplate.getVars(), context, jsonContext);
+    private boolean canChain(RequestPlan requestTemplate) {
+        if (requestTemplate.getResponses() != null && !requestTemplate.getResponses().isEmpty())
+            return false;
+        if (requestTemplate.getRequests() == null || requestTemplate.getRequests().isEmpty())
+            return false;
+        for (RequestPlan nextTemplate : requestTemplate.getRequests()) {
+            if (!nextTemplate.isIndependent())
+                return false;
+        }
+        return true;
+    }
 
-                ResponseTemplate responseTemplate = chooseResponseTemplate(step.requestTemplate.getResponses(), context);
-                if (responseTemplate != null) {
-                    logger.info("Found break response");
-                    response = buildResponse(responseTemplate, context, 200);
-                    logger.info("Done executing batch with [{}] original request", originalRequest);
-                    return response;
+    private List<Response> dispatchAll(Execution execution, List<Step> steps) throws Exception {
+        if (steps.size() == 1)
+            return Collections.singletonList(dispatch(execution, steps.get(0)));
+
+        int workers = executor == null ? 1 : Math.min(execution.parallelism, steps.size());
+        Response[] responses = new Response[steps.size()];
+        AtomicInteger cursor = new AtomicInteger(workers);
+        List<Fork> forks = new ArrayList<>(workers);
+        try {
+            for (int i = 1; i < workers; i++) {
+                int index = i;
+                Fork fork = new Fork(() -> dispatchFrom(execution, index, steps, responses, cursor), forks);
+                synchronized (forks) {
+                    forks.add(fork);
                 }
+                executor.execute(fork);
+            }
+
+            dispatchFrom(execution, 0, steps, responses, cursor);
+            // a fork still queued behind busy workers of a shared executor is run here instead of waited for, run() is a no-op once it started
+            for (Fork fork : forks) {
+                fork.run();
+                fork.get();
+            }
+            return Arrays.asList(responses);
+        } catch (ExecutionException ex) {
+            cancelAll(forks);
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw ex;
+        } catch (Exception ex) {
+            cancelAll(forks);
+            throw ex;
+        }
+    }
 
-                step = buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, context, step.index + 1);
-                if (step != null)
-                    queue.push(step);
+    private Void dispatchFrom(Execution execution, int index, List<Step> steps, Response[] responses, AtomicInteger cursor) throws Exception {
+        try {
+            while (index < steps.size()) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new InterruptedException();
+                responses[index] = dispatch(execution, steps.get(index));
+                index = cursor.getAndIncrement();
             }
+            return null;
+        } catch (Exception ex) {
+            cursor.set(steps.size());
+            throw ex;
+        }
+    }
+
+    private static void cancelAll(List<Fork> forks) {
+        synchronized (forks) {
+            for (Fork fork : forks)
+                fork.cancel(true);
         }
+    }
 
+    private Response dispatch(Execution execution, Step step) throws Exception {
+        logger.debug("Start executing request with [{}] index", step.index);
+        long start = 0;
+        if (execution.eventListener != null) {
+            start = System.nanoTime();
+            execution.eventListener.onDispatchStart(execution.batchId, step.requestTemplate, step.request, start);
+        }
+        Object event = JfrSupport.beginDispatch();
         Response response;
-        ResponseTemplate responseTemplate = chooseResponseTemplate(template.getResponses(), context);
-        if (responseTemplate != null) {
-            logger.info("Found final response");
-            response = buildResponse(responseTemplate, context, 200);
+        try {
+            response = dispatch(execution.requestDispatcher, step.request, execution.template.getDispatchOptions(), execution.template.getProjection(step.requestTemplate));
+        } catch (Exception ex) {
+            commitDispatchEvent(event, step, null, ex);
+            if (execution.eventListener != null)
+                execution.eventListener.onDispatchEnd(execution.batchId, step.requestTemplate, step.request, null, ex, start, System.nanoTime());
+            throw ex;
+        }
+        commitDispatchEvent(event, step, response, null);
+        if (execution.eventListener != null)
+            execution.eventListener.onDispatchEnd(execution.batchId, step.requestTemplate, step.request, response, null, start, System.nanoTime());
+        logger.debug("Done executing request with [{}] index", step.index);
+        return response;
+    }
+
+    private Response dispatch(RequestDispatcher requestDispatcher, Request request, DispatchOptions options, Projection projection) throws Exception {
+        if (requestDispatcher instanceof ProjectingRequestDispatcher)
+            return ((ProjectingRequestDispatcher) requestDispatcher).dispatch(request, configuration.jsonProvider(), options, projection);
+        return requestDispatcher.dispatch(request, configuration.jsonProvider(), options);
+    }
+
+    private CompletableFuture<List<Response>> dispatchAllAsync(Execution execution, List<Step> steps) {
+        int parallelism = execution.parallelism;
+        if (parallelism < steps.size()) {
+            Response[] responses = new Response[steps.size()];
+            AtomicInteger cursor = new AtomicInteger();
+            CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.max(parallelism, 1)];
+            for (int i = 0; i < lanes.length; i++)
+                lanes[i] = dispatchLaneAsync(execution, steps, responses, cursor);
+            return CompletableFuture.allOf(lanes).thenApply(ignored -> Arrays.asList(responses));
+        }
+
+        List<CompletableFuture<Response>> futures = new ArrayList<>(steps.size());
+        for (Step step : steps)
+            futures.add(dispatchAsync(execution, step));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()));
+    }
+
+    private CompletableFuture<Void> dispatchLaneAsync(Execution execution, List<Step> steps, Response[] responses, AtomicInteger cursor) {
+        int index;
+        while ((index = cursor.getAndIncrement()) < steps.size()) {
+            int currentIndex = index;
+            CompletableFuture<Response> future = dispatchAsync(execution, steps.get(index));
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return future.handle((response, throwable) -> {
+                    if (throwable != null) {
+                        cursor.set(steps.size());
+                        return BatchEngine.this.<Void>failedFuture(unwrap(throwable));
+                    }
+                    responses[currentIndex] = response;
+                    return dispatchLaneAsync(execution, steps, responses, cursor);
+                }).thenCompose(future1 -> future1);
+            }
+            responses[index] = future.join();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Response> dispatchAsync(Execution execution, Step step) {
+        RequestDispatcher requestDispatcher = execution.requestDispatcher;
+        DispatchOptions options = execution.template.getDispatchOptions();
+        Projection projection = execution.template.getProjection(step.requestTemplate);
+        logger.debug("Start executing request with [{}] index", step.index);
+        long start = execution.eventListener == null ? 0 : System.nanoTime();
+        if (execution.eventListener != null)
+            execution.eventListener.onDispatchStart(execution.batchId, step.requestTemplate, step.request, start);
+        Object event = JfrSupport.beginDispatch();
+        CompletableFuture<Response> future;
+        if (requestDispatcher instanceof AsyncRequestDispatcher) {
+            try {
+                if (requestDispatcher instanceof ProjectingRequestDispatcher)
+                    future = ((ProjectingRequestDispatcher) requestDispatcher).dispatchAsync(step.request, configuration.jsonProvider(), options, projection);
+                else
+                    future = ((AsyncRequestDispatcher) requestDispatcher).dispatchAsync(step.request, configuration.jsonProvider(), options);
+            } catch (Exception ex) {
+                future = failedFuture(ex);
+            }
+        } else if (executor != null) {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return dispatch(requestDispatcher, step.request, options, projection);
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor);
         } else {
-            logger.info("Not found final response. Return all batch responses");
-            response = new Response();
-            response.setStatus(200);
-            response.setBody(jsonContext);
+            try {
+                future = CompletableFuture.completedFuture(dispatch(requestDispatcher, step.request, options, projection));
+            } catch (Exception ex) {
+                future = failedFuture(ex);
+            }
         }
+        return future.whenComplete((response, throwable) -> {
+            commitDispatchEvent(event, step, response, unwrap(throwable));
+            if (execution.eventListener != null)
+                execution.eventListener.onDispatchEnd(execution.batchId, step.requestTemplate, step.request, response, unwrap(throwable), start, System.nanoTime());
+            logger.debug("Done executing request with [{}] index", step.index);
+        });
+    }
 
-        logger.info("Done executing batch with [{}] original request", originalRequest);
-        return response;
+    private void commitDispatchEvent(Object event, Step step, Response response, Throwable error) {
+        if (event == null)
+            return;
+        JfrSupport.commitDispatch(event, step.requestTemplate.getId(), step.index, step.request.getHttpMethod(), step.request.getUrl(),
+                response == null ? null : response.getStatus(), response == null ? null : response.getBodySize(), error);
     }
 
-    private Step buildStep(List<RequestTemplate> requestTemplates, List<Object> requests, List<Object> responses, DocumentContext context, int index) {
-        RequestTemplate requestTemplate = chooseRequestTemplate(requestTemplates, context);
+    private void commitBatchEvent(Execution execution, Response response, Throwable error) {
+        if (execution.batchEvent == null)
+            return;
+        JfrSupport.commitBatch(execution.batchEvent, execution.originalRequest.getHttpMethod(), execution.originalRequest.getUrl(),
+                response == null ? null : response.getStatus(), error);
+    }
+
+    private Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null)
+            return throwable.getCause();
+        return throwable;
+    }
+
+    private <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    private Step buildStep(List<RequestPlan> requestTemplates, List<Object> requests, List<Object> responses, DocumentContext context, int index) {
+        RequestPlan requestTemplate = chooseRequestTemplate(requestTemplates, context);
         if (requestTemplate == null)
             return null;
         return Step.of(requestTemplate, requests, responses, index);
     }
 
-    private RequestTemplate chooseRequestTemplate(List<RequestTemplate> requestTemplates, DocumentContext context) {
+    private RequestPlan chooseRequestTemplate(List<RequestPlan> requestTemplates, DocumentContext context) {
         if (requestTemplates == null)
             return null;
-        for (RequestTemplate requestTemplate : requestTemplates) {
+        for (RequestPlan requestTemplate : requestTemplates) {
             if (MathUtils.toBoolean(jsonBuilder.build(requestTemplate.getPredicate(), context), true))
                 return requestTemplate;
         }
         return null;
     }
 
-    private ResponseTemplate chooseResponseTemplate(List<ResponseTemplate> responseTemplates, DocumentContext context) {
+    private ResponsePlan chooseResponseTemplate(List<ResponsePlan> responseTemplates, DocumentContext context) {
         if (responseTemplates == null)
             return null;
-        for (ResponseTemplate responseTemplate : responseTemplates) {
+        for (ResponsePlan responseTemplate : responseTemplates) {
             if (MathUtils.toBoolean(jsonBuilder.build(responseTemplate.getPredicate(), context), true))
                 return responseTemplate;
         }
         return null;
     }
 
-    private Request buildRequest(RequestTemplate template, DocumentContext context) {
+    private Request buildRequest(RequestPlan template, DocumentContext context) {
         Request request = new Request();
         request.setHttpMethod(jsonBuilder.build(template.getHttpMethod(), context).toString());
         request.setUrl(jsonBuilder.build(template.getUrl(), context).toString());
@@ -201,25 +519,25 @@ public class BatchEngine {
         return request;
     }
 
-    private Response transformResponse(Response response, List<ResponseTemplate> transformers) {
+    private Response transformResponse(Response response, List<ResponsePlan> transformers) {
         if (transformers == null || transformers.isEmpty())
             return response;
 
         DocumentContext responseContext = JsonPath.using(configuration).parse(response.toMap());
-        ResponseTemplate template = chooseResponseTemplate(transformers, responseContext);
+        ResponsePlan template = chooseResponseTemplate(transformers, responseContext);
         if (template == null)
             return response;
 
-        return buildResponse(template, responseContext, response.getStatus());
+        return buildResponse(template, responseContext, response.getStatus(), true);
     }
 
-    private Response buildResponse(ResponseTemplate template, DocumentContext context, Integer defaultStatus) {
+    private Response buildResponse(ResponsePlan template, DocumentContext context, Integer defaultStatus, boolean withBody) {
         Response response = new Response();
         if (template.getStatus() != null)
             response.setStatus(MathUtils.toInteger(jsonBuilder.build(template.getStatus(), context)));
         else
             response.setStatus(defaultStatus);
-        if (template.getBody() != null)
+        if (withBody && template.getBody() != null)
             response.setBody(jsonBuilder.build(template.getBody(), context));
         if (template.getHeaders() != null)
             response.setHeaders(buildHeaders((Map<String, Object>) jsonBuilder.build(template.getHeaders(), context)));
@@ -241,12 +559,12 @@ public class BatchEngine {
         return headers;
     }
 
-    private void processVars(List<VarTemplate> varTemplates, DocumentContext context, Map<String, Object> jsonContext) {
+    private void processVars(List<VarPlan> varTemplates, DocumentContext context, Map<String, Object> jsonContext) {
         if (varTemplates == null)
             return;
 
         Map<String, Object> vars = (Map<String, Object>) jsonContext.computeIfAbsent(KEY_VARS, key -> new LinkedHashMap<>());
-        for (VarTemplate varTemplate : varTemplates) {
+        for (VarPlan varTemplate : varTemplates) {
             if (MathUtils.toBoolean(jsonBuilder.build(varTemplate.getPredicate(), context), true)) {
                 Map<String, Object> map = (Map<String, Object>) jsonBuilder.build(varTemplate.getVars(), context);
                 map.forEach(vars::put);
@@ -258,24 +576,373 @@ public class BatchEngine {
         return step != null && step.requestTemplate.getLoop() != null;
     }
 
+    private class Execution {
+
+        final Request originalRequest;
+        final BatchPlan template;
+        final DocumentContext context;
+        final Map<String, Object> jsonContext;
+        final RequestDispatcher requestDispatcher;
+        final Deque<Step> queue = new ArrayDeque<>();
+        final boolean streaming;
+        final BatchEventListener eventListener;
+        final long batchId;
+        final long startTime;
+        final Object batchEvent;
+
+        Response response;
+        ResponsePlan responseTemplate;
+        int parallelism = 1;
+
+        Execution(Request originalRequest, BatchPlan template, boolean streaming) {
+            this(originalRequest, template, streaming, BatchEngine.this.eventListener);
+        }
+
+        Execution(Request originalRequest, BatchPlan template, boolean streaming, BatchEventListener eventListener) {
+            logger.info("Start executing batch with [{}] original request", originalRequest);
+            this.originalRequest = originalRequest;
+            this.template = template;
+            this.streaming = streaming;
+            this.eventListener = eventListener;
+            this.batchId = eventListener == null ? 0 : batchIds.incrementAndGet();
+            this.startTime = eventListener == null ? 0 : System.nanoTime();
+            this.batchEvent = JfrSupport.beginBatch();
+            if (eventListener != null)
+                eventListener.onBatchStart(batchId, originalRequest, template, startTime);
+            this.requestDispatcher = BatchEngine.this.requestDispatcher instanceof BatchScopedRequestDispatcher
+                    ? ((BatchScopedRequestDispatcher) BatchEngine.this.requestDispatcher).openScope()
+                    : BatchEngine.this.requestDispatcher;
+            this.context = JsonPath.using(configuration).parse(configuration.jsonProvider().createMap());
+            this.jsonContext = context.json();
+            jsonContext.put(KEY_ORIGINAL, originalRequest.toMap());
+            jsonContext.put(KEY_REQUESTS, new ArrayList<>());
+            jsonContext.put(KEY_RESPONSES, new ArrayList<>());
+
+            Step step = buildStep(template.getRequests(), (List) jsonContext.get(KEY_REQUESTS), (List) jsonContext.get(KEY_RESPONSES), 0);
+            if (step != null)
+                queue.push(step);
+        }
+
+        List<Step> next() {
+            while (!queue.isEmpty()) {
+                Step step = queue.pop();
+
+                if (isLoopStep(step)) {
+                    LoopPlan loopTemplate = step.requestTemplate.getLoop();
+                    if (!step.loopDone) {
+                        logger.debug("Start loop request with [{}] index and [{}] loop time", step.index, step.loopTime);
+                        if (step.loopTime == 0) {
+                            if (eventListener != null)
+                                step.loopStartTime = System.nanoTime();
+                            Object counter = jsonBuilder.build(loopTemplate.getCounterInit(), context);
+
+                            step.loopRequest = new HashMap<>();
+                            step.loopRequest.put(KEY_COUNTER, counter);
+                            step.loopRequest.put(KEY_TIMES, new ArrayList<>());
+                            step.requests.add(step.loopRequest);
+
+                            step.loopResponse = new HashMap<>();
+                            step.loopResponse.put(KEY_TIMES, new ArrayList<>());
+                            step.responses.add(step.loopResponse);
+
+                            int loopParallelism = getLoopParallelism(loopTemplate);
+                            if (loopParallelism > 1) {
+                                List<Step> iterations = prepareIterations(step);
+                                step.loopDone = true;
+                                if (!iterations.isEmpty()) {
+                                    logger.debug("Found [{}] loop iterations of request with [{}] index", iterations.size(), step.index);
+                                    queue.push(step);
+                                    parallelism = loopParallelism;
+                                    return iterations;
+                                }
+                            }
+                        } else {
+                            if (eventListener != null)
+                                eventListener.onLoopIterationEnd(batchId, step.requestTemplate, step.loopTime - 1, step.iterationStartTime, System.nanoTime());
+                            Object counter = jsonBuilder.build(loopTemplate.getCounterUpdate(), context);
+                            step.loopRequest.put(KEY_COUNTER, counter);
+                        }
+
+                        if (!step.loopDone) {
+                            Step nextStep = nextIteration(step);
+                            if (nextStep != null) {
+                                queue.push(step);
+                                queue.push(nextStep);
+                                step.loopTime++;
+                                continue;
+                            }
+                        }
+                    }
+                    if (eventListener != null)
+                        eventListener.onLoopEnd(batchId, step.requestTemplate, step.loopTime, step.loopStartTime, System.nanoTime());
+
+                    processVars(step);
+
+                    boolean matched = breakIfMatched(step);
+                    endStep(step);
+                    if (matched)
+                        return null;
+                    pushNextStep(step);
+                } else {
+                    List<Step> steps = chainIndependentSteps(this, step);
+                    for (Step independentStep : steps)
+                        buildRequest(independentStep);
+                    parallelism = steps.size();
+                    return steps;
+                }
+            }
+
+            ResponsePlan responseTemplate = chooseResponseTemplate(template.getResponses(), context);
+            if (responseTemplate != null) {
+                logger.debug("Found final response");
+                response = buildFinalResponse(responseTemplate);
+            } else {
+                logger.debug("Not found final response. Return all batch responses");
+                response = new Response();
+                response.setStatus(200);
+                response.setBody(jsonContext);
+            }
+
+            logger.info("Done executing batch with [{}] original request", originalRequest);
+            return null;
+        }
+
+        boolean complete(List<Step> steps, List<Response> responses) {
+            if (steps.get(0).loopStep != null) {
+                completeIterations(steps, responses);
+                return false;
+            }
+
+            Step step = null;
+            for (int i = 0; i < steps.size(); i++) {
+                step = steps.get(i);
+                Response transformedResponse = transform(step, responses.get(i));
+                step.requests.add(step.request.toMap());
+                step.responses.add(transformedResponse.toMap());
+
+                processVars(step);
+
+                boolean matched = breakIfMatched(step);
+                endStep(step);
+                if (matched)
+                    return true;
+            }
+            pushNextStep(step);
+            return false;
+        }
+
+        private Step nextIteration(Step step) {
+            LoopPlan loopTemplate = step.requestTemplate.getLoop();
+            if (step.loopTime >= template.getLoopOptions().getMaxLoopTime()) {
+                logger.warn("Loop request with [{}] index exceed max loop time", step.index);
+                return null;
+            }
+            if (!MathUtils.toBoolean(jsonBuilder.build(loopTemplate.getCounterPredicate(), context), true))
+                return null;
+            long start = eventListener == null ? 0 : System.nanoTime();
+            Step nextStep = buildStep(loopTemplate.getRequests(), new ArrayList<>(), new ArrayList<>(), 0);
+            if (nextStep != null) {
+                if (eventListener != null) {
+                    step.iterationStartTime = start;
+                    eventListener.onLoopIterationStart(batchId, step.requestTemplate, step.loopTime, step.loopRequest.get(KEY_COUNTER), start);
+                }
+                ((List<Object>) step.loopRequest.get(KEY_TIMES)).add(nextStep.requests);
+                ((List<Object>) step.loopResponse.get(KEY_TIMES)).add(nextStep.responses);
+                if (template.getLiveness() != null)
+                    pruneIterations(step, template.getLiveness().getRetainedIterations(loopTemplate));
+            }
+            return nextStep;
+        }
+
+        private List<Step> prepareIterations(Step step) {
+            List<Step> iterations = new ArrayList<>();
+            Step nextStep;
+            while ((nextStep = nextIteration(step)) != null) {
+                nextStep.loopStep = step;
+                nextStep.counter = step.loopRequest.get(KEY_COUNTER);
+                nextStep.iteration = step.loopTime;
+                nextStep.iterationStartTime = step.iterationStartTime;
+                buildRequest(nextStep);
+                iterations.add(nextStep);
+                step.loopTime++;
+                step.loopRequest.put(KEY_COUNTER, jsonBuilder.build(step.requestTemplate.getLoop().getCounterUpdate(), context));
+            }
+            return iterations;
+        }
+
+        private void completeIterations(List<Step> steps, List<Response> responses) {
+            Map<String, Object> loopRequest = steps.get(0).loopStep.loopRequest;
+            Object counter = loopRequest.get(KEY_COUNTER);
+            for (int i = 0; i < steps.size(); i++) {
+                Step step = steps.get(i);
+                loopRequest.put(KEY_COUNTER, step.counter);
+                Response transformedResponse = transform(step, responses.get(i));
+                step.requests.add(step.request.toMap());
+                step.responses.add(transformedResponse.toMap());
+
+                processVars(step);
+                endStep(step);
+                if (eventListener != null)
+                    eventListener.onLoopIterationEnd(batchId, step.loopStep.requestTemplate, step.iteration, step.iterationStartTime, System.nanoTime());
+            }
+            loopRequest.put(KEY_COUNTER, counter);
+        }
+
+        private int getLoopParallelism(LoopPlan loopTemplate) {
+            if (!loopTemplate.isParallelizable())
+                return 1;
+            Integer loopParallelism = loopTemplate.getParallelism() != null
+                    ? loopTemplate.getParallelism()
+                    : template.getLoopOptions().getParallelism();
+            return loopParallelism == null ? 1 : loopParallelism;
+        }
+
+        private boolean breakIfMatched(Step step) {
+            ResponsePlan responseTemplate = chooseResponseTemplate(step.requestTemplate.getResponses(), context);
+            if (responseTemplate == null)
+                return false;
+            logger.debug("Found break response");
+            response = buildFinalResponse(responseTemplate);
+            if (eventListener != null)
+                eventListener.onBreakResponse(batchId, step.requestTemplate, response, System.nanoTime());
+            logger.info("Done executing batch with [{}] original request", originalRequest);
+            return true;
+        }
+
+        private Response buildFinalResponse(ResponsePlan responseTemplate) {
+            this.responseTemplate = responseTemplate;
+            return buildResponse(responseTemplate, context, 200, !streaming);
+        }
+
+        private void pushNextStep(Step step) {
+            Step nextStep = buildStep(step.requestTemplate.getRequests(), step.requests, step.responses, step.index + 1);
+            if (nextStep != null)
+                queue.push(nextStep);
+            if (template.getLiveness() != null && step.responses == jsonContext.get(KEY_RESPONSES))
+                pruneResponses(step.index, template.getLiveness());
+        }
+
+        private Step buildStep(List<RequestPlan> requestTemplates, List<Object> requests, List<Object> responses, int index) {
+            Step step = BatchEngine.this.buildStep(requestTemplates, requests, responses, context, index);
+            if (step != null && eventListener != null) {
+                step.startTime = System.nanoTime();
+                eventListener.onStepSelected(batchId, step.requestTemplate, index, step.startTime);
+            }
+            return step;
+        }
+
+        private void endStep(Step step) {
+            if (eventListener != null)
+                eventListener.onStepEnd(batchId, step.requestTemplate, step.request, step.index, step.startTime, System.nanoTime());
+        }
+
+        private void buildRequest(Step step) {
+            if (eventListener == null) {
+                step.request = BatchEngine.this.buildRequest(step.requestTemplate, context);
+                return;
+            }
+            long start = System.nanoTime();
+            step.request = BatchEngine.this.buildRequest(step.requestTemplate, context);
+            eventListener.onRequestBuilt(batchId, step.requestTemplate, step.request, start, System.nanoTime());
+        }
+
+        private Response transform(Step step, Response response) {
+            List<ResponsePlan> transformers = step.requestTemplate.getTransformers();
+            if (eventListener == null || transformers == null || transformers.isEmpty())
+                return transformResponse(response, transformers);
+            long start = System.nanoTime();
+            Response transformedResponse = transformResponse(response, transformers);
+            eventListener.onTransform(batchId, step.requestTemplate, transformedResponse, start, System.nanoTime());
+            return transformedResponse;
+        }
+
+        private void processVars(Step step) {
+            List<VarPlan> vars = step.requestTemplate.getVars();
+            if (eventListener == null || vars == null) {
+                BatchEngine.this.processVars(vars, context, jsonContext);
+                return;
+            }
+            long start = System.nanoTime();
+            BatchEngine.this.processVars(vars, context, jsonContext);
+            eventListener.onVarsProcessed(batchId, step.requestTemplate, start, System.nanoTime());
+        }
+
+        private void pruneResponses(int index, Liveness liveness) {
+            List<Object> requests = (List<Object>) jsonContext.get(KEY_REQUESTS);
+            List<Object> responses = (List<Object>) jsonContext.get(KEY_RESPONSES);
+            for (int i = 0; i <= index && i < responses.size(); i++) {
+                if (responses.get(i) != TOMBSTONE && liveness.getLastUse(i) <= index) {
+                    logger.debug("Prune request and response with [{}] index", i);
+                    requests.set(i, TOMBSTONE);
+                    responses.set(i, TOMBSTONE);
+                }
+            }
+        }
+
+        private void pruneIterations(Step step, int retainedIterations) {
+            if (retainedIterations == Liveness.ALL_ITERATIONS)
+                return;
+            List<Object> requests = (List<Object>) step.loopRequest.get(KEY_TIMES);
+            List<Object> responses = (List<Object>) step.loopResponse.get(KEY_TIMES);
+            int index = responses.size() - retainedIterations - 1;
+            if (index >= 0) {
+                requests.set(index, TOMBSTONE);
+                responses.set(index, TOMBSTONE);
+            }
+        }
+
+    }
+
+    private static class Fork extends FutureTask<Void> {
+
+        private final List<Fork> siblings;
+
+        Fork(Callable<Void> callable, List<Fork> siblings) {
+            super(callable);
+            this.siblings = siblings;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled())
+                return;
+            try {
+                get();
+            } catch (ExecutionException | InterruptedException ex) {
+                cancelAll(siblings);
+            }
+        }
+
+    }
+
     private static class Step {
-        RequestTemplate requestTemplate;
+        RequestPlan requestTemplate;
         List<Object> requests;
         List<Object> responses;
         int index;
+        long startTime;
+
+        Request request;
 
         Map<String, Object> loopRequest;
         Map<String, Object> loopResponse;
         int loopTime = 0;
+        boolean loopDone;
+        long loopStartTime;
+        long iterationStartTime;
+
+        Step loopStep;
+        Object counter;
+        int iteration;
 
-        Step(RequestTemplate requestTemplate, List<Object> requests, List<Object> responses, int index) {
+        Step(RequestPlan requestTemplate, List<Object> requests, List<Object> responses, int index) {
             this.requestTemplate = requestTemplate;
             this.requests = requests;
             this.responses = responses;
             this.index = index;
         }
 
-        private static Step of(RequestTemplate requestTemplate, List<Object> requests, List<Object> responses, int index) {
+        private static Step of(RequestPlan requestTemplate, List<Object> requests, List<Object> responses, int index) {
             return new Step(requestTemplate, requests, responses, index);
         }
 
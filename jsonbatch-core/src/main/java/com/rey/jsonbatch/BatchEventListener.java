@@ -0,0 +1,149 @@
+package com.rey.jsonbatch;
+
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Callbacks of BatchEngine. All times are System.nanoTime() values, batchId identifies a batch execution inside the engine
+ * and RequestPlan.getId() identifies the request template.
+ * Callbacks run on the thread executing the batch (or completing the dispatch), so they must be cheap and thread-safe.
+ */
+public interface BatchEventListener {
+
+    default void onBatchStart(long batchId, Request originalRequest, BatchPlan template, long nanoTime) {
+    }
+
+    default void onBatchEnd(long batchId, Request originalRequest, BatchPlan template, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onStepSelected(long batchId, RequestPlan requestTemplate, int index, long nanoTime) {
+    }
+
+    default void onRequestBuilt(long batchId, RequestPlan requestTemplate, Request request, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onDispatchStart(long batchId, RequestPlan requestTemplate, Request request, long nanoTime) {
+    }
+
+    default void onDispatchEnd(long batchId, RequestPlan requestTemplate, Request request, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onLoopIterationStart(long batchId, RequestPlan requestTemplate, int iteration, Object counter, long nanoTime) {
+    }
+
+    default void onLoopIterationEnd(long batchId, RequestPlan requestTemplate, int iteration, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onLoopEnd(long batchId, RequestPlan requestTemplate, int iterations, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onTransform(long batchId, RequestPlan requestTemplate, Response response, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onVarsProcessed(long batchId, RequestPlan requestTemplate, long startNanoTime, long endNanoTime) {
+    }
+
+    default void onBreakResponse(long batchId, RequestPlan requestTemplate, Response response, long nanoTime) {
+    }
+
+    default void onStepEnd(long batchId, RequestPlan requestTemplate, Request request, int index, long startNanoTime, long endNanoTime) {
+    }
+
+    static BatchEventListener composite(BatchEventListener... listeners) {
+        return new CompositeBatchEventListener(Arrays.asList(listeners));
+    }
+
+    class CompositeBatchEventListener implements BatchEventListener {
+
+        private final BatchEventListener[] listeners;
+
+        CompositeBatchEventListener(List<BatchEventListener> listeners) {
+            this.listeners = listeners.toArray(new BatchEventListener[0]);
+        }
+
+        @Override
+        public void onBatchStart(long batchId, Request originalRequest, BatchPlan template, long nanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onBatchStart(batchId, originalRequest, template, nanoTime);
+        }
+
+        @Override
+        public void onBatchEnd(long batchId, Request originalRequest, BatchPlan template, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onBatchEnd(batchId, originalRequest, template, response, error, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onStepSelected(long batchId, RequestPlan requestTemplate, int index, long nanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onStepSelected(batchId, requestTemplate, index, nanoTime);
+        }
+
+        @Override
+        public void onRequestBuilt(long batchId, RequestPlan requestTemplate, Request request, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onRequestBuilt(batchId, requestTemplate, request, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onDispatchStart(long batchId, RequestPlan requestTemplate, Request request, long nanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onDispatchStart(batchId, requestTemplate, request, nanoTime);
+        }
+
+        @Override
+        public void onDispatchEnd(long batchId, RequestPlan requestTemplate, Request request, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onDispatchEnd(batchId, requestTemplate, request, response, error, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onLoopIterationStart(long batchId, RequestPlan requestTemplate, int iteration, Object counter, long nanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onLoopIterationStart(batchId, requestTemplate, iteration, counter, nanoTime);
+        }
+
+        @Override
+        public void onLoopIterationEnd(long batchId, RequestPlan requestTemplate, int iteration, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onLoopIterationEnd(batchId, requestTemplate, iteration, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onLoopEnd(long batchId, RequestPlan requestTemplate, int iterations, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onLoopEnd(batchId, requestTemplate, iterations, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onTransform(long batchId, RequestPlan requestTemplate, Response response, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onTransform(batchId, requestTemplate, response, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onVarsProcessed(long batchId, RequestPlan requestTemplate, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onVarsProcessed(batchId, requestTemplate, startNanoTime, endNanoTime);
+        }
+
+        @Override
+        public void onBreakResponse(long batchId, RequestPlan requestTemplate, Response response, long nanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onBreakResponse(batchId, requestTemplate, response, nanoTime);
+        }
+
+        @Override
+        public void onStepEnd(long batchId, RequestPlan requestTemplate, Request request, int index, long startNanoTime, long endNanoTime) {
+            for (BatchEventListener listener : listeners)
+                listener.onStepEnd(batchId, requestTemplate, request, index, startNanoTime, endNanoTime);
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.rey.jsonbatch;
+
+import com.rey.jsonbatch.model.BatchResult;
+import com.rey.jsonbatch.model.BatchStatistics;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class BatchResults implements Iterator<BatchResult>, AutoCloseable {
+
+    private Logger logger = LoggerFactory.getLogger(BatchResults.class);
+
+    private final BatchEngine batchEngine;
+    private final BatchPlan template;
+    private final Iterator<Request> originalRequests;
+    private final CompletionService<BatchResult> completionService;
+    private final int maxInFlight;
+    private final Map<Integer, Future<BatchResult>> inFlight = new HashMap<>();
+
+    private final long startTime = System.nanoTime();
+    private long endTime;
+    private long[] latencies = new long[64];
+    private int successCount;
+    private int failureCount;
+    private int index;
+    private boolean closed;
+
+    BatchResults(BatchEngine batchEngine, BatchPlan template, Iterator<Request> originalRequests, ExecutorService executorService, int maxInFlight) {
+        if (maxInFlight < 1) {
+            logger.error("Invalid max in-flight batches: [{}]", maxInFlight);
+            throw new IllegalArgumentException("Invalid max in-flight batches");
+        }
+        this.batchEngine = batchEngine;
+        this.template = template;
+        this.originalRequests = originalRequests;
+        this.completionService = new ExecutorCompletionService<>(executorService);
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public boolean hasNext() {
+        submit();
+        return !inFlight.isEmpty();
+    }
+
+    @Override
+    public BatchResult next() {
+        submit();
+        if (inFlight.isEmpty())
+            throw new NoSuchElementException();
+
+        BatchResult result;
+        try {
+            result = completionService.take().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch result", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Cannot get batch result", ex.getCause());
+        }
+        inFlight.remove(result.getIndex());
+        record(result);
+        if (inFlight.isEmpty() && (closed || !originalRequests.hasNext())) {
+            endTime = System.nanoTime();
+            logger.info("Done executing all batches: {}", getStatistics());
+        }
+        return result;
+    }
+
+    public BatchStatistics getStatistics() {
+        int count = successCount + failureCount;
+        long[] sortedLatencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(sortedLatencies);
+        long elapsedTime = (endTime == 0 ? System.nanoTime() : endTime) - startTime;
+        return new BatchStatistics(successCount, failureCount, elapsedTime, sortedLatencies);
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        inFlight.values().forEach(future -> future.cancel(true));
+        inFlight.clear();
+        if (endTime == 0)
+            endTime = System.nanoTime();
+    }
+
+    private void submit() {
+        while (!closed && inFlight.size() < maxInFlight && originalRequests.hasNext()) {
+            int currentIndex = index++;
+            Request originalRequest = originalRequests.next();
+            inFlight.put(currentIndex, completionService.submit(() -> execute(currentIndex, originalRequest)));
+        }
+    }
+
+    private BatchResult execute(int index, Request originalRequest) {
+        long start = System.nanoTime();
+        try {
+            Response response = batchEngine.execute(originalRequest, template);
+            return new BatchResult(index, originalRequest, response, null, System.nanoTime() - start);
+        } catch (Exception ex) {
+            logger.error("Cannot execute batch with [{}] index", index, ex);
+            return new BatchResult(index, originalRequest, null, ex, System.nanoTime() - start);
+        }
+    }
+
+    private void record(BatchResult result) {
+        int count = successCount + failureCount;
+        if (count == latencies.length)
+            latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count] = result.getLatency();
+        if (result.isSuccess())
+            successCount++;
+        else
+            failureCount++;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.rey.jsonbatch;
+
+public interface BatchScopedRequestDispatcher extends RequestDispatcher {
+
+    RequestDispatcher openScope();
+
+}
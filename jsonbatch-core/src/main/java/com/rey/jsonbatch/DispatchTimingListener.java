@@ -0,0 +1,18 @@
+package com.rey.jsonbatch;
+
+import com.rey.jsonbatch.model.DispatchTiming;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+/*
+ * Receives the network timing of each response of a dispatcher that measures it (OkHttp and Apache HttpClient dispatchers).
+ * It's called on the thread completing the dispatch, so it shouldn't block.
+ */
+public interface DispatchTimingListener {
+
+    // only fills Response.getTiming()
+    DispatchTimingListener NONE = (request, response, timing) -> {};
+
+    void onDispatchTiming(Request request, Response response, DispatchTiming timing);
+
+}
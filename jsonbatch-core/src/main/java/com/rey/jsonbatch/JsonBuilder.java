@@ -1,26 +1,32 @@
 package com.rey.jsonbatch;
 
 import com.jayway.jsonpath.DocumentContext;
-import com.jayway.jsonpath.JsonPath;
 import com.rey.jsonbatch.function.Function;
-import com.rey.jsonbatch.function.MathUtils;
+import com.rey.jsonbatch.jfr.JfrSupport;
 import com.rey.jsonbatch.parser.Parser;
 import com.rey.jsonbatch.parser.Token;
 import com.rey.jsonbatch.parser.TokenValue;
+import com.rey.jsonbatch.schema.ArraySchema;
+import com.rey.jsonbatch.schema.FunctionSchema;
+import com.rey.jsonbatch.schema.JsonPathSchema;
+import com.rey.jsonbatch.schema.ListSchema;
+import com.rey.jsonbatch.schema.ObjectSchema;
+import com.rey.jsonbatch.schema.Schema;
+import com.rey.jsonbatch.schema.StringSchema;
+import com.rey.jsonbatch.schema.ValueSchema;
+import com.rey.jsonbatch.sink.JsonSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked")
 public class JsonBuilder {
@@ -32,9 +38,9 @@ public class JsonBuilder {
     private static final String KEY_ARRAY_SCHEMA = "__array_schema";
     private static final String KEY_OBJECT_SCHEMA = "__object_schema";
 
-    private Map<String, Function> functionMap = new HashMap<>();
+    private final Map<String, Function> functionMap = new HashMap<>();
 
-    private Parser parser = new Parser();
+    private final Parser parser = new Parser();
 
     public JsonBuilder(Function... functions) {
         for (Function f : functions)
@@ -42,21 +48,57 @@ public class JsonBuilder {
     }
 
     public Object build(Object schema, DocumentContext context) {
-        return build(schema, context, context);
+        Object event = JfrSupport.beginSchemaBuild();
+        if (event == null)
+            return buildSchema(schema, context);
+        Object value = buildSchema(schema, context);
+        JfrSupport.commitSchemaBuild(event, schemaType(schema), false);
+        return value;
+    }
+
+    public void write(Object schema, DocumentContext context, JsonSink sink) throws IOException {
+        Object event = JfrSupport.beginSchemaBuild();
+        if (event == null) {
+            writeSchema(schema, context, sink);
+            return;
+        }
+        writeSchema(schema, context, sink);
+        JfrSupport.commitSchemaBuild(event, schemaType(schema), true);
+    }
+
+    private Object buildSchema(Object schema, DocumentContext context) {
+        if (schema instanceof Schema)
+            return ((Schema) schema).build(context);
+        logger.debug("Build schema: {}", schema);
+        return compile(schema).build(context);
+    }
+
+    private void writeSchema(Object schema, DocumentContext context, JsonSink sink) throws IOException {
+        if (schema instanceof Schema)
+            ((Schema) schema).write(context, sink);
+        else {
+            logger.debug("Build schema: {}", schema);
+            compile(schema).write(context, sink);
+        }
     }
 
-    private Object build(Object schema, DocumentContext context, DocumentContext rootContext) {
-        logger.info("Build schema: {}", schema);
+    private String schemaType(Object schema) {
+        return schema == null ? null : schema.getClass().getSimpleName();
+    }
+
+    public Schema compile(Object schema) {
+        if (schema instanceof Schema)
+            return (Schema) schema;
         if (schema instanceof String)
-            return buildNode((String) schema, context, rootContext);
+            return compileNode((String) schema);
         if (schema instanceof Map)
-            return buildObject((Map) schema, context, rootContext);
+            return compileObject((Map) schema);
         if (schema instanceof Collection)
-            return buildList((Collection) schema, context, rootContext);
-        return schema;
+            return compileList((Collection) schema);
+        return ValueSchema.of(schema);
     }
 
-    private Object buildNode(String schema, DocumentContext context, DocumentContext rootContext) {
+    private Schema compileNode(String schema) {
         Type type = null;
         List<TokenValue> tokenValues = null;
         for (Type t : Type.values()) {
@@ -73,211 +115,110 @@ public class JsonBuilder {
 
         TokenValue firstToken = tokenValues.get(0);
         if (firstToken.getToken() == Token.JSON_PATH)
-            return buildNodeFromJsonPath(type, context, rootContext, firstToken.getValue());
+            return compileJsonPath(type, firstToken.getValue());
         else if (firstToken.getToken() == Token.FUNC)
-            return buildNodeFromFunction(type, tokenValues, context, rootContext);
+            return compileFunction(type, tokenValues, new int[]{0});
         else
-            return buildStringFromRawData(firstToken.getValue(), context, rootContext);
+            return compileString(firstToken.getValue());
     }
 
-    private Map buildObject(Map<String, Object> schema, DocumentContext context, DocumentContext rootContext) {
-        Map<String, Object> result = new LinkedHashMap<>();
-
-        if(schema.containsKey(KEY_OBJECT_SCHEMA)) {
-            logger.trace("Found object schema. Switching context");
-            Object object = toSingleObject(build(schema.get(KEY_OBJECT_SCHEMA), context, rootContext));
-            context = JsonPath.using(context.configuration()).parse(object);
+    private Schema compileObject(Map<String, Object> schema) {
+        Schema objectSchema = null;
+        if (schema.containsKey(KEY_OBJECT_SCHEMA)) {
+            logger.trace("Found object schema");
+            objectSchema = compile(schema.get(KEY_OBJECT_SCHEMA));
         }
 
-        for(String key : schema.keySet()) {
+        List<ObjectSchema.Field> fields = new ArrayList<>();
+        for (String key : schema.keySet()) {
             if (isValidKey(key)) {
-                Object value = schema.get(key);
-                String actualKey = key;
-
-                if(hasInlineVariable(key)) {
+                StringSchema keySchema = null;
+                if (hasInlineVariable(key)) {
                     logger.trace("Found inline variable in [{}] key", key);
-                    actualKey = buildStringFromRawData(key, context, rootContext);
+                    keySchema = compileString(key);
                 }
-
-                logger.info("Build for [{}] key with schema: {}", actualKey, value);
-                if (value instanceof String)
-                    result.put(actualKey, buildNode((String) value, context, rootContext));
-                else if (value instanceof Map)
-                    result.put(actualKey, buildObject((Map) value, context, rootContext));
-                else if (value instanceof Collection)
-                    result.put(actualKey, buildList((Collection) value, context, rootContext));
-                else
-                    result.put(actualKey, value);
+                fields.add(ObjectSchema.Field.of(key, keySchema, compile(schema.get(key))));
             }
         }
-
-        return result;
+        return ObjectSchema.of(objectSchema, fields);
     }
 
-    private List buildList(Collection schema, DocumentContext context, DocumentContext rootContext) {
-        List<Object> result = new ArrayList<>();
+    private Schema compileList(Collection schema) {
+        List<ListSchema.Item> items = new ArrayList<>();
         for (Object value : (Iterable<Object>) schema) {
-            logger.info("Build items with schema: {}", value);
-            if (value instanceof String) {
-                Object item = build(value, context, rootContext);
-                if (item instanceof Collection)
-                    result.addAll((Collection) item);
-                else
-                    result.add(item);
-            } else if (value instanceof Map) {
-                Object arraySchema =  ((Map) value).get(KEY_ARRAY_SCHEMA);
+            if (value instanceof String)
+                items.add(ListSchema.Item.of(compileNode((String) value), true));
+            else if (value instanceof Map) {
+                Object arraySchema = ((Map) value).get(KEY_ARRAY_SCHEMA);
                 if (arraySchema == null) {
                     logger.error("Missing array schema in child schema");
                     throw new IllegalArgumentException("Missing array schema in child schema");
                 }
-                Collection<Object> items = toObjectList(build(arraySchema, context, rootContext));
-                result.addAll(items.stream()
-                        .map(object -> build(value, JsonPath.using(context.configuration()).parse(object), rootContext))
-                        .collect(Collectors.toList()));
-            } else if (value instanceof Collection)
-                result.add(buildList((Collection) value, context, rootContext));
-            else
-                result.add(value);
+                items.add(ListSchema.Item.of(ArraySchema.of(compile(arraySchema), compileObject((Map) value)), true));
+            } else
+                items.add(ListSchema.Item.of(compile(value), false));
         }
-        return result;
+        return ListSchema.of(items);
     }
 
-    private Object buildNodeFromJsonPath(Type type, DocumentContext context, DocumentContext rootContext, String jsonPath) {
-        logger.trace("build Node with [{}] jsonPath to [{}] type", jsonPath, type);
-        if(hasInlineVariable(jsonPath)) {
+    private Schema compileJsonPath(Type type, String jsonPath) {
+        logger.trace("compile Node with [{}] jsonPath to [{}] type", jsonPath, type);
+        if (hasInlineVariable(jsonPath)) {
             logger.trace("Found inline variable");
-            jsonPath = buildStringFromRawData(jsonPath, context, rootContext);
-            logger.trace("build Node with [{}] jsonPath to [{}] type", jsonPath, type);
+            return JsonPathSchema.of(type, compileString(jsonPath));
         }
-        Object object = parseJsonPath(jsonPath, context, rootContext);
-        if (object == null)
-            return null;
-        if (type == null)
-            return object;
-
-        if (!type.isArray)
-            return castToType(toSingleObject(object), type);
-        else
-            return toObjectList(object).stream()
-                    .map(obj -> castToType(obj, type.elementType))
-                    .collect(Collectors.toList());
+        return JsonPathSchema.of(type, jsonPath);
     }
 
-    private Object buildNodeFromFunction(Type type, List<TokenValue> tokenValues, DocumentContext context, DocumentContext rootContext) {
-        TokenValue tokenValue = tokenValues.remove(0);
-        final String funcName = tokenValue.getValue();
-        logger.trace("build Node with [{}] function to [{}] type", funcName, type);
+    private Schema compileFunction(Type type, List<TokenValue> tokenValues, int[] position) {
+        final String funcName = tokenValues.get(position[0]++).getValue();
+        logger.trace("compile Node with [{}] function to [{}] type", funcName, type);
         Function function = functionMap.get(funcName);
         if (function == null) {
             logger.error("Unsupported function: {}", funcName);
             throw new IllegalArgumentException("Not support function: " + funcName);
         }
-        if (function.isReduceFunction()) {
-            Function.Result result = null;
-            while (!tokenValues.isEmpty()) {
-                tokenValue = tokenValues.get(0);
-                Object argument = null;
-                if (tokenValue.getToken() == Token.JSON_PATH)
-                    argument = parseJsonPath(tokenValue.getValue(), context, rootContext);
-                else if (tokenValue.getToken() == Token.FUNC)
-                    argument = buildNodeFromFunction(null, tokenValues, context, rootContext);
-                else if (tokenValue.getToken() == Token.RAW)
-                    argument = parseRawData(tokenValue.getValue(), context, rootContext);
-                else if (tokenValue.getToken() == Token.END_FUNC)
-                    break;
-                tokenValues.remove(0);
-                result = function.handle(type, argument, result);
-                if (result != null && result.isDone())
-                    return result.getValue();
-            }
-            return result == null ? null : result.getValue();
-        } else {
-            List<Object> arguments = new ArrayList<>();
-            while (!tokenValues.isEmpty()) {
-                tokenValue = tokenValues.get(0);
-                if (tokenValue.getToken() == Token.JSON_PATH)
-                    arguments.add(parseJsonPath(tokenValue.getValue(), context, rootContext));
-                else if (tokenValue.getToken() == Token.FUNC)
-                    arguments.add(buildNodeFromFunction(null, tokenValues, context, rootContext));
-                else if (tokenValue.getToken() == Token.RAW)
-                    arguments.add(parseRawData(tokenValue.getValue(), context, rootContext));
-                else if (tokenValue.getToken() == Token.END_FUNC)
-                    break;
-                tokenValues.remove(0);
-            }
-            return function.invoke(type, arguments);
+        List<Schema> arguments = new ArrayList<>();
+        while (position[0] < tokenValues.size()) {
+            TokenValue tokenValue = tokenValues.get(position[0]);
+            if (tokenValue.getToken() == Token.JSON_PATH)
+                arguments.add(JsonPathSchema.of(null, tokenValue.getValue()));
+            else if (tokenValue.getToken() == Token.FUNC)
+                arguments.add(compileFunction(null, tokenValues, position));
+            else if (tokenValue.getToken() == Token.RAW)
+                arguments.add(compileRawData(tokenValue.getValue()));
+            else if (tokenValue.getToken() == Token.END_FUNC)
+                break;
+            position[0]++;
         }
+        return FunctionSchema.of(type, function, arguments);
     }
 
-    private Object parseJsonPath(String jsonPath, DocumentContext context, DocumentContext rootContext) {
-        if(jsonPath.startsWith("$$")) {
-            logger.trace("Using root context");
-            return rootContext.read(jsonPath.substring(1));
-        }
-        return context.read(jsonPath);
-    }
-
-    private Object parseRawData(String rawData, DocumentContext context, DocumentContext rootContext) {
+    private Schema compileRawData(String rawData) {
         if (PATTERN_NUMERIC.matcher(rawData).matches()) {
             if (rawData.contains(".")) {
                 try {
-                    return new BigDecimal(rawData);
+                    return ValueSchema.of(new BigDecimal(rawData));
                 } catch (NumberFormatException ex) {
                     logger.trace("Cannot parse [{}] as decimal", rawData);
                 }
             } else {
                 try {
-                    return new BigInteger(rawData);
+                    return ValueSchema.of(new BigInteger(rawData));
                 } catch (NumberFormatException ex) {
                     logger.trace("Cannot parse [{}] as integer", rawData);
                 }
             }
         }
         if (rawData.equalsIgnoreCase("true") || rawData.equalsIgnoreCase("false")) {
-            return rawData.equalsIgnoreCase("true");
+            return ValueSchema.of(rawData.equalsIgnoreCase("true"));
         }
-        return buildStringFromRawData(rawData, context, rootContext);
+        return compileString(rawData);
     }
 
-    private Object castToType(Object object, Type type) {
-        switch (type) {
-            case STRING:
-                return object.toString();
-            case INTEGER:
-                if (object instanceof Integer || object instanceof Long || object instanceof BigInteger)
-                    return object;
-                if (object instanceof Float)
-                    return Math.round((Float) object);
-                if (object instanceof Double)
-                    return Math.round((Double) object);
-                if (object instanceof BigDecimal)
-                    return ((BigDecimal) object).toBigInteger();
-                if (object instanceof String)
-                    return new BigInteger(object.toString());
-                throw new IllegalArgumentException("Cannot cast " + object.getClass() + " to integer");
-            case NUMBER:
-                if (object instanceof Float || object instanceof Double || object instanceof BigDecimal)
-                    return object;
-                if (object instanceof Integer)
-                    return ((Integer) object).floatValue();
-                if (object instanceof Long)
-                    return ((Long) object).doubleValue();
-                if (object instanceof BigInteger)
-                    return new BigDecimal((BigInteger) object);
-                if (object instanceof String)
-                    return new BigDecimal(object.toString());
-                throw new IllegalArgumentException("Cannot cast " + object.getClass() + " to number");
-            case BOOLEAN:
-                Boolean result = MathUtils.toBoolean(object, null);
-                if (result == null)
-                    throw new IllegalArgumentException("Cannot cast " + object.getClass() + " to boolean");
-                return result;
-        }
-        return object;
-    }
-
-    private String buildStringFromRawData(String str, DocumentContext context, DocumentContext rootContext) {
+    private StringSchema compileString(String str) {
         boolean isEscaped = false;
+        List<Object> parts = new ArrayList<>();
         StringBuilder builder = new StringBuilder();
         StringBuilder varBuilder = new StringBuilder();
         int varCount = 0;
@@ -293,7 +234,11 @@ public class JsonBuilder {
                 i++;
                 varCount--;
                 if (varCount == 0) {
-                    builder.append(build(varBuilder.substring(2, varBuilder.length() - 2), context, rootContext));
+                    if (builder.length() > 0) {
+                        parts.add(builder.toString());
+                        builder.delete(0, builder.length());
+                    }
+                    parts.add(compile(varBuilder.substring(2, varBuilder.length() - 2)));
                     varBuilder.delete(0, varBuilder.length());
                 }
             } else if (varCount != 0) {
@@ -317,9 +262,11 @@ public class JsonBuilder {
             }
             i++;
         }
-        if(varBuilder.length() > 0)
+        if (varBuilder.length() > 0)
             builder.append(varBuilder);
-        return builder.toString();
+        if (builder.length() > 0)
+            parts.add(builder.toString());
+        return StringSchema.of(parts);
     }
 
     private boolean checkChar(String str, int index, char c) {
@@ -334,21 +281,6 @@ public class JsonBuilder {
         return value.contains("@{");
     }
 
-    private Object toSingleObject(Object value) {
-        if (value instanceof Collection) {
-            Collection list = (Collection) value;
-            return list.isEmpty() ? null : list.iterator().next();
-        }
-        return value;
-    }
-
-    private Collection<Object> toObjectList(Object value) {
-        if (!(value instanceof Collection)) {
-            return Collections.singletonList(value);
-        }
-        return (Collection)value;
-    }
-
     public enum Type {
         STRING(null, "str ", "string "),
         INTEGER(null, "int ", "integer "),
@@ -0,0 +1,243 @@
+package com.rey.jsonbatch;
+
+import com.rey.jsonbatch.parser.PathSegment;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.Liveness;
+import com.rey.jsonbatch.plan.LoopPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import com.rey.jsonbatch.plan.ResponsePlan;
+import com.rey.jsonbatch.plan.VarPlan;
+import com.rey.jsonbatch.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.rey.jsonbatch.parser.PathSegment.Type.*;
+
+public class LivenessAnalyzer {
+
+    private Logger logger = LoggerFactory.getLogger(LivenessAnalyzer.class);
+
+    private static final String KEY_REQUESTS = "requests";
+    private static final String KEY_RESPONSES = "responses";
+    private static final String KEY_TIMES = "times";
+
+    private static final int NONE = 0;
+
+    public Liveness analyze(BatchPlan plan) {
+        if (plan.getResponses() == null || plan.getResponses().stream().noneMatch(ResponsePlan::isUnconditional)) {
+            logger.debug("Batch may return the whole context, skip liveness analysis");
+            return null;
+        }
+
+        Map<LoopPlan, int[]> loops = new IdentityHashMap<>();
+        collectLoops(plan.getRequests(), new int[]{0}, loops);
+
+        int[] lastUses = new int[countDepth(plan.getRequests())];
+        for (int i = 0; i < lastUses.length; i++)
+            lastUses[i] = i;
+        Map<LoopPlan, Integer> needs = new IdentityHashMap<>();
+        loops.keySet().forEach(loop -> needs.put(loop, NONE));
+
+        List<String> paths = new ArrayList<>();
+        collectResponsePaths(plan.getResponses(), paths);
+        if (!analyzePaths(paths, Liveness.FOREVER, lastUses, loops, needs))
+            return null;
+        if (!analyzeRequests(plan.getRequests(), 0, lastUses, loops, needs))
+            return null;
+
+        Map<LoopPlan, Integer> retainedIterations = new IdentityHashMap<>();
+        needs.forEach((loop, need) -> retainedIterations.put(loop, need == Liveness.ALL_ITERATIONS ? Liveness.ALL_ITERATIONS : need + 1));
+        logger.debug("Last uses of batch responses: {}", Arrays.toString(lastUses));
+        return new Liveness(lastUses, Collections.unmodifiableMap(retainedIterations));
+    }
+
+    private boolean analyzeRequests(List<RequestPlan> requests, int depth, int[] lastUses, Map<LoopPlan, int[]> loops, Map<LoopPlan, Integer> needs) {
+        if (requests == null)
+            return true;
+        for (RequestPlan request : requests) {
+            List<String> paths = new ArrayList<>();
+            collectRequestPaths(request, paths);
+            if (!analyzePaths(paths, depth, lastUses, loops, needs))
+                return false;
+            if (!analyzeRequests(request.getRequests(), depth + 1, lastUses, loops, needs))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean analyzePaths(List<String> paths, int useDepth, int[] lastUses, Map<LoopPlan, int[]> loops, Map<LoopPlan, Integer> needs) {
+        for (String path : paths) {
+            List<PathSegment> segments = PathSegment.parse(path);
+            if (segments == null || segments.isEmpty() || segments.get(0).getType() == DEEP || segments.get(0).getType() == WILDCARD) {
+                logger.debug("Path [{}] may read any request or response, skip liveness analysis", path);
+                return false;
+            }
+            PathSegment root = segments.get(0);
+            if (!root.isProperty(KEY_REQUESTS) && !root.isProperty(KEY_RESPONSES))
+                continue;
+
+            PathSegment segment = segments.size() > 1 ? segments.get(1) : null;
+            if (segment == null || isWholeList(segment)) {
+                for (int i = 0; i < lastUses.length; i++)
+                    lastUses[i] = Math.max(lastUses[i], useDepth);
+            } else if (segment.getType() == INDEX && segment.getIndex() >= 0) {
+                if (segment.getIndex() < lastUses.length)
+                    lastUses[segment.getIndex()] = Math.max(lastUses[segment.getIndex()], useDepth);
+            } else if (segment.getType() == FUNCTION && !isSizeFunction(segment))
+                return false;
+
+            loops.forEach((loop, location) -> {
+                int need = matchIterations(segments, location);
+                int current = needs.get(loop);
+                if (current != Liveness.ALL_ITERATIONS)
+                    needs.put(loop, need == Liveness.ALL_ITERATIONS ? need : Math.max(current, need));
+            });
+        }
+        return true;
+    }
+
+    private int matchIterations(List<PathSegment> path, int[] location) {
+        int index = 1;
+        for (int level = 0; level < location.length; level++) {
+            if (level > 0) {
+                if (index == path.size())
+                    return Liveness.ALL_ITERATIONS;
+                PathSegment segment = path.get(index);
+                if (segment.isProperty(KEY_TIMES) || segment.getType() == WILDCARD)
+                    index++;
+                else
+                    return matchOther(segment);
+
+                if (index == path.size())
+                    return Liveness.ALL_ITERATIONS;
+                segment = path.get(index);
+                if (segment.getType() == INDEX || segment.getType() == ARRAY || segment.getType() == WILDCARD)
+                    index++;
+                else
+                    return matchOther(segment);
+            }
+
+            if (index == path.size())
+                return Liveness.ALL_ITERATIONS;
+            PathSegment segment = path.get(index);
+            if (segment.getType() == INDEX && segment.getIndex() >= 0 && segment.getIndex() != location[level])
+                return NONE;
+            if (segment.getType() == INDEX || segment.getType() == ARRAY || segment.getType() == WILDCARD)
+                index++;
+            else
+                return matchOther(segment);
+        }
+
+        if (index == path.size())
+            return Liveness.ALL_ITERATIONS;
+        PathSegment segment = path.get(index);
+        if (segment.isProperty(KEY_TIMES) || segment.getType() == WILDCARD)
+            index++;
+        else
+            return matchOther(segment);
+
+        if (index == path.size())
+            return Liveness.ALL_ITERATIONS;
+        segment = path.get(index);
+        if (segment.getType() == INDEX && segment.getIndex() < 0)
+            return -segment.getIndex();
+        if (segment.getType() == FUNCTION && isSizeFunction(segment))
+            return NONE;
+        return Liveness.ALL_ITERATIONS;
+    }
+
+    private int matchOther(PathSegment segment) {
+        switch (segment.getType()) {
+            case PROPERTY:
+            case INDEX:
+            case ARRAY:
+                return NONE;
+            case FUNCTION:
+                return isSizeFunction(segment) ? NONE : Liveness.ALL_ITERATIONS;
+            default:
+                return Liveness.ALL_ITERATIONS;
+        }
+    }
+
+    private boolean isWholeList(PathSegment segment) {
+        return segment.getType() == WILDCARD
+                || segment.getType() == ARRAY
+                || segment.getType() == FILTER
+                || segment.getType() == DEEP
+                || segment.getType() == INDEX && segment.getIndex() < 0;
+    }
+
+    private boolean isSizeFunction(PathSegment segment) {
+        return segment.getNames().contains("length") || segment.getNames().contains("size");
+    }
+
+    private int countDepth(List<RequestPlan> requests) {
+        if (requests == null)
+            return 0;
+        int depth = 0;
+        for (RequestPlan request : requests)
+            depth = Math.max(depth, 1 + countDepth(request.getRequests()));
+        return depth;
+    }
+
+    private void collectLoops(List<RequestPlan> requests, int[] location, Map<LoopPlan, int[]> loops) {
+        if (requests == null)
+            return;
+        for (RequestPlan request : requests) {
+            if (request.getLoop() != null) {
+                loops.put(request.getLoop(), location.clone());
+                int[] innerLocation = Arrays.copyOf(location, location.length + 1);
+                collectLoops(request.getLoop().getRequests(), innerLocation, loops);
+            }
+            int[] nextLocation = location.clone();
+            nextLocation[nextLocation.length - 1]++;
+            collectLoops(request.getRequests(), nextLocation, loops);
+        }
+    }
+
+    private void collectRequestPaths(RequestPlan request, Collection<String> paths) {
+        collectPaths(paths, request.getPredicate(), request.getHttpMethod(), request.getUrl(), request.getHeaders(), request.getBody());
+        collectResponsePaths(request.getResponses(), paths);
+        if (request.getVars() != null) {
+            for (VarPlan var : request.getVars())
+                collectPaths(paths, var.getPredicate(), var.getVars());
+        }
+        if (request.getLoop() != null) {
+            LoopPlan loop = request.getLoop();
+            collectPaths(paths, loop.getCounterInit(), loop.getCounterPredicate(), loop.getCounterUpdate());
+            collectNestedPaths(loop.getRequests(), paths);
+        }
+    }
+
+    private void collectNestedPaths(List<RequestPlan> requests, Collection<String> paths) {
+        if (requests == null)
+            return;
+        for (RequestPlan request : requests) {
+            collectRequestPaths(request, paths);
+            collectNestedPaths(request.getRequests(), paths);
+        }
+    }
+
+    private void collectResponsePaths(List<ResponsePlan> responses, Collection<String> paths) {
+        if (responses == null)
+            return;
+        for (ResponsePlan response : responses)
+            collectPaths(paths, response.getPredicate(), response.getStatus(), response.getHeaders(), response.getBody());
+    }
+
+    private void collectPaths(Collection<String> paths, Schema... schemas) {
+        for (Schema schema : schemas) {
+            if (schema != null)
+                schema.collectJsonPaths(paths);
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.rey.jsonbatch;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.projection.Projection;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface ProjectingRequestDispatcher extends RequestDispatcher {
+
+    Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) throws Exception;
+
+    default CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            future.complete(dispatch(request, jsonProvider, options, projection));
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.rey.jsonbatch;
+
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.ContextOptions;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.LoopOptions;
+import com.rey.jsonbatch.model.LoopTemplate;
+import com.rey.jsonbatch.model.RequestTemplate;
+import com.rey.jsonbatch.model.ResponseTemplate;
+import com.rey.jsonbatch.model.VarTemplate;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.LoopPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import com.rey.jsonbatch.plan.ResponsePlan;
+import com.rey.jsonbatch.plan.VarPlan;
+import com.rey.jsonbatch.projection.ProjectionAnalyzer;
+import com.rey.jsonbatch.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TemplateCompiler {
+
+    private Logger logger = LoggerFactory.getLogger(TemplateCompiler.class);
+
+    private static final String[] PREFIXES_ORIGINAL = {"$.original", "$['original']", "$[\"original\"]"};
+    private static final String[] PREFIXES_RESPONSES = {"$.responses", "$['responses']", "$[\"responses\"]"};
+    private static final String[] PREFIXES_VARS = {"$.vars", "$['vars']", "$[\"vars\"]"};
+    private static final String KEY_TIMES = "times";
+
+    private final JsonBuilder jsonBuilder;
+
+    private final ProjectionAnalyzer projectionAnalyzer = new ProjectionAnalyzer();
+
+    private final LivenessAnalyzer livenessAnalyzer = new LivenessAnalyzer();
+
+    public TemplateCompiler(JsonBuilder jsonBuilder) {
+        this.jsonBuilder = jsonBuilder;
+    }
+
+    public BatchPlan compile(BatchTemplate template) {
+        logger.debug("Compile batch template");
+        BatchPlan plan = new BatchPlan(
+                compileRequests(template.getRequests(), null),
+                compileResponses(template.getResponses()),
+                copy(template.getDispatchOptions()),
+                copy(template.getLoopOptions()));
+        ContextOptions contextOptions = copy(template.getContextOptions());
+        return new BatchPlan(
+                plan.getRequests(),
+                plan.getResponses(),
+                plan.getDispatchOptions(),
+                plan.getLoopOptions(),
+                contextOptions,
+                projectionAnalyzer.analyze(plan),
+                Boolean.TRUE.equals(contextOptions.getPruneUnused()) ? livenessAnalyzer.analyze(plan) : null);
+    }
+
+    public RequestPlan compile(RequestTemplate template) {
+        return compile(template, "request");
+    }
+
+    // id is the path of the request template in the batch template, e.g. requests[0].loop.requests[1]
+    private RequestPlan compile(RequestTemplate template, String id) {
+        Schema predicate = jsonBuilder.compile(template.getPredicate());
+        Schema httpMethod = jsonBuilder.compile(template.getHttpMethod());
+        Schema url = jsonBuilder.compile(template.getUrl());
+        Schema headers = compileOptional(template.getHeaders());
+        Schema body = compileOptional(template.getBody());
+        boolean independent = template.getLoop() == null
+                && isIndependent(predicate, httpMethod, url, headers, body);
+        return new RequestPlan(
+                id,
+                predicate,
+                httpMethod,
+                url,
+                headers,
+                body,
+                compileRequests(template.getRequests(), id),
+                compileResponses(template.getResponses()),
+                template.getLoop() == null ? null : compile(template.getLoop(), id + ".loop"),
+                compileResponses(template.getTransformers()),
+                compileVars(template.getVars()),
+                independent);
+    }
+
+    public ResponsePlan compile(ResponseTemplate template) {
+        return new ResponsePlan(
+                jsonBuilder.compile(template.getPredicate()),
+                compileOptional(template.getStatus()),
+                compileOptional(template.getHeaders()),
+                compileOptional(template.getBody()));
+    }
+
+    public LoopPlan compile(LoopTemplate template) {
+        return compile(template, "loop");
+    }
+
+    private LoopPlan compile(LoopTemplate template, String id) {
+        Schema counterPredicate = jsonBuilder.compile(template.getCounterPredicate());
+        Schema counterUpdate = jsonBuilder.compile(template.getCounterUpdate());
+        List<RequestPlan> requests = compileRequests(template.getRequests(), id);
+        boolean parallelizable = isParallelizable(requests, counterPredicate, counterUpdate);
+        if (template.getParallelism() != null && template.getParallelism() > 1 && !parallelizable)
+            logger.warn("Loop with [{}] parallelism cannot run in parallel, its iterations will run sequentially", template.getParallelism());
+        return new LoopPlan(
+                jsonBuilder.compile(template.getCounterInit()),
+                counterPredicate,
+                counterUpdate,
+                requests,
+                template.getParallelism(),
+                parallelizable);
+    }
+
+    public VarPlan compile(VarTemplate template) {
+        return new VarPlan(
+                jsonBuilder.compile(template.getPredicate()),
+                jsonBuilder.compile(template.getVars()));
+    }
+
+    private List<RequestPlan> compileRequests(List<RequestTemplate> templates, String parentId) {
+        if (templates == null)
+            return null;
+        List<RequestPlan> plans = new ArrayList<>(templates.size());
+        for (int i = 0; i < templates.size(); i++)
+            plans.add(compile(templates.get(i), (parentId == null ? "" : parentId + ".") + "requests[" + i + "]"));
+        return Collections.unmodifiableList(plans);
+    }
+
+    private List<ResponsePlan> compileResponses(List<ResponseTemplate> templates) {
+        if (templates == null)
+            return null;
+        List<ResponsePlan> plans = new ArrayList<>(templates.size());
+        for (ResponseTemplate template : templates)
+            plans.add(compile(template));
+        return Collections.unmodifiableList(plans);
+    }
+
+    private List<VarPlan> compileVars(List<VarTemplate> templates) {
+        if (templates == null)
+            return null;
+        List<VarPlan> plans = new ArrayList<>(templates.size());
+        for (VarTemplate template : templates)
+            plans.add(compile(template));
+        return Collections.unmodifiableList(plans);
+    }
+
+    private boolean isIndependent(Schema... schemas) {
+        List<String> paths = new ArrayList<>();
+        for (Schema schema : schemas) {
+            if (schema != null)
+                schema.collectJsonPaths(paths);
+        }
+        for (String path : paths) {
+            if (!isOriginalPath(path))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isParallelizable(List<RequestPlan> requests, Schema... counterSchemas) {
+        if (requests == null)
+            return false;
+        for (RequestPlan request : requests) {
+            if (request.getLoop() != null)
+                return false;
+            if (request.getRequests() != null && !request.getRequests().isEmpty())
+                return false;
+            if (request.getResponses() != null && !request.getResponses().isEmpty())
+                return false;
+        }
+
+        // every path an iteration evaluates against the batch context, transformers only see their own response
+        List<String> paths = new ArrayList<>();
+        for (Schema schema : counterSchemas)
+            schema.collectJsonPaths(paths);
+        collectJsonPaths(requests, paths);
+        for (String path : paths) {
+            if (path.equals("$") || path.startsWith("$.."))
+                return false;
+            if (hasPrefix(path, PREFIXES_VARS))
+                return false;
+            if (hasPrefix(path, PREFIXES_RESPONSES) && path.contains(KEY_TIMES))
+                return false;
+        }
+        return true;
+    }
+
+    private void collectJsonPaths(List<RequestPlan> requests, List<String> paths) {
+        if (requests == null)
+            return;
+        for (RequestPlan request : requests) {
+            collectJsonPaths(paths, request.getPredicate(), request.getHttpMethod(), request.getUrl(), request.getHeaders(), request.getBody());
+            if (request.getVars() != null) {
+                for (VarPlan var : request.getVars())
+                    collectJsonPaths(paths, var.getPredicate(), var.getVars());
+            }
+            collectJsonPaths(request.getRequests(), paths);
+        }
+    }
+
+    private void collectJsonPaths(List<String> paths, Schema... schemas) {
+        for (Schema schema : schemas) {
+            if (schema != null)
+                schema.collectJsonPaths(paths);
+        }
+    }
+
+    private boolean isOriginalPath(String path) {
+        return hasPrefix(path, PREFIXES_ORIGINAL);
+    }
+
+    private boolean hasPrefix(String path, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix))
+                return path.length() == prefix.length() || path.charAt(prefix.length()) == '.' || path.charAt(prefix.length()) == '[';
+        }
+        return false;
+    }
+
+    private DispatchOptions copy(DispatchOptions options) {
+        DispatchOptions copy = new DispatchOptions();
+        if (options != null) {
+            copy.setFailBackAsString(options.getFailBackAsString());
+            copy.setIgnoreParsingError(options.getIgnoreParsingError());
+        }
+        return copy.freeze();
+    }
+
+    private LoopOptions copy(LoopOptions options) {
+        LoopOptions copy = new LoopOptions();
+        if (options != null) {
+            copy.setMaxLoopTime(options.getMaxLoopTime());
+            copy.setParallelism(options.getParallelism());
+        }
+        return copy.freeze();
+    }
+
+    private ContextOptions copy(ContextOptions options) {
+        ContextOptions copy = new ContextOptions();
+        if (options != null)
+            copy.setPruneUnused(options.getPruneUnused());
+        return copy.freeze();
+    }
+
+    private Schema compileOptional(Object schema) {
+        return schema == null ? null : jsonBuilder.compile(schema);
+    }
+
+}
@@ -0,0 +1,408 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.rey.jsonbatch.dispatcher.DispatcherUtils.copy;
+
+public class CachingRequestDispatcher implements RequestDispatcher {
+
+    private Logger logger = LoggerFactory.getLogger(CachingRequestDispatcher.class);
+
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_EXPIRES = "Expires";
+    private static final String HEADER_DATE = "Date";
+    private static final String HEADER_AGE = "Age";
+    private static final String HEADER_VARY = "Vary";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_AUTHORIZATION = "Authorization";
+    private static final String HEADER_COOKIE = "Cookie";
+
+    private static final String DIRECTIVE_NO_STORE = "no-store";
+    private static final String DIRECTIVE_NO_CACHE = "no-cache";
+    private static final String DIRECTIVE_MAX_AGE = "max-age";
+    private static final String DIRECTIVE_STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+    private static final String DIRECTIVE_PUBLIC = "public";
+    private static final String DIRECTIVE_S_MAXAGE = "s-maxage";
+    private static final String DIRECTIVE_MUST_REVALIDATE = "must-revalidate";
+
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_NOT_MODIFIED = 304;
+
+    private final RequestDispatcher requestDispatcher;
+    private final long maxBytes;
+    private final Executor executor;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> revalidatingKeys = ConcurrentHashMap.newKeySet();
+    private long bytes;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder staleHitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder revalidationCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public CachingRequestDispatcher(RequestDispatcher requestDispatcher, long maxBytes) {
+        this(requestDispatcher, maxBytes, null);
+    }
+
+    public CachingRequestDispatcher(RequestDispatcher requestDispatcher, long maxBytes, Executor executor) {
+        this(requestDispatcher, maxBytes, executor, Clock.systemUTC());
+    }
+
+    public CachingRequestDispatcher(RequestDispatcher requestDispatcher, long maxBytes, Executor executor, Clock clock) {
+        if (maxBytes <= 0) {
+            logger.error("Invalid cache size: [{}]", maxBytes);
+            throw new IllegalArgumentException("Invalid cache size");
+        }
+        this.requestDispatcher = requestDispatcher;
+        this.maxBytes = maxBytes;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        if (!isCacheable(request))
+            return requestDispatcher.dispatch(request, jsonProvider, options);
+
+        String key = getKey(request);
+        Entry entry = get(key, request);
+        long now = clock.millis();
+        if (entry != null) {
+            if (now < entry.freshUntil) {
+                hitCount.increment();
+                logger.debug("Found fresh response of [{}] url", request.getUrl());
+                return copy(entry.response, jsonProvider);
+            }
+            if (now < entry.staleUntil && executor != null) {
+                staleHitCount.increment();
+                logger.debug("Found stale response of [{}] url, revalidate in background", request.getUrl());
+                revalidateInBackground(key, entry, request, jsonProvider, options);
+                return copy(entry.response, jsonProvider);
+            }
+        }
+
+        missCount.increment();
+        Response response = fetch(key, entry, request, jsonProvider, options);
+        return copy(response, jsonProvider);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getStaleHitCount() {
+        return staleHitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getRevalidationCount() {
+        return revalidationCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private boolean isCacheable(Request request) {
+        if (!"GET".equalsIgnoreCase(request.getHttpMethod()))
+            return false;
+        Map<String, String> directives = parseDirectives(getHeader(request.getHeaders(), HEADER_CACHE_CONTROL));
+        return !directives.containsKey(DIRECTIVE_NO_STORE) && !directives.containsKey(DIRECTIVE_NO_CACHE);
+    }
+
+    private Response fetch(String key, Entry entry, Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        Request outgoingRequest = request;
+        if (entry != null && entry.etag != null) {
+            outgoingRequest = new Request();
+            outgoingRequest.setHttpMethod(request.getHttpMethod());
+            outgoingRequest.setUrl(request.getUrl());
+            outgoingRequest.setBody(request.getBody());
+            Map<String, List<String>> headers = request.getHeaders() == null ? new LinkedHashMap<>() : new LinkedHashMap<>(request.getHeaders());
+            headers.put(HEADER_IF_NONE_MATCH, Collections.singletonList(entry.etag));
+            outgoingRequest.setHeaders(headers);
+        }
+
+        Response response = requestDispatcher.dispatch(outgoingRequest, jsonProvider, options);
+        if (response.getStatus() != null && response.getStatus() == STATUS_NOT_MODIFIED && entry != null) {
+            revalidationCount.increment();
+            logger.debug("Response of [{}] url is not modified", request.getUrl());
+            Response cachedResponse = new Response();
+            cachedResponse.setStatus(entry.response.getStatus());
+            cachedResponse.setBody(entry.response.getBody());
+            Map<String, List<String>> headers = entry.response.getHeaders() == null ? new LinkedHashMap<>() : new LinkedHashMap<>(entry.response.getHeaders());
+            if (response.getHeaders() != null)
+                response.getHeaders().forEach((name, values) -> {
+                    headers.keySet().removeIf(name::equalsIgnoreCase);
+                    headers.put(name, values);
+                });
+            cachedResponse.setHeaders(headers);
+            response = cachedResponse;
+        }
+        store(key, request, response);
+        return response;
+    }
+
+    private void revalidateInBackground(String key, Entry entry, Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        if (!revalidatingKeys.add(key))
+            return;
+        try {
+            executor.execute(() -> {
+                try {
+                    fetch(key, entry, request, jsonProvider, options);
+                } catch (Exception ex) {
+                    logger.warn("Cannot revalidate response of [{}] url", request.getUrl(), ex);
+                } finally {
+                    revalidatingKeys.remove(key);
+                }
+            });
+        } catch (RuntimeException ex) {
+            revalidatingKeys.remove(key);
+            logger.warn("Cannot schedule revalidation of [{}] url", request.getUrl(), ex);
+        }
+    }
+
+    private void store(String key, Request request, Response response) {
+        if (response.getStatus() == null || response.getStatus() != STATUS_OK) {
+            remove(key);
+            return;
+        }
+        Map<String, String> directives = parseDirectives(getHeader(response.getHeaders(), HEADER_CACHE_CONTROL));
+        String etag = getHeader(response.getHeaders(), HEADER_ETAG);
+        List<String> varyNames = parseVary(getHeader(response.getHeaders(), HEADER_VARY));
+        if (directives.containsKey(DIRECTIVE_NO_STORE) || varyNames.contains("*")) {
+            remove(key);
+            return;
+        }
+        // RFC 9111 section 3.5: responses to authorized requests are only stored when the server allows it explicitly
+        if (!getHeaderValues(request.getHeaders(), HEADER_AUTHORIZATION).isEmpty()
+                && !directives.containsKey(DIRECTIVE_PUBLIC)
+                && !directives.containsKey(DIRECTIVE_S_MAXAGE)
+                && !directives.containsKey(DIRECTIVE_MUST_REVALIDATE)) {
+            remove(key);
+            return;
+        }
+
+        long now = clock.millis();
+        long freshness = getFreshness(directives, response.getHeaders(), now);
+        if (freshness <= 0 && etag == null) {
+            remove(key);
+            return;
+        }
+
+        long freshUntil = now + Math.max(freshness, 0);
+        long staleUntil = freshUntil + TimeUnit.SECONDS.toMillis(parseSeconds(directives.get(DIRECTIVE_STALE_WHILE_REVALIDATE)));
+        Map<String, List<String>> varyValues = new HashMap<>();
+        for (String name : varyNames)
+            varyValues.put(name, getHeaderValues(request.getHeaders(), name));
+
+        Entry entry = new Entry(request.getUrl(), response, etag, freshUntil, staleUntil, varyValues);
+        entry.bytes = estimate(key) + estimate(response.getHeaders()) + estimate(response.getBody()) + 64;
+        put(key, entry);
+    }
+
+    private long getFreshness(Map<String, String> directives, Map<String, List<String>> headers, long now) {
+        if (directives.containsKey(DIRECTIVE_NO_CACHE))
+            return 0;
+        long age = TimeUnit.SECONDS.toMillis(parseSeconds(getHeader(headers, HEADER_AGE)));
+        if (directives.containsKey(DIRECTIVE_MAX_AGE))
+            return TimeUnit.SECONDS.toMillis(parseSeconds(directives.get(DIRECTIVE_MAX_AGE))) - age;
+        Long expires = parseDate(getHeader(headers, HEADER_EXPIRES));
+        if (expires != null) {
+            Long date = parseDate(getHeader(headers, HEADER_DATE));
+            return expires - (date == null ? now : date);
+        }
+        return 0;
+    }
+
+    private synchronized Entry get(String key, Request request) {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+        for (Map.Entry<String, List<String>> varyValue : entry.varyValues.entrySet()) {
+            if (!varyValue.getValue().equals(getHeaderValues(request.getHeaders(), varyValue.getKey())))
+                return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        remove(key);
+        if (entry.bytes > maxBytes) {
+            logger.debug("Response of [{}] url is too large to cache", entry.url);
+            return;
+        }
+        entries.put(key, entry);
+        bytes += entry.bytes;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.getValue().bytes;
+            evictionCount.increment();
+            logger.debug("Evict response of [{}] url", eldest.getValue().url);
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null)
+            bytes -= entry.bytes;
+    }
+
+    // credentials are part of the key so a response is never served to a request with other credentials
+    private static String getKey(Request request) {
+        List<String> authorization = getHeaderValues(request.getHeaders(), HEADER_AUTHORIZATION);
+        List<String> cookie = getHeaderValues(request.getHeaders(), HEADER_COOKIE);
+        if (authorization.isEmpty() && cookie.isEmpty())
+            return request.getUrl();
+        return request.getUrl() + '\n' + authorization + '\n' + cookie;
+    }
+
+    private static String getHeader(Map<String, List<String>> headers, String name) {
+        List<String> values = getHeaderValues(headers, name);
+        return values.isEmpty() ? null : String.join(",", values);
+    }
+
+    private static List<String> getHeaderValues(Map<String, List<String>> headers, String name) {
+        if (headers == null)
+            return Collections.emptyList();
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null)
+                return entry.getValue();
+        }
+        return Collections.emptyList();
+    }
+
+    private static Map<String, String> parseDirectives(String value) {
+        if (value == null)
+            return Collections.emptyMap();
+        Map<String, String> directives = new HashMap<>();
+        for (String part : value.split(",")) {
+            String directive = part.trim();
+            if (directive.isEmpty())
+                continue;
+            int index = directive.indexOf('=');
+            if (index < 0)
+                directives.put(directive.toLowerCase(Locale.ROOT), null);
+            else
+                directives.put(directive.substring(0, index).trim().toLowerCase(Locale.ROOT), directive.substring(index + 1).trim().replace("\"", ""));
+        }
+        return directives;
+    }
+
+    private static List<String> parseVary(String value) {
+        if (value == null)
+            return Collections.emptyList();
+        List<String> names = new ArrayList<>();
+        for (String name : value.split(",")) {
+            if (!name.trim().isEmpty())
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null)
+            return 0;
+        try {
+            return Math.max(Long.parseLong(value.trim()), 0);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private static Long parseDate(String value) {
+        if (value == null)
+            return null;
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private static long estimate(Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof CharSequence)
+            return 40 + 2L * ((CharSequence) value).length();
+        if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                size += 32 + estimate(entry.getKey()) + estimate(entry.getValue());
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = 40;
+            for (Object item : (Collection<?>) value)
+                size += 8 + estimate(item);
+            return size;
+        }
+        return 24;
+    }
+
+    private static class Entry {
+        final String url;
+        final Response response;
+        final String etag;
+        final long freshUntil;
+        final long staleUntil;
+        final Map<String, List<String>> varyValues;
+        long bytes;
+
+        Entry(String url, Response response, String etag, long freshUntil, long staleUntil, Map<String, List<String>> varyValues) {
+            this.url = url;
+            this.response = response;
+            this.etag = etag;
+            this.freshUntil = freshUntil;
+            this.staleUntil = staleUntil;
+            this.varyValues = varyValues;
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.BatchScopedRequestDispatcher;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.rey.jsonbatch.dispatcher.DispatcherUtils.canonicalKey;
+import static com.rey.jsonbatch.dispatcher.DispatcherUtils.copy;
+import static com.rey.jsonbatch.dispatcher.DispatcherUtils.unwrap;
+
+public class DeduplicatingRequestDispatcher implements AsyncRequestDispatcher, BatchScopedRequestDispatcher {
+
+    private Logger logger = LoggerFactory.getLogger(DeduplicatingRequestDispatcher.class);
+
+    private final RequestDispatcher requestDispatcher;
+    private final Set<String> httpMethods = new HashSet<>();
+    private final Map<String, CompletableFuture<Response>> inFlightResponses = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder collapseCount = new LongAdder();
+
+    public DeduplicatingRequestDispatcher(RequestDispatcher requestDispatcher) {
+        this(requestDispatcher, Arrays.asList("GET", "HEAD"));
+    }
+
+    public DeduplicatingRequestDispatcher(RequestDispatcher requestDispatcher, Collection<String> httpMethods) {
+        this.requestDispatcher = requestDispatcher;
+        httpMethods.forEach(httpMethod -> this.httpMethods.add(httpMethod.toUpperCase(Locale.ROOT)));
+    }
+
+    @Override
+    public RequestDispatcher openScope() {
+        if (requestDispatcher instanceof AsyncRequestDispatcher)
+            return new AsyncScope();
+        return new Scope();
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        return dispatch(request, jsonProvider, options, null);
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        return dispatchAsync(request, jsonProvider, options, null);
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getCollapseCount() {
+        return collapseCount.sum();
+    }
+
+    private Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options, Map<String, Response> memo) throws Exception {
+        if (!isDeduplicable(request))
+            return requestDispatcher.dispatch(request, jsonProvider, options);
+
+        String key = key(request, jsonProvider, options);
+        Response response = getMemo(memo, key);
+        if (response != null)
+            return copy(response, jsonProvider);
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<Response> inFlightResponse = inFlightResponses.putIfAbsent(key, future);
+        if (inFlightResponse != null) {
+            collapseCount.increment();
+            logger.debug("Collapse request with [{}] key", key);
+            try {
+                response = inFlightResponse.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof Exception)
+                    throw (Exception) ex.getCause();
+                throw ex;
+            }
+            putMemo(memo, key, response);
+            return copy(response, jsonProvider);
+        }
+
+        missCount.increment();
+        try {
+            response = requestDispatcher.dispatch(request, jsonProvider, options);
+            future.complete(response);
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlightResponses.remove(key, future);
+        }
+        putMemo(memo, key, response);
+        return copy(response, jsonProvider);
+    }
+
+    private CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options, Map<String, Response> memo) {
+        if (!isDeduplicable(request))
+            return DispatcherUtils.dispatchAsync(requestDispatcher, request, jsonProvider, options);
+
+        String key = key(request, jsonProvider, options);
+        Response response = getMemo(memo, key);
+        if (response != null)
+            return CompletableFuture.completedFuture(copy(response, jsonProvider));
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        CompletableFuture<Response> inFlightResponse = inFlightResponses.putIfAbsent(key, future);
+        if (inFlightResponse != null) {
+            collapseCount.increment();
+            logger.debug("Collapse request with [{}] key", key);
+            return inFlightResponse.thenApply(value -> {
+                putMemo(memo, key, value);
+                return copy(value, jsonProvider);
+            });
+        }
+
+        missCount.increment();
+        DispatcherUtils.dispatchAsync(requestDispatcher, request, jsonProvider, options)
+                .whenComplete((value, throwable) -> {
+                    inFlightResponses.remove(key, future);
+                    if (throwable != null)
+                        future.completeExceptionally(unwrap(throwable));
+                    else
+                        future.complete(value);
+                });
+        return future.thenApply(value -> {
+            putMemo(memo, key, value);
+            return copy(value, jsonProvider);
+        });
+    }
+
+    // the options decide how a body is parsed, so requests only share a response when they parse it the same way
+    private String key(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        boolean failBackAsString = options != null && Boolean.TRUE.equals(options.getFailBackAsString());
+        boolean ignoreParsingError = options != null && Boolean.TRUE.equals(options.getIgnoreParsingError());
+        return canonicalKey(request, jsonProvider) + "\nfail_back_as_string:" + failBackAsString + "\nignore_parsing_error:" + ignoreParsingError;
+    }
+
+    private boolean isDeduplicable(Request request) {
+        return request.getHttpMethod() != null && httpMethods.contains(request.getHttpMethod().toUpperCase(Locale.ROOT));
+    }
+
+    private Response getMemo(Map<String, Response> memo, String key) {
+        if (memo == null)
+            return null;
+        Response response = memo.get(key);
+        if (response != null) {
+            hitCount.increment();
+            logger.debug("Found memoized response with [{}] key", key);
+        }
+        return response;
+    }
+
+    private void putMemo(Map<String, Response> memo, String key, Response response) {
+        if (memo != null)
+            memo.putIfAbsent(key, response);
+    }
+
+    private class Scope implements RequestDispatcher {
+
+        final Map<String, Response> memo = new ConcurrentHashMap<>();
+
+        @Override
+        public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+            return DeduplicatingRequestDispatcher.this.dispatch(request, jsonProvider, options, memo);
+        }
+
+    }
+
+    private class AsyncScope extends Scope implements AsyncRequestDispatcher {
+
+        @Override
+        public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+            return super.dispatch(request, jsonProvider, options);
+        }
+
+        @Override
+        public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+            return DeduplicatingRequestDispatcher.this.dispatchAsync(request, jsonProvider, options, memo);
+        }
+
+    }
+
+}
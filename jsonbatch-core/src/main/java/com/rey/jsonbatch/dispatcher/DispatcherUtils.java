@@ -0,0 +1,104 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+class DispatcherUtils {
+
+    // trace context headers are different on every dispatch, they must not make identical requests look different
+    private static final Set<String> IGNORED_HEADERS = new HashSet<>(Arrays.asList("traceparent", "tracestate"));
+
+    static String canonicalKey(Request request, JsonProvider jsonProvider) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(request.getHttpMethod().toUpperCase(Locale.ROOT)).append(' ').append(request.getUrl()).append('\n');
+        if (request.getHeaders() != null) {
+            Map<String, List<String>> headers = new TreeMap<>();
+            request.getHeaders().forEach((name, values) -> {
+                String key = name.toLowerCase(Locale.ROOT);
+                if (!IGNORED_HEADERS.contains(key))
+                    headers.put(key, values);
+            });
+            headers.forEach((name, values) -> builder.append(name).append(':').append(values).append('\n'));
+        }
+        builder.append('\n');
+        if (request.getBody() != null)
+            builder.append(jsonProvider.toJson(request.getBody()));
+        return builder.toString();
+    }
+
+    static Response copy(Response response, JsonProvider jsonProvider) {
+        Response copy = new Response();
+        copy.setStatus(response.getStatus());
+        copy.setBodySize(response.getBodySize());
+        if (response.getHeaders() != null) {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            response.getHeaders().forEach((name, values) -> headers.put(name, values == null ? null : new ArrayList<>(values)));
+            copy.setHeaders(headers);
+        }
+        copy.setBody(copy(response.getBody(), jsonProvider));
+        return copy;
+    }
+
+    static Object copy(Object value, JsonProvider jsonProvider) {
+        if (value == null)
+            return null;
+        if (jsonProvider.isMap(value)) {
+            Object map = jsonProvider.createMap();
+            for (String key : jsonProvider.getPropertyKeys(value))
+                jsonProvider.setProperty(map, key, copy(jsonProvider.getMapValue(value, key), jsonProvider));
+            return map;
+        }
+        if (jsonProvider.isArray(value)) {
+            Object array = jsonProvider.createArray();
+            int length = jsonProvider.length(value);
+            for (int i = 0; i < length; i++)
+                jsonProvider.setArrayIndex(array, i, copy(jsonProvider.getArrayIndex(value, i), jsonProvider));
+            return array;
+        }
+        return value;
+    }
+
+    static CompletableFuture<Response> dispatchAsync(RequestDispatcher requestDispatcher, Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        if (requestDispatcher instanceof AsyncRequestDispatcher) {
+            try {
+                return ((AsyncRequestDispatcher) requestDispatcher).dispatchAsync(request, jsonProvider, options);
+            } catch (Exception ex) {
+                return failedFuture(ex);
+            }
+        }
+        try {
+            return CompletableFuture.completedFuture(requestDispatcher.dispatch(request, jsonProvider, options));
+        } catch (Exception ex) {
+            return failedFuture(ex);
+        }
+    }
+
+    static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null)
+            return throwable.getCause();
+        return throwable;
+    }
+
+}
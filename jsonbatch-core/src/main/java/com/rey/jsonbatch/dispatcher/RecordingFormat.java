@@ -0,0 +1,78 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/*
+ * File layout (big-endian):
+ *   header: int magic, int version
+ *   record: int length (of the rest of the record), long keyHash, int keyLength, byte[] key, long latencyNanos,
+ *           int status, int headersLength, byte[] headers (json), int bodyLength, byte[] body (json)
+ * A length of -1 stands for null.
+ */
+class RecordingFormat {
+
+    static final int MAGIC = 0x4A425243;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static byte[] key(Request request, JsonProvider jsonProvider) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(request.getHttpMethod().toUpperCase(Locale.ROOT)).append(' ').append(request.getUrl()).append('\n');
+        if (request.getBody() != null)
+            builder.append(jsonProvider.toJson(request.getBody()));
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static long hash(byte[] key) {
+        long hash = FNV_OFFSET;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static ByteBuffer header() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.flip();
+        return buffer;
+    }
+
+    static ByteBuffer encode(byte[] key, long latencyNanos, Response response, JsonProvider jsonProvider) {
+        byte[] headers = response.getHeaders() == null ? null : jsonProvider.toJson(response.getHeaders()).getBytes(StandardCharsets.UTF_8);
+        byte[] body = response.getBody() == null ? null : jsonProvider.toJson(response.getBody()).getBytes(StandardCharsets.UTF_8);
+        int length = 8 + 4 + key.length + 8 + 4 + 4 + length(headers) + 4 + length(body);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length);
+        buffer.putLong(hash(key));
+        buffer.putInt(key.length).put(key);
+        buffer.putLong(latencyNanos);
+        buffer.putInt(response.getStatus() == null ? -1 : response.getStatus());
+        put(buffer, headers);
+        put(buffer, body);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void put(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null)
+            buffer.putInt(-1);
+        else
+            buffer.putInt(bytes.length).put(bytes);
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RecordingRequestDispatcher implements AsyncRequestDispatcher, Closeable {
+
+    private Logger logger = LoggerFactory.getLogger(RecordingRequestDispatcher.class);
+
+    private final RequestDispatcher requestDispatcher;
+    private final FileChannel channel;
+
+    private final LongAdder recordCount = new LongAdder();
+
+    public RecordingRequestDispatcher(RequestDispatcher requestDispatcher, Path file) throws IOException {
+        this.requestDispatcher = requestDispatcher;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0)
+            write(RecordingFormat.header());
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        long start = System.nanoTime();
+        Response response = requestDispatcher.dispatch(request, jsonProvider, options);
+        record(request, response, System.nanoTime() - start, jsonProvider);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        long start = System.nanoTime();
+        return DispatcherUtils.dispatchAsync(requestDispatcher, request, jsonProvider, options).thenApply(response -> {
+            record(request, response, System.nanoTime() - start, jsonProvider);
+            return response;
+        });
+    }
+
+    public long getRecordCount() {
+        return recordCount.sum();
+    }
+
+    private void record(Request request, Response response, long latencyNanos, JsonProvider jsonProvider) {
+        ByteBuffer buffer = RecordingFormat.encode(RecordingFormat.key(request, jsonProvider), latencyNanos, response, jsonProvider);
+        try {
+            write(buffer);
+            recordCount.increment();
+        } catch (IOException ex) {
+            logger.error("Cannot record response of {} {}", request.getHttpMethod(), request.getUrl(), ex);
+        }
+    }
+
+    private synchronized void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+}
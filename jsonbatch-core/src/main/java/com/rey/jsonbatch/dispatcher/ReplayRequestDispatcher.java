@@ -0,0 +1,294 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.rey.jsonbatch.dispatcher.DispatcherUtils.failedFuture;
+
+public class ReplayRequestDispatcher implements AsyncRequestDispatcher, Closeable {
+
+    public enum LatencyMode {
+        ZERO, RECORDED, DISTRIBUTION
+    }
+
+    private Logger logger = LoggerFactory.getLogger(ReplayRequestDispatcher.class);
+
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final LatencyMode latencyMode;
+    private final ScheduledExecutorService scheduler;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int recordCount;
+    private int[] recordSegments = new int[16];
+    private int[] recordOffsets = new int[16];
+    private long[] recordHashes = new long[16];
+    private long[] latencies = new long[16];
+
+    // open addressing table from key hash to the records with that hash, in recorded order
+    private long[] tableHashes;
+    private int[][] tableRecords;
+    private AtomicIntegerArray cursors;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public ReplayRequestDispatcher(Path file) throws IOException {
+        this(file, LatencyMode.ZERO);
+    }
+
+    public ReplayRequestDispatcher(Path file, LatencyMode latencyMode) throws IOException {
+        this.latencyMode = latencyMode;
+        load(file);
+        buildTable();
+        this.scheduler = latencyMode == LatencyMode.ZERO ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jsonbatch-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        int record = find(request, jsonProvider);
+        long latency = latency(record);
+        if (latency > 0)
+            TimeUnit.NANOSECONDS.sleep(latency);
+        return decode(record, jsonProvider);
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        Response response;
+        long latency;
+        try {
+            int record = find(request, jsonProvider);
+            latency = latency(record);
+            response = decode(record, jsonProvider);
+        } catch (Exception ex) {
+            return failedFuture(ex);
+        }
+        if (latency <= 0)
+            return CompletableFuture.completedFuture(response);
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete(response), latency, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private void load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < RecordingFormat.HEADER_SIZE) {
+                logger.error("Recording file is too short: {}", file);
+                throw new IllegalArgumentException("Invalid recording file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, RecordingFormat.HEADER_SIZE);
+            if (header.getInt() != RecordingFormat.MAGIC || header.getInt() != RecordingFormat.VERSION) {
+                logger.error("Recording file has unknown format: {}", file);
+                throw new IllegalArgumentException("Invalid recording file: " + file);
+            }
+
+            long position = RecordingFormat.HEADER_SIZE;
+            MappedByteBuffer segment = null;
+            long segmentStart = 0;
+            while (position + 4 <= size) {
+                if (segment == null || position + 4 > segmentStart + segment.capacity()) {
+                    segmentStart = position;
+                    segment = map(channel, segmentStart, size);
+                }
+                int offset = (int) (position - segmentStart);
+                long end = position + 4 + segment.getInt(offset);
+                if (end > size) {
+                    logger.warn("Ignore truncated record at {} of {}", position, file);
+                    break;
+                }
+                if (end > segmentStart + segment.capacity()) {
+                    if (end - position > MAX_SEGMENT_SIZE) {
+                        logger.error("Record at {} is too large", position);
+                        throw new IllegalArgumentException("Invalid recording file: " + file);
+                    }
+                    segmentStart = position;
+                    segment = map(channel, segmentStart, size);
+                    continue;
+                }
+                addRecord(segments.size() - 1, offset, segment);
+                position = end;
+            }
+        }
+        logger.debug("Loaded {} records from {}", recordCount, file);
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_SEGMENT_SIZE));
+        segments.add(segment);
+        return segment;
+    }
+
+    private void addRecord(int segment, int offset, MappedByteBuffer buffer) {
+        if (recordCount == recordOffsets.length) {
+            int capacity = recordCount * 2;
+            recordSegments = Arrays.copyOf(recordSegments, capacity);
+            recordOffsets = Arrays.copyOf(recordOffsets, capacity);
+            recordHashes = Arrays.copyOf(recordHashes, capacity);
+            latencies = Arrays.copyOf(latencies, capacity);
+        }
+        int keyLength = buffer.getInt(offset + 12);
+        recordSegments[recordCount] = segment;
+        recordOffsets[recordCount] = offset;
+        recordHashes[recordCount] = buffer.getLong(offset + 4);
+        latencies[recordCount] = buffer.getLong(offset + 16 + keyLength);
+        recordCount++;
+    }
+
+    private void buildTable() {
+        Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < recordCount; i++)
+            groups.computeIfAbsent(recordHashes[i], hash -> new ArrayList<>()).add(i);
+
+        int capacity = Integer.highestOneBit(Math.max(groups.size(), 1) * 2 - 1) << 1;
+        tableHashes = new long[capacity];
+        tableRecords = new int[capacity][];
+        cursors = new AtomicIntegerArray(capacity);
+        groups.forEach((hash, records) -> {
+            int slot = slot(hash);
+            while (tableRecords[slot] != null)
+                slot = (slot + 1) & (capacity - 1);
+            tableHashes[slot] = hash;
+            tableRecords[slot] = records.stream().mapToInt(Integer::intValue).toArray();
+        });
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (tableHashes.length - 1);
+    }
+
+    private int find(Request request, JsonProvider jsonProvider) {
+        byte[] key = RecordingFormat.key(request, jsonProvider);
+        long hash = RecordingFormat.hash(key);
+        int slot = slot(hash);
+        while (tableRecords[slot] != null) {
+            if (tableHashes[slot] == hash) {
+                int[] records = tableRecords[slot];
+                int start = cursors.getAndIncrement(slot);
+                for (int i = 0; i < records.length; i++) {
+                    int record = records[Math.floorMod(start + i, records.length)];
+                    if (keyEquals(record, key)) {
+                        hitCount.increment();
+                        return record;
+                    }
+                }
+            }
+            slot = (slot + 1) & (tableHashes.length - 1);
+        }
+        missCount.increment();
+        logger.error("No recorded response for {} {}", request.getHttpMethod(), request.getUrl());
+        throw new IllegalArgumentException("No recorded response for " + request.getHttpMethod() + " " + request.getUrl());
+    }
+
+    private boolean keyEquals(int record, byte[] key) {
+        MappedByteBuffer segment = segments.get(recordSegments[record]);
+        int offset = recordOffsets[record];
+        if (segment.getInt(offset + 12) != key.length)
+            return false;
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(offset + 16 + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private long latency(int record) {
+        switch (latencyMode) {
+            case RECORDED:
+                return latencies[record];
+            case DISTRIBUTION:
+                return latencies[ThreadLocalRandom.current().nextInt(recordCount)];
+            default:
+                return 0;
+        }
+    }
+
+    private Response decode(int record, JsonProvider jsonProvider) {
+        ByteBuffer buffer = segments.get(recordSegments[record]).duplicate();
+        int offset = recordOffsets[record];
+        buffer.position(offset + 16 + buffer.getInt(offset + 12) + 8);
+        int status = buffer.getInt();
+        String headers = readString(buffer);
+        String body = readString(buffer);
+
+        Response response = new Response();
+        response.setStatus(status < 0 ? null : status);
+        response.setHeaders(headers == null ? null : toHeaders(jsonProvider.parse(headers), jsonProvider));
+        response.setBody(body == null ? null : jsonProvider.parse(body));
+        return response;
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, List<String>> toHeaders(Object value, JsonProvider jsonProvider) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : jsonProvider.getPropertyKeys(value)) {
+            Object values = jsonProvider.getMapValue(value, name);
+            List<String> list = new ArrayList<>();
+            if (jsonProvider.isArray(values)) {
+                for (Object item : jsonProvider.toIterable(values))
+                    list.add(item == null ? null : item.toString());
+            } else if (values != null)
+                list.add(values.toString());
+            headers.put(name, list);
+        }
+        return headers;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+}
@@ -9,8 +9,6 @@ import java.math.BigInteger;
 import java.util.List;
 
 import static com.rey.jsonbatch.JsonBuilder.Type.INTEGER;
-import static com.rey.jsonbatch.function.MathUtils.toBigDecimal;
-import static com.rey.jsonbatch.function.MathUtils.toBigInteger;
 
 @SuppressWarnings("unchecked")
 public class AverageFunction extends Function {
@@ -30,70 +28,40 @@ public class AverageFunction extends Function {
     @Override
     public Object invoke(Type type, List<Object> arguments) {
         if(type == INTEGER) {
-            Result<BigInteger> result = sumAll(new BigInteger("0"), arguments);
-            return result.value.divide(new BigInteger(String.valueOf(result.count)));
+            IntegerSum sum = new IntegerSum();
+            addAll(sum, arguments);
+            return sum.toBigInteger().divide(BigInteger.valueOf(sum.getCount()));
         }
 
-        Result<BigDecimal> result = sumAll(new BigDecimal("0"), arguments);
-        return result.value.divide(new BigDecimal(String.valueOf(result.count)));
+        DecimalSum sum = new DecimalSum();
+        addAll(sum, arguments);
+        return sum.toBigDecimal().divide(BigDecimal.valueOf(sum.getCount()));
     }
 
-    private Result<BigInteger> sumAll(BigInteger total, List<Object> items) {
-        Result<BigInteger> finalResult = new Result<>(0, total);
+    private void addAll(IntegerSum sum, List<Object> items) {
         for(Object item : items) {
-            if(item instanceof List) {
-                Result<BigInteger> result = sumAll(total, (List) item);
-                finalResult.count += result.count;
-                finalResult.value = finalResult.value.add(result.value);
-
-            }
-            else {
-                BigInteger value = toBigInteger(item);
-                if(value == null) {
-                    logger.error("Cannot process [{}] type", item.getClass());
-                    throw new IllegalArgumentException("Cannot process item");
-                }
-                finalResult.count ++;
-                finalResult.value = finalResult.value.add(value);
+            if(item instanceof List)
+                addAll(sum, (List) item);
+            else if(!sum.add(item)) {
+                logger.error("Cannot process [{}] type", item.getClass());
+                throw new IllegalArgumentException("Cannot process item");
             }
         }
-        return finalResult;
     }
 
-    private Result<BigDecimal> sumAll(BigDecimal total, List<Object> items) {
-        Result<BigDecimal> finalResult = new Result<>(0, total);
+    private void addAll(DecimalSum sum, List<Object> items) {
         for(Object item : items) {
-            if(item instanceof List) {
-                Result<BigDecimal> result = sumAll(total, (List) item);
-                finalResult.count += result.count;
-                finalResult.value = finalResult.value.add(result.value);
-
-            }
-            else {
-                BigDecimal value = toBigDecimal(item);
-                if(value == null) {
-                    logger.error("Cannot process [{}] type", item.getClass());
-                    throw new IllegalArgumentException("Cannot process item");
-                }
-                finalResult.count ++;
-                finalResult.value = finalResult.value.add(value);
+            if(item instanceof List)
+                addAll(sum, (List) item);
+            else if(!sum.add(item)) {
+                logger.error("Cannot process [{}] type", item.getClass());
+                throw new IllegalArgumentException("Cannot process item");
             }
         }
-        return finalResult;
     }
 
     public static AverageFunction instance() {
         return new AverageFunction();
     }
 
-    private class Result<T> {
-        int count;
-        T value;
-
-        Result(int count, T value) {
-            this.count = count;
-            this.value = value;
-        }
-    }
-
 }
@@ -0,0 +1,72 @@
+package com.rey.jsonbatch.function;
+
+import java.math.BigDecimal;
+
+/*
+ * Min or max of items converted like MathUtils.toBigDecimal. Integers up to 2^53 and finite doubles are compared as doubles:
+ * their order is the order of their BigDecimal forms, only equal values need a BigDecimal comparison to pick the same item
+ * as MathUtils.min and max. The first other item moves the comparison to BigDecimals.
+ */
+class DecimalExtremum {
+
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final boolean max;
+
+    private Object item;
+    private double value;
+    private BigDecimal bigValue;
+
+    DecimalExtremum(boolean max) {
+        this.max = max;
+    }
+
+    // false if the item is not a number
+    boolean add(Object newItem) {
+        if(bigValue == null && isComparableAsDouble(newItem)) {
+            double newValue = ((Number)newItem).doubleValue();
+            if(item == null || (max ? newValue > value : newValue < value) || (newValue == value && replaceEqual(newItem))) {
+                item = newItem;
+                value = newValue;
+            }
+            return true;
+        }
+
+        BigDecimal newValue = MathUtils.toBigDecimal(newItem);
+        if(newValue == null)
+            return false;
+        if(bigValue == null && item != null)
+            bigValue = MathUtils.toBigDecimal(item);
+        bigValue = max ? MathUtils.max(bigValue, newValue) : MathUtils.min(bigValue, newValue);
+        return true;
+    }
+
+    // MathUtils.min keeps the current value when they are equal, MathUtils.max takes the new one
+    private boolean replaceEqual(Object newItem) {
+        if(item.getClass() == newItem.getClass() || !(item instanceof Double || newItem instanceof Double))
+            return max;
+        BigDecimal current = MathUtils.toBigDecimal(item);
+        BigDecimal next = MathUtils.toBigDecimal(newItem);
+        return (max ? MathUtils.max(current, next) : MathUtils.min(current, next)) == next;
+    }
+
+    private boolean isComparableAsDouble(Object item) {
+        if(item instanceof Integer)
+            return true;
+        if(item instanceof Long) {
+            long longValue = (Long)item;
+            return longValue >= -MAX_EXACT_LONG && longValue <= MAX_EXACT_LONG;
+        }
+        if(item instanceof Double)
+            return !((Double)item).isNaN() && !((Double)item).isInfinite();
+        return false;
+    }
+
+    // null if there was no item
+    BigDecimal toBigDecimal() {
+        if(bigValue != null)
+            return bigValue;
+        return item == null ? null : MathUtils.toBigDecimal(item);
+    }
+
+}
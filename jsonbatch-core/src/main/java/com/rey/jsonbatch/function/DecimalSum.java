@@ -0,0 +1,77 @@
+package com.rey.jsonbatch.function;
+
+import java.math.BigDecimal;
+
+/*
+ * Sum of items converted like MathUtils.toBigDecimal, accumulated as an unscaled long and a scale, so the result has
+ * the same value and scale as adding BigDecimals. Doubles are only added this way when their decimal form is known
+ * (see MathUtils.decimalScale), other items and the running sum when it would overflow move to a BigDecimal.
+ */
+class DecimalSum {
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+            10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L,
+            10000000000000000L, 100000000000000000L, 1000000000000000000L};
+
+    private long unscaledSum;
+    private int scale;
+    private BigDecimal bigSum;
+    private int count;
+
+    // false if the item is not a number
+    boolean add(Object item) {
+        if(item instanceof Integer || item instanceof Long) {
+            add(((Number)item).longValue(), 0);
+            count++;
+            return true;
+        }
+        if(item instanceof Double) {
+            double value = (double)item;
+            int valueScale = MathUtils.decimalScale(value);
+            if(valueScale >= 0) {
+                add(MathUtils.unscaledValue(value, valueScale), valueScale);
+                count++;
+                return true;
+            }
+        }
+
+        BigDecimal bigValue = MathUtils.toBigDecimal(item);
+        if(bigValue == null)
+            return false;
+        addBig(bigValue);
+        count++;
+        return true;
+    }
+
+    private void add(long unscaledValue, int valueScale) {
+        try {
+            long sum = unscaledSum;
+            long value = unscaledValue;
+            if(valueScale > scale)
+                sum = Math.multiplyExact(sum, POWERS_OF_TEN[valueScale - scale]);
+            else if(valueScale < scale)
+                value = Math.multiplyExact(value, POWERS_OF_TEN[scale - valueScale]);
+            unscaledSum = Math.addExact(sum, value);
+            scale = Math.max(scale, valueScale);
+        } catch (ArithmeticException ex) {
+            addBig(BigDecimal.valueOf(unscaledSum, scale));
+            addBig(BigDecimal.valueOf(unscaledValue, valueScale));
+            unscaledSum = 0;
+            scale = 0;
+        }
+    }
+
+    private void addBig(BigDecimal value) {
+        bigSum = bigSum == null ? value : bigSum.add(value);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    BigDecimal toBigDecimal() {
+        BigDecimal value = BigDecimal.valueOf(unscaledSum, scale);
+        return bigSum == null ? value : bigSum.add(value);
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.rey.jsonbatch.function;
+
+import java.math.BigInteger;
+
+/*
+ * Min or max of items converted like MathUtils.toBigInteger, compared as longs
+ * until an item doesn't fit in a long, then as BigIntegers.
+ */
+class IntegerExtremum {
+
+    private final boolean max;
+
+    private boolean hasValue;
+    private long value;
+    private BigInteger bigValue;
+
+    IntegerExtremum(boolean max) {
+        this.max = max;
+    }
+
+    // false if the item is not a number
+    boolean add(Object item) {
+        if(bigValue == null) {
+            long itemValue;
+            if(item instanceof Integer || item instanceof Long)
+                itemValue = ((Number)item).longValue();
+            else if(item instanceof Double)
+                itemValue = Math.round((double)item);
+            else if(item instanceof Float)
+                itemValue = Math.round((float)item);
+            else {
+                BigInteger bigItem = MathUtils.toBigInteger(item);
+                if(bigItem == null)
+                    return false;
+                bigValue = hasValue ? BigInteger.valueOf(value) : null;
+                bigValue = max ? MathUtils.max(bigValue, bigItem) : MathUtils.min(bigValue, bigItem);
+                return true;
+            }
+            if(!hasValue || (max ? itemValue > value : itemValue < value))
+                value = itemValue;
+            hasValue = true;
+            return true;
+        }
+
+        BigInteger bigItem = MathUtils.toBigInteger(item);
+        if(bigItem == null)
+            return false;
+        bigValue = max ? MathUtils.max(bigValue, bigItem) : MathUtils.min(bigValue, bigItem);
+        return true;
+    }
+
+    // null if there was no item
+    BigInteger toBigInteger() {
+        if(bigValue != null)
+            return bigValue;
+        return hasValue ? BigInteger.valueOf(value) : null;
+    }
+
+}
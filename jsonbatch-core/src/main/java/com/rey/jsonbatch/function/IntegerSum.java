@@ -0,0 +1,54 @@
+package com.rey.jsonbatch.function;
+
+import java.math.BigInteger;
+
+/*
+ * Sum of items converted like MathUtils.toBigInteger, accumulated in a long.
+ * Items that don't fit in a long, and the running sum when it would overflow, move to a BigInteger.
+ */
+class IntegerSum {
+
+    private long sum;
+    private BigInteger bigSum;
+    private int count;
+
+    // false if the item is not a number
+    boolean add(Object item) {
+        long value;
+        if(item instanceof Integer || item instanceof Long)
+            value = ((Number)item).longValue();
+        else if(item instanceof Double)
+            value = Math.round((double)item);
+        else if(item instanceof Float)
+            value = Math.round((float)item);
+        else {
+            BigInteger bigValue = MathUtils.toBigInteger(item);
+            if(bigValue == null)
+                return false;
+            bigSum = bigSum == null ? bigValue : bigSum.add(bigValue);
+            count++;
+            return true;
+        }
+
+        long result = sum + value;
+        // overflow when both operands have the sign opposite to the result
+        if(((sum ^ result) & (value ^ result)) < 0) {
+            BigInteger bigValue = BigInteger.valueOf(sum).add(BigInteger.valueOf(value));
+            bigSum = bigSum == null ? bigValue : bigSum.add(bigValue);
+            result = 0;
+        }
+        sum = result;
+        count++;
+        return true;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    BigInteger toBigInteger() {
+        BigInteger value = BigInteger.valueOf(sum);
+        return bigSum == null ? value : bigSum.add(value);
+    }
+
+}
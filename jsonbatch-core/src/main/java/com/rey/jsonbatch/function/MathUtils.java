@@ -5,13 +5,18 @@ import java.math.BigInteger;
 
 public class MathUtils {
 
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    // doubles with up to 15 significant digits have a single decimal representation of that length, which Double.toString prints
+    private static final double MAX_EXACT_UNSCALED = 1e15;
+
     public static int toInteger(Object value) {
         if(value instanceof BigInteger)
             return ((BigInteger)value).intValue();
         else if(value instanceof Integer)
             return ((Integer)value);
         else if(value instanceof Long)
-            return ((int)value);
+            return ((Long)value).intValue();
         else if(value instanceof String)
             return Integer.parseInt((String)value);
         else if(value instanceof Float)
@@ -26,12 +31,14 @@ public class MathUtils {
     public static BigInteger toBigInteger(Object value) {
         if(value instanceof BigInteger)
             return (BigInteger)value;
-        else if(value instanceof Integer || value instanceof Long || value instanceof String)
-            return new BigInteger(value.toString());
+        else if(value instanceof Integer || value instanceof Long)
+            return BigInteger.valueOf(((Number)value).longValue());
+        else if(value instanceof String)
+            return new BigInteger((String)value);
         else if(value instanceof Float)
-            return new BigInteger(String.valueOf(Math.round((float)value)));
+            return BigInteger.valueOf(Math.round((float)value));
         else if(value instanceof Double)
-            return new BigInteger(String.valueOf(Math.round((double)value)));
+            return BigInteger.valueOf(Math.round((double)value));
         else if(value instanceof BigDecimal)
             return ((BigDecimal)value).toBigInteger();
         return null;
@@ -40,11 +47,42 @@ public class MathUtils {
     public static BigDecimal toBigDecimal(Object value) {
         if(value instanceof BigDecimal)
             return (BigDecimal)value;
-        else if(value instanceof Float || value instanceof Double || value instanceof Integer || value instanceof Long || value instanceof String)
+        else if(value instanceof Integer || value instanceof Long)
+            return BigDecimal.valueOf(((Number)value).longValue());
+        // same as new BigDecimal(Double.toString(value))
+        else if(value instanceof Double)
+            return BigDecimal.valueOf((double)value);
+        else if(value instanceof Float || value instanceof String)
             return new BigDecimal(value.toString());
         return null;
     }
 
+    /*
+     * Scale of new BigDecimal(Double.toString(value)), for doubles printed in plain notation ("123.45", from 1e-3 to 1e7)
+     * with at most 15 significant digits. Returns -1 for other doubles.
+     */
+    static int decimalScale(double value) {
+        double abs = Math.abs(value);
+        if(abs == 0)
+            return 1;
+        if(!(abs >= 1e-3 && abs < 1e7))
+            return -1;
+        for(int scale = 1; scale < POWERS_OF_TEN.length; scale++) {
+            double scaled = abs * POWERS_OF_TEN[scale];
+            if(scaled >= MAX_EXACT_UNSCALED)
+                return -1;
+            // both operands are exact, so the division is the double nearest to the decimal: it parses back to value
+            if(Math.rint(scaled) / POWERS_OF_TEN[scale] == abs)
+                return scale;
+        }
+        return -1;
+    }
+
+    // unscaled value of new BigDecimal(Double.toString(value)), for a scale returned by decimalScale
+    static long unscaledValue(double value, int scale) {
+        return (long)Math.rint(value * POWERS_OF_TEN[scale]);
+    }
+
     public static Boolean toBoolean(Object value, Boolean defaultValue) {
         if (value instanceof Boolean)
             return (Boolean)value;
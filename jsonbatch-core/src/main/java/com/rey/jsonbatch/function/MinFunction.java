@@ -61,39 +61,37 @@ public class MinFunction extends Function {
     }
 
     private BigInteger minInteger(List<Object> items) {
-        BigInteger result = null;
+        IntegerExtremum result = new IntegerExtremum(false);
+        addAll(result, items);
+        return result.toBigInteger();
+    }
+
+    private BigDecimal minDecimal(List<Object> items) {
+        DecimalExtremum result = new DecimalExtremum(false);
+        addAll(result, items);
+        return result.toBigDecimal();
+    }
+
+    private void addAll(IntegerExtremum result, List<Object> items) {
         for(Object item : items) {
-            if(item instanceof List) {
-                result = min(result, minInteger((List)item));
-            }
-            else {
-                BigInteger value = toBigInteger(item);
-                if(value == null) {
-                    logger.error("Cannot process [{}] type", item.getClass());
-                    throw new IllegalArgumentException("Cannot process item");
-                }
-                result = min(result, value);
+            if(item instanceof List)
+                addAll(result, (List) item);
+            else if(!result.add(item)) {
+                logger.error("Cannot process [{}] type", item.getClass());
+                throw new IllegalArgumentException("Cannot process item");
             }
         }
-        return result;
     }
 
-    private BigDecimal minDecimal(List<Object> items) {
-        BigDecimal result = null;
+    private void addAll(DecimalExtremum result, List<Object> items) {
         for(Object item : items) {
-            if(item instanceof List) {
-                result = min(result, minDecimal((List)item));
-            }
-            else {
-                BigDecimal value = toBigDecimal(item);
-                if(value == null) {
-                    logger.error("Cannot process [{}] type", item.getClass());
-                    throw new IllegalArgumentException("Cannot process item");
-                }
-                result = min(result, value);
+            if(item instanceof List)
+                addAll(result, (List) item);
+            else if(!result.add(item)) {
+                logger.error("Cannot process [{}] type", item.getClass());
+                throw new IllegalArgumentException("Cannot process item");
             }
         }
-        return result;
     }
 
     public static MinFunction instance() {
@@ -30,9 +30,12 @@ public class SumFunction extends Function {
     @Override
     public Result handle(Type type, Object argument, Result prevResult) {
         if(type == INTEGER) {
-            Result<BigInteger> result = prevResult == null ? Result.of(new BigInteger("0"), false) : prevResult;
-            if(argument instanceof List)
-                result.setValue(sumAll(result.getValue(), (List) argument));
+            Result<BigInteger> result = prevResult == null ? Result.of(BigInteger.ZERO, false) : prevResult;
+            if(argument instanceof List) {
+                IntegerSum sum = new IntegerSum();
+                addAll(sum, (List) argument);
+                result.setValue(result.getValue().add(sum.toBigInteger()));
+            }
             else {
                 BigInteger value = toBigInteger(argument);
                 if(value == null) {
@@ -44,9 +47,12 @@ public class SumFunction extends Function {
             return result;
         }
         else {
-            Result<BigDecimal> result = prevResult == null ? Result.of(new BigDecimal("0"), false) : prevResult;
-            if(argument instanceof List)
-                result.setValue(sumAll(result.getValue(), (List) argument));
+            Result<BigDecimal> result = prevResult == null ? Result.of(BigDecimal.ZERO, false) : prevResult;
+            if(argument instanceof List) {
+                DecimalSum sum = new DecimalSum();
+                addAll(sum, (List) argument);
+                result.setValue(result.getValue().add(sum.toBigDecimal()));
+            }
             else {
                 BigDecimal value = toBigDecimal(argument);
                 if(value == null) {
@@ -59,36 +65,26 @@ public class SumFunction extends Function {
         }
     }
 
-    private BigInteger sumAll(BigInteger total, List<Object> items) {
+    private void addAll(IntegerSum sum, List<Object> items) {
         for(Object item : items) {
             if(item instanceof List)
-                total = sumAll(total, (List) item);
-            else {
-                BigInteger value = toBigInteger(item);
-                if(value == null) {
-                    logger.error("Cannot process [{}] type", item.getClass());
-                    throw new IllegalArgumentException("Cannot process item");
-                }
-                total = total.add(value);
+                addAll(sum, (List) item);
+            else if(!sum.add(item)) {
+                logger.error("Cannot process [{}] type", item.getClass());
+                throw new IllegalArgumentException("Cannot process item");
             }
         }
-        return total;
     }
 
-    private BigDecimal sumAll(BigDecimal total, List<Object> items) {
+    private void addAll(DecimalSum sum, List<Object> items) {
         for(Object item : items) {
             if(item instanceof List)
-                total = sumAll(total, (List) item);
-            else {
-                BigDecimal value = toBigDecimal(item);
-                if(value == null) {
-                    logger.error("Cannot process [{}] type", item.getClass());
-                    throw new IllegalArgumentException("Cannot process item");
-                }
-                total = total.add(value);
+                addAll(sum, (List) item);
+            else if(!sum.add(item)) {
+                logger.error("Cannot process [{}] type", item.getClass());
+                throw new IllegalArgumentException("Cannot process item");
             }
         }
-        return total;
     }
 
     public static SumFunction instance() {
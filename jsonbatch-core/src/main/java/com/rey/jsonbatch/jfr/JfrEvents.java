@@ -0,0 +1,29 @@
+package com.rey.jsonbatch.jfr;
+
+/*
+ * Emits the jdk.jfr events, implemented by FlightRecorderEvents in the jfr source set.
+ * A begin method returns null when its event is disabled, otherwise the started event to pass to the matching commit method.
+ */
+interface JfrEvents {
+
+    Object beginBatch();
+
+    void commitBatch(Object event, String httpMethod, String url, Integer status, Throwable error);
+
+    Object beginDispatch();
+
+    void commitDispatch(Object event, String templateId, int index, String httpMethod, String url, Integer status, Long bodySize, Throwable error);
+
+    Object beginFunction();
+
+    void commitFunction(Object event, String function, boolean reduce, int arguments);
+
+    Object beginJsonPathRead();
+
+    void commitJsonPathRead(Object event, String path);
+
+    Object beginSchemaBuild();
+
+    void commitSchemaBuild(Object event, String schemaType, boolean streaming);
+
+}
@@ -0,0 +1,86 @@
+package com.rey.jsonbatch.jfr;
+
+/*
+ * The events extend jdk.jfr.Event, which is missing on JDKs before 8u262 and from --release 8, so they are compiled in the jfr
+ * source set and loaded reflectively here. Callers only get an event while a recording runs, otherwise emitting costs a volatile read.
+ */
+public final class JfrSupport {
+
+    public static final String SETTINGS_RESOURCE = "/com/rey/jsonbatch/jfr/jsonbatch.jfc";
+
+    private static final String EVENTS_CLASS = "com.rey.jsonbatch.jfr.FlightRecorderEvents";
+
+    private static volatile boolean recording;
+
+    private static final JfrEvents events = load();
+
+    private JfrSupport() {
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    public static Object beginBatch() {
+        return recording ? events.beginBatch() : null;
+    }
+
+    public static void commitBatch(Object event, String httpMethod, String url, Integer status, Throwable error) {
+        if (event != null)
+            events.commitBatch(event, httpMethod, url, status, error);
+    }
+
+    public static Object beginDispatch() {
+        return recording ? events.beginDispatch() : null;
+    }
+
+    public static void commitDispatch(Object event, String templateId, int index, String httpMethod, String url, Integer status, Long bodySize, Throwable error) {
+        if (event != null)
+            events.commitDispatch(event, templateId, index, httpMethod, url, status, bodySize, error);
+    }
+
+    public static Object beginFunction() {
+        return recording ? events.beginFunction() : null;
+    }
+
+    public static void commitFunction(Object event, String function, boolean reduce, int arguments) {
+        if (event != null)
+            events.commitFunction(event, function, reduce, arguments);
+    }
+
+    public static Object beginJsonPathRead() {
+        return recording ? events.beginJsonPathRead() : null;
+    }
+
+    public static void commitJsonPathRead(Object event, String path) {
+        if (event != null)
+            events.commitJsonPathRead(event, path);
+    }
+
+    public static Object beginSchemaBuild() {
+        return recording ? events.beginSchemaBuild() : null;
+    }
+
+    public static void commitSchemaBuild(Object event, String schemaType, boolean streaming) {
+        if (event != null)
+            events.commitSchemaBuild(event, schemaType, streaming);
+    }
+
+    // called by FlightRecorderEvents when a recording starts or stops
+    static void setRecording(boolean running) {
+        recording = running;
+    }
+
+    private static JfrEvents load() {
+        if (Boolean.getBoolean("jsonbatch.jfr.disabled"))
+            return null;
+        try {
+            Class.forName("jdk.jfr.FlightRecorder", false, JfrSupport.class.getClassLoader());
+            return (JfrEvents) Class.forName(EVENTS_CLASS, true, JfrSupport.class.getClassLoader()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | SecurityException ex) {
+            recording = false;
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.rey.jsonbatch.model;
+
+public class BatchResult {
+
+    private final int index;
+
+    private final Request originalRequest;
+
+    private final Response response;
+
+    private final Exception exception;
+
+    private final long latency;
+
+    public BatchResult(int index, Request originalRequest, Response response, Exception exception, long latency) {
+        this.index = index;
+        this.originalRequest = originalRequest;
+        this.response = response;
+        this.exception = exception;
+        this.latency = latency;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Request getOriginalRequest() {
+        return originalRequest;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public Exception getException() {
+        return exception;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public boolean isSuccess() {
+        return exception == null;
+    }
+
+}
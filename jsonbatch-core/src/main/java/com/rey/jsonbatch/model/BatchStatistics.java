@@ -0,0 +1,81 @@
+package com.rey.jsonbatch.model;
+
+import java.util.concurrent.TimeUnit;
+
+public class BatchStatistics {
+
+    private final int successCount;
+
+    private final int failureCount;
+
+    private final long elapsedTime;
+
+    private final long[] latencies;
+
+    private final long totalLatency;
+
+    public BatchStatistics(int successCount, int failureCount, long elapsedTime, long[] sortedLatencies) {
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.elapsedTime = elapsedTime;
+        this.latencies = sortedLatencies;
+        long total = 0;
+        for (long latency : sortedLatencies)
+            total += latency;
+        this.totalLatency = total;
+    }
+
+    public int getCount() {
+        return successCount + failureCount;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public double getThroughput() {
+        return elapsedTime == 0 ? 0 : getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedTime;
+    }
+
+    public long getMinLatency() {
+        return latencies.length == 0 ? 0 : latencies[0];
+    }
+
+    public long getMaxLatency() {
+        return latencies.length == 0 ? 0 : latencies[latencies.length - 1];
+    }
+
+    public long getMeanLatency() {
+        return latencies.length == 0 ? 0 : totalLatency / latencies.length;
+    }
+
+    public long getLatency(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        if (latencies.length == 0)
+            return 0;
+        int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+        return latencies[Math.max(index, 0)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, success=%d, failure=%d, elapsed=%dms, throughput=%.1f/s, latency(ms): min=%.3f, mean=%.3f, p50=%.3f, p90=%.3f, p99=%.3f, max=%.3f",
+                getCount(), successCount, failureCount, TimeUnit.NANOSECONDS.toMillis(elapsedTime), getThroughput(),
+                toMillis(getMinLatency()), toMillis(getMeanLatency()), toMillis(getLatency(50)),
+                toMillis(getLatency(90)), toMillis(getLatency(99)), toMillis(getMaxLatency()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+}
@@ -2,7 +2,7 @@ package com.rey.jsonbatch.model;
 
 import java.util.List;
 
-public class BatchTemplate {
+public class BatchTemplate extends Freezable {
 
     private List<RequestTemplate> requests;
 
@@ -12,11 +12,14 @@ public class BatchTemplate {
 
     private LoopOptions loopOptions;
 
+    private ContextOptions contextOptions;
+
     public List<RequestTemplate> getRequests() {
         return requests;
     }
 
     public void setRequests(List<RequestTemplate> requests) {
+        checkNotFrozen();
         this.requests = requests;
     }
 
@@ -25,6 +28,7 @@ public class BatchTemplate {
     }
 
     public void setResponses(List<ResponseTemplate> responses) {
+        checkNotFrozen();
         this.responses = responses;
     }
 
@@ -33,6 +37,7 @@ public class BatchTemplate {
     }
 
     public void setDispatchOptions(DispatchOptions dispatchOptions) {
+        checkNotFrozen();
         this.dispatchOptions = dispatchOptions;
     }
 
@@ -41,6 +46,37 @@ public class BatchTemplate {
     }
 
     public void setLoopOptions(LoopOptions loopOptions) {
+        checkNotFrozen();
         this.loopOptions = loopOptions;
     }
+
+    public ContextOptions getContextOptions() {
+        return contextOptions;
+    }
+
+    public void setContextOptions(ContextOptions contextOptions) {
+        checkNotFrozen();
+        this.contextOptions = contextOptions;
+    }
+
+    public BatchTemplate freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        requests = freezeAll(requests);
+        responses = freezeAll(responses);
+        if (dispatchOptions != null)
+            dispatchOptions.freezeTemplate();
+        if (loopOptions != null)
+            loopOptions.freezeTemplate();
+        if (contextOptions != null)
+            contextOptions.freezeTemplate();
+        markFrozen();
+    }
+
 }
@@ -0,0 +1,28 @@
+package com.rey.jsonbatch.model;
+
+public class ContextOptions extends Freezable {
+
+    private Boolean pruneUnused = false;
+
+    public Boolean getPruneUnused() {
+        return pruneUnused;
+    }
+
+    public void setPruneUnused(Boolean pruneUnused) {
+        checkNotFrozen();
+        this.pruneUnused = pruneUnused;
+    }
+
+    public ContextOptions freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        markFrozen();
+    }
+
+}
@@ -1,6 +1,6 @@
 package com.rey.jsonbatch.model;
 
-public class DispatchOptions {
+public class DispatchOptions extends Freezable {
 
     private Boolean failBackAsString = false;
 
@@ -11,6 +11,7 @@ public class DispatchOptions {
     }
 
     public void setFailBackAsString(Boolean failBackAsString) {
+        checkNotFrozen();
         this.failBackAsString = failBackAsString;
     }
 
@@ -19,7 +20,20 @@ public class DispatchOptions {
     }
 
     public void setIgnoreParsingError(Boolean ignoreParsingError) {
+        checkNotFrozen();
         this.ignoreParsingError = ignoreParsingError;
     }
 
+    public DispatchOptions freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        markFrozen();
+    }
+
 }
@@ -0,0 +1,125 @@
+package com.rey.jsonbatch.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Network timing of a dispatched request, filled by the dispatchers that measure it (OkHttp and Apache HttpClient).
+ * Times are in nanoseconds, -1 when the dispatcher cannot measure them. DNS, connect and TLS times are 0 on a reused connection.
+ */
+public class DispatchTiming {
+
+    // waiting for a pooled connection (or for a slot in the client's dispatcher queue)
+    private long poolWaitTime = -1;
+
+    private long dnsTime = -1;
+
+    // TCP connect, without DNS and TLS
+    private long connectTime = -1;
+
+    private long tlsTime = -1;
+
+    // from the connection being ready to the first byte of the response headers, including writing the request
+    private long timeToFirstByte = -1;
+
+    private long bodyReadTime = -1;
+
+    private long parseTime = -1;
+
+    private long totalTime = -1;
+
+    // null if unknown
+    private Boolean connectionReused;
+
+    public long getPoolWaitTime() {
+        return poolWaitTime;
+    }
+
+    public void setPoolWaitTime(long poolWaitTime) {
+        this.poolWaitTime = poolWaitTime;
+    }
+
+    public long getDnsTime() {
+        return dnsTime;
+    }
+
+    public void setDnsTime(long dnsTime) {
+        this.dnsTime = dnsTime;
+    }
+
+    public long getConnectTime() {
+        return connectTime;
+    }
+
+    public void setConnectTime(long connectTime) {
+        this.connectTime = connectTime;
+    }
+
+    public long getTlsTime() {
+        return tlsTime;
+    }
+
+    public void setTlsTime(long tlsTime) {
+        this.tlsTime = tlsTime;
+    }
+
+    public long getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public void setTimeToFirstByte(long timeToFirstByte) {
+        this.timeToFirstByte = timeToFirstByte;
+    }
+
+    public long getBodyReadTime() {
+        return bodyReadTime;
+    }
+
+    public void setBodyReadTime(long bodyReadTime) {
+        this.bodyReadTime = bodyReadTime;
+    }
+
+    public long getParseTime() {
+        return parseTime;
+    }
+
+    public void setParseTime(long parseTime) {
+        this.parseTime = parseTime;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public void setTotalTime(long totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    public Boolean getConnectionReused() {
+        return connectionReused;
+    }
+
+    public void setConnectionReused(Boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("pool_wait_time", poolWaitTime);
+        map.put("dns_time", dnsTime);
+        map.put("connect_time", connectTime);
+        map.put("tls_time", tlsTime);
+        map.put("time_to_first_byte", timeToFirstByte);
+        map.put("body_read_time", bodyReadTime);
+        map.put("parse_time", parseTime);
+        map.put("total_time", totalTime);
+        map.put("connection_reused", connectionReused);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.rey.jsonbatch.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+abstract class Freezable {
+
+    private volatile boolean frozen;
+
+    protected boolean frozen() {
+        return frozen;
+    }
+
+    protected void markFrozen() {
+        frozen = true;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen)
+            throw new IllegalStateException("Cannot modify frozen " + getClass().getSimpleName());
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T freezeValue(T value) {
+        if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            ((Map<Object, Object>) value).forEach((key, item) -> map.put(key, freezeValue(item)));
+            return (T) Collections.unmodifiableMap(map);
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>(((Collection<Object>) value).size());
+            for (Object item : (Collection<Object>) value)
+                list.add(freezeValue(item));
+            return (T) Collections.unmodifiableList(list);
+        }
+        return value;
+    }
+
+    static <T extends Freezable> List<T> freezeAll(List<T> templates) {
+        if (templates == null)
+            return null;
+        List<T> list = new ArrayList<>(templates.size());
+        for (T template : templates) {
+            if (template != null)
+                template.freezeTemplate();
+            list.add(template);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    abstract void freezeTemplate();
+
+}
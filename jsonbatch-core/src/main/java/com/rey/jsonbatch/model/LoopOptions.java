@@ -1,15 +1,39 @@
 package com.rey.jsonbatch.model;
 
-public class LoopOptions {
+public class LoopOptions extends Freezable {
 
     private Integer maxLoopTime = 10;
 
+    private Integer parallelism = 1;
+
     public Integer getMaxLoopTime() {
         return maxLoopTime;
     }
 
     public void setMaxLoopTime(Integer maxLoopTime) {
+        checkNotFrozen();
         this.maxLoopTime = maxLoopTime;
     }
 
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        checkNotFrozen();
+        this.parallelism = parallelism;
+    }
+
+    public LoopOptions freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        markFrozen();
+    }
+
 }
@@ -2,7 +2,7 @@ package com.rey.jsonbatch.model;
 
 import java.util.List;
 
-public class LoopTemplate {
+public class LoopTemplate extends Freezable {
 
     private Object counterInit;
 
@@ -12,11 +12,14 @@ public class LoopTemplate {
 
     private List<RequestTemplate> requests;
 
+    private Integer parallelism;
+
     public Object getCounterInit() {
         return counterInit;
     }
 
     public void setCounterInit(Object counterInit) {
+        checkNotFrozen();
         this.counterInit = counterInit;
     }
 
@@ -25,6 +28,7 @@ public class LoopTemplate {
     }
 
     public void setCounterPredicate(Object counterPredicate) {
+        checkNotFrozen();
         this.counterPredicate = counterPredicate;
     }
 
@@ -33,6 +37,7 @@ public class LoopTemplate {
     }
 
     public void setCounterUpdate(Object counterUpdate) {
+        checkNotFrozen();
         this.counterUpdate = counterUpdate;
     }
 
@@ -41,6 +46,33 @@ public class LoopTemplate {
     }
 
     public void setRequests(List<RequestTemplate> requests) {
+        checkNotFrozen();
         this.requests = requests;
     }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        checkNotFrozen();
+        this.parallelism = parallelism;
+    }
+
+    public LoopTemplate freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        counterInit = freezeValue(counterInit);
+        counterPredicate = freezeValue(counterPredicate);
+        counterUpdate = freezeValue(counterUpdate);
+        requests = freezeAll(requests);
+        markFrozen();
+    }
+
 }
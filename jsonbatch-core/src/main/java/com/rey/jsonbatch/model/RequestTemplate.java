@@ -3,7 +3,7 @@ package com.rey.jsonbatch.model;
 import java.util.List;
 import java.util.Map;
 
-public class RequestTemplate {
+public class RequestTemplate extends Freezable {
 
     private String predicate;
 
@@ -30,6 +30,7 @@ public class RequestTemplate {
     }
 
     public void setPredicate(String predicate) {
+        checkNotFrozen();
         this.predicate = predicate;
     }
 
@@ -38,6 +39,7 @@ public class RequestTemplate {
     }
 
     public void setHttpMethod(String httpMethod) {
+        checkNotFrozen();
         this.httpMethod = httpMethod;
     }
 
@@ -46,6 +48,7 @@ public class RequestTemplate {
     }
 
     public void setUrl(String url) {
+        checkNotFrozen();
         this.url = url;
     }
 
@@ -54,6 +57,7 @@ public class RequestTemplate {
     }
 
     public void setHeaders(Object headers) {
+        checkNotFrozen();
         this.headers = headers;
     }
 
@@ -62,6 +66,7 @@ public class RequestTemplate {
     }
 
     public void setBody(Object body) {
+        checkNotFrozen();
         this.body = body;
     }
 
@@ -70,6 +75,7 @@ public class RequestTemplate {
     }
 
     public void setRequests(List<RequestTemplate> requests) {
+        checkNotFrozen();
         this.requests = requests;
     }
 
@@ -78,6 +84,7 @@ public class RequestTemplate {
     }
 
     public void setResponses(List<ResponseTemplate> responses) {
+        checkNotFrozen();
         this.responses = responses;
     }
 
@@ -86,6 +93,7 @@ public class RequestTemplate {
     }
 
     public void setLoop(LoopTemplate loop) {
+        checkNotFrozen();
         this.loop = loop;
     }
 
@@ -94,6 +102,7 @@ public class RequestTemplate {
     }
 
     public void setTransformers(List<ResponseTemplate> transformers) {
+        checkNotFrozen();
         this.transformers = transformers;
     }
 
@@ -102,6 +111,28 @@ public class RequestTemplate {
     }
 
     public void setVars(List<VarTemplate> vars) {
+        checkNotFrozen();
         this.vars = vars;
     }
+
+    public RequestTemplate freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        headers = freezeValue(headers);
+        body = freezeValue(body);
+        requests = freezeAll(requests);
+        responses = freezeAll(responses);
+        if (loop != null)
+            loop.freezeTemplate();
+        transformers = freezeAll(transformers);
+        vars = freezeAll(vars);
+        markFrozen();
+    }
+
 }
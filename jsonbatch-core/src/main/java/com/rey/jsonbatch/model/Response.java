@@ -12,6 +12,12 @@ public class Response {
 
     private Object body;
 
+    // size of the response body as received (in bytes), null if unknown. Not part of the batch context
+    private Long bodySize;
+
+    // network timing of the dispatch, null if the dispatcher doesn't measure it (or the response is a cached copy). Not part of the batch context
+    private DispatchTiming timing;
+
     public Integer getStatus() {
         return status;
     }
@@ -36,6 +42,22 @@ public class Response {
         this.body = body;
     }
 
+    public Long getBodySize() {
+        return bodySize;
+    }
+
+    public void setBodySize(Long bodySize) {
+        this.bodySize = bodySize;
+    }
+
+    public DispatchTiming getTiming() {
+        return timing;
+    }
+
+    public void setTiming(DispatchTiming timing) {
+        this.timing = timing;
+    }
+
     public Map<String, Object> toMap() {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("status", status);
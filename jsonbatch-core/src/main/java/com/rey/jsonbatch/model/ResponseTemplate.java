@@ -1,6 +1,6 @@
 package com.rey.jsonbatch.model;
 
-public class ResponseTemplate {
+public class ResponseTemplate extends Freezable {
 
     private String predicate;
 
@@ -15,6 +15,7 @@ public class ResponseTemplate {
     }
 
     public void setPredicate(String predicate) {
+        checkNotFrozen();
         this.predicate = predicate;
     }
 
@@ -23,6 +24,7 @@ public class ResponseTemplate {
     }
 
     public void setStatus(String status) {
+        checkNotFrozen();
         this.status = status;
     }
 
@@ -31,6 +33,7 @@ public class ResponseTemplate {
     }
 
     public void setHeaders(Object headers) {
+        checkNotFrozen();
         this.headers = headers;
     }
 
@@ -39,6 +42,22 @@ public class ResponseTemplate {
     }
 
     public void setBody(Object body) {
+        checkNotFrozen();
         this.body = body;
     }
+
+    public ResponseTemplate freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        headers = freezeValue(headers);
+        body = freezeValue(body);
+        markFrozen();
+    }
+
 }
@@ -2,7 +2,7 @@ package com.rey.jsonbatch.model;
 
 import java.util.Map;
 
-public class VarTemplate {
+public class VarTemplate extends Freezable {
 
     private Object predicate;
 
@@ -13,6 +13,7 @@ public class VarTemplate {
     }
 
     public void setPredicate(Object predicate) {
+        checkNotFrozen();
         this.predicate = predicate;
     }
 
@@ -21,7 +22,22 @@ public class VarTemplate {
     }
 
     public void setVars(Map<String, Object> vars) {
+        checkNotFrozen();
         this.vars = vars;
     }
 
+    public VarTemplate freeze() {
+        freezeTemplate();
+        return this;
+    }
+
+    @Override
+    void freezeTemplate() {
+        if (frozen())
+            return;
+        predicate = freezeValue(predicate);
+        vars = freezeValue(vars);
+        markFrozen();
+    }
+
 }
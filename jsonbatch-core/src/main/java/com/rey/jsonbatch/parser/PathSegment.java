@@ -0,0 +1,146 @@
+package com.rey.jsonbatch.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class PathSegment {
+
+    public enum Type {
+        PROPERTY, WILDCARD, INDEX, ARRAY, FILTER, DEEP, FUNCTION
+    }
+
+    private final Type type;
+    private final List<String> names;
+    private final int index;
+
+    private PathSegment(Type type, List<String> names, int index) {
+        this.type = type;
+        this.names = names;
+        this.index = index;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isProperty(String name) {
+        return type == Type.PROPERTY && names.contains(name);
+    }
+
+    public static List<PathSegment> parse(String path) {
+        if (path == null || !path.startsWith("$"))
+            return null;
+        List<PathSegment> segments = new ArrayList<>();
+        int length = path.length();
+        int i = 1;
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                if (i + 1 < length && path.charAt(i + 1) == '.') {
+                    segments.add(of(Type.DEEP));
+                    return segments;
+                }
+                int end = i + 1;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[' && path.charAt(end) != '(')
+                    end++;
+                String name = path.substring(i + 1, end).trim();
+                if (end < length && path.charAt(end) == '(') {
+                    segments.add(new PathSegment(Type.FUNCTION, Collections.singletonList(name), -1));
+                    return segments;
+                }
+                if (name.isEmpty())
+                    return null;
+                segments.add(name.equals("*") ? of(Type.WILDCARD) : new PathSegment(Type.PROPERTY, Collections.singletonList(name), -1));
+                i = end;
+            } else if (c == '[') {
+                int end = findClosingBracket(path, i);
+                if (end < 0)
+                    return null;
+                PathSegment segment = parseBracket(path.substring(i + 1, end).trim());
+                if (segment == null)
+                    return null;
+                segments.add(segment);
+                i = end + 1;
+            } else if (c == ' ')
+                i++;
+            else
+                return null;
+        }
+        return segments;
+    }
+
+    private static PathSegment of(Type type) {
+        return new PathSegment(type, Collections.emptyList(), -1);
+    }
+
+    private static int findClosingBracket(String path, int start) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = start; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == '\\')
+                    i++;
+                else if (c == quote)
+                    quote = 0;
+            } else if (c == '\'' || c == '"')
+                quote = c;
+            else if (c == '[' || c == '(')
+                depth++;
+            else if (c == ']' || c == ')') {
+                depth--;
+                if (depth == 0)
+                    return c == ']' ? i : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static PathSegment parseBracket(String content) {
+        if (content.isEmpty())
+            return null;
+        if (content.startsWith("?"))
+            return of(Type.FILTER);
+        if (content.equals("*"))
+            return of(Type.WILDCARD);
+        char first = content.charAt(0);
+        if (first == '\'' || first == '"') {
+            List<String> names = new ArrayList<>();
+            int i = 0;
+            while (i < content.length()) {
+                char quote = content.charAt(i);
+                if (quote != '\'' && quote != '"')
+                    return null;
+                StringBuilder builder = new StringBuilder();
+                i++;
+                while (i < content.length() && content.charAt(i) != quote) {
+                    if (content.charAt(i) == '\\' && i + 1 < content.length())
+                        i++;
+                    builder.append(content.charAt(i++));
+                }
+                if (i == content.length())
+                    return null;
+                names.add(builder.toString());
+                i++;
+                while (i < content.length() && (content.charAt(i) == ' ' || content.charAt(i) == ','))
+                    i++;
+            }
+            return new PathSegment(Type.PROPERTY, names, -1);
+        }
+        try {
+            return new PathSegment(Type.INDEX, Collections.emptyList(), Integer.parseInt(content));
+        } catch (NumberFormatException e) {
+            return of(Type.ARRAY);
+        }
+    }
+
+}
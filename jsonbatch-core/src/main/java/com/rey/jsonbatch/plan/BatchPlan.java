@@ -0,0 +1,91 @@
+package com.rey.jsonbatch.plan;
+
+import com.rey.jsonbatch.model.ContextOptions;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.LoopOptions;
+import com.rey.jsonbatch.projection.Projection;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class BatchPlan {
+
+    private final List<RequestPlan> requests;
+
+    private final List<ResponsePlan> responses;
+
+    private final DispatchOptions dispatchOptions;
+
+    private final LoopOptions loopOptions;
+
+    private final ContextOptions contextOptions;
+
+    private final Map<RequestPlan, Projection> projections;
+
+    private final Liveness liveness;
+
+    public BatchPlan(List<RequestPlan> requests,
+                     List<ResponsePlan> responses,
+                     DispatchOptions dispatchOptions,
+                     LoopOptions loopOptions) {
+        this(requests, responses, dispatchOptions, loopOptions, Collections.emptyMap());
+    }
+
+    public BatchPlan(List<RequestPlan> requests,
+                     List<ResponsePlan> responses,
+                     DispatchOptions dispatchOptions,
+                     LoopOptions loopOptions,
+                     Map<RequestPlan, Projection> projections) {
+        this(requests, responses, dispatchOptions, loopOptions, new ContextOptions(), projections, null);
+    }
+
+    public BatchPlan(List<RequestPlan> requests,
+                     List<ResponsePlan> responses,
+                     DispatchOptions dispatchOptions,
+                     LoopOptions loopOptions,
+                     ContextOptions contextOptions,
+                     Map<RequestPlan, Projection> projections,
+                     Liveness liveness) {
+        this.requests = requests;
+        this.responses = responses;
+        this.dispatchOptions = dispatchOptions;
+        this.loopOptions = loopOptions;
+        this.contextOptions = contextOptions;
+        this.projections = projections;
+        this.liveness = liveness;
+    }
+
+    public List<RequestPlan> getRequests() {
+        return requests;
+    }
+
+    public List<ResponsePlan> getResponses() {
+        return responses;
+    }
+
+    public DispatchOptions getDispatchOptions() {
+        return dispatchOptions;
+    }
+
+    public LoopOptions getLoopOptions() {
+        return loopOptions;
+    }
+
+    public ContextOptions getContextOptions() {
+        return contextOptions;
+    }
+
+    public Map<RequestPlan, Projection> getProjections() {
+        return projections;
+    }
+
+    public Projection getProjection(RequestPlan request) {
+        Projection projection = projections.get(request);
+        return projection == null ? Projection.ALL : projection;
+    }
+
+    public Liveness getLiveness() {
+        return liveness;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rey.jsonbatch.plan;
+
+import java.util.Map;
+
+public class Liveness {
+
+    public static final int FOREVER = Integer.MAX_VALUE;
+
+    public static final int ALL_ITERATIONS = -1;
+
+    private final int[] lastUses;
+
+    private final Map<LoopPlan, Integer> retainedIterations;
+
+    public Liveness(int[] lastUses, Map<LoopPlan, Integer> retainedIterations) {
+        this.lastUses = lastUses;
+        this.retainedIterations = retainedIterations;
+    }
+
+    public int getLastUse(int index) {
+        return index < lastUses.length ? lastUses[index] : FOREVER;
+    }
+
+    public int getRetainedIterations(LoopPlan loop) {
+        Integer retained = retainedIterations.get(loop);
+        return retained == null ? ALL_ITERATIONS : retained;
+    }
+
+}
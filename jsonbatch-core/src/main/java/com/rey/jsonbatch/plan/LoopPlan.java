@@ -0,0 +1,54 @@
+package com.rey.jsonbatch.plan;
+
+import com.rey.jsonbatch.schema.Schema;
+
+import java.util.List;
+
+public class LoopPlan {
+
+    private final Schema counterInit;
+
+    private final Schema counterPredicate;
+
+    private final Schema counterUpdate;
+
+    private final List<RequestPlan> requests;
+
+    private final Integer parallelism;
+
+    private final boolean parallelizable;
+
+    public LoopPlan(Schema counterInit, Schema counterPredicate, Schema counterUpdate, List<RequestPlan> requests,
+                    Integer parallelism, boolean parallelizable) {
+        this.counterInit = counterInit;
+        this.counterPredicate = counterPredicate;
+        this.counterUpdate = counterUpdate;
+        this.requests = requests;
+        this.parallelism = parallelism;
+        this.parallelizable = parallelizable;
+    }
+
+    public Schema getCounterInit() {
+        return counterInit;
+    }
+
+    public Schema getCounterPredicate() {
+        return counterPredicate;
+    }
+
+    public Schema getCounterUpdate() {
+        return counterUpdate;
+    }
+
+    public List<RequestPlan> getRequests() {
+        return requests;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isParallelizable() {
+        return parallelizable;
+    }
+}
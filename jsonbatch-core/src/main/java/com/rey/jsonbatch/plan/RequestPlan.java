@@ -0,0 +1,120 @@
+package com.rey.jsonbatch.plan;
+
+import com.rey.jsonbatch.schema.Schema;
+
+import java.util.List;
+
+public class RequestPlan {
+
+    private final String id;
+
+    private final Schema predicate;
+
+    private final Schema httpMethod;
+
+    private final Schema url;
+
+    private final Schema headers;
+
+    private final Schema body;
+
+    private final List<RequestPlan> requests;
+
+    private final List<ResponsePlan> responses;
+
+    private final LoopPlan loop;
+
+    private final List<ResponsePlan> transformers;
+
+    private final List<VarPlan> vars;
+
+    private final boolean independent;
+
+    public RequestPlan(Schema predicate,
+                       Schema httpMethod,
+                       Schema url,
+                       Schema headers,
+                       Schema body,
+                       List<RequestPlan> requests,
+                       List<ResponsePlan> responses,
+                       LoopPlan loop,
+                       List<ResponsePlan> transformers,
+                       List<VarPlan> vars,
+                       boolean independent) {
+        this(null, predicate, httpMethod, url, headers, body, requests, responses, loop, transformers, vars, independent);
+    }
+
+    public RequestPlan(String id,
+                       Schema predicate,
+                       Schema httpMethod,
+                       Schema url,
+                       Schema headers,
+                       Schema body,
+                       List<RequestPlan> requests,
+                       List<ResponsePlan> responses,
+                       LoopPlan loop,
+                       List<ResponsePlan> transformers,
+                       List<VarPlan> vars,
+                       boolean independent) {
+        this.id = id;
+        this.predicate = predicate;
+        this.httpMethod = httpMethod;
+        this.url = url;
+        this.headers = headers;
+        this.body = body;
+        this.requests = requests;
+        this.responses = responses;
+        this.loop = loop;
+        this.transformers = transformers;
+        this.vars = vars;
+        this.independent = independent;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Schema getPredicate() {
+        return predicate;
+    }
+
+    public Schema getHttpMethod() {
+        return httpMethod;
+    }
+
+    public Schema getUrl() {
+        return url;
+    }
+
+    public Schema getHeaders() {
+        return headers;
+    }
+
+    public Schema getBody() {
+        return body;
+    }
+
+    public List<RequestPlan> getRequests() {
+        return requests;
+    }
+
+    public List<ResponsePlan> getResponses() {
+        return responses;
+    }
+
+    public LoopPlan getLoop() {
+        return loop;
+    }
+
+    public List<ResponsePlan> getTransformers() {
+        return transformers;
+    }
+
+    public List<VarPlan> getVars() {
+        return vars;
+    }
+
+    public boolean isIndependent() {
+        return independent;
+    }
+}
@@ -0,0 +1,52 @@
+package com.rey.jsonbatch.plan;
+
+import com.rey.jsonbatch.function.MathUtils;
+import com.rey.jsonbatch.schema.Schema;
+import com.rey.jsonbatch.schema.StringSchema;
+import com.rey.jsonbatch.schema.ValueSchema;
+
+import java.util.List;
+
+public class ResponsePlan {
+
+    private final Schema predicate;
+
+    private final Schema status;
+
+    private final Schema headers;
+
+    private final Schema body;
+
+    public ResponsePlan(Schema predicate, Schema status, Schema headers, Schema body) {
+        this.predicate = predicate;
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public Schema getPredicate() {
+        return predicate;
+    }
+
+    public Schema getStatus() {
+        return status;
+    }
+
+    public Schema getHeaders() {
+        return headers;
+    }
+
+    public Schema getBody() {
+        return body;
+    }
+
+    public boolean isUnconditional() {
+        if (predicate instanceof ValueSchema)
+            return MathUtils.toBoolean(((ValueSchema) predicate).getValue(), true);
+        if (predicate instanceof StringSchema) {
+            List<Object> parts = ((StringSchema) predicate).getParts();
+            return parts.size() == 1 && parts.get(0) instanceof String && MathUtils.toBoolean(parts.get(0), true);
+        }
+        return false;
+    }
+}
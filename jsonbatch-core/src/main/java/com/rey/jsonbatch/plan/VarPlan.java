@@ -0,0 +1,23 @@
+package com.rey.jsonbatch.plan;
+
+import com.rey.jsonbatch.schema.Schema;
+
+public class VarPlan {
+
+    private final Schema predicate;
+
+    private final Schema vars;
+
+    public VarPlan(Schema predicate, Schema vars) {
+        this.predicate = predicate;
+        this.vars = vars;
+    }
+
+    public Schema getPredicate() {
+        return predicate;
+    }
+
+    public Schema getVars() {
+        return vars;
+    }
+}
@@ -0,0 +1,102 @@
+package com.rey.jsonbatch.profile;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class BatchProfile {
+
+    public enum Metric {
+        WALL_TIME, CPU_TIME, ALLOCATED_BYTES
+    }
+
+    private final ProfileNode root;
+
+    private final List<ProfileNode> criticalPath;
+
+    BatchProfile(ProfileNode root, List<ProfileNode> criticalPath) {
+        this.root = root;
+        this.criticalPath = Collections.unmodifiableList(criticalPath);
+    }
+
+    public ProfileNode getRoot() {
+        return root;
+    }
+
+    public long getWallTime() {
+        return root.getWallTime();
+    }
+
+    // request templates whose executions determined the batch latency, in execution order. A template appears once per
+    // execution on the path, so a sequential loop lists its requests once per time
+    public List<ProfileNode> getCriticalPath() {
+        return criticalPath;
+    }
+
+    public long getCriticalPathTime() {
+        long time = 0;
+        for (ProfileNode node : criticalPath) {
+            if (node.getLoop() == null)
+                time += node.getCriticalPathTime();
+        }
+        return time;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("wall_time", getWallTime());
+        List<Object> path = new ArrayList<>(criticalPath.size());
+        for (ProfileNode node : criticalPath)
+            path.add(node.getId());
+        map.put("critical_path", path);
+        map.put("root", root.toMap());
+        return map;
+    }
+
+    public String toJson(JsonProvider jsonProvider) {
+        return jsonProvider.toJson(toMap());
+    }
+
+    /*
+     * Collapsed stacks (one "frame;frame;... value" line per phase of a template) for flame graph tools.
+     * Frames are the batch, the enclosing loops, the template and its phase.
+     */
+    public String toCollapsedStacks(Metric metric) {
+        StringBuilder builder = new StringBuilder();
+        appendStacks(builder, root, metric);
+        return builder.toString();
+    }
+
+    private void appendStacks(StringBuilder builder, ProfileNode node, Metric metric) {
+        String stack = node == root ? root.getId() : stackOf(node);
+        for (ProfileNode.Phase phase : ProfileNode.Phase.values()) {
+            long value = getValue(node, phase, metric);
+            if (value > 0)
+                builder.append(stack).append(';').append(phase.name().toLowerCase(Locale.ROOT)).append(' ').append(value).append('\n');
+        }
+        for (ProfileNode child : node.getChildren())
+            appendStacks(builder, child, metric);
+    }
+
+    // chained requests are children of the template they follow, but they don't run inside it: only loops are frames
+    private String stackOf(ProfileNode node) {
+        return (node.getLoop() == null ? root.getId() : stackOf(node.getLoop())) + ';' + node.getId();
+    }
+
+    private long getValue(ProfileNode node, ProfileNode.Phase phase, Metric metric) {
+        switch (metric) {
+            case CPU_TIME:
+                return node.getPhaseCpuTime(phase);
+            case ALLOCATED_BYTES:
+                return node.getPhaseAllocatedBytes(phase);
+            default:
+                return node.getPhaseTime(phase);
+        }
+    }
+
+}
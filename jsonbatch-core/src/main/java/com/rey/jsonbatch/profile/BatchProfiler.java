@@ -0,0 +1,284 @@
+package com.rey.jsonbatch.profile;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.BatchEventListener;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import com.rey.jsonbatch.profile.ProfileNode.Phase;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Builds the profile of a single batch execution (see BatchEngine.executeWithProfile).
+ * Each thread running the engine keeps a cursor (time, CPU time, allocated bytes) at its last callback: the work done since
+ * is attributed to the template and phase of the next callback, so everything the engine does between two events is accounted.
+ * Dispatch wall time comes from the dispatch callbacks, its CPU time and allocations only when it completes on the thread
+ * that started it (a blocking dispatcher). Body sizes are measured by serializing bodies, which is excluded from the profile.
+ */
+public class BatchProfiler implements BatchEventListener {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final JsonProvider jsonProvider;
+    private final ProfileNode root;
+    private final Map<RequestPlan, ProfileNode> nodes = new IdentityHashMap<>();
+
+    private final Map<Thread, long[]> cursors = new HashMap<>();
+    private final Map<Request, Thread> dispatchThreads = new IdentityHashMap<>();
+    private final Map<Request, Long> dispatchEndTimes = new IdentityHashMap<>();
+    // records by scope: steps by their enclosing loop (null for the batch), iterations by their loop
+    private final Map<ProfileNode, List<Record>> steps = new IdentityHashMap<>();
+    private final Map<ProfileNode, List<Record>> iterations = new IdentityHashMap<>();
+
+    private BatchProfile profile;
+
+    public BatchProfiler(BatchPlan template, JsonProvider jsonProvider) {
+        this.jsonProvider = jsonProvider;
+        this.root = new ProfileNode("batch", ProfileNode.Type.BATCH, null);
+        addNodes(root, template.getRequests(), null);
+    }
+
+    public synchronized BatchProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public synchronized void onBatchStart(long batchId, Request originalRequest, BatchPlan template, long nanoTime) {
+        mark();
+    }
+
+    @Override
+    public synchronized void onBatchEnd(long batchId, Request originalRequest, BatchPlan template, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+        record(root, Phase.RESPONSE, -1);
+        root.recordExecution(endNanoTime - startNanoTime);
+        steps.values().forEach(scoped -> scoped.sort(Comparator.comparingLong(record -> record.end)));
+        iterations.values().forEach(scoped -> scoped.sort(Comparator.comparingLong(record -> record.end)));
+        List<ProfileNode> criticalPath = new ArrayList<>();
+        for (Record record : findPath(null, startNanoTime, endNanoTime))
+            addCriticalPath(record, criticalPath);
+        profile = new BatchProfile(root, criticalPath);
+    }
+
+    @Override
+    public synchronized void onStepSelected(long batchId, RequestPlan requestTemplate, int index, long nanoTime) {
+        record(node(requestTemplate), Phase.PREDICATE, -1);
+    }
+
+    @Override
+    public synchronized void onRequestBuilt(long batchId, RequestPlan requestTemplate, Request request, long startNanoTime, long endNanoTime) {
+        ProfileNode node = node(requestTemplate);
+        record(node, Phase.BUILD, endNanoTime - startNanoTime);
+        node.recordBytesOut(sizeOf(request.getBody()));
+        mark();
+    }
+
+    @Override
+    public synchronized void onDispatchStart(long batchId, RequestPlan requestTemplate, Request request, long nanoTime) {
+        record(node(requestTemplate), Phase.OTHER, -1);
+        dispatchThreads.put(request, Thread.currentThread());
+    }
+
+    @Override
+    public synchronized void onDispatchEnd(long batchId, RequestPlan requestTemplate, Request request, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+        ProfileNode node = node(requestTemplate);
+        if (dispatchThreads.remove(request) == Thread.currentThread())
+            record(node, Phase.DISPATCH, endNanoTime - startNanoTime);
+        else
+            node.recordPhase(Phase.DISPATCH, endNanoTime - startNanoTime, 0, 0);
+        dispatchEndTimes.put(request, endNanoTime);
+        if (response != null)
+            node.recordBytesIn(response.getBodySize() != null ? response.getBodySize() : sizeOf(response.getBody()));
+        mark();
+    }
+
+    @Override
+    public synchronized void onLoopIterationStart(long batchId, RequestPlan requestTemplate, int iteration, Object counter, long nanoTime) {
+        record(node(requestTemplate), Phase.PREDICATE, -1);
+    }
+
+    @Override
+    public synchronized void onLoopIterationEnd(long batchId, RequestPlan requestTemplate, int iteration, long startNanoTime, long endNanoTime) {
+        ProfileNode node = node(requestTemplate);
+        record(node, Phase.OTHER, -1);
+        iterations.computeIfAbsent(node, key -> new ArrayList<>()).add(new Record(node, startNanoTime, endNanoTime, endNanoTime));
+    }
+
+    @Override
+    public synchronized void onLoopEnd(long batchId, RequestPlan requestTemplate, int iterations, long startNanoTime, long endNanoTime) {
+        ProfileNode node = node(requestTemplate);
+        record(node, Phase.PREDICATE, -1);
+        node.recordIterations(iterations);
+    }
+
+    @Override
+    public synchronized void onTransform(long batchId, RequestPlan requestTemplate, Response response, long startNanoTime, long endNanoTime) {
+        record(node(requestTemplate), Phase.TRANSFORM, endNanoTime - startNanoTime);
+    }
+
+    @Override
+    public synchronized void onVarsProcessed(long batchId, RequestPlan requestTemplate, long startNanoTime, long endNanoTime) {
+        record(node(requestTemplate), Phase.VARS, endNanoTime - startNanoTime);
+    }
+
+    @Override
+    public synchronized void onBreakResponse(long batchId, RequestPlan requestTemplate, Response response, long nanoTime) {
+        record(node(requestTemplate), Phase.RESPONSE, -1);
+    }
+
+    @Override
+    public synchronized void onStepEnd(long batchId, RequestPlan requestTemplate, Request request, int index, long startNanoTime, long endNanoTime) {
+        ProfileNode node = node(requestTemplate);
+        record(node, Phase.PREDICATE, -1);
+        node.recordExecution(endNanoTime - startNanoTime);
+        Long dispatchEndTime = request == null ? null : dispatchEndTimes.remove(request);
+        steps.computeIfAbsent(node.getLoop(), key -> new ArrayList<>()).add(new Record(node, startNanoTime, endNanoTime, dispatchEndTime == null ? endNanoTime : dispatchEndTime));
+    }
+
+    // attributes the work done by the current thread since its last callback, then moves its cursor
+    private void record(ProfileNode node, Phase phase, long time) {
+        long[] cursor = cursors.get(Thread.currentThread());
+        long[] now = measure();
+        if (cursor != null)
+            node.recordPhase(phase, time < 0 ? now[0] - cursor[0] : time, delta(now[1], cursor[1]), delta(now[2], cursor[2]));
+        else if (time >= 0)
+            node.recordPhase(phase, time, 0, 0);
+        cursors.put(Thread.currentThread(), now);
+    }
+
+    private void mark() {
+        cursors.put(Thread.currentThread(), measure());
+    }
+
+    private long[] measure() {
+        return new long[]{System.nanoTime(), currentThreadCpuTime(), currentThreadAllocatedBytes()};
+    }
+
+    private long delta(long now, long before) {
+        return now < 0 || before < 0 ? -1 : now - before;
+    }
+
+    /*
+     * Critical path inside [from, to] of a scope (the batch or a loop time): the step that ended last gates the scope,
+     * then the one that ended before it started, and so on. Among steps dispatched together, the one whose dispatch ended last wins.
+     */
+    private List<Record> findPath(ProfileNode loop, long from, long to) {
+        return findChain(steps.getOrDefault(loop, Collections.emptyList()), from, to);
+    }
+
+    // a record already in the chain is never picked again, so zero-length records (start == end) can't loop forever
+    private List<Record> findChain(List<Record> scoped, long from, long to) {
+        Deque<Record> chain = new ArrayDeque<>();
+        Set<Record> picked = Collections.newSetFromMap(new IdentityHashMap<>());
+        long end = to;
+        Record record;
+        while ((record = findLast(scoped, from, end, picked)) != null) {
+            chain.addFirst(record);
+            picked.add(record);
+            end = record.start;
+        }
+        return new ArrayList<>(chain);
+    }
+
+    private void addCriticalPath(Record record, List<ProfileNode> criticalPath) {
+        record.node.recordCriticalPath(record.end - record.start);
+        criticalPath.add(record.node);
+        if (record.node.getType() != ProfileNode.Type.LOOP)
+            return;
+
+        for (Record current : findChain(iterations.getOrDefault(record.node, Collections.emptyList()), record.start, record.end)) {
+            for (Record step : findPath(record.node, current.start, current.end))
+                addCriticalPath(step, criticalPath);
+        }
+    }
+
+    // scoped is sorted by end and a gate time never passes its end, so the scan stops once no earlier record can win
+    private Record findLast(List<Record> scoped, long from, long to, Set<Record> picked) {
+        Record last = null;
+        for (int i = scoped.size() - 1; i >= 0; i--) {
+            Record record = scoped.get(i);
+            if (last != null && record.end <= last.gateTime)
+                break;
+            if (record.start < from || record.end > to || picked.contains(record))
+                continue;
+            if (last == null || record.gateTime > last.gateTime)
+                last = record;
+        }
+        return last;
+    }
+
+    private long sizeOf(Object body) {
+        if (body == null)
+            return 0;
+        return jsonProvider.toJson(body).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private ProfileNode node(RequestPlan requestTemplate) {
+        ProfileNode node = nodes.get(requestTemplate);
+        if (node == null) {
+            node = new ProfileNode(String.valueOf(requestTemplate.getId()), ProfileNode.Type.REQUEST, null);
+            root.addChild(node);
+            nodes.put(requestTemplate, node);
+        }
+        return node;
+    }
+
+    private void addNodes(ProfileNode parent, List<RequestPlan> requestTemplates, ProfileNode loop) {
+        if (requestTemplates == null)
+            return;
+        for (RequestPlan requestTemplate : requestTemplates) {
+            ProfileNode.Type type = requestTemplate.getLoop() == null ? ProfileNode.Type.REQUEST : ProfileNode.Type.LOOP;
+            ProfileNode node = new ProfileNode(String.valueOf(requestTemplate.getId()), type, loop);
+            parent.addChild(node);
+            nodes.put(requestTemplate, node);
+            addNodes(node, requestTemplate.getRequests(), loop);
+            if (requestTemplate.getLoop() != null)
+                addNodes(node, requestTemplate.getLoop().getRequests(), node);
+        }
+    }
+
+    private static long currentThreadCpuTime() {
+        if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() || !THREAD_MX_BEAN.isThreadCpuTimeEnabled())
+            return -1;
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class Record {
+
+        final ProfileNode node;
+        final long start;
+        final long end;
+        final long gateTime;
+
+        Record(ProfileNode node, long start, long end, long gateTime) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.gateTime = Math.min(gateTime, end);
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.rey.jsonbatch.profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Profile of a request template (or of the whole batch for the root node), summed over all its executions.
+ * Wall time is inclusive: a loop covers all its times. Phases are exclusive: the work done for this template only.
+ * Times are in nanoseconds. CPU time and allocated bytes are -1 when the JVM cannot measure them.
+ */
+public class ProfileNode {
+
+    public enum Type {
+        BATCH, REQUEST, LOOP
+    }
+
+    public enum Phase {
+        // choosing request templates, evaluating loop counters and break responses
+        PREDICATE,
+        // building the request from its template
+        BUILD,
+        // waiting on the RequestDispatcher, including reading and parsing the response body
+        DISPATCH,
+        TRANSFORM,
+        VARS,
+        // building the final response
+        RESPONSE,
+        OTHER
+    }
+
+    private final String id;
+    private final Type type;
+    private final ProfileNode loop;
+    private final List<ProfileNode> children = new ArrayList<>();
+
+    private final long[] phaseTimes = new long[Phase.values().length];
+    private final long[] phaseCpuTimes = new long[Phase.values().length];
+    private final long[] phaseAllocatedBytes = new long[Phase.values().length];
+
+    private int count;
+    private long wallTime;
+    private long bytesIn;
+    private long bytesOut;
+    private int iterations;
+    private long criticalPathTime;
+    private boolean cpuTimeSupported = true;
+    private boolean allocatedBytesSupported = true;
+
+    ProfileNode(String id, Type type, ProfileNode loop) {
+        this.id = id;
+        this.type = type;
+        this.loop = loop;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<ProfileNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public long getCpuTime() {
+        return cpuTimeSupported ? sum(phaseCpuTimes) : -1;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytesSupported ? sum(phaseAllocatedBytes) : -1;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public long getPhaseTime(Phase phase) {
+        return phaseTimes[phase.ordinal()];
+    }
+
+    public long getPhaseCpuTime(Phase phase) {
+        return cpuTimeSupported ? phaseCpuTimes[phase.ordinal()] : -1;
+    }
+
+    public long getPhaseAllocatedBytes(Phase phase) {
+        return allocatedBytesSupported ? phaseAllocatedBytes[phase.ordinal()] : -1;
+    }
+
+    public long getCriticalPathTime() {
+        return criticalPathTime;
+    }
+
+    public boolean isOnCriticalPath() {
+        return criticalPathTime > 0;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("type", type.name().toLowerCase(Locale.ROOT));
+        map.put("count", count);
+        map.put("wall_time", wallTime);
+        map.put("cpu_time", getCpuTime());
+        map.put("allocated_bytes", getAllocatedBytes());
+        map.put("bytes_in", bytesIn);
+        map.put("bytes_out", bytesOut);
+        if (type == Type.LOOP)
+            map.put("iterations", iterations);
+        map.put("critical_path_time", criticalPathTime);
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            if (phaseTimes[phase.ordinal()] == 0)
+                continue;
+            Map<String, Object> phaseMap = new LinkedHashMap<>();
+            phaseMap.put("wall_time", getPhaseTime(phase));
+            phaseMap.put("cpu_time", getPhaseCpuTime(phase));
+            phaseMap.put("allocated_bytes", getPhaseAllocatedBytes(phase));
+            phases.put(phase.name().toLowerCase(Locale.ROOT), phaseMap);
+        }
+        map.put("phases", phases);
+        List<Object> childMaps = new ArrayList<>(children.size());
+        for (ProfileNode child : children)
+            childMaps.add(child.toMap());
+        map.put("children", childMaps);
+        return map;
+    }
+
+    ProfileNode getLoop() {
+        return loop;
+    }
+
+    void addChild(ProfileNode child) {
+        children.add(child);
+    }
+
+    void recordPhase(Phase phase, long time, long cpuTime, long allocatedBytes) {
+        phaseTimes[phase.ordinal()] += time;
+        if (cpuTime < 0)
+            cpuTimeSupported = false;
+        else
+            phaseCpuTimes[phase.ordinal()] += cpuTime;
+        if (allocatedBytes < 0)
+            allocatedBytesSupported = false;
+        else
+            phaseAllocatedBytes[phase.ordinal()] += allocatedBytes;
+    }
+
+    void recordExecution(long time) {
+        count++;
+        wallTime += time;
+    }
+
+    void recordBytesIn(long bytes) {
+        bytesIn += bytes;
+    }
+
+    void recordBytesOut(long bytes) {
+        bytesOut += bytes;
+    }
+
+    void recordIterations(int iterations) {
+        this.iterations += iterations;
+    }
+
+    void recordCriticalPath(long time) {
+        criticalPathTime += time;
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values)
+            sum += value;
+        return sum;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.rey.jsonbatch.profile;
+
+import com.rey.jsonbatch.model.Response;
+
+public class ProfiledResponse {
+
+    private final Response response;
+
+    private final BatchProfile profile;
+
+    public ProfiledResponse(Response response, BatchProfile profile) {
+        this.response = response;
+        this.profile = profile;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public BatchProfile getProfile() {
+        return profile;
+    }
+
+}
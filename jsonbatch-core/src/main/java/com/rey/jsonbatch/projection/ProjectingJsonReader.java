@@ -0,0 +1,295 @@
+package com.rey.jsonbatch.projection;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public class ProjectingJsonReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final JsonProvider jsonProvider;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long offset;
+
+    private StringBuilder capture;
+    private int captureStart;
+
+    private ProjectingJsonReader(Reader reader, JsonProvider jsonProvider) {
+        this.reader = reader;
+        this.jsonProvider = jsonProvider;
+    }
+
+    public static Object read(Reader reader, Projection projection, JsonProvider jsonProvider) throws IOException {
+        ProjectingJsonReader jsonReader = new ProjectingJsonReader(reader, jsonProvider);
+        Object value = jsonReader.readValue(projection);
+        jsonReader.skipWhitespace();
+        if (jsonReader.peek() >= 0)
+            throw jsonReader.error("Unexpected data after JSON value");
+        return value;
+    }
+
+    private Object readValue(Projection projection) throws IOException {
+        skipWhitespace();
+        if (projection.isNone()) {
+            skipValue();
+            return null;
+        }
+        if (projection.isAll())
+            return jsonProvider.parse(captureValue());
+
+        int c = peek();
+        if (c == '{')
+            return readObject(projection);
+        if (c == '[')
+            return readArray(projection);
+        if (c == '"')
+            return readString();
+        return readLiteral();
+    }
+
+    private Object readObject(Projection projection) throws IOException {
+        position++;
+        Object map = jsonProvider.createMap();
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"')
+                throw error("Expected property name");
+            String name = readString();
+            skipWhitespace();
+            if (next() != ':')
+                throw error("Expected ':'");
+            Projection child = projection.getProperty(name);
+            if (child.isNone()) {
+                skipWhitespace();
+                skipValue();
+            } else
+                jsonProvider.setProperty(map, name, readValue(child));
+            skipWhitespace();
+            int c = next();
+            if (c == '}')
+                return map;
+            if (c != ',')
+                throw error("Expected ',' or '}'");
+        }
+    }
+
+    private Object readArray(Projection projection) throws IOException {
+        position++;
+        Object array = jsonProvider.createArray();
+        Projection elements = projection.getElements();
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        int index = 0;
+        while (true) {
+            Object value;
+            if (elements.isNone()) {
+                skipWhitespace();
+                skipValue();
+                value = null;
+            } else
+                value = readValue(elements);
+            jsonProvider.setArrayIndex(array, index++, value);
+            skipWhitespace();
+            int c = next();
+            if (c == ']')
+                return array;
+            if (c != ',')
+                throw error("Expected ',' or ']'");
+        }
+    }
+
+    private String readString() throws IOException {
+        position++;
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\')
+                position++;
+            builder.append(buffer, start, position - start);
+            if (position == limit) {
+                if (!fill())
+                    throw error("Unterminated string");
+                continue;
+            }
+            int c = next();
+            if (c < 0)
+                throw error("Unterminated string");
+            if (c == '"')
+                return builder.toString();
+            if (c == '\\') {
+                c = next();
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char) c);
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0)
+                                throw error("Invalid unicode escape");
+                            code = (code << 4) | digit;
+                        }
+                        builder.append((char) code);
+                        break;
+                    default:
+                        throw error("Invalid escape character");
+                }
+            }
+        }
+    }
+
+    private Object readLiteral() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c = peek();
+        while (c >= 0 && !isDelimiter(c)) {
+            builder.append((char) c);
+            position++;
+            c = peek();
+        }
+        String literal = builder.toString();
+        switch (literal) {
+            case "":
+                throw error("Expected JSON value");
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+                return null;
+            default:
+                return jsonProvider.parse(literal);
+        }
+    }
+
+    private String captureValue() throws IOException {
+        capture = new StringBuilder();
+        captureStart = position;
+        try {
+            skipValue();
+            capture.append(buffer, captureStart, position - captureStart);
+            return capture.toString();
+        } finally {
+            capture = null;
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int c = peek();
+        if (c == '"') {
+            skipString();
+            return;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = next();
+                if (c < 0)
+                    throw error("Unexpected end of JSON");
+                if (c == '"') {
+                    position--;
+                    skipString();
+                } else if (c == '{' || c == '[')
+                    depth++;
+                else if (c == '}' || c == ']')
+                    depth--;
+            } while (depth > 0);
+            return;
+        }
+        int length = 0;
+        while (c >= 0 && !isDelimiter(c)) {
+            position++;
+            length++;
+            c = peek();
+        }
+        if (length == 0)
+            throw error("Expected JSON value");
+    }
+
+    private void skipString() throws IOException {
+        position++;
+        while (true) {
+            int c = next();
+            if (c < 0)
+                throw error("Unterminated string");
+            if (c == '\\')
+                next();
+            else if (c == '"')
+                return;
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            position++;
+            c = peek();
+        }
+    }
+
+    private boolean isDelimiter(int c) {
+        return c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        if (capture != null) {
+            capture.append(buffer, captureStart, limit - captureStart);
+            captureStart = 0;
+        }
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int count = reader.read(buffer, 0, buffer.length);
+        if (count <= 0)
+            return false;
+        limit = count;
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + (offset + position));
+    }
+
+}
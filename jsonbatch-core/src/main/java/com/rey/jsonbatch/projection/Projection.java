@@ -0,0 +1,97 @@
+package com.rey.jsonbatch.projection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class Projection {
+
+    public static final Projection ALL = new Projection(true, Collections.emptyMap(), null, null);
+
+    public static final Projection NONE = new Projection(false, Collections.emptyMap(), null, null);
+
+    private final boolean all;
+
+    private final Map<String, Projection> properties;
+
+    private final Projection anyProperty;
+
+    private final Projection elements;
+
+    private Projection(boolean all, Map<String, Projection> properties, Projection anyProperty, Projection elements) {
+        this.all = all;
+        this.properties = properties;
+        this.anyProperty = anyProperty;
+        this.elements = elements;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public boolean isNone() {
+        return this == NONE;
+    }
+
+    public Projection getProperty(String name) {
+        if (all)
+            return ALL;
+        return union(properties.get(name), anyProperty);
+    }
+
+    public Projection getElements() {
+        if (all)
+            return ALL;
+        return elements == null ? NONE : elements;
+    }
+
+    public static Projection property(String name, Projection projection) {
+        if (projection.isNone())
+            return NONE;
+        return new Projection(false, Collections.singletonMap(name, projection), null, null);
+    }
+
+    public static Projection anyProperty(Projection projection) {
+        if (projection.isNone())
+            return NONE;
+        return new Projection(false, Collections.emptyMap(), projection, null);
+    }
+
+    public static Projection elements(Projection projection) {
+        if (projection.isNone())
+            return NONE;
+        return new Projection(false, Collections.emptyMap(), null, projection);
+    }
+
+    public static Projection union(Projection projection1, Projection projection2) {
+        if (projection1 == null || projection1.isNone())
+            return projection2 == null ? NONE : projection2;
+        if (projection2 == null || projection2.isNone())
+            return projection1;
+        if (projection1.all || projection2.all)
+            return ALL;
+
+        Map<String, Projection> properties = new HashMap<>(projection1.properties);
+        projection2.properties.forEach((name, projection) -> properties.merge(name, projection, Projection::union));
+        return new Projection(false,
+                Collections.unmodifiableMap(properties),
+                union(projection1.anyProperty, projection2.anyProperty),
+                union(projection1.elements, projection2.elements));
+    }
+
+    @Override
+    public String toString() {
+        if (all)
+            return "*";
+        if (isNone())
+            return "-";
+        StringBuilder builder = new StringBuilder("{");
+        properties.forEach((name, projection) -> builder.append(builder.length() > 1 ? ", " : "").append(name).append(": ").append(projection));
+        if (anyProperty != null && !anyProperty.isNone())
+            builder.append(builder.length() > 1 ? ", " : "").append("?: ").append(anyProperty);
+        if (elements != null && !elements.isNone())
+            builder.append(builder.length() > 1 ? ", " : "").append("[]: ").append(elements);
+        return builder.append("}").toString();
+    }
+
+}
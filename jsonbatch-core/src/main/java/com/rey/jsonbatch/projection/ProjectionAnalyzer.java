@@ -0,0 +1,235 @@
+package com.rey.jsonbatch.projection;
+
+import com.rey.jsonbatch.parser.PathSegment;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.LoopPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import com.rey.jsonbatch.plan.ResponsePlan;
+import com.rey.jsonbatch.plan.VarPlan;
+import com.rey.jsonbatch.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.rey.jsonbatch.parser.PathSegment.Type.*;
+
+public class ProjectionAnalyzer {
+
+    private Logger logger = LoggerFactory.getLogger(ProjectionAnalyzer.class);
+
+    private static final String KEY_RESPONSES = "responses";
+    private static final String KEY_TIMES = "times";
+    private static final String KEY_BODY = "body";
+
+    public Map<RequestPlan, Projection> analyze(BatchPlan plan) {
+        if (!hasUnconditionalResponse(plan.getResponses())) {
+            logger.debug("Batch may return the whole context, skip projection analysis");
+            return Collections.emptyMap();
+        }
+
+        List<String> paths = new ArrayList<>();
+        collectPaths(plan.getRequests(), paths);
+        collectResponsePaths(plan.getResponses(), paths);
+
+        List<List<PathSegment>> parsedPaths = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            List<PathSegment> segments = PathSegment.parse(path);
+            if (segments == null || segments.isEmpty() || segments.get(0).getType() == DEEP || segments.get(0).getType() == WILDCARD) {
+                logger.debug("Path [{}] may read any response, skip projection analysis", path);
+                return Collections.emptyMap();
+            }
+            parsedPaths.add(segments);
+        }
+
+        Map<RequestPlan, Projection> projections = new IdentityHashMap<>();
+        analyzeRequests(plan.getRequests(), new int[0], parsedPaths, projections);
+        return Collections.unmodifiableMap(projections);
+    }
+
+    private void analyzeRequests(List<RequestPlan> requests, int[] parentLocation, List<List<PathSegment>> paths, Map<RequestPlan, Projection> projections) {
+        if (requests == null)
+            return;
+        int[] location = Arrays.copyOf(parentLocation, parentLocation.length);
+        if (location.length == 0)
+            location = new int[]{0};
+        int depth = location[location.length - 1];
+        for (RequestPlan request : requests) {
+            location[location.length - 1] = depth;
+            if (request.getLoop() != null)
+                analyzeLoop(request.getLoop(), location, paths, projections);
+            else {
+                Projection projection = analyzeRequest(request, location, paths);
+                logger.debug("Projection of request at {}: {}", Arrays.toString(location), projection);
+                projections.put(request, projection);
+            }
+            location[location.length - 1] = depth + 1;
+            analyzeRequests(request.getRequests(), location, paths, projections);
+        }
+    }
+
+    private void analyzeLoop(LoopPlan loop, int[] location, List<List<PathSegment>> paths, Map<RequestPlan, Projection> projections) {
+        if (loop.getRequests() == null)
+            return;
+        int[] innerLocation = Arrays.copyOf(location, location.length + 1);
+        analyzeRequests(loop.getRequests(), innerLocation, paths, projections);
+    }
+
+    private Projection analyzeRequest(RequestPlan request, int[] location, List<List<PathSegment>> paths) {
+        Projection projection = Projection.NONE;
+        for (List<PathSegment> path : paths) {
+            projection = Projection.union(projection, matchRoot(path, location));
+            if (projection.isAll())
+                return projection;
+        }
+
+        if (request.getTransformers() != null) {
+            List<String> transformerPaths = new ArrayList<>();
+            collectResponsePaths(request.getTransformers(), transformerPaths);
+            for (String path : transformerPaths) {
+                List<PathSegment> segments = PathSegment.parse(path);
+                projection = Projection.union(projection, segments == null ? Projection.ALL : matchResponse(segments, 0));
+                if (projection.isAll())
+                    return projection;
+            }
+        }
+        return projection;
+    }
+
+    private Projection matchRoot(List<PathSegment> path, int[] location) {
+        int index = 0;
+        PathSegment segment = path.get(index);
+        if (segment.getType() != PROPERTY)
+            return Projection.NONE;
+        if (!segment.getNames().contains(KEY_RESPONSES))
+            return Projection.NONE;
+        index++;
+
+        for (int level = 0; level < location.length; level++) {
+            if (level > 0) {
+                if (index == path.size())
+                    return Projection.ALL;
+                segment = path.get(index);
+                if (segment.getType() == PROPERTY && !segment.getNames().contains(KEY_TIMES))
+                    return Projection.NONE;
+                if (segment.getType() != PROPERTY && segment.getType() != WILDCARD)
+                    return segment.getType() == INDEX || segment.getType() == ARRAY ? Projection.NONE : Projection.ALL;
+                index++;
+
+                if (index == path.size())
+                    return Projection.ALL;
+                segment = path.get(index);
+                if (segment.getType() == PROPERTY)
+                    return Projection.NONE;
+                if (segment.getType() != INDEX && segment.getType() != ARRAY && segment.getType() != WILDCARD)
+                    return Projection.ALL;
+                index++;
+            }
+
+            if (index == path.size())
+                return Projection.ALL;
+            segment = path.get(index);
+            if (segment.getType() == PROPERTY)
+                return Projection.NONE;
+            if (segment.getType() == INDEX && segment.getIndex() >= 0 && segment.getIndex() != location[level])
+                return Projection.NONE;
+            if (segment.getType() != INDEX && segment.getType() != ARRAY && segment.getType() != WILDCARD)
+                return Projection.ALL;
+            index++;
+        }
+        return matchResponse(path, index);
+    }
+
+    private Projection matchResponse(List<PathSegment> path, int index) {
+        if (index == path.size())
+            return Projection.ALL;
+        PathSegment segment = path.get(index);
+        switch (segment.getType()) {
+            case PROPERTY:
+                return segment.getNames().contains(KEY_BODY) ? build(path, index + 1) : Projection.NONE;
+            case WILDCARD:
+                return build(path, index + 1);
+            case INDEX:
+            case ARRAY:
+                return Projection.NONE;
+            default:
+                return Projection.ALL;
+        }
+    }
+
+    private Projection build(List<PathSegment> path, int index) {
+        if (index == path.size())
+            return Projection.ALL;
+        PathSegment segment = path.get(index);
+        switch (segment.getType()) {
+            case PROPERTY: {
+                Projection child = build(path, index + 1);
+                Projection projection = Projection.NONE;
+                for (String name : segment.getNames())
+                    projection = Projection.union(projection, Projection.property(name, child));
+                return projection;
+            }
+            case WILDCARD: {
+                Projection child = build(path, index + 1);
+                return Projection.union(Projection.anyProperty(child), Projection.elements(child));
+            }
+            case INDEX:
+            case ARRAY:
+                return Projection.elements(build(path, index + 1));
+            case FILTER:
+                return Projection.elements(Projection.ALL);
+            default:
+                return Projection.ALL;
+        }
+    }
+
+    private boolean hasUnconditionalResponse(List<ResponsePlan> responses) {
+        if (responses == null)
+            return false;
+        for (ResponsePlan response : responses) {
+            if (response.isUnconditional())
+                return true;
+        }
+        return false;
+    }
+
+    private void collectPaths(List<RequestPlan> requests, Collection<String> paths) {
+        if (requests == null)
+            return;
+        for (RequestPlan request : requests) {
+            collectPaths(paths, request.getPredicate(), request.getHttpMethod(), request.getUrl(), request.getHeaders(), request.getBody());
+            collectResponsePaths(request.getResponses(), paths);
+            if (request.getVars() != null) {
+                for (VarPlan var : request.getVars())
+                    collectPaths(paths, var.getPredicate(), var.getVars());
+            }
+            if (request.getLoop() != null) {
+                LoopPlan loop = request.getLoop();
+                collectPaths(paths, loop.getCounterInit(), loop.getCounterPredicate(), loop.getCounterUpdate());
+                collectPaths(loop.getRequests(), paths);
+            }
+            collectPaths(request.getRequests(), paths);
+        }
+    }
+
+    private void collectResponsePaths(List<ResponsePlan> responses, Collection<String> paths) {
+        if (responses == null)
+            return;
+        for (ResponsePlan response : responses)
+            collectPaths(paths, response.getPredicate(), response.getStatus(), response.getHeaders(), response.getBody());
+    }
+
+    private void collectPaths(Collection<String> paths, Schema... schemas) {
+        for (Schema schema : schemas) {
+            if (schema != null)
+                schema.collectJsonPaths(paths);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.sink.JsonSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.rey.jsonbatch.schema.SchemaUtils.toObjectList;
+
+public class ArraySchema extends Schema {
+
+    private final Schema arraySchema;
+    private final Schema itemSchema;
+
+    private ArraySchema(Schema arraySchema, Schema itemSchema) {
+        this.arraySchema = arraySchema;
+        this.itemSchema = itemSchema;
+    }
+
+    public Schema getArraySchema() {
+        return arraySchema;
+    }
+
+    public Schema getItemSchema() {
+        return itemSchema;
+    }
+
+    @Override
+    public List<Object> build(DocumentContext context, DocumentContext rootContext) {
+        Collection<Object> objects = toObjectList(arraySchema.build(context, rootContext));
+        List<Object> result = new ArrayList<>(objects.size());
+        for (Object object : objects)
+            result.add(itemSchema.build(JsonPath.using(context.configuration()).parse(object), rootContext));
+        return result;
+    }
+
+    @Override
+    public void write(DocumentContext context, DocumentContext rootContext, JsonSink sink) throws IOException {
+        sink.beginArray();
+        writeElements(context, rootContext, sink);
+        sink.endArray();
+    }
+
+    // writes each item as soon as it's built, without the enclosing array, so a list can spread them
+    void writeElements(DocumentContext context, DocumentContext rootContext, JsonSink sink) throws IOException {
+        Collection<Object> objects = toObjectList(arraySchema.build(context, rootContext));
+        for (Object object : objects)
+            itemSchema.write(JsonPath.using(context.configuration()).parse(object), rootContext, sink);
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+        arraySchema.collectJsonPaths(paths, isRootContext);
+        itemSchema.collectJsonPaths(paths, false);
+    }
+
+    public static ArraySchema of(Schema arraySchema, Schema itemSchema) {
+        return new ArraySchema(arraySchema, itemSchema);
+    }
+
+}
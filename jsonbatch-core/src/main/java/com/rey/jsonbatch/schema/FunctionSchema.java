@@ -0,0 +1,74 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.rey.jsonbatch.JsonBuilder.Type;
+import com.rey.jsonbatch.function.Function;
+import com.rey.jsonbatch.jfr.JfrSupport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class FunctionSchema extends Schema {
+
+    private final Type type;
+    private final Function function;
+    private final List<Schema> arguments;
+
+    private FunctionSchema(Type type, Function function, List<Schema> arguments) {
+        this.type = type;
+        this.function = function;
+        this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public List<Schema> getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public Object build(DocumentContext context, DocumentContext rootContext) {
+        Object event = JfrSupport.beginFunction();
+        if (event == null)
+            return call(context, rootContext);
+        Object value = call(context, rootContext);
+        JfrSupport.commitFunction(event, function.getName(), function.isReduceFunction(), arguments.size());
+        return value;
+    }
+
+    private Object call(DocumentContext context, DocumentContext rootContext) {
+        if (function.isReduceFunction()) {
+            Function.Result result = null;
+            for (Schema argument : arguments) {
+                result = function.handle(type, argument.build(context, rootContext), result);
+                if (result != null && result.isDone())
+                    return result.getValue();
+            }
+            return result == null ? null : result.getValue();
+        } else {
+            List<Object> values = new ArrayList<>(arguments.size());
+            for (Schema argument : arguments)
+                values.add(argument.build(context, rootContext));
+            return function.invoke(type, values);
+        }
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+        for (Schema argument : arguments)
+            argument.collectJsonPaths(paths, isRootContext);
+    }
+
+    public static FunctionSchema of(Type type, Function function, List<Schema> arguments) {
+        return new FunctionSchema(type, function, arguments);
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.JsonBuilder.Type;
+import com.rey.jsonbatch.function.MathUtils;
+import com.rey.jsonbatch.jfr.JfrSupport;
+import com.rey.jsonbatch.parser.PathSegment;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.rey.jsonbatch.schema.SchemaUtils.toObjectList;
+import static com.rey.jsonbatch.schema.SchemaUtils.toSingleObject;
+
+public class JsonPathSchema extends Schema {
+
+    private static final String PREFIX_ROOT_CONTEXT = "$$";
+
+    private final Type type;
+    private final String path;
+    private final StringSchema pathSchema;
+    private final boolean useRootContext;
+    private final JsonPath compiledPath;
+    private final PathSegment[] directPath;
+
+    private JsonPathSchema(Type type, String path, StringSchema pathSchema) {
+        this.type = type;
+        this.path = path;
+        this.pathSchema = pathSchema;
+        this.useRootContext = path != null && path.startsWith(PREFIX_ROOT_CONTEXT);
+        this.compiledPath = path == null ? null : compile(useRootContext ? path.substring(1) : path);
+        this.directPath = compiledPath == null ? null : toDirectPath(useRootContext ? path.substring(1) : path);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public StringSchema getPathSchema() {
+        return pathSchema;
+    }
+
+    @Override
+    public Object build(DocumentContext context, DocumentContext rootContext) {
+        Object object = pathSchema == null ? read(context, rootContext) : read(pathSchema.build(context, rootContext), context, rootContext);
+        if (object == null)
+            return null;
+        if (type == null)
+            return object;
+
+        if (!type.isArray)
+            return castToType(toSingleObject(object), type);
+        Collection<Object> items = toObjectList(object);
+        List<Object> result = new ArrayList<>(items.size());
+        for (Object item : items)
+            result.add(castToType(item, type.elementType));
+        return result;
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+        if (pathSchema != null) {
+            pathSchema.collectJsonPaths(paths, isRootContext);
+            Object firstPart = pathSchema.getParts().isEmpty() ? null : pathSchema.getParts().get(0);
+            collectJsonPath(paths, firstPart instanceof String ? (String) firstPart : "$", isRootContext);
+        } else
+            collectJsonPath(paths, path, isRootContext);
+    }
+
+    private void collectJsonPath(Collection<String> paths, String jsonPath, boolean isRootContext) {
+        if (jsonPath.startsWith(PREFIX_ROOT_CONTEXT))
+            paths.add(jsonPath.substring(1));
+        else if (isRootContext)
+            paths.add(jsonPath);
+    }
+
+    private Object read(DocumentContext context, DocumentContext rootContext) {
+        Object event = JfrSupport.beginJsonPathRead();
+        if (event == null)
+            return readPath(context, rootContext);
+        Object object = readPath(context, rootContext);
+        JfrSupport.commitJsonPathRead(event, path);
+        return object;
+    }
+
+    private Object readPath(DocumentContext context, DocumentContext rootContext) {
+        if (compiledPath == null)
+            return readPath(path, context, rootContext);
+        DocumentContext target = useRootContext ? rootContext : context;
+        return directPath == null ? target.read(compiledPath) : readDirect(target);
+    }
+
+    private Object readDirect(DocumentContext context) {
+        Configuration configuration = context.configuration();
+        if (configuration.containsOption(Option.AS_PATH_LIST) || configuration.containsOption(Option.ALWAYS_RETURN_LIST)
+                || !configuration.getEvaluationListeners().isEmpty())
+            return context.read(compiledPath);
+        JsonProvider jsonProvider = configuration.jsonProvider();
+        Object current = context.json();
+        for (PathSegment segment : directPath) {
+            if (segment.getType() == PathSegment.Type.PROPERTY) {
+                if (!jsonProvider.isMap(current))
+                    return context.read(compiledPath);
+                current = jsonProvider.getMapValue(current, segment.getNames().get(0));
+                if (current == JsonProvider.UNDEFINED)
+                    return context.read(compiledPath);
+            } else {
+                if (!jsonProvider.isArray(current) || segment.getIndex() >= jsonProvider.length(current))
+                    return context.read(compiledPath);
+                current = jsonProvider.getArrayIndex(current, segment.getIndex());
+            }
+        }
+        return jsonProvider.unwrap(current);
+    }
+
+    private Object read(String jsonPath, DocumentContext context, DocumentContext rootContext) {
+        Object event = JfrSupport.beginJsonPathRead();
+        if (event == null)
+            return readPath(jsonPath, context, rootContext);
+        Object object = readPath(jsonPath, context, rootContext);
+        JfrSupport.commitJsonPathRead(event, jsonPath);
+        return object;
+    }
+
+    private Object readPath(String jsonPath, DocumentContext context, DocumentContext rootContext) {
+        if (jsonPath.startsWith(PREFIX_ROOT_CONTEXT))
+            return rootContext.read(jsonPath.substring(1));
+        return context.read(jsonPath);
+    }
+
+    private static PathSegment[] toDirectPath(String path) {
+        List<PathSegment> segments = PathSegment.parse(path);
+        if (segments == null)
+            return null;
+        for (PathSegment segment : segments) {
+            boolean isDirect = segment.getType() == PathSegment.Type.PROPERTY
+                    ? segment.getNames().size() == 1
+                    : segment.getType() == PathSegment.Type.INDEX && segment.getIndex() >= 0;
+            if (!isDirect)
+                return null;
+        }
+        return segments.toArray(new PathSegment[0]);
+    }
+
+    private static JsonPath compile(String path) {
+        try {
+            return JsonPath.compile(path);
+        } catch (InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    private static Object castToType(Object object, Type type) {
+        switch (type) {
+            case STRING:
+                return object.toString();
+            case INTEGER:
+                if (object instanceof Integer || object instanceof Long || object instanceof BigInteger)
+                    return object;
+                if (object instanceof Float)
+                    return Math.round((Float) object);
+                if (object instanceof Double)
+                    return Math.round((Double) object);
+                if (object instanceof BigDecimal)
+                    return ((BigDecimal) object).toBigInteger();
+                if (object instanceof String)
+                    return new BigInteger(object.toString());
+                throw new IllegalArgumentException("Cannot cast " + object.getClass() + " to integer");
+            case NUMBER:
+                if (object instanceof Float || object instanceof Double || object instanceof BigDecimal)
+                    return object;
+                if (object instanceof Integer)
+                    return ((Integer) object).floatValue();
+                if (object instanceof Long)
+                    return ((Long) object).doubleValue();
+                if (object instanceof BigInteger)
+                    return new BigDecimal((BigInteger) object);
+                if (object instanceof String)
+                    return new BigDecimal(object.toString());
+                throw new IllegalArgumentException("Cannot cast " + object.getClass() + " to number");
+            case BOOLEAN:
+                Boolean result = MathUtils.toBoolean(object, null);
+                if (result == null)
+                    throw new IllegalArgumentException("Cannot cast " + object.getClass() + " to boolean");
+                return result;
+        }
+        return object;
+    }
+
+    public static JsonPathSchema of(Type type, String path) {
+        return new JsonPathSchema(type, path, null);
+    }
+
+    public static JsonPathSchema of(Type type, StringSchema pathSchema) {
+        return new JsonPathSchema(type, null, pathSchema);
+    }
+
+}
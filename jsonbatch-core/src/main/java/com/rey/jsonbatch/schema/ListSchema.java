@@ -0,0 +1,91 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.rey.jsonbatch.sink.JsonSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class ListSchema extends Schema {
+
+    private final List<Item> items;
+
+    private ListSchema(List<Item> items) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    @Override
+    public List<Object> build(DocumentContext context, DocumentContext rootContext) {
+        List<Object> result = new ArrayList<>();
+        for (Item item : items) {
+            Object value = item.schema.build(context, rootContext);
+            if (item.isSpread && value instanceof Collection)
+                result.addAll((Collection) value);
+            else
+                result.add(value);
+        }
+        return result;
+    }
+
+    @Override
+    public void write(DocumentContext context, DocumentContext rootContext, JsonSink sink) throws IOException {
+        sink.beginArray();
+        for (Item item : items) {
+            if (item.isSpread && item.schema instanceof ArraySchema)
+                ((ArraySchema) item.schema).writeElements(context, rootContext, sink);
+            else if (item.isSpread) {
+                Object value = item.schema.build(context, rootContext);
+                if (value instanceof Collection) {
+                    for (Object element : (Collection) value)
+                        sink.value(element);
+                } else
+                    sink.value(value);
+            } else
+                item.schema.write(context, rootContext, sink);
+        }
+        sink.endArray();
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+        for (Item item : items)
+            item.schema.collectJsonPaths(paths, isRootContext);
+    }
+
+    public static ListSchema of(List<Item> items) {
+        return new ListSchema(items);
+    }
+
+    public static class Item {
+
+        private final Schema schema;
+        private final boolean isSpread;
+
+        private Item(Schema schema, boolean isSpread) {
+            this.schema = schema;
+            this.isSpread = isSpread;
+        }
+
+        public Schema getSchema() {
+            return schema;
+        }
+
+        public boolean isSpread() {
+            return isSpread;
+        }
+
+        public static Item of(Schema schema, boolean isSpread) {
+            return new Item(schema, isSpread);
+        }
+
+    }
+
+}
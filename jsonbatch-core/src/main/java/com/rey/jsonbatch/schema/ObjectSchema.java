@@ -0,0 +1,114 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.rey.jsonbatch.sink.JsonSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.rey.jsonbatch.schema.SchemaUtils.toSingleObject;
+
+public class ObjectSchema extends Schema {
+
+    private final Schema objectSchema;
+    private final List<Field> fields;
+
+    private ObjectSchema(Schema objectSchema, List<Field> fields) {
+        this.objectSchema = objectSchema;
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+    }
+
+    public Schema getObjectSchema() {
+        return objectSchema;
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    @Override
+    public Map<String, Object> build(DocumentContext context, DocumentContext rootContext) {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        if (objectSchema != null) {
+            Object object = toSingleObject(objectSchema.build(context, rootContext));
+            context = JsonPath.using(context.configuration()).parse(object);
+        }
+
+        for (Field field : fields) {
+            String key = field.keySchema == null ? field.key : field.keySchema.build(context, rootContext);
+            result.put(key, field.value.build(context, rootContext));
+        }
+
+        return result;
+    }
+
+    @Override
+    public void write(DocumentContext context, DocumentContext rootContext, JsonSink sink) throws IOException {
+        if (objectSchema != null) {
+            Object object = toSingleObject(objectSchema.build(context, rootContext));
+            context = JsonPath.using(context.configuration()).parse(object);
+        }
+
+        sink.beginObject();
+        for (Field field : fields) {
+            sink.name(field.keySchema == null ? field.key : field.keySchema.build(context, rootContext));
+            field.value.write(context, rootContext, sink);
+        }
+        sink.endObject();
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+        if (objectSchema != null) {
+            objectSchema.collectJsonPaths(paths, isRootContext);
+            isRootContext = false;
+        }
+        for (Field field : fields) {
+            if (field.keySchema != null)
+                field.keySchema.collectJsonPaths(paths, isRootContext);
+            field.value.collectJsonPaths(paths, isRootContext);
+        }
+    }
+
+    public static ObjectSchema of(Schema objectSchema, List<Field> fields) {
+        return new ObjectSchema(objectSchema, fields);
+    }
+
+    public static class Field {
+
+        private final String key;
+        private final StringSchema keySchema;
+        private final Schema value;
+
+        private Field(String key, StringSchema keySchema, Schema value) {
+            this.key = key;
+            this.keySchema = keySchema;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public StringSchema getKeySchema() {
+            return keySchema;
+        }
+
+        public Schema getValue() {
+            return value;
+        }
+
+        public static Field of(String key, StringSchema keySchema, Schema value) {
+            return new Field(key, keySchema, value);
+        }
+
+    }
+
+}
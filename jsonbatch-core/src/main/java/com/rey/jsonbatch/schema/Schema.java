@@ -0,0 +1,31 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.rey.jsonbatch.sink.JsonSink;
+
+import java.io.IOException;
+import java.util.Collection;
+
+public abstract class Schema {
+
+    public Object build(DocumentContext context) {
+        return build(context, context);
+    }
+
+    public abstract Object build(DocumentContext context, DocumentContext rootContext);
+
+    public void write(DocumentContext context, JsonSink sink) throws IOException {
+        write(context, context, sink);
+    }
+
+    public void write(DocumentContext context, DocumentContext rootContext, JsonSink sink) throws IOException {
+        sink.value(build(context, rootContext));
+    }
+
+    public void collectJsonPaths(Collection<String> paths) {
+        collectJsonPaths(paths, true);
+    }
+
+    protected abstract void collectJsonPaths(Collection<String> paths, boolean isRootContext);
+
+}
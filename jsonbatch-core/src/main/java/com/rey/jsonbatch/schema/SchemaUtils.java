@@ -0,0 +1,24 @@
+package com.rey.jsonbatch.schema;
+
+import java.util.Collection;
+import java.util.Collections;
+
+@SuppressWarnings("unchecked")
+class SchemaUtils {
+
+    static Object toSingleObject(Object value) {
+        if (value instanceof Collection) {
+            Collection list = (Collection) value;
+            return list.isEmpty() ? null : list.iterator().next();
+        }
+        return value;
+    }
+
+    static Collection<Object> toObjectList(Object value) {
+        if (!(value instanceof Collection)) {
+            return Collections.singletonList(value);
+        }
+        return (Collection) value;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class StringSchema extends Schema {
+
+    private final List<Object> parts;
+    private final String constant;
+
+    private StringSchema(List<Object> parts) {
+        this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+        if (parts.isEmpty())
+            this.constant = "";
+        else if (parts.size() == 1 && parts.get(0) instanceof String)
+            this.constant = (String) parts.get(0);
+        else
+            this.constant = null;
+    }
+
+    public List<Object> getParts() {
+        return parts;
+    }
+
+    @Override
+    public String build(DocumentContext context, DocumentContext rootContext) {
+        if (constant != null)
+            return constant;
+        StringBuilder builder = new StringBuilder();
+        for (Object part : parts) {
+            if (part instanceof Schema)
+                builder.append(((Schema) part).build(context, rootContext));
+            else
+                builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+        for (Object part : parts) {
+            if (part instanceof Schema)
+                ((Schema) part).collectJsonPaths(paths, isRootContext);
+        }
+    }
+
+    public static StringSchema of(List<Object> parts) {
+        return new StringSchema(parts);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.rey.jsonbatch.schema;
+
+import com.jayway.jsonpath.DocumentContext;
+
+import java.util.Collection;
+
+public class ValueSchema extends Schema {
+
+    private static final ValueSchema NULL = new ValueSchema(null);
+
+    private final Object value;
+
+    private ValueSchema(Object value) {
+        this.value = value;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    protected void collectJsonPaths(Collection<String> paths, boolean isRootContext) {
+    }
+
+    @Override
+    public Object build(DocumentContext context, DocumentContext rootContext) {
+        return value;
+    }
+
+    public static ValueSchema of(Object value) {
+        return value == null ? NULL : new ValueSchema(value);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.rey.jsonbatch.sink;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+
+public class JsonGeneratorSink implements JsonSink {
+
+    private final JsonGenerator generator;
+
+    public JsonGeneratorSink(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        generator.writeStartObject();
+    }
+
+    @Override
+    public void name(String name) throws IOException {
+        generator.writeFieldName(name);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        generator.writeEndArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void value(Object value) throws IOException {
+        if (value == null)
+            generator.writeNull();
+        else if (value instanceof String)
+            generator.writeString((String) value);
+        else if (value instanceof Boolean)
+            generator.writeBoolean((Boolean) value);
+        else if (value instanceof Integer)
+            generator.writeNumber((Integer) value);
+        else if (value instanceof Long)
+            generator.writeNumber((Long) value);
+        else if (value instanceof BigDecimal)
+            generator.writeNumber((BigDecimal) value);
+        else if (value instanceof BigInteger)
+            generator.writeNumber((BigInteger) value);
+        else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object item : (Collection<Object>) value)
+                value(item);
+            generator.writeEndArray();
+        } else
+            generator.writeObject(value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+}
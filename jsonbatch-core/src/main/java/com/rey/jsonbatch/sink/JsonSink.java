@@ -0,0 +1,21 @@
+package com.rey.jsonbatch.sink;
+
+import java.io.IOException;
+
+public interface JsonSink {
+
+    void beginObject() throws IOException;
+
+    void name(String name) throws IOException;
+
+    void endObject() throws IOException;
+
+    void beginArray() throws IOException;
+
+    void endArray() throws IOException;
+
+    void value(Object value) throws IOException;
+
+    void flush() throws IOException;
+
+}
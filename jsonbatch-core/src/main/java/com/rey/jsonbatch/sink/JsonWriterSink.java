@@ -0,0 +1,173 @@
+package com.rey.jsonbatch.sink;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class JsonWriterSink implements JsonSink {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+    private final JsonProvider jsonProvider;
+
+    private boolean[] hasValue = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriterSink(OutputStream outputStream, JsonProvider jsonProvider) {
+        this(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)), jsonProvider);
+    }
+
+    public JsonWriterSink(Writer writer, JsonProvider jsonProvider) {
+        this.writer = writer;
+        this.jsonProvider = jsonProvider;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        push();
+    }
+
+    @Override
+    public void name(String name) throws IOException {
+        if (depth == 0 || afterName)
+            throw new IllegalStateException("Property name must be inside an object");
+        if (hasValue[depth])
+            writer.write(',');
+        hasValue[depth] = true;
+        writeString(name);
+        writer.write(':');
+        afterName = true;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        pop();
+        writer.write('}');
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        push();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        pop();
+        writer.write(']');
+    }
+
+    @Override
+    public void value(Object value) throws IOException {
+        if (value != null && jsonProvider.isMap(value)) {
+            beginObject();
+            for (String key : jsonProvider.getPropertyKeys(value)) {
+                name(key);
+                value(jsonProvider.getMapValue(value, key));
+            }
+            endObject();
+        } else if (value != null && jsonProvider.isArray(value)) {
+            beginArray();
+            for (Object item : jsonProvider.toIterable(value))
+                value(item);
+            endArray();
+        } else {
+            beforeValue();
+            if (value == null)
+                writer.write("null");
+            else if (value instanceof String)
+                writeString((String) value);
+            else if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+                    || value instanceof BigDecimal || value instanceof BigInteger)
+                writer.write(value.toString());
+            else
+                writer.write(jsonProvider.toJson(value));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasValue[depth])
+                writer.write(',');
+            hasValue[depth] = true;
+        }
+    }
+
+    private void push() {
+        depth++;
+        if (depth == hasValue.length)
+            hasValue = Arrays.copyOf(hasValue, hasValue.length * 2);
+        hasValue[depth] = false;
+    }
+
+    private void pop() {
+        if (depth == 0 || afterName)
+            throw new IllegalStateException("No open object or array to close");
+        depth--;
+    }
+
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\')
+                continue;
+            writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                case '\b':
+                    writer.write("\\b");
+                    break;
+                case '\f':
+                    writer.write("\\f");
+                    break;
+                default:
+                    writer.write("\\u00");
+                    writer.write(HEX[c >> 4]);
+                    writer.write(HEX[c & 0xF]);
+            }
+        }
+        writer.write(value, start, length - start);
+        writer.write('"');
+    }
+
+}
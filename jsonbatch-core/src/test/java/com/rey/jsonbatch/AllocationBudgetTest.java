@@ -0,0 +1,147 @@
+package com.rey.jsonbatch;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.schema.Schema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class AllocationBudgetTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURE_ITERATIONS = 2_000;
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    private Level rootLevel;
+
+    private JsonBuilder jsonBuilder;
+
+    private DocumentContext documentContext;
+
+    @Before
+    public void setUp() throws Exception {
+        // the budgets count on escape analysis, so they only hold when the JIT compiles normally
+        assumeTrue(ManagementFactory.getCompilationMXBean() != null);
+        assumeTrue(!ManagementFactory.getRuntimeMXBean().getInputArguments().contains("-Xint"));
+
+        Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLevel = root.getLevel();
+        root.setLevel(Level.WARN);
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Configuration conf = Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build();
+        jsonBuilder = new JsonBuilder(Functions.basic());
+        documentContext = JsonPath.using(conf).parse(objectMapper.writeValueAsString(buildData()));
+    }
+
+    @After
+    public void tearDown() {
+        if (rootLevel != null)
+            ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(rootLevel);
+    }
+
+    @Test
+    public void build__constant() {
+        checkBudget("str Hello world", 64);
+        checkBudget(Arrays.asList(1, true, "str a"), 200);
+    }
+
+    @Test
+    public void build__jsonPath() {
+        checkBudget("$.name", 64);
+        checkBudget("int $.id", 64);
+        checkBudget("int[] $.items[*].id", 3_500);
+    }
+
+    @Test
+    public void build__inlineVariable() {
+        checkBudget("str Hello @{$.name}@", 256);
+        checkBudget("$.items[@{$.index}@].name", 1_800);
+    }
+
+    @Test
+    public void build__function() {
+        checkBudget("int __sum(\"$.items[*].id\")", 4_500);
+        checkBudget("num __max(\"$.items[*].price\")", 4_500);
+        checkBudget("bool __cmp(\"@{$.id}@ > 1\")", 2_200);
+        checkBudget("int __sum(__max(\"$.items[*].id\"), __min(\"$.items[*].id\"), 10)", 8_500);
+    }
+
+    @Test
+    public void build__object() {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("id", "int $.id");
+        schema.put("label", "str @{$.name}@ (@{$.id}@)");
+        schema.put("total", "num __sum(\"$.items[*].price\")");
+        checkBudget(schema, 5_500);
+    }
+
+    @Test
+    public void build__array() {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("__array_schema", "$.items");
+        item.put("key", "int $.id");
+        item.put("label", "str item @{$.name}@");
+        checkBudget(Arrays.asList(item), 4_000);
+    }
+
+    private void checkBudget(Object schema, long budget) {
+        Schema compiledSchema = jsonBuilder.compile(schema);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            jsonBuilder.build(compiledSchema, documentContext);
+        long threadId = Thread.currentThread().getId();
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURE_ITERATIONS; i++)
+            jsonBuilder.build(compiledSchema, documentContext);
+        long allocated = (threadMXBean.getThreadAllocatedBytes(threadId) - start) / MEASURE_ITERATIONS;
+        assertTrue("Allocated " + allocated + " bytes per build of " + schema + ", budget is " + budget, allocated <= budget);
+    }
+
+    private Map<String, Object> buildData() {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", i);
+            item.put("name", "item " + i);
+            item.put("price", i + 0.5);
+            items.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", 7);
+        data.put("name", "John");
+        data.put("index", 2);
+        data.put("items", items);
+        return data;
+    }
+
+}
@@ -9,16 +9,35 @@ import com.jayway.jsonpath.spi.json.JsonProvider
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
 import com.rey.jsonbatch.TestUtils.assertArray
 import com.rey.jsonbatch.function.Functions
+import com.rey.jsonbatch.model.BatchResult
 import com.rey.jsonbatch.model.BatchTemplate
 import com.rey.jsonbatch.model.DispatchOptions
 import com.rey.jsonbatch.model.Request
 import com.rey.jsonbatch.model.Response
+import com.rey.jsonbatch.plan.BatchPlan
+import com.rey.jsonbatch.plan.RequestPlan
+import com.rey.jsonbatch.projection.ProjectingJsonReader
+import com.rey.jsonbatch.projection.Projection
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
 import org.junit.Before
 import org.junit.Test
 import org.mockito.ArgumentMatchers.any
+import org.mockito.Mockito.doAnswer
 import org.mockito.Mockito.doReturn
+import org.mockito.Mockito.doThrow
 import org.mockito.Mockito.mock
+import java.io.ByteArrayOutputStream
+import java.io.StringReader
+import java.lang.ref.WeakReference
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
 
 class BatchEngineTest {
 
@@ -321,6 +340,908 @@ class BatchEngineTest {
         assertEquals(2, context.read("$.responses[0].body.key", Int::class.java))
     }
 
+    @Test
+    fun execute__withCompiledTemplate() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/@{$.original.body.id}@",
+                        "body": {}
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "id": "$.original.body.id",
+                            "key": "$.responses[0].body.key"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+        val response = """
+            {
+                "status": 200,
+                "headers": {},
+                "body": {
+                    "key": "a"
+                }
+            }
+        """.toObj(Response::class.java)
+
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+        val plan = TemplateCompiler(JsonBuilder(*Functions.basic())).compile(template)
+        for (id in 1..3) {
+            val originalRequest = Request()
+            originalRequest.body = mapOf("id" to id)
+            val finalResponse = batchEngine.execute(originalRequest, plan)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertEquals(id, context.read("$.id", Int::class.java))
+            assertEquals("a", context.read("$.key", String::class.java))
+        }
+        assertEquals(null, template.dispatchOptions)
+        assertEquals(null, template.loopOptions)
+    }
+
+    @Test
+    fun execute__withExecutor__independentRequests() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/1/@{$.original.body.id}@",
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://test.com/2/@{$.original.body.id}@",
+                                "requests": [
+                                    {
+                                        "predicate": "__cmp(\"@{$.original.body.id}@ == 5\")",
+                                        "http_method": "GET",
+                                        "url": "https://test.com/3/@{$.original.body.id}@"
+                                    }
+                                ]
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val latch = CountDownLatch(3)
+        doAnswer { invocation ->
+            latch.countDown()
+            val request = invocation.getArgument<Request>(0)
+            val response = Response()
+            response.status = if (latch.await(5, TimeUnit.SECONDS)) 200 else 500
+            response.body = mapOf("url" to request.url)
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            val originalRequest = Request()
+            originalRequest.body = mapOf("id" to 5)
+            val finalResponse = parallelBatchEngine.execute(originalRequest, template)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertArray(context.read("$.responses[*].status", List::class.java), 200, 200, 200)
+            assertArray(context.read("$.responses[*].body.url", List::class.java),
+                    "https://test.com/1/5", "https://test.com/2/5", "https://test.com/3/5")
+            assertArray(context.read("$.requests[*].url", List::class.java),
+                    "https://test.com/1/5", "https://test.com/2/5", "https://test.com/3/5")
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun execute__withExecutor__cancelSiblingsOnFailure() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/1",
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://test.com/2",
+                                "requests": [
+                                    {
+                                        "http_method": "GET",
+                                        "url": "https://test.com/3"
+                                    }
+                                ]
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val error = IllegalStateException("Cannot connect")
+        val started = CountDownLatch(1)
+        val interrupted = CountDownLatch(1)
+        doAnswer { invocation ->
+            val request = invocation.getArgument<Request>(0)
+            when (request.url) {
+                "https://test.com/2" -> {
+                    started.await(5, TimeUnit.SECONDS)
+                    throw error
+                }
+                "https://test.com/3" -> {
+                    started.countDown()
+                    try {
+                        Thread.sleep(5000)
+                    } catch (ex: InterruptedException) {
+                        interrupted.countDown()
+                    }
+                }
+                else -> interrupted.await(5, TimeUnit.SECONDS)
+            }
+            Response()
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            try {
+                parallelBatchEngine.execute(Request(), template)
+                fail("Expect exception")
+            } catch (ex: IllegalStateException) {
+                assertEquals(error, ex)
+            }
+            assertTrue(interrupted.await(0, TimeUnit.SECONDS))
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun execute__withParallelLoop() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/total",
+                        "requests": [
+                            {
+                                "loop": {
+                                    "counter_init": 1,
+                                    "counter_predicate": "__cmp(\"@{$.requests[1].counter}@ <= @{$.responses[0].body.total}@\")",
+                                    "counter_update": "int __sum(\"$.requests[1].counter\", 1)",
+                                    "parallelism": 3,
+                                    "requests": [
+                                        {
+                                            "http_method": "GET",
+                                            "url": "https://test.com/page/@{$.requests[1].counter}@",
+                                            "vars": [
+                                                {
+                                                    "vars": {
+                                                        "last_page": "$.requests[1].counter"
+                                                    }
+                                                }
+                                            ]
+                                        }
+                                    ]
+                                }
+                            }
+                        ]
+                    }
+                ],
+                "responses": null,
+                "loop_options": {
+                    "max_loop_time": 7
+                }
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        doAnswer { invocation ->
+            val request = invocation.getArgument<Request>(0)
+            val response = Response()
+            response.status = 200
+            if (request.url == "https://test.com/total") {
+                response.body = mapOf("total" to 10)
+            } else {
+                maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> Math.max(a, b) }
+                val page = request.url.substringAfterLast("/").toInt()
+                Thread.sleep((10 - page) * 5L)
+                active.decrementAndGet()
+                response.body = mapOf("page" to page)
+            }
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val executor = Executors.newFixedThreadPool(8)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            val finalResponse = parallelBatchEngine.execute(Request(), template)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertArray(context.read("$.requests[1].times[*][0].url", List::class.java),
+                    "https://test.com/page/1", "https://test.com/page/2", "https://test.com/page/3", "https://test.com/page/4",
+                    "https://test.com/page/5", "https://test.com/page/6", "https://test.com/page/7")
+            assertArray(context.read("$.responses[1].times[*][0].body.page", List::class.java), 1, 2, 3, 4, 5, 6, 7)
+            assertEquals(8, context.read("$.requests[1].counter", Int::class.java))
+            assertEquals(7, context.read("$.vars.last_page", Int::class.java))
+            assertTrue(maxActive.get() in 2..3)
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun execute__withParallelLoop__dependOnPreviousResponse() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 4\")",
+                            "counter_update": "$.responses[0].times[-1][0].body.next",
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://test.com/@{$.requests[0].counter}@"
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": null,
+                "loop_options": {
+                    "parallelism": 4
+                }
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        doAnswer { invocation ->
+            val request = invocation.getArgument<Request>(0)
+            maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> Math.max(a, b) }
+            Thread.sleep(10)
+            active.decrementAndGet()
+            val response = Response()
+            response.status = 200
+            response.body = mapOf("next" to request.url.substringAfterLast("/").toInt() + 1)
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            val finalResponse = parallelBatchEngine.execute(Request(), template)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertArray(context.read("$.requests[0].times[*][0].url", List::class.java),
+                    "https://test.com/0", "https://test.com/1", "https://test.com/2", "https://test.com/3")
+            assertEquals(1, maxActive.get())
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun execute__withParallelLoop__dependOnVars() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/0",
+                        "vars": [
+                            {
+                                "vars": {
+                                    "next": "$.responses[0].body.next"
+                                }
+                            }
+                        ],
+                        "requests": [
+                            {
+                                "loop": {
+                                    "counter_init": 0,
+                                    "counter_predicate": "__cmp(\"@{$.requests[1].counter}@ < 3\")",
+                                    "counter_update": "int __sum(\"$.requests[1].counter\", 1)",
+                                    "parallelism": 3,
+                                    "requests": [
+                                        {
+                                            "http_method": "GET",
+                                            "url": "https://test.com/@{$.vars.next}@",
+                                            "vars": [
+                                                {
+                                                    "vars": {
+                                                        "next": "$.responses[1].times[-1][0].body.next"
+                                                    }
+                                                }
+                                            ]
+                                        }
+                                    ]
+                                }
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        doAnswer { invocation ->
+            val request = invocation.getArgument<Request>(0)
+            maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> Math.max(a, b) }
+            Thread.sleep(10)
+            active.decrementAndGet()
+            val response = Response()
+            response.status = 200
+            response.body = mapOf("next" to request.url.substringAfterLast("/").toInt() + 1)
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val executor = Executors.newFixedThreadPool(3)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            val finalResponse = parallelBatchEngine.execute(Request(), template)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertArray(context.read("$.requests[1].times[*][0].url", List::class.java),
+                    "https://test.com/1", "https://test.com/2", "https://test.com/3")
+            assertEquals(4, context.read("$.vars.next", Int::class.java))
+            assertEquals(1, maxActive.get())
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun executeAsync__withParallelLoop() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 6\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "parallelism": 2,
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://test.com/@{$.requests[0].counter}@"
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            val active = AtomicInteger()
+            val maxActive = AtomicInteger()
+            val asyncDispatcher = object : AsyncRequestDispatcher {
+                override fun dispatchAsync(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): CompletableFuture<Response> =
+                        CompletableFuture.supplyAsync(Supplier {
+                            maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> Math.max(a, b) }
+                            Thread.sleep(10)
+                            active.decrementAndGet()
+                            val response = Response()
+                            response.status = 200
+                            response.body = mapOf("url" to request.url)
+                            response
+                        }, executor)
+            }
+            val asyncBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+            val finalResponse = asyncBatchEngine.executeAsync(Request(), template).get(5, TimeUnit.SECONDS)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertArray(context.read("$.responses[0].times[*][0].body.url", List::class.java),
+                    "https://test.com/0", "https://test.com/1", "https://test.com/2", "https://test.com/3", "https://test.com/4", "https://test.com/5")
+            assertEquals(6, context.read("$.requests[0].counter", Int::class.java))
+            assertEquals(2, maxActive.get())
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun execute__withExecutor__dependentRequests() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/1",
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://test.com/2/@{$.responses[0].body.id}@"
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        doAnswer {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max)
+            Thread.sleep(50)
+            active.decrementAndGet()
+            val response = Response()
+            response.status = 200
+            response.body = mapOf("id" to 7)
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val executor = Executors.newFixedThreadPool(4)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            val finalResponse = parallelBatchEngine.execute(Request(), template)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertEquals(1, maxActive.get())
+            assertArray(context.read("$.requests[*].url", List::class.java), "https://test.com/1", "https://test.com/2/7")
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun executeAll__withCallback() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/@{$.original.body.id}@"
+                    }
+                ],
+                "responses": [
+                    {
+                        "status": "$.responses[0].status",
+                        "body": {
+                            "id": "$.original.body.id",
+                            "url": "$.responses[0].body.url"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val active = AtomicInteger()
+        val maxActive = AtomicInteger()
+        doAnswer { invocation ->
+            val request = invocation.getArgument<Request>(0)
+            if (request.url == "https://test.com/13")
+                throw IllegalStateException("Cannot connect")
+            maxActive.accumulateAndGet(active.incrementAndGet()) { a, b -> Math.max(a, b) }
+            Thread.sleep(2)
+            active.decrementAndGet()
+            val response = Response()
+            response.status = 200
+            response.body = mapOf("url" to request.url)
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val originalRequests = (0 until 50).map { id ->
+            val request = Request()
+            request.body = mapOf("id" to id)
+            request
+        }
+        val executor = Executors.newFixedThreadPool(8)
+        try {
+            val results = ArrayList<BatchResult>()
+            val statistics = batchEngine.executeAll(originalRequests, template, executor, 4) { results.add(it) }
+
+            assertEquals(50, results.size)
+            assertEquals((0 until 50).toList(), results.map { it.index }.sorted())
+            results.forEach { result ->
+                assertEquals(originalRequests[result.index], result.originalRequest)
+                if (result.index == 13) {
+                    assertEquals(false, result.isSuccess)
+                    assertEquals("Cannot connect", result.exception.message)
+                } else {
+                    val context = JsonPath.using(configuration).parse(result.response.body)
+                    assertEquals(result.index, context.read("$.id", Int::class.java))
+                    assertEquals("https://test.com/${result.index}", context.read("$.url", String::class.java))
+                }
+            }
+            assertTrue(maxActive.get() in 2..4)
+            assertEquals(50, statistics.count)
+            assertEquals(49, statistics.successCount)
+            assertEquals(1, statistics.failureCount)
+            assertTrue(statistics.throughput > 0)
+            assertTrue(statistics.minLatency <= statistics.getLatency(50.0))
+            assertTrue(statistics.getLatency(50.0) <= statistics.getLatency(99.0))
+            assertTrue(statistics.getLatency(99.0) <= statistics.maxLatency)
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun executeAll__withIterator() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/@{$.original.body.id}@"
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val response = Response()
+        response.status = 200
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        var produced = 0
+        val originalRequests = Iterable {
+            generateSequence(0) { it + 1 }.take(20).map { id ->
+                produced++
+                val request = Request()
+                request.body = mapOf("id" to id)
+                request
+            }.iterator()
+        }
+        val executor = Executors.newFixedThreadPool(2)
+        try {
+            batchEngine.executeAll(originalRequests, template, executor, 3).use { results ->
+                val first = results.next()
+                assertTrue(first.isSuccess)
+                assertTrue(produced <= 3)
+                var count = 1
+                while (results.hasNext()) {
+                    results.next()
+                    count++
+                }
+                assertEquals(20, count)
+                assertEquals(20, results.statistics.successCount)
+            }
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun executeAll__withSharedExecutor() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/1/@{$.original.body.id}@",
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://test.com/2/@{$.original.body.id}@",
+                                "requests": [
+                                    {
+                                        "http_method": "GET",
+                                        "url": "https://test.com/3/@{$.original.body.id}@"
+                                    }
+                                ]
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+
+        val response = Response()
+        response.status = 200
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val originalRequests = (0 until 5).map { id ->
+            val request = Request()
+            request.body = mapOf("id" to id)
+            request
+        }
+        // the only thread runs a batch, its queued forks must not wait for it
+        val executor = Executors.newFixedThreadPool(1)
+        try {
+            val parallelBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, executor)
+            val statistics = CompletableFuture.supplyAsync {
+                parallelBatchEngine.executeAll(originalRequests, template, executor, 1).use { results ->
+                    while (results.hasNext())
+                        results.next()
+                    results.statistics
+                }
+            }.get(5, TimeUnit.SECONDS)
+            assertEquals(5, statistics.successCount)
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    fun executeAsync__withLoopRequest() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 5\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "requests": [
+                                {
+                                    "http_method": "POST",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": {}
+                                }
+                            ]
+                        },
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://localhost.com/done"
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val executor = Executors.newSingleThreadExecutor()
+        try {
+            val asyncDispatcher = object : AsyncRequestDispatcher {
+                override fun dispatchAsync(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): CompletableFuture<Response> =
+                        CompletableFuture.supplyAsync(Supplier {
+                            val response = Response()
+                            response.status = 200
+                            response.body = mapOf("url" to request.url, "thread" to Thread.currentThread().name)
+                            response
+                        }, executor)
+            }
+            val asyncBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher)
+            val finalResponse = asyncBatchEngine.executeAsync(Request(), template).get(5, TimeUnit.SECONDS)
+            val context = JsonPath.using(configuration).parse(finalResponse.body)
+            assertEquals(5, context.read("$.responses[0].times.length()", Int::class.java))
+            assertArray(context.read("$.responses[0].times[*][*].body.url", List::class.java),
+                    "https://localhost.com/0", "https://localhost.com/1", "https://localhost.com/2", "https://localhost.com/3", "https://localhost.com/4")
+            assertEquals("https://localhost.com/done", context.read("$.responses[1].body.url", String::class.java))
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun executeAsync__withDispatchError() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com"
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val error = IllegalStateException("Cannot connect")
+        doThrow(error).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val future = batchEngine.executeAsync(Request(), template)
+        try {
+            future.get(5, TimeUnit.SECONDS)
+            fail("Expect exception")
+        } catch (ex: ExecutionException) {
+            assertEquals(error, ex.cause)
+        }
+    }
+
+    @Test
+    fun execute__withProjectingDispatcher() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/users",
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://test.com/users/@{$.responses[0].body.data[0].id}@"
+                            }
+                        ]
+                    }
+                ],
+                "responses": [
+                    {
+                        "status": "$.responses[1].status",
+                        "body": {
+                            "names": "$.responses[0].body.data[*].name"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+        val projections = mutableListOf<Projection>()
+        val projectingDispatcher = object : ProjectingRequestDispatcher {
+            override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): Response =
+                    dispatch(request, jsonProvider, options, Projection.ALL)
+
+            override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions, projection: Projection): Response {
+                projections.add(projection)
+                val json = """{"data": [{"id": 1, "name": "a", "email": "a@test.com"}, {"id": 2, "name": "b", "email": "b@test.com"}], "total": 2}"""
+                val response = Response()
+                response.status = 200
+                if (!projection.isNone)
+                    response.body = ProjectingJsonReader.read(StringReader(json), projection, jsonProvider)
+                return response
+            }
+        }
+
+        val projectingBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), projectingDispatcher)
+        val finalResponse = projectingBatchEngine.execute(Request(), template)
+        val context = JsonPath.using(configuration).parse(finalResponse.body)
+        assertEquals(200, finalResponse.status)
+        assertArray(context.read("$.names", List::class.java), "a", "b")
+        assertEquals(2, projections.size)
+        assertTrue(projections[0].getElements().getProperty("email").isNone)
+        assertTrue(projections[1].isNone)
+    }
+
+    @Test
+    fun execute__withOutputStream() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/users"
+                    }
+                ],
+                "responses": [
+                    {
+                        "status": "$.responses[0].status",
+                        "headers": {
+                            "total": "$.responses[0].body.total"
+                        },
+                        "body": {
+                            "users": [
+                                {
+                                    "id": "int $.id",
+                                    "name": "$.name",
+                                    "__array_schema": "$.responses[0].body.data[*]"
+                                }
+                            ],
+                            "first": "$.responses[0].body.data[0]",
+                            "total": "$.responses[0].body.total"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java)
+        val response = """
+            {
+                "status": 201,
+                "headers": {},
+                "body": {
+                    "data": [
+                        { "id": "1", "name": "a" },
+                        { "id": "2", "name": "b" }
+                    ],
+                    "total": 2
+                }
+            }
+        """.toObj(Response::class.java)
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val outputStream = ByteArrayOutputStream()
+        val finalResponse = batchEngine.execute(Request(), template, outputStream)
+        assertEquals(201, finalResponse.status)
+        assertEquals(listOf("2"), finalResponse.headers["total"])
+        assertEquals(null, finalResponse.body)
+        assertEquals(objectMapper.writeValueAsString(batchEngine.execute(Request(), template).body), outputStream.toString("UTF-8"))
+    }
+
+    @Test
+    fun execute__withOutputStreamAndNoResponse() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com"
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val response = """
+            {
+                "status": 200,
+                "headers": {},
+                "body": { "key": "value" }
+            }
+        """.toObj(Response::class.java)
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val outputStream = ByteArrayOutputStream()
+        batchEngine.execute(Request(), template, outputStream)
+        val context = JsonPath.using(configuration).parse(outputStream.toString("UTF-8"))
+        assertEquals("value", context.read("$.responses[0].body.key", String::class.java))
+        assertEquals("https://test.com", context.read("$.requests[0].url", String::class.java))
+    }
+
+    @Test
+    fun execute__withPruneUnused() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 30\")",
+                            "counter_update": "$.responses[0].times[-1][0].body.next",
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://localhost.com/pages/@{$.requests[0].counter}@"
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "count": "$.responses[0].times.length()",
+                            "last": "$.responses[0].times[-1][0].body.page"
+                        }
+                    }
+                ],
+                "loop_options": {
+                    "max_loop_time": 100
+                },
+                "context_options": {
+                    "prune_unused": true
+                }
+            }
+        """.toObj(BatchTemplate::class.java)
+        val pages = mutableListOf<WeakReference<Any>>()
+        var firstPagePruned = false
+        doAnswer { invocation ->
+            val request = invocation.getArgument<Request>(0)
+            val page = request.url.substringAfterLast('/').toInt()
+            if (page == 29) {
+                for (i in 0 until 10) {
+                    System.gc()
+                    if (pages[0].get() == null)
+                        break
+                }
+                firstPagePruned = pages[0].get() == null
+            }
+            val response = Response()
+            response.status = 200
+            response.headers = mutableMapOf()
+            response.body = mutableMapOf("page" to page, "next" to page + 1, "data" to ByteArray(1024).toList())
+            pages.add(WeakReference(response.body))
+            response
+        }.`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val finalResponse = batchEngine.execute(Request(), template)
+        val context = JsonPath.using(configuration).parse(finalResponse.body)
+        assertEquals(30, context.read("$.count", Int::class.java))
+        assertEquals(29, context.read("$.last", Int::class.java))
+        assertTrue(firstPagePruned)
+    }
+
     @Test
     fun execute__withVar() {
         val template = """
@@ -498,5 +1419,319 @@ class BatchEngineTest {
         println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(finalResponse))
     }
 
+    @Test
+    fun execute__concurrentlyWithSharedTemplate() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com/users/@{$.original.body.id}@",
+                        "requests": [
+                            {
+                                "http_method": "POST",
+                                "url": "https://localhost.com/orders",
+                                "body": {
+                                    "user_id": "$.responses[0].body.id",
+                                    "items": "$.original.body.items"
+                                }
+                            }
+                        ]
+                    }
+                ],
+                "responses": [
+                    {
+                        "body": {
+                            "user": "$.responses[0].body.id",
+                            "order": "$.responses[1].body.user_id",
+                            "count": "__sum(\"$.responses[1].body.items[*]\")"
+                        }
+                    }
+                ]
+            }
+        """.toObj(BatchTemplate::class.java).freeze()
+        val dispatcher = object : RequestDispatcher {
+            override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): Response {
+                val response = Response()
+                response.status = 200
+                response.headers = mutableMapOf()
+                response.body = if (request.httpMethod == "GET")
+                    mutableMapOf("id" to request.url.substringAfterLast('/').toInt())
+                else
+                    request.body
+                return response
+            }
+        }
+        val engine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+        val plan = TemplateCompiler(JsonBuilder(*Functions.basic())).compile(template)
+        val threads = 8
+        val iterations = 200
+        val executor = Executors.newFixedThreadPool(threads)
+        val start = CountDownLatch(1)
+        val failures = AtomicInteger()
+        try {
+            val futures = (0 until threads).map { thread ->
+                executor.submit {
+                    start.await()
+                    for (i in 0 until iterations) {
+                        val id = thread * iterations + i
+                        val request = Request()
+                        request.body = mutableMapOf("id" to id, "items" to listOf(id, 1, 2))
+                        val finalResponse = if (i % 2 == 0) engine.execute(request, plan) else engine.execute(request, template)
+                        val context = JsonPath.using(configuration).parse(finalResponse.body)
+                        if (context.read("$.user", Int::class.java) != id
+                                || context.read("$.order", Int::class.java) != id
+                                || context.read("$.count", Int::class.java) != id + 3)
+                            failures.incrementAndGet()
+                    }
+                }
+            }
+            start.countDown()
+            futures.forEach { it.get(30, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+        assertEquals(0, failures.get())
+    }
+
+    @Test
+    fun freeze__rejectModification() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://localhost.com",
+                        "headers": {
+                            "Accept": "application/json"
+                        }
+                    }
+                ],
+                "dispatch_options": {
+                    "fail_back_as_string": true
+                }
+            }
+        """.toObj(BatchTemplate::class.java).freeze()
+        try {
+            template.requests[0].url = "https://other.com"
+            fail()
+        } catch (e: IllegalStateException) {
+        }
+        try {
+            template.dispatchOptions.failBackAsString = false
+            fail()
+        } catch (e: IllegalStateException) {
+        }
+        try {
+            template.requests.add(template.requests[0])
+            fail()
+        } catch (e: UnsupportedOperationException) {
+        }
+        try {
+            @Suppress("UNCHECKED_CAST")
+            (template.requests[0].headers as MutableMap<String, Any>)["Accept"] = "text/plain"
+            fail()
+        } catch (e: UnsupportedOperationException) {
+        }
+    }
+
+    @Test
+    fun execute__withEventListener() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com/users",
+                        "transformers": [
+                            {
+                                "body": {
+                                    "id": "$.body.key_2"
+                                }
+                            }
+                        ],
+                        "vars": [
+                            {
+                                "vars": {
+                                    "id": "$.responses[0].body.id"
+                                }
+                            }
+                        ],
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://test.com/users/@{$.vars.id}@",
+                                "responses": [
+                                    {
+                                        "status": 202,
+                                        "body": "$.vars"
+                                    }
+                                ]
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val response = """
+            {
+                "status": 200,
+                "headers": {},
+                "body": {
+                    "key_1": "a",
+                    "key_2": "2"
+                }
+            }
+        """.toObj(Response::class.java)
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val listener = RecordingEventListener()
+        val listenedBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, null, listener)
+        val finalResponse = listenedBatchEngine.execute(Request(), template)
+        listenedBatchEngine.execute(Request(), template)
+
+        assertEquals(202, finalResponse.status)
+        assertEquals(listOf(
+                "batchStart 1",
+                "stepSelected 1 requests[0] 0",
+                "requestBuilt 1 requests[0] https://test.com/users",
+                "dispatchStart 1 requests[0] https://test.com/users",
+                "dispatchEnd 1 requests[0] 200",
+                "transform 1 requests[0]",
+                "varsProcessed 1 requests[0]",
+                "stepSelected 1 requests[0].requests[0] 1",
+                "requestBuilt 1 requests[0].requests[0] https://test.com/users/2",
+                "dispatchStart 1 requests[0].requests[0] https://test.com/users/2",
+                "dispatchEnd 1 requests[0].requests[0] 200",
+                "breakResponse 1 requests[0].requests[0] 202",
+                "batchEnd 1 202"), listener.events.subList(0, 13))
+        assertEquals("batchStart 2", listener.events[13])
+        assertEquals(26, listener.events.size)
+        assertTrue(listener.timestamps.zipWithNext().all { it.first <= it.second })
+    }
+
+    @Test
+    fun executeAsync__withEventListener() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://test.com"
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val error = IllegalStateException("Cannot connect")
+        val asyncDispatcher = object : AsyncRequestDispatcher {
+            override fun dispatchAsync(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): CompletableFuture<Response> {
+                val future = CompletableFuture<Response>()
+                future.completeExceptionally(error)
+                return future
+            }
+        }
+
+        val listener = RecordingEventListener()
+        val listenedBatchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), asyncDispatcher, null, listener)
+        try {
+            listenedBatchEngine.executeAsync(Request(), template).get(5, TimeUnit.SECONDS)
+            fail("Expect exception")
+        } catch (ex: ExecutionException) {
+            assertEquals(error, ex.cause)
+        }
+        assertEquals(listOf(
+                "batchStart 1",
+                "stepSelected 1 requests[0] 0",
+                "requestBuilt 1 requests[0] https://test.com",
+                "dispatchStart 1 requests[0] https://test.com",
+                "dispatchEnd 1 requests[0] Cannot connect",
+                "batchEnd 1 Cannot connect"), listener.events)
+    }
+
+    @Test
+    fun execute__withEventListenerAndLoop() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "loop": {
+                            "counter_init": 0,
+                            "counter_predicate": "__cmp(\"@{$.requests[0].counter}@ < 5\")",
+                            "counter_update": "$.requests[0].times.length()",
+                            "requests": [
+                                {
+                                    "http_method": "POST",
+                                    "url": "https://localhost.com/@{$.requests[0].counter}@",
+                                    "body": {}
+                                }
+                            ]
+                        }
+                    }
+                ],
+                "responses": null
+            }
+        """.toObj(BatchTemplate::class.java)
+        val response = """
+            {
+                "status": 200,
+                "headers": {},
+                "body": {}
+            }
+        """.toObj(Response::class.java)
+        doReturn(response).`when`(requestDispatcherMock).dispatch(any(Request::class.java), any(JsonProvider::class.java), any(DispatchOptions::class.java))
+
+        val listener = RecordingEventListener()
+        BatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcherMock, null, listener).execute(Request(), template)
+
+        assertEquals(5, listener.events.count { it == "dispatchEnd 1 requests[0].loop.requests[0] 200" })
+        assertEquals("loopEnd 1 requests[0] 5", listener.events[listener.events.size - 2])
+    }
+
+    class RecordingEventListener : BatchEventListener {
+
+        val events = mutableListOf<String>()
+
+        val timestamps = mutableListOf<Long>()
+
+        @Synchronized
+        private fun record(event: String, nanoTime: Long) {
+            events.add(event)
+            timestamps.add(nanoTime)
+        }
+
+        override fun onBatchStart(batchId: Long, originalRequest: Request, template: BatchPlan, nanoTime: Long) =
+                record("batchStart $batchId", nanoTime)
+
+        override fun onBatchEnd(batchId: Long, originalRequest: Request, template: BatchPlan, response: Response?, error: Throwable?, startNanoTime: Long, endNanoTime: Long) =
+                record("batchEnd $batchId ${response?.status ?: error?.message}", endNanoTime)
+
+        override fun onStepSelected(batchId: Long, requestTemplate: RequestPlan, index: Int, nanoTime: Long) =
+                record("stepSelected $batchId ${requestTemplate.id} $index", nanoTime)
+
+        override fun onRequestBuilt(batchId: Long, requestTemplate: RequestPlan, request: Request, startNanoTime: Long, endNanoTime: Long) =
+                record("requestBuilt $batchId ${requestTemplate.id} ${request.url}", endNanoTime)
+
+        override fun onDispatchStart(batchId: Long, requestTemplate: RequestPlan, request: Request, nanoTime: Long) =
+                record("dispatchStart $batchId ${requestTemplate.id} ${request.url}", nanoTime)
+
+        override fun onDispatchEnd(batchId: Long, requestTemplate: RequestPlan, request: Request, response: Response?, error: Throwable?, startNanoTime: Long, endNanoTime: Long) =
+                record("dispatchEnd $batchId ${requestTemplate.id} ${response?.status ?: error?.message}", endNanoTime)
+
+        override fun onLoopEnd(batchId: Long, requestTemplate: RequestPlan, iterations: Int, startNanoTime: Long, endNanoTime: Long) =
+                record("loopEnd $batchId ${requestTemplate.id} $iterations", endNanoTime)
+
+        override fun onTransform(batchId: Long, requestTemplate: RequestPlan, response: Response, startNanoTime: Long, endNanoTime: Long) =
+                record("transform $batchId ${requestTemplate.id}", endNanoTime)
+
+        override fun onVarsProcessed(batchId: Long, requestTemplate: RequestPlan, startNanoTime: Long, endNanoTime: Long) =
+                record("varsProcessed $batchId ${requestTemplate.id}", endNanoTime)
+
+        override fun onBreakResponse(batchId: Long, requestTemplate: RequestPlan, response: Response, nanoTime: Long) =
+                record("breakResponse $batchId ${requestTemplate.id} ${response.status}", nanoTime)
+
+    }
+
     fun <T> String.toObj(cl: Class<T>): T = objectMapper.readValue(this, cl)
 }
\ No newline at end of file
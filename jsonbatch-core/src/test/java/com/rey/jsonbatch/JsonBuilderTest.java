@@ -4,16 +4,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.PathNotFoundException;
 import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import com.rey.jsonbatch.function.AndFunction;
 import com.rey.jsonbatch.function.AverageFunction;
 import com.rey.jsonbatch.function.CompareFunction;
+import com.rey.jsonbatch.function.Function;
 import com.rey.jsonbatch.function.MaxFunction;
 import com.rey.jsonbatch.function.MinFunction;
 import com.rey.jsonbatch.function.OrFunction;
 import com.rey.jsonbatch.function.RegexFunction;
 import com.rey.jsonbatch.function.SumFunction;
+import com.rey.jsonbatch.schema.Schema;
+import com.rey.jsonbatch.sink.JsonSink;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.LoggerFactory;
@@ -22,7 +27,9 @@ import ch.qos.logback.classic.Logger;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +37,8 @@ import java.util.Map;
 
 import static com.rey.jsonbatch.TestUtils.assertArray;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 public class JsonBuilderTest {
 
@@ -66,6 +75,25 @@ public class JsonBuilderTest {
         assertEquals("str1", result);
     }
 
+    @Test
+    public void buildNode__directPath__missingProperty() {
+        try {
+            jsonBuilder.build("$[0].missing", documentContext);
+            fail();
+        } catch (PathNotFoundException e) {
+        }
+        DocumentContext context = JsonPath.using(documentContext.configuration().addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL))
+                .parse((Object) documentContext.json());
+        assertNull(jsonBuilder.build("$[0].missing", context));
+    }
+
+    @Test
+    public void buildNode__directPath__alwaysReturnList() {
+        DocumentContext context = JsonPath.using(documentContext.configuration().addOptions(Option.ALWAYS_RETURN_LIST))
+                .parse((Object) documentContext.json());
+        assertEquals(Collections.singletonList("str1"), jsonBuilder.build("$[0].first", context));
+    }
+
     @Test
     public void buildNode__stringType__diffValueType() {
         String schema = "str $[1].third";
@@ -447,6 +475,97 @@ public class JsonBuilderTest {
         assertEquals("str1", result.get(1).get("second"));
     }
 
+    @Test
+    public void writeArray__withObjectSchema__writeItemsOneByOne() throws Exception {
+        List<String> events = new ArrayList<>();
+        JsonBuilder recordingBuilder = new JsonBuilder(new Function() {
+            @Override
+            public String getName() {
+                return "record";
+            }
+
+            @Override
+            public boolean isReduceFunction() {
+                return false;
+            }
+
+            @Override
+            public Object invoke(JsonBuilder.Type type, List<Object> arguments) {
+                events.add("build " + arguments.get(0));
+                return arguments.get(0);
+            }
+        });
+        Map<String, Object> childSchema = new HashMap<>();
+        childSchema.put("first", "str __record(\"$.first\")");
+        childSchema.put("__array_schema", "$[?(@.fourth == false)]");
+
+        recordingBuilder.write(Collections.singletonList(childSchema), documentContext, new RecordingSink(events));
+
+        assertEquals(Arrays.asList("beginArray",
+                "beginObject", "name first", "build str2", "value str2", "endObject",
+                "beginObject", "name first", "build str5", "value str5", "endObject",
+                "endArray"), events);
+    }
+
+    @Test
+    public void compile__reuseSchema() {
+        Schema schema = jsonBuilder.compile("str asd @{$[0].first}@ qwe @{int __sum(\"$[*].second\", 1)}@ zxc");
+        assertEquals("asd str1 qwe 11 zxc", jsonBuilder.build(schema, documentContext));
+        assertEquals("asd str1 qwe 11 zxc", schema.build(documentContext));
+    }
+
+    @Test
+    public void compile__rawString__withoutVariable() {
+        Schema schema = jsonBuilder.compile("abc \\@{ qwe");
+        assertEquals("abc @{ qwe", schema.build(documentContext));
+    }
+
+    private static class RecordingSink implements JsonSink {
+
+        private final List<String> events;
+
+        RecordingSink(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void beginObject() {
+            events.add("beginObject");
+        }
+
+        @Override
+        public void name(String name) {
+            events.add("name " + name);
+        }
+
+        @Override
+        public void endObject() {
+            events.add("endObject");
+        }
+
+        @Override
+        public void beginArray() {
+            events.add("beginArray");
+        }
+
+        @Override
+        public void endArray() {
+            events.add("endArray");
+        }
+
+        @Override
+        public void value(Object value) {
+            if (value instanceof Collection || value instanceof Map)
+                fail("Container written as a single value: " + value);
+            events.add("value " + value);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+    }
+
     private List<Data> buildData() {
         return Arrays.asList(
                 new Data("str1", 1L, 1.5, true, 2),
@@ -0,0 +1,118 @@
+package com.rey.jsonbatch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.Liveness;
+import com.rey.jsonbatch.plan.LoopPlan;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LivenessAnalyzerTest {
+
+    private ObjectMapper objectMapper;
+
+    private TemplateCompiler templateCompiler;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        templateCompiler = new TemplateCompiler(new JsonBuilder(Functions.basic()));
+    }
+
+    @Test
+    public void analyze__withChain() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/token\"," +
+                "  \"requests\": [{" +
+                "    \"http_method\": \"GET\"," +
+                "    \"url\": \"https://test.com/users?token=@{$.responses[0].body.token}@\"," +
+                "    \"requests\": [{" +
+                "      \"http_method\": \"GET\"," +
+                "      \"url\": \"https://test.com/users/@{$.responses[1].body[0].id}@?token=@{$.responses[0].body.token}@\"" +
+                "    }]" +
+                "  }]" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"body\": \"$.responses[2].body\"" +
+                "}]," +
+                "\"context_options\": {\"prune_unused\": true}" +
+                "}");
+        Liveness liveness = plan.getLiveness();
+        assertEquals(2, liveness.getLastUse(0));
+        assertEquals(2, liveness.getLastUse(1));
+        assertEquals(Liveness.FOREVER, liveness.getLastUse(2));
+    }
+
+    @Test
+    public void analyze__withLoop() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"loop\": {" +
+                "    \"counter_init\": 0," +
+                "    \"counter_predicate\": \"__or(\\\"@{$.requests[0].counter}@ == 0\\\", \\\"$.responses[0].times[-1][0].body.has_more\\\")\"," +
+                "    \"counter_update\": \"$.requests[0].times.length()\"," +
+                "    \"requests\": [{" +
+                "      \"http_method\": \"GET\"," +
+                "      \"url\": \"https://test.com/users?page=@{$.requests[0].counter}@\"" +
+                "    }]" +
+                "  }" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"body\": \"$.responses[0].times.length()\"" +
+                "}]," +
+                "\"context_options\": {\"prune_unused\": true}" +
+                "}");
+        LoopPlan loop = plan.getRequests().get(0).getLoop();
+        assertEquals(2, plan.getLiveness().getRetainedIterations(loop));
+    }
+
+    @Test
+    public void analyze__withAllIterations() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"loop\": {" +
+                "    \"counter_init\": 0," +
+                "    \"counter_predicate\": \"__cmp(\\\"@{$.requests[0].counter}@ < 5\\\")\"," +
+                "    \"counter_update\": \"$.requests[0].times.length()\"," +
+                "    \"requests\": [{" +
+                "      \"http_method\": \"GET\"," +
+                "      \"url\": \"https://test.com/users?page=@{$.requests[0].counter}@\"" +
+                "    }]" +
+                "  }" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"body\": \"$.responses[0].times[*][0].body\"" +
+                "}]," +
+                "\"context_options\": {\"prune_unused\": true}" +
+                "}");
+        LoopPlan loop = plan.getRequests().get(0).getLoop();
+        assertEquals(Liveness.ALL_ITERATIONS, plan.getLiveness().getRetainedIterations(loop));
+        assertEquals(Liveness.FOREVER, plan.getLiveness().getLastUse(0));
+    }
+
+    @Test
+    public void analyze__withoutFinalResponse() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/users\"" +
+                "}]," +
+                "\"responses\": null," +
+                "\"context_options\": {\"prune_unused\": true}" +
+                "}");
+        assertNull(plan.getLiveness());
+    }
+
+    private BatchPlan compile(String template) throws Exception {
+        return templateCompiler.compile(objectMapper.readValue(template, BatchTemplate.class));
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class CachingRequestDispatcherTest {
+
+    private RequestDispatcher requestDispatcherMock;
+
+    private JsonProvider jsonProvider;
+
+    private MutableClock clock;
+
+    private List<Runnable> tasks;
+
+    private CachingRequestDispatcher requestDispatcher;
+
+    @Before
+    public void setUp() {
+        requestDispatcherMock = mock(RequestDispatcher.class);
+        jsonProvider = new JacksonJsonProvider(new ObjectMapper());
+        clock = new MutableClock();
+        tasks = new ArrayList<>();
+        requestDispatcher = new CachingRequestDispatcher(requestDispatcherMock, 1024 * 1024, tasks::add, clock);
+    }
+
+    @Test
+    public void dispatch__freshResponse() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "max-age=60")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        Response response = requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        ((Map<String, Object>) response.getBody()).put("name", "changed");
+        clock.advance(59_000);
+        response = requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+
+        assertEquals("v1", ((Map<String, Object>) response.getBody()).get("name"));
+        verify(requestDispatcherMock, times(1)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getHitCount());
+        assertEquals(1, requestDispatcher.getMissCount());
+    }
+
+    @Test
+    public void dispatch__revalidateWithETag() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "max-age=10", "ETag", "\"abc\""))
+                .doReturn(response(304, null, "Cache-Control", "max-age=20"))
+                .when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        clock.advance(11_000);
+        Response response = requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+
+        assertEquals(200, response.getStatus().intValue());
+        assertEquals("v1", ((Map<String, Object>) response.getBody()).get("name"));
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(requestDispatcherMock, times(2)).dispatch(captor.capture(), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(Collections.singletonList("\"abc\""), captor.getAllValues().get(1).getHeaders().get("If-None-Match"));
+        assertEquals(1, requestDispatcher.getRevalidationCount());
+
+        clock.advance(19_000);
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        verify(requestDispatcherMock, times(2)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+    }
+
+    @Test
+    public void dispatch__staleWhileRevalidate() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "max-age=10, stale-while-revalidate=30"))
+                .doReturn(response(200, "v2", "Cache-Control", "max-age=10"))
+                .when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        clock.advance(20_000);
+        Response response = requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+
+        assertEquals("v1", ((Map<String, Object>) response.getBody()).get("name"));
+        assertEquals(2, requestDispatcher.getStaleHitCount());
+        assertEquals(1, tasks.size());
+        verify(requestDispatcherMock, times(1)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        tasks.get(0).run();
+        response = requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        assertEquals("v2", ((Map<String, Object>) response.getBody()).get("name"));
+        assertEquals(1, requestDispatcher.getHitCount());
+    }
+
+    @Test
+    public void dispatch__notCacheable() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "no-store")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("POST", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(3)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(0, requestDispatcher.getSize());
+    }
+
+    @Test
+    public void dispatch__vary() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "max-age=60", "Vary", "Accept-Language")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Accept-Language", "en"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "accept-language", "en"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Accept-Language", "vi"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(2)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+    }
+
+    @Test
+    public void dispatch__authorization() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "max-age=60")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Authorization", "Bearer a"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Authorization", "Bearer a"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(2)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(0, requestDispatcher.getSize());
+    }
+
+    @Test
+    public void dispatch__authorizationWithPublic() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "public, max-age=60")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Authorization", "Bearer a"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "authorization", "Bearer a"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Authorization", "Bearer b"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(3)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getHitCount());
+        assertEquals(3, requestDispatcher.getSize());
+    }
+
+    @Test
+    public void dispatch__cookie() throws Exception {
+        doReturn(response(200, "v1", "Cache-Control", "max-age=60")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Cookie", "session=a"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Cookie", "session=a"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1", "Cookie", "session=b"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(2)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getHitCount());
+    }
+
+    @Test
+    public void dispatch__evictBySize() throws Exception {
+        doAnswer(invocation -> response(200, invocation.<Request>getArgument(0).getUrl(), "Cache-Control", "max-age=60"))
+                .when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        long entryBytes = requestDispatcher.getBytes();
+        requestDispatcher = new CachingRequestDispatcher(requestDispatcherMock, entryBytes * 2 + entryBytes / 2, tasks::add, clock);
+
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/2"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/3"), jsonProvider, new DispatchOptions());
+
+        assertEquals(2, requestDispatcher.getSize());
+        assertEquals(1, requestDispatcher.getEvictionCount());
+        assertTrue(requestDispatcher.getBytes() <= entryBytes * 2 + entryBytes / 2);
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/1"), jsonProvider, new DispatchOptions());
+        requestDispatcher.dispatch(request("GET", "https://test.com/users/2"), jsonProvider, new DispatchOptions());
+        assertEquals(2, requestDispatcher.getHitCount());
+        assertEquals(4, requestDispatcher.getMissCount());
+    }
+
+    private Request request(String httpMethod, String url, String... headers) {
+        Request request = new Request();
+        request.setHttpMethod(httpMethod);
+        request.setUrl(url);
+        request.setHeaders(headers(headers));
+        return request;
+    }
+
+    private Response response(int status, String name, String... headers) {
+        Response response = new Response();
+        response.setStatus(status);
+        response.setHeaders(headers(headers));
+        if (name != null) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("name", name);
+            response.setBody(body);
+        }
+        return response;
+    }
+
+    private Map<String, List<String>> headers(String... headers) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (int i = 0; i < headers.length; i += 2)
+            map.put(headers[i], Collections.singletonList(headers[i + 1]));
+        return map;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = 1_000_000;
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+    }
+
+}
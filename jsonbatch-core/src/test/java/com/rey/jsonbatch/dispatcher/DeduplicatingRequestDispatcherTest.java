@@ -0,0 +1,229 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class DeduplicatingRequestDispatcherTest {
+
+    private RequestDispatcher requestDispatcherMock;
+
+    private DeduplicatingRequestDispatcher requestDispatcher;
+
+    private Configuration configuration;
+
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        configuration = Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build();
+        requestDispatcherMock = mock(RequestDispatcher.class);
+        requestDispatcher = new DeduplicatingRequestDispatcher(requestDispatcherMock);
+    }
+
+    @Test
+    public void dispatch__memoizeInBatch() throws Exception {
+        BatchTemplate template = objectMapper.readValue("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/profile\"," +
+                "  \"requests\": [{" +
+                "    \"http_method\": \"GET\"," +
+                "    \"url\": \"https://test.com/profile\"," +
+                "    \"requests\": [{" +
+                "      \"http_method\": \"POST\"," +
+                "      \"url\": \"https://test.com/profile\"" +
+                "    }]" +
+                "  }]" +
+                "}]," +
+                "\"responses\": null" +
+                "}", BatchTemplate.class);
+        doAnswer(invocation -> response(200, "name", "rey")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        BatchEngine batchEngine = new BatchEngine(configuration, new JsonBuilder(Functions.basic()), requestDispatcher);
+        batchEngine.execute(new Request(), template);
+        Response finalResponse = batchEngine.execute(new Request(), template);
+
+        assertEquals(Arrays.asList("rey", "rey", "rey"), JsonPath.using(configuration).parse(finalResponse.getBody()).read("$.responses[*].body.name", List.class));
+        verify(requestDispatcherMock, times(4)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(2, requestDispatcher.getHitCount());
+        assertEquals(2, requestDispatcher.getMissCount());
+        assertEquals(0, requestDispatcher.getCollapseCount());
+    }
+
+    @Test
+    public void dispatch__collapseConcurrentRequests() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await(5, TimeUnit.SECONDS);
+            return response(200, "items", new ArrayList<>(Arrays.asList(1, 2, 3)));
+        }).when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                futures.add(executor.submit(() -> requestDispatcher.dispatch(request("GET", "https://test.com/items", "Accept", "B"), configuration.jsonProvider(), new DispatchOptions())));
+            while (requestDispatcher.getCollapseCount() < 3)
+                Thread.sleep(1);
+            latch.countDown();
+
+            List<Response> responses = new ArrayList<>();
+            for (Future<Response> future : futures)
+                responses.add(future.get(5, TimeUnit.SECONDS));
+            ((List<Object>) ((Map<String, Object>) responses.get(0).getBody()).get("items")).clear();
+            for (int i = 1; i < responses.size(); i++) {
+                assertNotSame(responses.get(0), responses.get(i));
+                assertEquals(Arrays.asList(1, 2, 3), ((Map<String, Object>) responses.get(i).getBody()).get("items"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        verify(requestDispatcherMock, times(1)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getMissCount());
+        assertEquals(3, requestDispatcher.getCollapseCount());
+    }
+
+    @Test
+    public void dispatch__collapseFailure() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        IllegalStateException error = new IllegalStateException("Cannot connect");
+        doAnswer(invocation -> {
+            latch.await(5, TimeUnit.SECONDS);
+            throw error;
+        }).when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++)
+                futures.add(executor.submit(() -> requestDispatcher.dispatch(request("GET", "https://test.com/items"), configuration.jsonProvider(), new DispatchOptions())));
+            while (requestDispatcher.getCollapseCount() < 1)
+                Thread.sleep(1);
+            latch.countDown();
+            for (Future<Response> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    fail("Expect exception");
+                } catch (ExecutionException ex) {
+                    assertSame(error, ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void dispatch__canonicalKey() throws Exception {
+        doAnswer(invocation -> response(200, "name", "rey")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        RequestDispatcher scope = requestDispatcher.openScope();
+        JsonProvider jsonProvider = configuration.jsonProvider();
+
+        scope.dispatch(request("GET", "https://test.com", "Accept", "A", "X-Id", "1"), jsonProvider, new DispatchOptions());
+        scope.dispatch(request("get", "https://test.com", "x-id", "1", "accept", "A"), jsonProvider, new DispatchOptions());
+        scope.dispatch(request("GET", "https://test.com", "Accept", "B"), jsonProvider, new DispatchOptions());
+        scope.dispatch(request("POST", "https://test.com"), jsonProvider, new DispatchOptions());
+        scope.dispatch(request("POST", "https://test.com"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(4)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getHitCount());
+        assertEquals(2, requestDispatcher.getMissCount());
+    }
+
+    @Test
+    public void dispatch__canonicalKey_ignoreTraceContext() throws Exception {
+        doAnswer(invocation -> response(200, "name", "rey")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        RequestDispatcher scope = requestDispatcher.openScope();
+        JsonProvider jsonProvider = configuration.jsonProvider();
+
+        scope.dispatch(request("GET", "https://test.com", "traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01"), jsonProvider, new DispatchOptions());
+        scope.dispatch(request("GET", "https://test.com", "Traceparent", "00-0af7651916cd43dd8448eb211c80319c-00f067aa0ba902b7-01", "tracestate", "a=1"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(1)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getHitCount());
+    }
+
+    @Test
+    public void dispatch__canonicalKey_dispatchOptions() throws Exception {
+        doAnswer(invocation -> response(200, "name", "rey")).when(requestDispatcherMock)
+                .dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        RequestDispatcher scope = requestDispatcher.openScope();
+        JsonProvider jsonProvider = configuration.jsonProvider();
+        DispatchOptions failBackAsString = new DispatchOptions();
+        failBackAsString.setFailBackAsString(true);
+        DispatchOptions ignoreParsingError = new DispatchOptions();
+        ignoreParsingError.setIgnoreParsingError(true);
+
+        scope.dispatch(request("GET", "https://test.com"), jsonProvider, new DispatchOptions());
+        scope.dispatch(request("GET", "https://test.com"), jsonProvider, failBackAsString);
+        scope.dispatch(request("GET", "https://test.com"), jsonProvider, ignoreParsingError);
+        scope.dispatch(request("GET", "https://test.com"), jsonProvider, new DispatchOptions());
+
+        verify(requestDispatcherMock, times(3)).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        assertEquals(1, requestDispatcher.getHitCount());
+    }
+
+    private Request request(String httpMethod, String url, String... headers) {
+        Request request = new Request();
+        request.setHttpMethod(httpMethod);
+        request.setUrl(url);
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (int i = 0; i < headers.length; i += 2)
+            map.put(headers[i], Collections.singletonList(headers[i + 1]));
+        request.setHeaders(map);
+        return request;
+    }
+
+    private Response response(int status, String key, Object value) {
+        Response response = new Response();
+        response.setStatus(status);
+        response.setHeaders(new HashMap<>());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put(key, value);
+        response.setBody(body);
+        return response;
+    }
+
+}
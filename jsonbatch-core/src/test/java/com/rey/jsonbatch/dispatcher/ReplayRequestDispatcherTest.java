@@ -0,0 +1,155 @@
+package com.rey.jsonbatch.dispatcher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class ReplayRequestDispatcherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private RequestDispatcher requestDispatcherMock;
+
+    private JsonProvider jsonProvider;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        requestDispatcherMock = mock(RequestDispatcher.class);
+        jsonProvider = new JacksonJsonProvider(new ObjectMapper());
+        file = temporaryFolder.getRoot().toPath().resolve("recording.bin");
+    }
+
+    @Test
+    public void replay__recordedResponses() throws Exception {
+        doReturn(response(200, "user 1"))
+                .doReturn(response(201, "order"))
+                .doReturn(response(200, "user 1 updated"))
+                .when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        try (RecordingRequestDispatcher recorder = new RecordingRequestDispatcher(requestDispatcherMock, file)) {
+            recorder.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions());
+            recorder.dispatch(request("POST", "https://test.com/orders", Collections.singletonMap("id", 1)), jsonProvider, new DispatchOptions());
+            recorder.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions());
+            assertEquals(3, recorder.getRecordCount());
+        }
+
+        try (ReplayRequestDispatcher replayer = new ReplayRequestDispatcher(file)) {
+            assertEquals(3, replayer.getRecordCount());
+            Response response = replayer.dispatch(request("POST", "https://test.com/orders", Collections.singletonMap("id", 1)), jsonProvider, new DispatchOptions());
+            assertEquals(201, response.getStatus().intValue());
+            assertEquals("order", ((Map<String, Object>) response.getBody()).get("name"));
+            assertEquals(Arrays.asList("application/json", "charset=utf-8"), response.getHeaders().get("Content-Type"));
+
+            assertEquals("user 1", name(replayer.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions())));
+            assertEquals("user 1 updated", name(replayer.dispatchAsync(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions()).get()));
+            assertEquals("user 1", name(replayer.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions())));
+            assertEquals(4, replayer.getHitCount());
+        }
+    }
+
+    @Test
+    public void replay__notRecorded() throws Exception {
+        doReturn(response(200, "user 1")).when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        try (RecordingRequestDispatcher recorder = new RecordingRequestDispatcher(requestDispatcherMock, file)) {
+            recorder.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions());
+        }
+
+        try (ReplayRequestDispatcher replayer = new ReplayRequestDispatcher(file)) {
+            replayer.dispatch(request("GET", "https://test.com/users/2", null), jsonProvider, new DispatchOptions());
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void replay__appendedAndTruncated() throws Exception {
+        doReturn(response(200, "user 1")).when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        for (int i = 0; i < 2; i++) {
+            try (RecordingRequestDispatcher recorder = new RecordingRequestDispatcher(requestDispatcherMock, file)) {
+                recorder.dispatch(request("GET", "https://test.com/users/" + i, null), jsonProvider, new DispatchOptions());
+            }
+        }
+        Files.write(file, new byte[]{0, 0, 1, 0, 1, 2}, StandardOpenOption.APPEND);
+
+        try (ReplayRequestDispatcher replayer = new ReplayRequestDispatcher(file)) {
+            assertEquals(2, replayer.getRecordCount());
+            assertEquals("user 1", name(replayer.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions())));
+        }
+    }
+
+    @Test
+    public void replay__recordedLatency() throws Exception {
+        doAnswer(invocation -> {
+            Thread.sleep(50);
+            return response(200, "user 1");
+        }).when(requestDispatcherMock).dispatch(any(Request.class), any(JsonProvider.class), any(DispatchOptions.class));
+        try (RecordingRequestDispatcher recorder = new RecordingRequestDispatcher(requestDispatcherMock, file)) {
+            recorder.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions());
+        }
+
+        try (ReplayRequestDispatcher replayer = new ReplayRequestDispatcher(file, ReplayRequestDispatcher.LatencyMode.RECORDED)) {
+            long start = System.nanoTime();
+            replayer.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions());
+            assertTrue(System.nanoTime() - start >= 45_000_000L);
+
+            start = System.nanoTime();
+            replayer.dispatchAsync(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions()).get();
+            assertTrue(System.nanoTime() - start >= 45_000_000L);
+        }
+        try (ReplayRequestDispatcher replayer = new ReplayRequestDispatcher(file, ReplayRequestDispatcher.LatencyMode.ZERO)) {
+            long start = System.nanoTime();
+            replayer.dispatch(request("GET", "https://test.com/users/1", null), jsonProvider, new DispatchOptions());
+            assertTrue(System.nanoTime() - start < 45_000_000L);
+        }
+    }
+
+    private String name(Response response) {
+        return (String) ((Map<String, Object>) response.getBody()).get("name");
+    }
+
+    private Request request(String httpMethod, String url, Object body) {
+        Request request = new Request();
+        request.setHttpMethod(httpMethod);
+        request.setUrl(url);
+        request.setHeaders(Collections.singletonMap("X-Request-Id", Collections.singletonList(String.valueOf(System.nanoTime()))));
+        request.setBody(body);
+        return request;
+    }
+
+    private Response response(int status, String name) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", Arrays.asList("application/json", "charset=utf-8"));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("name", name);
+        Response response = new Response();
+        response.setStatus(status);
+        response.setHeaders(headers);
+        response.setBody(body);
+        return response;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.rey.jsonbatch.function;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.rey.jsonbatch.JsonBuilder.Type.INTEGER;
+import static com.rey.jsonbatch.JsonBuilder.Type.NUMBER;
+import static org.junit.Assert.assertEquals;
+
+public class AverageFunctionTest {
+
+    private AverageFunction function = AverageFunction.instance();
+
+    @Test
+    public void invoke__integer() {
+        assertEquals(BigInteger.valueOf(3), function.invoke(INTEGER, Arrays.asList(1, 2L, Arrays.asList(3, 4.4, "5"))));
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE), function.invoke(INTEGER, Arrays.asList(Long.MAX_VALUE, Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void invoke__decimal() {
+        assertEquals(new BigDecimal("2.50"), function.invoke(NUMBER, Arrays.asList(1, 2.25, Arrays.asList(4.25, 2.5))));
+        assertEquals(new BigDecimal("1.5"), function.invoke(NUMBER, Arrays.asList(1, 2)));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.rey.jsonbatch.function;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.rey.jsonbatch.JsonBuilder.Type.INTEGER;
+import static com.rey.jsonbatch.JsonBuilder.Type.NUMBER;
+import static org.junit.Assert.assertEquals;
+
+public class MaxFunctionTest {
+
+    private MaxFunction function = MaxFunction.instance();
+
+    @Test
+    public void handle__integer() {
+        Function.Result<BigInteger> result = function.handle(INTEGER, Arrays.asList(5, 2L, Arrays.asList(6.5, 3F)), null);
+        assertEquals(BigInteger.valueOf(7), result.value);
+
+        result = function.handle(INTEGER, Arrays.asList(Long.MAX_VALUE, "100000000000000000000"), null);
+        assertEquals(new BigInteger("100000000000000000000"), result.value);
+    }
+
+    @Test
+    public void handle__decimal() {
+        Function.Result<BigDecimal> result = function.handle(NUMBER, Arrays.asList(2.5, 1, Arrays.asList(0.75, 3L)),
+                function.handle(NUMBER, 2.75, null));
+        assertEquals("3", result.value.toString());
+
+        // the last of equal values is taken, with its scale
+        result = function.handle(NUMBER, Arrays.asList(2.0, 2), null);
+        assertEquals("2", result.value.toString());
+        result = function.handle(NUMBER, Arrays.asList(2, 2.0), null);
+        assertEquals("2.0", result.value.toString());
+        result = function.handle(NUMBER, Arrays.asList(9007199254740993L, 9.007199254740992E15), null);
+        assertEquals("9007199254740993", result.value.toString());
+    }
+
+}
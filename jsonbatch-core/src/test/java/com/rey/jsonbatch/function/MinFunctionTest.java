@@ -0,0 +1,46 @@
+package com.rey.jsonbatch.function;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.rey.jsonbatch.JsonBuilder.Type.INTEGER;
+import static com.rey.jsonbatch.JsonBuilder.Type.NUMBER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MinFunctionTest {
+
+    private MinFunction function = MinFunction.instance();
+
+    @Test
+    public void handle__integer() {
+        Function.Result<BigInteger> result = function.handle(INTEGER, Arrays.asList(5, 2L, Arrays.asList(3.4, 7F)),
+                function.handle(INTEGER, 4, null));
+        assertEquals(BigInteger.valueOf(2), result.value);
+
+        result = function.handle(INTEGER, Arrays.asList(5, new BigInteger("-100000000000000000000"), Long.MIN_VALUE), null);
+        assertEquals(new BigInteger("-100000000000000000000"), result.value);
+    }
+
+    @Test
+    public void handle__decimal() {
+        Function.Result<BigDecimal> result = function.handle(NUMBER, Arrays.asList(2.5, 1, Arrays.asList(0.75, 3L)), null);
+        assertEquals("0.75", result.value.toString());
+
+        // the first of equal values is kept, with its scale
+        result = function.handle(NUMBER, Arrays.asList(2, 2.0, new BigDecimal("2.00")), null);
+        assertEquals("2", result.value.toString());
+        result = function.handle(NUMBER, Arrays.asList(2.0, 2), null);
+        assertEquals("2.0", result.value.toString());
+    }
+
+    @Test
+    public void handle__emptyList() {
+        Function.Result<BigDecimal> result = function.handle(NUMBER, Arrays.asList(), null);
+        assertNull(result.value);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.rey.jsonbatch.function;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.rey.jsonbatch.JsonBuilder.Type.INTEGER;
+import static com.rey.jsonbatch.JsonBuilder.Type.NUMBER;
+import static org.junit.Assert.assertEquals;
+
+public class SumFunctionTest {
+
+    private SumFunction function = SumFunction.instance();
+
+    @Test
+    public void handle__integer() {
+        Function.Result<BigInteger> result = function.handle(INTEGER, Arrays.asList(1, 2L, 3.6, Arrays.asList(4F, "5")),
+                function.handle(INTEGER, 10, null));
+        assertEquals(new BigInteger("26"), result.value);
+    }
+
+    @Test
+    public void handle__integerOverflow() {
+        Function.Result<BigInteger> result = function.handle(INTEGER, Arrays.asList(Long.MAX_VALUE, Long.MAX_VALUE, -1, new BigInteger("1")), null);
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(2)), result.value);
+
+        result = function.handle(INTEGER, Arrays.asList(Long.MIN_VALUE, -1L, 1L), null);
+        assertEquals(BigInteger.valueOf(Long.MIN_VALUE), result.value);
+    }
+
+    @Test
+    public void handle__decimal() {
+        Function.Result<BigDecimal> result = function.handle(NUMBER, Arrays.asList(1, 0.1, 0.25, Arrays.asList(3.0, 2L)), null);
+        assertEquals("6.35", result.value.toString());
+
+        // same value and scale as adding new BigDecimal(item.toString())
+        result = function.handle(NUMBER, Arrays.asList(1, 2.0), null);
+        assertEquals("3.0", result.value.toString());
+        result = function.handle(NUMBER, Arrays.asList(1.5, 1e20, 1.5F, new BigDecimal("0.125"), "2"), null);
+        assertEquals(new BigDecimal("1.5").add(new BigDecimal("1.0E20")).add(new BigDecimal("1.5")).add(new BigDecimal("0.125")).add(new BigDecimal("2")), result.value);
+        assertEquals("100000000000000000005.125", result.value.toPlainString());
+    }
+
+    @Test
+    public void handle__decimalOverflow() {
+        Function.Result<BigDecimal> result = function.handle(NUMBER, Arrays.asList(Long.MAX_VALUE, 0.5, Long.MAX_VALUE), null);
+        assertEquals(new BigDecimal(Long.MAX_VALUE).multiply(new BigDecimal(2)).add(new BigDecimal("0.5")), result.value);
+        assertEquals(1, result.value.scale());
+    }
+
+}
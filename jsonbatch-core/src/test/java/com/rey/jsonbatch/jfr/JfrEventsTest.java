@@ -0,0 +1,162 @@
+package com.rey.jsonbatch.jfr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class JfrEventsTest {
+
+    private static final String TEMPLATE = "{" +
+            "  \"requests\": [" +
+            "    {" +
+            "      \"http_method\": \"GET\"," +
+            "      \"url\": \"https://test.com/users/@{$.original.body.id}@\"" +
+            "    }" +
+            "  ]," +
+            "  \"responses\": [" +
+            "    {" +
+            "      \"status\": \"$.responses[0].status\"," +
+            "      \"body\": {" +
+            "        \"total\": \"int __sum(\\\"$.responses[0].body.items[*]\\\")\"" +
+            "      }" +
+            "    }" +
+            "  ]" +
+            "}";
+
+    private ObjectMapper objectMapper;
+
+    private BatchEngine batchEngine;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        Configuration configuration = Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build();
+        batchEngine = new BatchEngine(configuration, new JsonBuilder(Functions.basic()), dispatcher());
+        file = Files.createTempFile("jsonbatch", ".jfr");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void execute__recording() throws Exception {
+        BatchTemplate template = objectMapper.readValue(TEMPLATE, BatchTemplate.class);
+        try (Recording recording = new Recording(settings())) {
+            recording.enable("com.rey.jsonbatch.JsonPathRead").withThreshold(Duration.ZERO);
+            recording.start();
+            assertTrue(JfrSupport.isRecording());
+            batchEngine.execute(request(), template);
+            recording.stop();
+            recording.dump(file);
+        }
+        assertFalse(JfrSupport.isRecording());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+        RecordedEvent batch = single(events, "com.rey.jsonbatch.BatchExecution");
+        assertEquals("https://test.com/batch", batch.getString("url"));
+        assertEquals(200, batch.getInt("status"));
+        assertNull(batch.getString("error"));
+
+        RecordedEvent dispatch = single(events, "com.rey.jsonbatch.Dispatch");
+        assertEquals("requests[0]", dispatch.getString("templateId"));
+        assertEquals("https://test.com/users/1", dispatch.getString("url"));
+        assertEquals(200, dispatch.getInt("status"));
+        assertEquals(64, dispatch.getLong("bodySize"));
+        assertTrue(batch.getStartTime().compareTo(dispatch.getStartTime()) <= 0);
+        assertTrue(batch.getEndTime().compareTo(dispatch.getEndTime()) >= 0);
+
+        RecordedEvent function = single(events, "com.rey.jsonbatch.Function");
+        assertEquals("sum", function.getString("function"));
+        assertTrue(function.getBoolean("reduce"));
+
+        assertFalse(named(events, "com.rey.jsonbatch.SchemaBuild").isEmpty());
+        List<String> paths = named(events, "com.rey.jsonbatch.JsonPathRead").stream()
+                .map(event -> event.getString("path"))
+                .collect(Collectors.toList());
+        assertTrue(paths.contains("$.responses[0].status"));
+        assertTrue(paths.contains("$.responses[0].body.items[*]"));
+    }
+
+    @Test
+    public void execute__notRecording() throws Exception {
+        assertFalse(JfrSupport.isRecording());
+        Response response = batchEngine.execute(request(), objectMapper.readValue(TEMPLATE, BatchTemplate.class));
+        assertEquals(200, (int) response.getStatus());
+    }
+
+    private jdk.jfr.Configuration settings() throws Exception {
+        try (Reader reader = new InputStreamReader(JfrSupport.class.getResourceAsStream(JfrSupport.SETTINGS_RESOURCE), StandardCharsets.UTF_8)) {
+            return jdk.jfr.Configuration.create(reader);
+        }
+    }
+
+    private RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = named(events, name);
+        assertEquals(1, result.size());
+        return result.get(0);
+    }
+
+    private List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+
+    private RequestDispatcher dispatcher() {
+        return (request, jsonProvider, options) -> {
+            Response response = new Response();
+            response.setStatus(200);
+            response.setHeaders(Collections.emptyMap());
+            response.setBody(Collections.singletonMap("items", Arrays.asList(1, 2, 3)));
+            response.setBodySize(64L);
+            return response;
+        };
+    }
+
+    private Request request() {
+        Request request = new Request();
+        request.setHttpMethod("POST");
+        request.setUrl("https://test.com/batch");
+        request.setHeaders(Collections.emptyMap());
+        request.setBody(Collections.singletonMap("id", 1));
+        return request;
+    }
+
+}
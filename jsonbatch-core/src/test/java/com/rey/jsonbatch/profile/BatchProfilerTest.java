@@ -0,0 +1,227 @@
+package com.rey.jsonbatch.profile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import com.rey.jsonbatch.profile.ProfileNode.Phase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class BatchProfilerTest {
+
+    private static final String LOOP_TEMPLATE = "{" +
+            "  \"requests\": [" +
+            "    {" +
+            "      \"http_method\": \"POST\"," +
+            "      \"url\": \"https://test.com/users\"," +
+            "      \"body\": \"$.original.body\"," +
+            "      \"requests\": [" +
+            "        {" +
+            "          \"loop\": {" +
+            "            \"counter_init\": 1," +
+            "            \"counter_predicate\": \"__cmp(\\\"@{$.requests[1].counter}@ <= 3\\\")\"," +
+            "            \"counter_update\": \"int __sum(\\\"$.requests[1].counter\\\", 1)\"," +
+            "            \"requests\": [" +
+            "              {" +
+            "                \"http_method\": \"GET\"," +
+            "                \"url\": \"https://test.com/pages/@{$.requests[1].counter}@\"," +
+            "                \"transformers\": [" +
+            "                  {" +
+            "                    \"body\": \"$.body\"" +
+            "                  }" +
+            "                ]" +
+            "              }" +
+            "            ]" +
+            "          }" +
+            "        }" +
+            "      ]" +
+            "    }" +
+            "  ]," +
+            "  \"responses\": null" +
+            "}";
+
+    private static final String CHAIN_TEMPLATE = "{" +
+            "  \"requests\": [" +
+            "    {" +
+            "      \"http_method\": \"GET\"," +
+            "      \"url\": \"https://test.com/slow/@{$.original.body.id}@\"," +
+            "      \"requests\": [" +
+            "        {" +
+            "          \"http_method\": \"GET\"," +
+            "          \"url\": \"https://test.com/fast/@{$.original.body.id}@\"," +
+            "          \"requests\": [" +
+            "            {" +
+            "              \"http_method\": \"GET\"," +
+            "              \"url\": \"https://test.com/fast/@{$.responses[1].body.id}@\"" +
+            "            }" +
+            "          ]" +
+            "        }" +
+            "      ]" +
+            "    }" +
+            "  ]," +
+            "  \"responses\": null" +
+            "}";
+
+    private ObjectMapper objectMapper;
+
+    private Configuration configuration;
+
+    private JsonBuilder jsonBuilder;
+
+    @Before
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        configuration = Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build();
+        jsonBuilder = new JsonBuilder(Functions.basic());
+    }
+
+    @Test
+    public void executeWithProfile__loop() throws Exception {
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher());
+        ProfiledResponse result = batchEngine.executeWithProfile(request(), objectMapper.readValue(LOOP_TEMPLATE, BatchTemplate.class));
+        assertEquals(200, (int) result.getResponse().getStatus());
+
+        BatchProfile profile = result.getProfile();
+        ProfileNode root = profile.getRoot();
+        assertEquals(ProfileNode.Type.BATCH, root.getType());
+        assertEquals(1, root.getCount());
+
+        ProfileNode user = root.getChildren().get(0);
+        assertEquals("requests[0]", user.getId());
+        assertEquals(1, user.getCount());
+        assertEquals(objectMapper.writeValueAsBytes(Collections.singletonMap("id", 1)).length, user.getBytesOut());
+        assertEquals(64, user.getBytesIn());
+        assertTrue(user.getPhaseTime(Phase.DISPATCH) >= 10_000_000);
+        assertTrue(user.getPhaseTime(Phase.BUILD) > 0);
+
+        ProfileNode loop = user.getChildren().get(0);
+        assertEquals("requests[0].requests[0]", loop.getId());
+        assertEquals(ProfileNode.Type.LOOP, loop.getType());
+        assertEquals(3, loop.getIterations());
+        assertTrue(loop.getWallTime() >= 30_000_000);
+
+        ProfileNode page = loop.getChildren().get(0);
+        assertEquals("requests[0].requests[0].loop.requests[0]", page.getId());
+        assertEquals(3, page.getCount());
+        assertTrue(page.getPhaseTime(Phase.TRANSFORM) > 0);
+        assertTrue(page.getWallTime() <= loop.getWallTime());
+        assertTrue(root.getWallTime() >= user.getWallTime() + loop.getWallTime());
+
+        assertEquals(Arrays.asList("requests[0]", "requests[0].requests[0]",
+                "requests[0].requests[0].loop.requests[0]", "requests[0].requests[0].loop.requests[0]", "requests[0].requests[0].loop.requests[0]"),
+                ids(profile.getCriticalPath()));
+        assertTrue(profile.getCriticalPathTime() <= profile.getWallTime());
+        assertTrue(page.isOnCriticalPath());
+    }
+
+    @Test
+    public void executeWithProfile__parallelRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), executor);
+            BatchProfile profile = batchEngine.executeWithProfile(request(), objectMapper.readValue(CHAIN_TEMPLATE, BatchTemplate.class)).getProfile();
+
+            assertEquals(Arrays.asList("requests[0]", "requests[0].requests[0].requests[0]"), ids(profile.getCriticalPath()));
+            ProfileNode fast = profile.getRoot().getChildren().get(0).getChildren().get(0);
+            assertEquals("requests[0].requests[0]", fast.getId());
+            assertFalse(fast.isOnCriticalPath());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void criticalPath__zeroLengthSteps() throws Exception {
+        BatchPlan template = new TemplateCompiler(jsonBuilder).compile(objectMapper.readValue(CHAIN_TEMPLATE, BatchTemplate.class));
+        RequestPlan slow = template.getRequests().get(0);
+        RequestPlan fast = slow.getRequests().get(0);
+        BatchProfiler profiler = new BatchProfiler(template, configuration.jsonProvider());
+
+        // a coarse clock can give steps the same start and end time
+        profiler.onBatchStart(1, request(), template, 100);
+        profiler.onStepEnd(1, slow, null, 0, 100, 100);
+        profiler.onStepEnd(1, fast, null, 1, 100, 100);
+        profiler.onStepEnd(1, fast.getRequests().get(0), null, 2, 100, 200);
+        profiler.onBatchEnd(1, request(), template, null, null, 100, 200);
+
+        assertEquals(Arrays.asList("requests[0]", "requests[0].requests[0]", "requests[0].requests[0].requests[0]"),
+                ids(profiler.getProfile().getCriticalPath()));
+    }
+
+    @Test
+    public void render() throws Exception {
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher());
+        BatchProfile profile = batchEngine.executeWithProfile(request(), objectMapper.readValue(LOOP_TEMPLATE, BatchTemplate.class)).getProfile();
+
+        Map<String, Object> json = objectMapper.readValue(profile.toJson(configuration.jsonProvider()), Map.class);
+        assertEquals(5, ((List) json.get("critical_path")).size());
+        Map<String, Object> root = (Map<String, Object>) json.get("root");
+        assertEquals("batch", root.get("id"));
+        Map<String, Object> user = (Map<String, Object>) ((List) root.get("children")).get(0);
+        assertTrue(((Map) user.get("phases")).containsKey("dispatch"));
+        Map<String, Object> loop = (Map<String, Object>) ((List) user.get("children")).get(0);
+        assertEquals(3, loop.get("iterations"));
+
+        List<String> lines = Arrays.asList(profile.toCollapsedStacks(BatchProfile.Metric.WALL_TIME).split("\n"));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("batch;requests[0];dispatch ")));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("batch;requests[0].requests[0];requests[0].requests[0].loop.requests[0];dispatch ")));
+        for (String line : lines)
+            assertTrue(Long.parseLong(line.substring(line.lastIndexOf(' ') + 1)) > 0);
+    }
+
+    private List<String> ids(List<ProfileNode> nodes) {
+        return nodes.stream().map(ProfileNode::getId).collect(Collectors.toList());
+    }
+
+    private RequestDispatcher dispatcher() {
+        return (request, jsonProvider, options) -> {
+            try {
+                Thread.sleep(request.getUrl().contains("fast") ? 2 : 10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            Response response = new Response();
+            response.setStatus(200);
+            response.setHeaders(Collections.emptyMap());
+            response.setBody(Collections.singletonMap("id", 1));
+            response.setBodySize(request.getUrl().contains("users") ? 64L : null);
+            return response;
+        };
+    }
+
+    private Request request() {
+        Request request = new Request();
+        request.setHttpMethod("POST");
+        request.setUrl("https://test.com/batch");
+        request.setHeaders(Collections.emptyMap());
+        request.setBody(Collections.singletonMap("id", 1));
+        return request;
+    }
+
+}
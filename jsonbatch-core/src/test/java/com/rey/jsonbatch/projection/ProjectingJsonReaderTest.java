@@ -0,0 +1,121 @@
+package com.rey.jsonbatch.projection;
+
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class ProjectingJsonReaderTest {
+
+    private JsonProvider jsonProvider;
+
+    @Before
+    public void setUp() {
+        jsonProvider = new JacksonJsonProvider();
+    }
+
+    @Test
+    public void read__withAll() throws Exception {
+        String json = "{\"a\": [1, 2.5, \"x\"], \"b\": {\"c\": true, \"d\": null}}";
+        Object result = read(json, Projection.ALL);
+        assertEquals(jsonProvider.parse(json), result);
+    }
+
+    @Test
+    public void read__withProperties() throws Exception {
+        String json = "{\"id\": 12, \"name\": \"rey\\n\\u0041\", \"profile\": {\"age\": 30, \"tags\": [\"a\", {\"b\": [1]}]}, \"extra\": [[1, 2], {\"x\": \"}]\"}]}";
+        Projection projection = Projection.union(
+                Projection.property("name", Projection.ALL),
+                Projection.property("profile", Projection.property("age", Projection.ALL)));
+        Map<String, Object> result = (Map<String, Object>) read(json, projection);
+        assertEquals(2, result.size());
+        assertEquals("rey\nA", result.get("name"));
+        Map<String, Object> profile = (Map<String, Object>) result.get("profile");
+        assertEquals(1, profile.size());
+        assertEquals(30, profile.get("age"));
+    }
+
+    @Test
+    public void read__withElements() throws Exception {
+        String json = "[{\"id\": 1, \"name\": \"a\"}, {\"id\": 2, \"name\": \"b\"}, {\"id\": 3}]";
+        Projection projection = Projection.elements(Projection.property("id", Projection.ALL));
+        List<Object> result = (List<Object>) read(json, projection);
+        assertEquals(3, result.size());
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> item = (Map<String, Object>) result.get(i);
+            assertEquals(1, item.size());
+            assertEquals(i + 1, item.get("id"));
+        }
+    }
+
+    @Test
+    public void read__withoutElements() throws Exception {
+        Map<String, Object> result = (Map<String, Object>) read("{\"items\": [1, [2], {\"a\": 3}], \"total\": 3}", Projection.property("items", Projection.anyProperty(Projection.ALL)));
+        assertEquals(Arrays.asList(null, null, null), result.get("items"));
+        assertFalse(result.containsKey("total"));
+    }
+
+    @Test
+    public void read__withLargeInput() throws Exception {
+        StringBuilder builder = new StringBuilder("{\"skip\": [");
+        for (int i = 0; i < 5000; i++)
+            builder.append(i == 0 ? "" : ",").append("{\"value\": \"item ").append(i).append("\"}");
+        builder.append("], \"keep\": [");
+        for (int i = 0; i < 5000; i++)
+            builder.append(i == 0 ? "" : ",").append("{\"value\": \"item ").append(i).append("\"}");
+        builder.append("]}");
+        Map<String, Object> result = (Map<String, Object>) read(builder.toString(), Projection.property("keep", Projection.ALL));
+        assertEquals(1, result.size());
+        List<Object> keep = (List<Object>) result.get("keep");
+        assertEquals(5000, keep.size());
+        assertEquals("item 4999", ((Map<String, Object>) keep.get(4999)).get("value"));
+    }
+
+    @Test
+    public void read__withPropertyAcrossBufferBoundary() throws Exception {
+        Projection projection = Projection.property("target", Projection.ALL);
+        for (int shift = -3; shift <= 2; shift++) {
+            // the key "target" starts 11 chars after the padding begins
+            StringBuilder builder = new StringBuilder("{\"pad\":\"");
+            for (int i = 0; i < 8192 + shift - 11; i++)
+                builder.append('x');
+            builder.append("\",\"target\":{\"id\":42}}");
+            Map<String, Object> result = (Map<String, Object>) read(builder.toString(), projection);
+            assertEquals("shift " + shift, 1, result.size());
+            assertEquals("shift " + shift, 42, ((Map<String, Object>) result.get("target")).get("id"));
+        }
+    }
+
+    @Test
+    public void read__withStringAcrossBufferBoundary() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            value.append((char) ('a' + i % 26));
+        value.append("\\\"end");
+        Map<String, Object> result = (Map<String, Object>) read("{\"name\":\"" + value + "\"}", Projection.property("name", Projection.property("first", Projection.ALL)));
+        assertEquals(value.toString().replace("\\\"", "\""), result.get("name"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read__withInvalidJson() throws Exception {
+        read("{\"a\": 1", Projection.property("a", Projection.ALL));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read__withTrailingData() throws Exception {
+        read("{\"a\": 1} x", Projection.property("a", Projection.ALL));
+    }
+
+    private Object read(String json, Projection projection) throws Exception {
+        return ProjectingJsonReader.read(new StringReader(json), projection, jsonProvider);
+    }
+
+}
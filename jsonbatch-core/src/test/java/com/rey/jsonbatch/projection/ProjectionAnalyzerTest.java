@@ -0,0 +1,135 @@
+package com.rey.jsonbatch.projection;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProjectionAnalyzerTest {
+
+    private ObjectMapper objectMapper;
+
+    private TemplateCompiler templateCompiler;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        templateCompiler = new TemplateCompiler(new JsonBuilder(Functions.basic()));
+    }
+
+    @Test
+    public void analyze__withReferencedFields() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/users\"," +
+                "  \"requests\": [{" +
+                "    \"http_method\": \"GET\"," +
+                "    \"url\": \"https://test.com/users/@{$.responses[0].body[0].id}@\"" +
+                "  }]" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"status\": \"$.responses[1].status\"," +
+                "  \"body\": {\"name\": \"$.responses[0].body[*].name\"}" +
+                "}]" +
+                "}");
+        RequestPlan first = plan.getRequests().get(0);
+        RequestPlan second = first.getRequests().get(0);
+
+        Projection projection = plan.getProjection(first);
+        assertFalse(projection.isAll());
+        Projection element = projection.getElements();
+        assertTrue(element.getProperty("id").isAll());
+        assertTrue(element.getProperty("name").isAll());
+        assertTrue(element.getProperty("email").isNone());
+
+        assertTrue(plan.getProjection(second).isNone());
+    }
+
+    @Test
+    public void analyze__withLoop() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"loop\": {" +
+                "    \"counter_init\": 0," +
+                "    \"counter_predicate\": \"__cmp(\\\"@{$.requests[0].counter}@ < 3\\\")\"," +
+                "    \"counter_update\": \"$.requests[0].times.length()\"," +
+                "    \"requests\": [{" +
+                "      \"http_method\": \"GET\"," +
+                "      \"url\": \"https://test.com/users/@{$.requests[0].counter}@\"" +
+                "    }]" +
+                "  }" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"body\": \"$.responses[0].times[*][0].body.name\"" +
+                "}]" +
+                "}");
+        RequestPlan inner = plan.getRequests().get(0).getLoop().getRequests().get(0);
+        Projection projection = plan.getProjection(inner);
+        assertTrue(projection.getProperty("name").isAll());
+        assertTrue(projection.getProperty("id").isNone());
+    }
+
+    @Test
+    public void analyze__withTransformer() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/users\"," +
+                "  \"transformers\": [{" +
+                "    \"body\": {\"names\": \"$.body.data[*].name\"}" +
+                "  }]" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"body\": \"$.responses[0].body.names\"" +
+                "}]" +
+                "}");
+        Projection projection = plan.getProjection(plan.getRequests().get(0));
+        assertTrue(projection.getProperty("names").isAll());
+        assertTrue(projection.getProperty("data").getElements().getProperty("name").isAll());
+        assertTrue(projection.getProperty("data").getElements().getProperty("id").isNone());
+    }
+
+    @Test
+    public void analyze__withConditionalResponse() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/users\"" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"predicate\": \"__cmp(\\\"@{$.responses[0].status}@ == 200\\\")\"," +
+                "  \"body\": \"$.responses[0].body.id\"" +
+                "}]" +
+                "}");
+        assertTrue(plan.getProjection(plan.getRequests().get(0)).isAll());
+    }
+
+    @Test
+    public void analyze__withWholeResponse() throws Exception {
+        BatchPlan plan = compile("{" +
+                "\"requests\": [{" +
+                "  \"http_method\": \"GET\"," +
+                "  \"url\": \"https://test.com/users\"" +
+                "}]," +
+                "\"responses\": [{" +
+                "  \"body\": \"$..id\"" +
+                "}]" +
+                "}");
+        assertTrue(plan.getProjection(plan.getRequests().get(0)).isAll());
+    }
+
+    private BatchPlan compile(String template) throws Exception {
+        return templateCompiler.compile(objectMapper.readValue(template, BatchTemplate.class));
+    }
+
+}
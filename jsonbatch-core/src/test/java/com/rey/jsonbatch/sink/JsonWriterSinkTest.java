@@ -0,0 +1,83 @@
+package com.rey.jsonbatch.sink;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonWriterSinkTest {
+
+    private ObjectMapper objectMapper;
+
+    private JsonProvider jsonProvider;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        jsonProvider = new JacksonJsonProvider(objectMapper);
+    }
+
+    @Test
+    public void write__withNestedValues() throws Exception {
+        StringWriter writer = new StringWriter();
+        JsonSink sink = new JsonWriterSink(writer, jsonProvider);
+        write(sink);
+        sink.flush();
+        assertEquals("{\"a\":[1,\"x\\\"y\\n\\u0001\",null,{\"b\":true,\"c\":[]}],\"d\":1.50,\"e\":{}}", writer.toString());
+    }
+
+    @Test
+    public void write__withJsonGenerator() throws Exception {
+        StringWriter expected = new StringWriter();
+        JsonSink writerSink = new JsonWriterSink(expected, jsonProvider);
+        write(writerSink);
+        writerSink.flush();
+
+        StringWriter actual = new StringWriter();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(actual);
+        JsonSink generatorSink = new JsonGeneratorSink(generator);
+        write(generatorSink);
+        generatorSink.flush();
+
+        assertEquals(objectMapper.readTree(expected.toString()), objectMapper.readTree(actual.toString()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void write__withUnbalancedContainer() throws Exception {
+        JsonSink sink = new JsonWriterSink(new StringWriter(), jsonProvider);
+        sink.beginArray();
+        sink.endArray();
+        sink.endArray();
+    }
+
+    private void write(JsonSink sink) throws Exception {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("b", true);
+        map.put("c", Arrays.asList());
+        sink.beginObject();
+        sink.name("a");
+        sink.beginArray();
+        sink.value(1);
+        sink.value("x\"y\n\u0001");
+        sink.value(null);
+        sink.value(map);
+        sink.endArray();
+        sink.name("d");
+        sink.value(new BigDecimal("1.50"));
+        sink.name("e");
+        sink.beginObject();
+        sink.endObject();
+        sink.endObject();
+    }
+
+}
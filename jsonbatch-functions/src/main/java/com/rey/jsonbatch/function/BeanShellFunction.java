@@ -12,8 +12,6 @@ public class BeanShellFunction extends Function {
 
     private Logger logger = LoggerFactory.getLogger(BeanShellFunction.class);
 
-    private Interpreter interpreter = new Interpreter();
-
     @Override
     public String getName() {
         return "beanshell";
@@ -36,7 +34,7 @@ public class BeanShellFunction extends Function {
         }
         String expression = (String) arguments.get(0);
         try {
-            return interpreter.eval(expression);
+            return new Interpreter().eval(expression);
         } catch (EvalError error) {
             throw new RuntimeException(error);
         }
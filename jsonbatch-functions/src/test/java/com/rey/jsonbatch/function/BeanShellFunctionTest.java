@@ -2,7 +2,15 @@ package com.rey.jsonbatch.function;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.rey.jsonbatch.function.BeanShellFunction.*;
 import static org.junit.Assert.*;
@@ -23,6 +31,42 @@ public class BeanShellFunctionTest {
         check(2, "java.lang.Math.round(1.6F)");
     }
 
+    @Test
+    public void invoke__noStateBetweenCalls() {
+        check(5, "y = 5");
+        check(true, "y == void");
+    }
+
+    @Test
+    public void invoke__concurrently() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 100; j++) {
+                        int value = thread * 1000 + j;
+                        Object result = function.invoke(null, Collections.singletonList("x = " + value + "; x * 2"));
+                        if (!Integer.valueOf(value * 2).equals(result))
+                            failures.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, failures.get());
+    }
+
     private void check(Object expectedResult, String expression) {
         Object result = function.invoke(null, Collections.singletonList(expression));
         assertEquals(expectedResult, result);
@@ -0,0 +1,62 @@
+package com.rey.jsonbatch.loom;
+
+import com.jayway.jsonpath.Configuration;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class VirtualThreadBatchEngine extends BatchEngine implements AutoCloseable {
+
+    private static final String THREAD_NAME_PREFIX = "jsonbatch-";
+
+    private ExecutorService executorService;
+    private TemplateCompiler templateCompiler;
+    private boolean ownExecutorService;
+
+    public VirtualThreadBatchEngine(Configuration configuration,
+                                    JsonBuilder jsonBuilder,
+                                    RequestDispatcher requestDispatcher) {
+        this(configuration, jsonBuilder, requestDispatcher, VirtualThreads.newExecutor(THREAD_NAME_PREFIX), true);
+    }
+
+    public VirtualThreadBatchEngine(Configuration configuration,
+                                    JsonBuilder jsonBuilder,
+                                    RequestDispatcher requestDispatcher,
+                                    ExecutorService executorService) {
+        this(configuration, jsonBuilder, requestDispatcher, executorService, false);
+    }
+
+    private VirtualThreadBatchEngine(Configuration configuration,
+                                     JsonBuilder jsonBuilder,
+                                     RequestDispatcher requestDispatcher,
+                                     ExecutorService executorService,
+                                     boolean ownExecutorService) {
+        super(configuration, jsonBuilder, requestDispatcher, executorService);
+        this.executorService = executorService;
+        this.templateCompiler = new TemplateCompiler(jsonBuilder);
+        this.ownExecutorService = ownExecutorService;
+    }
+
+    public Future<Response> submit(Request originalRequest, BatchTemplate template) {
+        return submit(originalRequest, templateCompiler.compile(template));
+    }
+
+    public Future<Response> submit(Request originalRequest, BatchPlan template) {
+        return executorService.submit(() -> execute(originalRequest, template));
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutorService)
+            executorService.shutdown();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.rey.jsonbatch.loom;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method IS_VIRTUAL = findMethod(Thread.class, "isVirtual");
+    private static final Method NAME = findMethod(findClass("java.lang.Thread$Builder"), "name", String.class, long.class);
+    private static final Method FACTORY = findMethod(findClass("java.lang.Thread$Builder"), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && IS_VIRTUAL != null && NAME != null && FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null)
+            return false;
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException ex) {
+            return false;
+        }
+    }
+
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        checkSupported();
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = NAME.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create virtual thread factory", ex);
+        }
+    }
+
+    public static ExecutorService newExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newThreadFactory(namePrefix);
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create virtual thread executor", ex);
+        }
+    }
+
+    private static void checkSupported() {
+        if (!isSupported())
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, current version: " + System.getProperty("java.version"));
+    }
+
+    private static Class<?> findClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null)
+            return null;
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+}
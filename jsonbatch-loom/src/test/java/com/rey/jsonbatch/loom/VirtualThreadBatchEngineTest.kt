@@ -0,0 +1,152 @@
+package com.rey.jsonbatch.loom
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.PropertyNamingStrategy
+import com.jayway.jsonpath.Configuration
+import com.jayway.jsonpath.JsonPath
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider
+import com.jayway.jsonpath.spi.json.JsonProvider
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
+import com.rey.jsonbatch.JsonBuilder
+import com.rey.jsonbatch.RequestDispatcher
+import com.rey.jsonbatch.function.Functions
+import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchOptions
+import com.rey.jsonbatch.model.Request
+import com.rey.jsonbatch.model.Response
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+class VirtualThreadBatchEngineTest {
+
+    private lateinit var objectMapper: ObjectMapper
+
+    private lateinit var configuration: Configuration
+
+    private var batchEngine: VirtualThreadBatchEngine? = null
+
+    private val template = """
+        {
+            "requests": [
+                {
+                    "http_method": "GET",
+                    "url": "https://test.com/1/@{$.original.body.id}@",
+                    "requests": [
+                        {
+                            "http_method": "GET",
+                            "url": "https://test.com/2/@{$.original.body.id}@",
+                            "requests": [
+                                {
+                                    "http_method": "GET",
+                                    "url": "https://test.com/3/@{$.original.body.id}@"
+                                }
+                            ]
+                        }
+                    ]
+                }
+            ],
+            "responses": null
+        }
+    """
+
+    @Before
+    fun setUp() {
+        assumeTrue("Virtual threads are not supported", VirtualThreads.isSupported())
+        objectMapper = ObjectMapper()
+        objectMapper.propertyNamingStrategy = PropertyNamingStrategy.SNAKE_CASE
+        configuration = Configuration.builder()
+                .jsonProvider(JacksonJsonProvider(objectMapper))
+                .mappingProvider(JacksonMappingProvider(objectMapper))
+                .build()
+    }
+
+    @After
+    fun tearDown() {
+        batchEngine?.close()
+    }
+
+    @Test
+    fun submit__runOnVirtualThreads() {
+        val latch = CountDownLatch(3)
+        val engine = createBatchEngine(object : RequestDispatcher {
+            override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): Response {
+                latch.countDown()
+                val response = Response()
+                response.status = if (latch.await(5, TimeUnit.SECONDS)) 200 else 500
+                response.body = mapOf("url" to request.url, "virtual" to VirtualThreads.isVirtual(Thread.currentThread()))
+                return response
+            }
+        })
+
+        val finalResponse = engine.submit(originalRequest(5), parseTemplate()).get(5, TimeUnit.SECONDS)
+        val context = JsonPath.using(configuration).parse(finalResponse.body)
+        assertEquals(listOf(200, 200, 200), context.read("$.responses[*].status", List::class.java))
+        assertEquals(listOf(true, true, true), context.read("$.responses[*].body.virtual", List::class.java))
+        assertEquals(listOf("https://test.com/1/5", "https://test.com/2/5", "https://test.com/3/5"),
+                context.read("$.responses[*].body.url", List::class.java))
+    }
+
+    @Test
+    fun submit__cancelBranches() {
+        val started = CountDownLatch(3)
+        val interrupted = CountDownLatch(3)
+        val engine = createBatchEngine(object : RequestDispatcher {
+            override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): Response {
+                started.countDown()
+                try {
+                    Thread.sleep(10000)
+                } catch (ex: InterruptedException) {
+                    interrupted.countDown()
+                    throw ex
+                }
+                return Response()
+            }
+        })
+
+        val future = engine.submit(originalRequest(1), parseTemplate())
+        assertTrue(started.await(5, TimeUnit.SECONDS))
+        future.cancel(true)
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun submit__manyConcurrentBatches() {
+        val engine = createBatchEngine(object : RequestDispatcher {
+            override fun dispatch(request: Request, jsonProvider: JsonProvider, options: DispatchOptions): Response {
+                Thread.sleep(100)
+                val response = Response()
+                response.status = 200
+                return response
+            }
+        })
+
+        val batchTemplate = parseTemplate()
+        val futures = ArrayList<Future<Response>>()
+        for (id in 1..2000)
+            futures.add(engine.submit(originalRequest(id), batchTemplate))
+        for (future in futures)
+            assertEquals(200, future.get(30, TimeUnit.SECONDS).status)
+    }
+
+    private fun createBatchEngine(requestDispatcher: RequestDispatcher): VirtualThreadBatchEngine {
+        val engine = VirtualThreadBatchEngine(configuration, JsonBuilder(*Functions.basic()), requestDispatcher)
+        batchEngine = engine
+        return engine
+    }
+
+    private fun parseTemplate(): BatchTemplate = objectMapper.readValue(template, BatchTemplate::class.java)
+
+    private fun originalRequest(id: Int): Request {
+        val request = Request()
+        request.body = mapOf("id" to id)
+        return request
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.rey.jsonbatch.metrics;
+
+import com.rey.jsonbatch.BatchEventListener;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class BatchMetrics implements BatchEventListener {
+
+    public static final String DEFAULT_TEMPLATE_NAME = "default";
+
+    // BatchPlan and RequestPlan don't override equals/hashCode, so registered templates are looked up by identity.
+    // Unregistered templates (e.g. a BatchTemplate compiled on each execution) are recorded as the default template, by request id
+    private final Map<BatchPlan, TemplateMetrics> plans = new ConcurrentHashMap<>();
+    private final Map<RequestPlan, TemplateMetrics> owners = new ConcurrentHashMap<>();
+    private final Map<String, TemplateMetrics> templates = new ConcurrentHashMap<>();
+    private final List<MetricsRegistryAdapter> adapters = new CopyOnWriteArrayList<>();
+
+    public BatchMetrics register(String name, BatchPlan template) {
+        TemplateMetrics templateMetrics = template(name);
+        registerRequests(template.getRequests(), templateMetrics);
+        plans.put(template, templateMetrics);
+        return this;
+    }
+
+    public BatchMetrics bindTo(MetricsRegistryAdapter adapter) {
+        synchronized (adapters) {
+            adapters.add(adapter);
+            for (TemplateMetrics templateMetrics : templates.values())
+                templateMetrics.bindTo(adapter);
+        }
+        return this;
+    }
+
+    public TemplateMetrics getTemplateMetrics(String name) {
+        return templates.get(name);
+    }
+
+    public Collection<TemplateMetrics> getTemplateMetrics() {
+        return Collections.unmodifiableCollection(templates.values());
+    }
+
+    @Override
+    public void onBatchEnd(long batchId, Request originalRequest, BatchPlan template, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+        template(template).recordBatch(endNanoTime - startNanoTime, error != null);
+    }
+
+    @Override
+    public void onRequestBuilt(long batchId, RequestPlan requestTemplate, Request request, long startNanoTime, long endNanoTime) {
+        recordBuild(requestTemplate, endNanoTime - startNanoTime);
+    }
+
+    @Override
+    public void onDispatchEnd(long batchId, RequestPlan requestTemplate, Request request, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+        long bytes = response == null || response.getBodySize() == null ? -1 : response.getBodySize();
+        RequestMetrics requestMetrics = request(requestTemplate);
+        requestMetrics.recordDispatch(endNanoTime - startNanoTime, error != null, bytes);
+        if (response != null && response.getTiming() != null)
+            requestMetrics.recordTiming(response.getTiming());
+    }
+
+    @Override
+    public void onLoopEnd(long batchId, RequestPlan requestTemplate, int iterations, long startNanoTime, long endNanoTime) {
+        request(requestTemplate).recordLoop(iterations);
+    }
+
+    @Override
+    public void onTransform(long batchId, RequestPlan requestTemplate, Response response, long startNanoTime, long endNanoTime) {
+        recordBuild(requestTemplate, endNanoTime - startNanoTime);
+    }
+
+    @Override
+    public void onVarsProcessed(long batchId, RequestPlan requestTemplate, long startNanoTime, long endNanoTime) {
+        recordBuild(requestTemplate, endNanoTime - startNanoTime);
+    }
+
+    @Override
+    public void onBreakResponse(long batchId, RequestPlan requestTemplate, Response response, long nanoTime) {
+        TemplateMetrics templateMetrics = owner(requestTemplate);
+        templateMetrics.recordBreakResponse();
+        templateMetrics.request(requestTemplate).recordBreakResponse();
+    }
+
+    private void recordBuild(RequestPlan requestTemplate, long time) {
+        request(requestTemplate).recordBuild(time);
+    }
+
+    private RequestMetrics request(RequestPlan requestTemplate) {
+        return owner(requestTemplate).request(requestTemplate);
+    }
+
+    private TemplateMetrics owner(RequestPlan requestTemplate) {
+        TemplateMetrics templateMetrics = owners.get(requestTemplate);
+        return templateMetrics != null ? templateMetrics : template(DEFAULT_TEMPLATE_NAME);
+    }
+
+    private TemplateMetrics template(BatchPlan template) {
+        TemplateMetrics templateMetrics = plans.get(template);
+        return templateMetrics != null ? templateMetrics : template(DEFAULT_TEMPLATE_NAME);
+    }
+
+    private void registerRequests(List<RequestPlan> requestTemplates, TemplateMetrics templateMetrics) {
+        if (requestTemplates == null)
+            return;
+        for (RequestPlan requestTemplate : requestTemplates) {
+            owners.put(requestTemplate, templateMetrics);
+            registerRequests(requestTemplate.getRequests(), templateMetrics);
+            if (requestTemplate.getLoop() != null)
+                registerRequests(requestTemplate.getLoop().getRequests(), templateMetrics);
+        }
+    }
+
+    private TemplateMetrics template(String name) {
+        TemplateMetrics templateMetrics = templates.get(name);
+        if (templateMetrics != null)
+            return templateMetrics;
+        synchronized (adapters) {
+            return templates.computeIfAbsent(name, key -> {
+                TemplateMetrics created = new TemplateMetrics(key, adapters);
+                for (MetricsRegistryAdapter adapter : adapters)
+                    created.bindTo(adapter);
+                return created;
+            });
+        }
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.rey.jsonbatch.metrics;
+
+public interface CounterMXBean {
+
+    long getCount();
+
+}
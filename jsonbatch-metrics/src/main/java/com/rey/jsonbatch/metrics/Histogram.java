@@ -0,0 +1,91 @@
+package com.rey.jsonbatch.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/*
+ * Log-linear histogram in the HdrHistogram style: values below 2^SUB_BUCKET_BITS get their own bucket, above that each power of two
+ * is split in 2^(SUB_BUCKET_BITS - 1) buckets, so a recorded value is off by less than 3.2%. Values above 2^MAX_EXPONENT are counted
+ * in the last bucket (the max is still exact).
+ * Counts are spread over stripes picked by thread id, each stripe is allocated on first use, so recording never locks and threads
+ * on different stripes don't write the same cache lines.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = index(1L << MAX_EXPONENT) + SUB_BUCKET_HALF;
+
+    // slots after the buckets: count and sum
+    private static final int SLOT_COUNT = BUCKET_COUNT;
+    private static final int SLOT_SUM = BUCKET_COUNT + 1;
+
+    private static final int STRIPE_COUNT = Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1));
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPE_COUNT);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        AtomicLongArray stripe = stripe();
+        stripe.incrementAndGet(index(Math.min(value, (1L << (MAX_EXPONENT + 1)) - 1)));
+        stripe.incrementAndGet(SLOT_COUNT);
+        stripe.addAndGet(SLOT_SUM, value);
+        max.accumulate(value);
+        min.accumulate(value);
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe == null)
+                continue;
+            for (int j = 0; j < BUCKET_COUNT; j++)
+                counts[j] += stripe.get(j);
+            count += stripe.get(SLOT_COUNT);
+            sum += stripe.get(SLOT_SUM);
+        }
+        return new HistogramSnapshot(counts, count, sum, count == 0 ? 0 : min.get(), max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPE_COUNT; i++)
+            stripes.set(i, null);
+        max.reset();
+        min.reset();
+    }
+
+    private AtomicLongArray stripe() {
+        int index = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKET_COUNT + 2));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    static int index(long value) {
+        if (value < (1 << SUB_BUCKET_BITS))
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift + 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    // highest value counted in the bucket
+    static long highestValue(int index) {
+        if (index < (1 << SUB_BUCKET_BITS))
+            return index;
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long sub = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.rey.jsonbatch.metrics;
+
+public interface HistogramMXBean {
+
+    long getCount();
+
+    double getMean();
+
+    long getMin();
+
+    long getMax();
+
+    long get50thPercentile();
+
+    long get90thPercentile();
+
+    long get99thPercentile();
+
+    long get999thPercentile();
+
+}
@@ -0,0 +1,139 @@
+package com.rey.jsonbatch.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/*
+ * Registers each meter as an MXBean, e.g. com.rey.jsonbatch:type=Histogram,name=jsonbatch.batch.latency,template="users".
+ * Latencies and times are in nanoseconds.
+ */
+public class JmxMetricsAdapter implements MetricsRegistryAdapter, Closeable {
+
+    public static final String DEFAULT_DOMAIN = "com.rey.jsonbatch";
+
+    private Logger logger = LoggerFactory.getLogger(JmxMetricsAdapter.class);
+
+    private final MBeanServer mBeanServer;
+    private final String domain;
+    private final List<ObjectName> registeredNames = new CopyOnWriteArrayList<>();
+
+    public JmxMetricsAdapter() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    public JmxMetricsAdapter(MBeanServer mBeanServer, String domain) {
+        this.mBeanServer = mBeanServer;
+        this.domain = domain;
+    }
+
+    @Override
+    public void counter(String name, Map<String, String> tags, LongSupplier count) {
+        CounterMXBean bean = count::getAsLong;
+        register(objectName("Counter", name, tags), bean);
+    }
+
+    @Override
+    public void histogram(String name, Map<String, String> tags, Histogram histogram) {
+        register(objectName("Histogram", name, tags), new HistogramBean(histogram));
+    }
+
+    public List<ObjectName> getRegisteredNames() {
+        return registeredNames;
+    }
+
+    private ObjectName objectName(String type, String name, Map<String, String> tags) {
+        StringBuilder builder = new StringBuilder(domain).append(":type=").append(type).append(",name=").append(name);
+        tags.forEach((key, value) -> builder.append(',').append(key).append('=').append(ObjectName.quote(value)));
+        try {
+            return new ObjectName(builder.toString());
+        } catch (JMException ex) {
+            logger.error("Invalid object name: {}", builder);
+            throw new IllegalArgumentException("Invalid object name: " + builder, ex);
+        }
+    }
+
+    private void register(ObjectName objectName, Object bean) {
+        try {
+            if (mBeanServer.isRegistered(objectName))
+                mBeanServer.unregisterMBean(objectName);
+            mBeanServer.registerMBean(bean, objectName);
+            registeredNames.add(objectName);
+        } catch (JMException ex) {
+            logger.error("Cannot register MBean {}", objectName, ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ObjectName objectName : registeredNames) {
+            try {
+                if (mBeanServer.isRegistered(objectName))
+                    mBeanServer.unregisterMBean(objectName);
+            } catch (JMException ex) {
+                logger.warn("Cannot unregister MBean {}", objectName, ex);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private static class HistogramBean implements HistogramMXBean {
+
+        private final Histogram histogram;
+
+        HistogramBean(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.snapshot().getCount();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.snapshot().getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.snapshot().getMin();
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.snapshot().getMax();
+        }
+
+        @Override
+        public long get50thPercentile() {
+            return histogram.snapshot().getValueAtPercentile(50);
+        }
+
+        @Override
+        public long get90thPercentile() {
+            return histogram.snapshot().getValueAtPercentile(90);
+        }
+
+        @Override
+        public long get99thPercentile() {
+            return histogram.snapshot().getValueAtPercentile(99);
+        }
+
+        @Override
+        public long get999thPercentile() {
+            return histogram.snapshot().getValueAtPercentile(99.9);
+        }
+
+    }
+
+}
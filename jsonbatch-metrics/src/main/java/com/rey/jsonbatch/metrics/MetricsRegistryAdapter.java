@@ -0,0 +1,16 @@
+package com.rey.jsonbatch.metrics;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/*
+ * Bridge to a metrics library (Micrometer, Dropwizard, JMX...). BatchMetrics calls it once for each meter when the meter is created,
+ * the adapter then reads the values whenever its registry is scraped.
+ */
+public interface MetricsRegistryAdapter {
+
+    void counter(String name, Map<String, String> tags, LongSupplier count);
+
+    void histogram(String name, Map<String, String> tags, Histogram histogram);
+
+}
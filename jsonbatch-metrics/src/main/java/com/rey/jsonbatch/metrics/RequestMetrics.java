@@ -0,0 +1,160 @@
+package com.rey.jsonbatch.metrics;
+
+import com.rey.jsonbatch.model.DispatchTiming;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RequestMetrics {
+
+    private final String template;
+    private final String request;
+
+    private final LongAdder dispatchCount = new LongAdder();
+    private final LongAdder dispatchErrorCount = new LongAdder();
+    private final LongAdder breakResponseCount = new LongAdder();
+    private final Histogram dispatchLatency = new Histogram();
+    private final Histogram buildTime = new Histogram();
+    private final Histogram responseBytes = new Histogram();
+    private final Histogram loopIterations = new Histogram();
+    private final LongAdder newConnectionCount = new LongAdder();
+    private final LongAdder reusedConnectionCount = new LongAdder();
+    private final Histogram poolWaitTime = new Histogram();
+    private final Histogram connectTime = new Histogram();
+    private final Histogram timeToFirstByte = new Histogram();
+    private final Histogram bodyReadTime = new Histogram();
+    private final Histogram parseTime = new Histogram();
+
+    RequestMetrics(String template, String request) {
+        this.template = template;
+        this.request = request;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getRequest() {
+        return request;
+    }
+
+    public long getDispatchCount() {
+        return dispatchCount.sum();
+    }
+
+    public long getDispatchErrorCount() {
+        return dispatchErrorCount.sum();
+    }
+
+    public long getBreakResponseCount() {
+        return breakResponseCount.sum();
+    }
+
+    public Histogram getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    public Histogram getBuildTime() {
+        return buildTime;
+    }
+
+    public Histogram getResponseBytes() {
+        return responseBytes;
+    }
+
+    public Histogram getLoopIterations() {
+        return loopIterations;
+    }
+
+    public long getNewConnectionCount() {
+        return newConnectionCount.sum();
+    }
+
+    public long getReusedConnectionCount() {
+        return reusedConnectionCount.sum();
+    }
+
+    public Histogram getPoolWaitTime() {
+        return poolWaitTime;
+    }
+
+    // DNS, TCP connect and TLS handshake of new connections
+    public Histogram getConnectTime() {
+        return connectTime;
+    }
+
+    public Histogram getTimeToFirstByte() {
+        return timeToFirstByte;
+    }
+
+    public Histogram getBodyReadTime() {
+        return bodyReadTime;
+    }
+
+    public Histogram getParseTime() {
+        return parseTime;
+    }
+
+    void recordDispatch(long latency, boolean failed, long bytes) {
+        dispatchCount.increment();
+        if (failed)
+            dispatchErrorCount.increment();
+        dispatchLatency.record(latency);
+        if (bytes >= 0)
+            responseBytes.record(bytes);
+    }
+
+    void recordTiming(DispatchTiming timing) {
+        if (timing.getConnectionReused() != null) {
+            if (timing.getConnectionReused())
+                reusedConnectionCount.increment();
+            else {
+                newConnectionCount.increment();
+                connectTime.record(Math.max(0, timing.getDnsTime()) + Math.max(0, timing.getConnectTime()) + Math.max(0, timing.getTlsTime()));
+            }
+        }
+        recordIfMeasured(poolWaitTime, timing.getPoolWaitTime());
+        recordIfMeasured(timeToFirstByte, timing.getTimeToFirstByte());
+        recordIfMeasured(bodyReadTime, timing.getBodyReadTime());
+        recordIfMeasured(parseTime, timing.getParseTime());
+    }
+
+    private void recordIfMeasured(Histogram histogram, long value) {
+        if (value >= 0)
+            histogram.record(value);
+    }
+
+    void recordBuild(long time) {
+        buildTime.record(time);
+    }
+
+    void recordLoop(int iterations) {
+        loopIterations.record(iterations);
+    }
+
+    void recordBreakResponse() {
+        breakResponseCount.increment();
+    }
+
+    void bindTo(MetricsRegistryAdapter adapter) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("template", template);
+        tags.put("request", request);
+        adapter.counter("jsonbatch.request.dispatches", tags, dispatchCount::sum);
+        adapter.counter("jsonbatch.request.dispatch.errors", tags, dispatchErrorCount::sum);
+        adapter.counter("jsonbatch.request.break.responses", tags, breakResponseCount::sum);
+        adapter.histogram("jsonbatch.request.dispatch.latency", tags, dispatchLatency);
+        adapter.histogram("jsonbatch.request.build.time", tags, buildTime);
+        adapter.histogram("jsonbatch.request.response.bytes", tags, responseBytes);
+        adapter.histogram("jsonbatch.request.loop.iterations", tags, loopIterations);
+        adapter.counter("jsonbatch.request.connections.new", tags, newConnectionCount::sum);
+        adapter.counter("jsonbatch.request.connections.reused", tags, reusedConnectionCount::sum);
+        adapter.histogram("jsonbatch.request.pool.wait.time", tags, poolWaitTime);
+        adapter.histogram("jsonbatch.request.connect.time", tags, connectTime);
+        adapter.histogram("jsonbatch.request.ttfb", tags, timeToFirstByte);
+        adapter.histogram("jsonbatch.request.body.read.time", tags, bodyReadTime);
+        adapter.histogram("jsonbatch.request.parse.time", tags, parseTime);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.rey.jsonbatch.metrics;
+
+import com.rey.jsonbatch.plan.RequestPlan;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TemplateMetrics {
+
+    private final String name;
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder batchErrorCount = new LongAdder();
+    private final LongAdder breakResponseCount = new LongAdder();
+    private final Histogram batchLatency = new Histogram();
+
+    private final Map<String, RequestMetrics> requests = new ConcurrentHashMap<>();
+    private final List<MetricsRegistryAdapter> adapters;
+
+    TemplateMetrics(String name, List<MetricsRegistryAdapter> adapters) {
+        this.name = name;
+        this.adapters = adapters;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getBatchErrorCount() {
+        return batchErrorCount.sum();
+    }
+
+    public long getBreakResponseCount() {
+        return breakResponseCount.sum();
+    }
+
+    public Histogram getBatchLatency() {
+        return batchLatency;
+    }
+
+    public RequestMetrics getRequestMetrics(String requestId) {
+        return requests.get(requestId);
+    }
+
+    public Collection<RequestMetrics> getRequestMetrics() {
+        return Collections.unmodifiableCollection(requests.values());
+    }
+
+    void recordBatch(long latency, boolean failed) {
+        batchCount.increment();
+        if (failed)
+            batchErrorCount.increment();
+        batchLatency.record(latency);
+    }
+
+    void recordBreakResponse() {
+        breakResponseCount.increment();
+    }
+
+    RequestMetrics request(RequestPlan requestTemplate) {
+        String id = requestTemplate.getId() == null ? "unknown" : requestTemplate.getId();
+        RequestMetrics metrics = requests.get(id);
+        if (metrics != null)
+            return metrics;
+        synchronized (adapters) {
+            return requests.computeIfAbsent(id, key -> {
+                RequestMetrics requestMetrics = new RequestMetrics(name, key);
+                for (MetricsRegistryAdapter adapter : adapters)
+                    requestMetrics.bindTo(adapter);
+                return requestMetrics;
+            });
+        }
+    }
+
+    void bindTo(MetricsRegistryAdapter adapter) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("template", name);
+        adapter.counter("jsonbatch.batches", tags, batchCount::sum);
+        adapter.counter("jsonbatch.batch.errors", tags, batchErrorCount::sum);
+        adapter.counter("jsonbatch.batch.break.responses", tags, breakResponseCount::sum);
+        adapter.histogram("jsonbatch.batch.latency", tags, batchLatency);
+        for (RequestMetrics requestMetrics : requests.values())
+            requestMetrics.bindTo(adapter);
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.rey.jsonbatch.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.DispatchTiming;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+public class BatchMetricsTest {
+
+    private static final String TEMPLATE = "{" +
+            "  \"requests\": [" +
+            "    {" +
+            "      \"http_method\": \"GET\"," +
+            "      \"url\": \"https://test.com/users/@{$.original.body.id}@\"," +
+            "      \"requests\": [" +
+            "        {" +
+            "          \"loop\": {" +
+            "            \"counter_init\": 1," +
+            "            \"counter_predicate\": \"__cmp(\\\"@{$.requests[1].counter}@ <= 3\\\")\"," +
+            "            \"counter_update\": \"int __sum(\\\"$.requests[1].counter\\\", 1)\"," +
+            "            \"requests\": [" +
+            "              {" +
+            "                \"http_method\": \"GET\"," +
+            "                \"url\": \"https://test.com/pages/@{$.requests[1].counter}@\"" +
+            "              }" +
+            "            ]" +
+            "          }," +
+            "          \"responses\": [" +
+            "            {" +
+            "              \"predicate\": \"__cmp(\\\"@{$.original.body.id}@ == 2\\\")\"," +
+            "              \"status\": 404" +
+            "            }" +
+            "          ]" +
+            "        }" +
+            "      ]" +
+            "    }" +
+            "  ]," +
+            "  \"responses\": null" +
+            "}";
+
+    private ObjectMapper objectMapper;
+
+    private Configuration configuration;
+
+    private JsonBuilder jsonBuilder;
+
+    private BatchPlan plan;
+
+    @Before
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        configuration = Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build();
+        jsonBuilder = new JsonBuilder(Functions.basic());
+        plan = new TemplateCompiler(jsonBuilder).compile(objectMapper.readValue(TEMPLATE, BatchTemplate.class));
+    }
+
+    @Test
+    public void record__registeredTemplate() throws Exception {
+        BatchMetrics metrics = new BatchMetrics().register("users", plan);
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), null, metrics);
+        for (int id = 1; id <= 3; id++)
+            batchEngine.execute(request(id), plan);
+        try {
+            batchEngine.execute(request(5), plan);
+            fail();
+        } catch (IOException ex) {
+        }
+
+        TemplateMetrics templateMetrics = metrics.getTemplateMetrics("users");
+        assertEquals(4, templateMetrics.getBatchCount());
+        assertEquals(1, templateMetrics.getBatchErrorCount());
+        assertEquals(4, templateMetrics.getBatchLatency().snapshot().getCount());
+        assertEquals(1, templateMetrics.getBreakResponseCount());
+
+        RequestMetrics user = templateMetrics.getRequestMetrics("requests[0]");
+        assertEquals(4, user.getDispatchCount());
+        assertEquals(1, user.getDispatchErrorCount());
+        assertEquals(3, user.getResponseBytes().snapshot().getCount());
+        assertEquals(128, user.getResponseBytes().snapshot().getMax());
+        assertEquals(4, user.getBuildTime().snapshot().getCount());
+
+        RequestMetrics loop = templateMetrics.getRequestMetrics("requests[0].requests[0]");
+        assertEquals(3, loop.getLoopIterations().snapshot().getCount());
+        assertEquals(3, loop.getLoopIterations().snapshot().getMax());
+        assertEquals(1, loop.getBreakResponseCount());
+
+        RequestMetrics page = templateMetrics.getRequestMetrics("requests[0].requests[0].loop.requests[0]");
+        assertEquals(9, page.getDispatchCount());
+        assertEquals(0, page.getDispatchErrorCount());
+
+        assertNull(metrics.getTemplateMetrics(BatchMetrics.DEFAULT_TEMPLATE_NAME));
+    }
+
+    @Test
+    public void record__unregisteredTemplate() throws Exception {
+        BatchMetrics metrics = new BatchMetrics();
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), null, metrics);
+        batchEngine.execute(request(1), objectMapper.readValue(TEMPLATE, BatchTemplate.class));
+        batchEngine.execute(request(1), objectMapper.readValue(TEMPLATE, BatchTemplate.class));
+
+        TemplateMetrics templateMetrics = metrics.getTemplateMetrics(BatchMetrics.DEFAULT_TEMPLATE_NAME);
+        assertEquals(2, templateMetrics.getBatchCount());
+        assertEquals(2, templateMetrics.getRequestMetrics("requests[0]").getDispatchCount());
+        assertEquals(3, templateMetrics.getRequestMetrics().size());
+    }
+
+    @Test
+    public void record__dispatchTiming() throws Exception {
+        BatchMetrics metrics = new BatchMetrics().register("users", plan);
+        RequestDispatcher dispatcher = dispatcher();
+        int[] count = new int[1];
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, (request, jsonProvider, options) -> {
+            Response response = dispatcher.dispatch(request, jsonProvider, options);
+            DispatchTiming timing = new DispatchTiming();
+            boolean reused = count[0]++ > 0;
+            timing.setConnectionReused(reused);
+            timing.setPoolWaitTime(1_000);
+            timing.setDnsTime(reused ? 0 : 2_000);
+            timing.setConnectTime(reused ? 0 : 3_000);
+            timing.setTlsTime(reused ? 0 : 5_000);
+            timing.setTimeToFirstByte(20_000);
+            timing.setBodyReadTime(4_000);
+            timing.setParseTime(-1);
+            response.setTiming(timing);
+            return response;
+        }, null, metrics);
+        batchEngine.execute(request(1), plan);
+
+        RequestMetrics user = metrics.getTemplateMetrics("users").getRequestMetrics("requests[0]");
+        assertEquals(1, user.getNewConnectionCount());
+        assertEquals(0, user.getReusedConnectionCount());
+        assertEquals(1, user.getConnectTime().snapshot().getCount());
+        assertEquals(10_000, user.getConnectTime().snapshot().getMax());
+        assertEquals(1, user.getTimeToFirstByte().snapshot().getCount());
+        assertEquals(0, user.getParseTime().snapshot().getCount());
+
+        RequestMetrics page = metrics.getTemplateMetrics("users").getRequestMetrics("requests[0].requests[0].loop.requests[0]");
+        assertEquals(0, page.getNewConnectionCount());
+        assertEquals(3, page.getReusedConnectionCount());
+        assertEquals(0, page.getConnectTime().snapshot().getCount());
+        assertEquals(3, page.getPoolWaitTime().snapshot().getCount());
+        assertEquals(3, page.getBodyReadTime().snapshot().getCount());
+    }
+
+    @Test
+    public void bindTo__registryAdapter() throws Exception {
+        List<String> meters = new ArrayList<>();
+        BatchMetrics metrics = new BatchMetrics().register("users", plan);
+        metrics.bindTo(new MetricsRegistryAdapter() {
+            @Override
+            public void counter(String name, Map<String, String> tags, LongSupplier count) {
+                meters.add(name + tags);
+            }
+
+            @Override
+            public void histogram(String name, Map<String, String> tags, Histogram histogram) {
+                meters.add(name + tags);
+            }
+        });
+        assertEquals(4, meters.size());
+
+        new BatchEngine(configuration, jsonBuilder, dispatcher(), null, metrics).execute(request(1), plan);
+        assertEquals(4 + 3 * 14, meters.size());
+        assertTrue(meters.contains("jsonbatch.batch.latency{template=users}"));
+        assertTrue(meters.contains("jsonbatch.request.dispatch.latency{template=users, request=requests[0]}"));
+    }
+
+    @Test
+    public void bindTo__jmx() throws Exception {
+        MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+        BatchMetrics metrics = new BatchMetrics().register("users", plan);
+        try (JmxMetricsAdapter adapter = new JmxMetricsAdapter(mBeanServer, "test")) {
+            metrics.bindTo(adapter);
+            BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), null, metrics);
+            batchEngine.execute(request(1), plan);
+            batchEngine.execute(request(1), plan);
+
+            ObjectName batches = new ObjectName("test:type=Counter,name=jsonbatch.batches,template=\"users\"");
+            assertEquals(2L, mBeanServer.getAttribute(batches, "Count"));
+            ObjectName latency = new ObjectName("test:type=Histogram,name=jsonbatch.request.dispatch.latency,template=\"users\",request=\"requests[0]\"");
+            assertEquals(2L, mBeanServer.getAttribute(latency, "Count"));
+            assertTrue((Long) mBeanServer.getAttribute(latency, "99thPercentile") > 0);
+            assertEquals(4 + 3 * 14, adapter.getRegisteredNames().size());
+        }
+        assertEquals(0, mBeanServer.queryNames(new ObjectName("test:*"), null).size());
+    }
+
+    private RequestDispatcher dispatcher() {
+        return (request, jsonProvider, options) -> {
+            if (request.getUrl().endsWith("/5"))
+                throw new IOException("Cannot connect");
+            Response response = new Response();
+            response.setStatus(200);
+            response.setHeaders(Collections.emptyMap());
+            response.setBody(Collections.singletonMap("id", 1));
+            response.setBodySize(request.getUrl().contains("users") ? 128L : null);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return response;
+        };
+    }
+
+    private Request request(int id) {
+        Request request = new Request();
+        request.setHttpMethod("POST");
+        request.setUrl("https://test.com/batch");
+        request.setHeaders(Collections.emptyMap());
+        request.setBody(Collections.singletonMap("id", id));
+        return request;
+    }
+
+}
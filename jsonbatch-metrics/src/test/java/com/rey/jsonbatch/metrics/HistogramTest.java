@@ -0,0 +1,87 @@
+package com.rey.jsonbatch.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void index__continuous() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = Histogram.index(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(Histogram.highestValue(index) >= value);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void percentile__withinRelativeError() {
+        Random random = new Random(1);
+        Histogram histogram = new Histogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (1_000_000 * Math.exp(random.nextGaussian()));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[0], snapshot.getMin());
+        assertEquals(values[values.length - 1], snapshot.getMax());
+        assertEquals(Arrays.stream(values).sum(), snapshot.getSum());
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = snapshot.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + expected + " vs " + actual, Math.abs(actual - expected) <= expected * 0.032);
+        }
+        assertEquals(values[values.length - 1], snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void record__hugeAndNegativeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(Long.MAX_VALUE / 2, snapshot.getMax());
+        assertEquals(Long.MAX_VALUE / 2, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void record__concurrently() throws Exception {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 1; j <= 100_000; j++)
+                    histogram.record(j);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(800_000, snapshot.getCount());
+        assertEquals(8 * 5_000_050_000L, snapshot.getSum());
+        assertEquals(100_000, snapshot.getMax());
+        assertEquals(1, snapshot.getMin());
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.rey.jsonbatch.okhttp;
+
+import com.rey.jsonbatch.model.DispatchTiming;
+
+/*
+ * Timestamps of a single call, filled by TimingEventListener then by the dispatcher while it reads the body.
+ * The events of a call and the response callback run one after another, so no synchronization is needed.
+ */
+class CallTimer {
+
+    final long startTime = System.nanoTime();
+
+    long dnsTime;
+    // connect time, including TLS
+    long connectTime;
+    long tlsTime;
+    boolean connected;
+
+    boolean acquired;
+    long acquiredTime;
+    boolean firstByte;
+    long firstByteTime;
+
+    long bodyReadTime = -1;
+    long parseTime = -1;
+
+    DispatchTiming toTiming() {
+        DispatchTiming timing = new DispatchTiming();
+        timing.setTotalTime(System.nanoTime() - startTime);
+        timing.setBodyReadTime(bodyReadTime);
+        timing.setParseTime(parseTime);
+        // no connection event: the client used another event listener factory, or the response came from its cache
+        if (!acquired)
+            return timing;
+
+        timing.setConnectionReused(!connected);
+        timing.setDnsTime(dnsTime);
+        timing.setTlsTime(tlsTime);
+        timing.setConnectTime(Math.max(0, connectTime - tlsTime));
+        timing.setPoolWaitTime(Math.max(0, acquiredTime - startTime - dnsTime - connectTime));
+        if (firstByte)
+            timing.setTimeToFirstByte(firstByteTime - acquiredTime);
+        return timing;
+    }
+
+}
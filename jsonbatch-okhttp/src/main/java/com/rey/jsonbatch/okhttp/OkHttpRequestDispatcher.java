@@ -1,31 +1,107 @@
 package com.rey.jsonbatch.okhttp;
 
 import com.jayway.jsonpath.spi.json.JsonProvider;
-import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.DispatchTimingListener;
+import com.rey.jsonbatch.ProjectingRequestDispatcher;
 import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.DispatchTiming;
 import com.rey.jsonbatch.model.Request;
 import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.projection.ProjectingJsonReader;
+import com.rey.jsonbatch.projection.Projection;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class OkHttpRequestDispatcher implements RequestDispatcher {
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class OkHttpRequestDispatcher implements AsyncRequestDispatcher, ProjectingRequestDispatcher {
 
     private Logger logger = LoggerFactory.getLogger(OkHttpRequestDispatcher.class);
 
     private OkHttpClient okHttpClient;
 
+    private DispatchTimingListener timingListener;
+
     public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
+    private static final long MAX_DRAINED_BODY_SIZE = 64 * 1024;
+
     public OkHttpRequestDispatcher(OkHttpClient okHttpClient) {
         this.okHttpClient = okHttpClient;
     }
 
+    /*
+     * Records the network timing of each response (Response.getTiming()) and passes it to timingListener.
+     * The client is rebuilt with an EventListener wrapping its own one, and response bodies are read fully before being parsed.
+     */
+    public OkHttpRequestDispatcher(OkHttpClient okHttpClient, DispatchTimingListener timingListener) {
+        this.okHttpClient = okHttpClient.newBuilder()
+                .eventListenerFactory(new TimingEventListener.Factory(okHttpClient.eventListenerFactory()))
+                .build();
+        this.timingListener = timingListener;
+    }
+
     @Override
     public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        return dispatch(request, jsonProvider, options, Projection.ALL);
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) throws Exception {
+        CallTimer timer = timingListener == null ? null : new CallTimer();
+        try (okhttp3.Response httpResponse = okHttpClient.newCall(buildRequest(request, jsonProvider, timer)).execute()) {
+            return buildResponse(request, httpResponse, jsonProvider, options, projection, timer);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        return dispatchAsync(request, jsonProvider, options, Projection.ALL);
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options, Projection projection) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        CallTimer timer = timingListener == null ? null : new CallTimer();
+        okHttpClient.newCall(buildRequest(request, jsonProvider, timer)).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response httpResponse) {
+                try (okhttp3.Response closeable = httpResponse) {
+                    future.complete(buildResponse(request, closeable, jsonProvider, options, projection, timer));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        return future;
+    }
+
+    private okhttp3.Request buildRequest(Request request, JsonProvider jsonProvider, CallTimer timer) {
         okhttp3.Request.Builder requestBuilder = new okhttp3.Request.Builder();
+        if(timer != null)
+            requestBuilder.tag(CallTimer.class, timer);
         logger.debug("Request {}: {}", request.getHttpMethod(), request.getUrl());
         requestBuilder.url(request.getUrl());
         request.getHeaders().forEach((key, values) -> values.forEach(value -> requestBuilder.addHeader(key, value)));
@@ -36,37 +112,98 @@ public class OkHttpRequestDispatcher implements RequestDispatcher {
         }
         else
             requestBuilder.method(request.getHttpMethod(), null);
+        return requestBuilder.build();
+    }
 
-        try (okhttp3.Response httpResponse = okHttpClient.newCall(requestBuilder.build()).execute()) {
-            Response response = new Response();
-            response.setStatus(httpResponse.code());
-            if(options.getFailBackAsString())
-                try {
-                    String bodyAsString = httpResponse.body().string();
-                    response.setBody(bodyAsString);
-                    try {
-                        response.setBody(jsonProvider.parse(bodyAsString));
-                    }
-                    catch (Exception ex) {
-                        logger.warn("Cannot parse response body as JSON", ex);
-                    }
-                }
-                catch (Exception e) {
-                    logger.warn("Cannot parse response body as String", e);
-                    if(!options.getIgnoreParsingError())
-                        throw e;
-                }
-            else
+    private Response buildResponse(Request request, okhttp3.Response httpResponse, JsonProvider jsonProvider, DispatchOptions options, Projection projection, CallTimer timer) throws Exception {
+        Response response = new Response();
+        Map<String, List<String>> headerMap = new HashMap<>();
+        Headers headers = httpResponse.headers();
+        for(int i = 0; i < headers.size(); i++) {
+            headerMap.computeIfAbsent(headers.name(i), key -> new ArrayList<>()).add(headers.value(i));
+        }
+
+        response.setStatus(httpResponse.code());
+        response.setHeaders(headerMap);
+        ResponseBody body = httpResponse.body();
+        boolean hasBody = hasBody(httpResponse);
+        if(body != null && hasBody && body.contentLength() >= 0)
+            response.setBodySize(body.contentLength());
+        if(timer != null && body != null && hasBody && !projection.isNone()) {
+            long start = System.nanoTime();
+            byte[] bytes = body.bytes();
+            timer.bodyReadTime = System.nanoTime() - start;
+            response.setBodySize((long) bytes.length);
+            body = ResponseBody.create(bytes, body.contentType());
+        }
+        long parseStart = System.nanoTime();
+        if(!hasBody)
+            logger.debug("Response with [{}] status has no body", httpResponse.code());
+        else if(projection.isNone()) {
+            logger.debug("Skip unreferenced response body");
+            drain(body);
+        }
+        else if(options.getFailBackAsString())
+            try {
+                String bodyAsString = body.string();
+                response.setBody(bodyAsString);
                 try {
-                    response.setBody(jsonProvider.parse(httpResponse.body().byteStream(), "UTF-8"));
+                    response.setBody(projection.isAll() ? jsonProvider.parse(bodyAsString) : ProjectingJsonReader.read(new StringReader(bodyAsString), projection, jsonProvider));
                 }
                 catch (Exception ex) {
                     logger.warn("Cannot parse response body as JSON", ex);
-                    if(!options.getIgnoreParsingError())
-                        throw ex;
                 }
+            }
+            catch (Exception e) {
+                logger.warn("Cannot parse response body as String", e);
+                if(!options.getIgnoreParsingError())
+                    throw e;
+            }
+        else
+            try {
+                if(projection.isAll())
+                    response.setBody(jsonProvider.parse(body.byteStream(), "UTF-8"));
+                else
+                    response.setBody(ProjectingJsonReader.read(new InputStreamReader(body.byteStream(), StandardCharsets.UTF_8), projection, jsonProvider));
+            }
+            catch (Exception ex) {
+                logger.warn("Cannot parse response body as JSON", ex);
+                if(!options.getIgnoreParsingError())
+                    throw ex;
+            }
+
+        if(timer != null) {
+            if(hasBody && !projection.isNone())
+                timer.parseTime = System.nanoTime() - parseStart;
+            DispatchTiming timing = timer.toTiming();
+            response.setTiming(timing);
+            timingListener.onDispatchTiming(request, response, timing);
+        }
+        return response;
+    }
 
-            return response;
+    /*
+     * An unreferenced body is still read to its end when it's small, so the connection goes back to the pool.
+     * A bigger one is left to OkHttp, which closes it by discarding what arrives within 100ms and otherwise drops the connection:
+     * opening a new connection costs less than downloading a big body nobody reads.
+     */
+    private void drain(ResponseBody body) {
+        if(body == null || body.contentLength() > MAX_DRAINED_BODY_SIZE)
+            return;
+        try {
+            BufferedSource source = body.source();
+            if(!source.request(MAX_DRAINED_BODY_SIZE + 1))
+                source.skip(source.getBuffer().size());
+        }
+        catch (IOException ex) {
+            logger.debug("Cannot drain unreferenced response body", ex);
         }
     }
+
+    // responses to HEAD requests, 204 and 304 responses never have a body, see RFC 9110 section 6.4.1
+    private boolean hasBody(okhttp3.Response httpResponse) {
+        if("HEAD".equalsIgnoreCase(httpResponse.request().method()))
+            return false;
+        return httpResponse.code() != 204 && httpResponse.code() != 304;
+    }
 }
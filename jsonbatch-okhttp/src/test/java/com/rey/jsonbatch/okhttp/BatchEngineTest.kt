@@ -8,11 +8,15 @@ import com.jayway.jsonpath.Configuration
 import com.jayway.jsonpath.spi.json.JacksonJsonProvider
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
 import com.rey.jsonbatch.BatchEngine
+import com.rey.jsonbatch.DispatchTimingListener
 import com.rey.jsonbatch.JsonBuilder
 import com.rey.jsonbatch.function.*
 import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchTiming
 import com.rey.jsonbatch.model.Request
 import okhttp3.OkHttpClient
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.slf4j.LoggerFactory
@@ -24,6 +28,10 @@ class BatchEngineTest {
 
     private lateinit var batchEngine: BatchEngine
 
+    private lateinit var timedBatchEngine: BatchEngine
+
+    private val timings = mutableListOf<Pair<String, DispatchTiming>>()
+
     private lateinit var objectMapper: ObjectMapper
 
     @Before
@@ -44,6 +52,7 @@ class BatchEngineTest {
                 .readTimeout(60, TimeUnit.SECONDS)
                 .build()
         batchEngine = BatchEngine(conf, jsonBuilder, OkHttpRequestDispatcher(client))
+        timedBatchEngine = BatchEngine(conf, jsonBuilder, OkHttpRequestDispatcher(client, DispatchTimingListener { request, _, timing -> timings.add(request.url to timing) }))
     }
     
     @Test
@@ -196,5 +205,72 @@ class BatchEngineTest {
         val finalResponse = batchEngine.execute(originalRequest, batchTemplate)
         println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(finalResponse))
     }
-    
-}
\ No newline at end of file
+
+    @Test
+    fun testAsync() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://jsonplaceholder.typicode.com/posts/1",
+                        "headers": {
+                            "Accept": "str application/json, */*"
+                        },
+                        "body": null
+                    }
+                ],
+                "responses": [
+                    {
+                        "status": "$.responses[0].status",
+                        "headers": null,
+                        "body": {
+                            "first_post": "obj $.responses[0].body"
+                        }
+                    }
+                ]
+            }
+        """.trimIndent()
+        val batchTemplate = objectMapper.readValue(template, BatchTemplate::class.java)
+
+        val finalResponse = batchEngine.executeAsync(Request(), batchTemplate).get(60, TimeUnit.SECONDS)
+        println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(finalResponse))
+    }
+
+    @Test
+    fun testTiming() {
+        val template = """
+            {
+                "requests": [
+                    {
+                        "http_method": "GET",
+                        "url": "https://jsonplaceholder.typicode.com/posts/1",
+                        "body": null,
+                        "requests": [
+                            {
+                                "http_method": "GET",
+                                "url": "https://jsonplaceholder.typicode.com/posts/2",
+                                "body": null
+                            }
+                        ]
+                    }
+                ],
+                "responses": null
+            }
+        """.trimIndent()
+        val batchTemplate = objectMapper.readValue(template, BatchTemplate::class.java)
+
+        timedBatchEngine.execute(Request(), batchTemplate)
+        timings.forEach { println(it) }
+        assertEquals(2, timings.size)
+        val (_, first) = timings[0]
+        val (_, second) = timings[1]
+        assertEquals(false, first.connectionReused)
+        assertTrue(first.tlsTime > 0)
+        assertEquals(true, second.connectionReused)
+        assertEquals(0L, second.connectTime)
+        assertTrue(second.timeToFirstByte > 0)
+        assertTrue(second.parseTime >= 0)
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.rey.jsonbatch.okhttp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.dispatcher.CachingRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.projection.Projection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class OkHttpRequestDispatcherTest {
+
+    private HttpServer server;
+
+    private AtomicInteger requestCount;
+
+    private JsonProvider jsonProvider;
+
+    private OkHttpClient okHttpClient;
+
+    private OkHttpRequestDispatcher requestDispatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        requestCount = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/users/1", exchange -> {
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.getResponseHeaders().add("X-Tag", "a");
+            exchange.getResponseHeaders().add("X-Tag", "b");
+            send(exchange, 200, "{\"name\": \"v1\"}");
+        });
+        server.createContext("/users/2", exchange -> {
+            requestCount.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().add("ETag", "\"v2\"");
+            if ("\"v2\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else
+                send(exchange, 200, "{\"name\": \"v2\"}");
+        });
+        server.createContext("/users/3", exchange -> {
+            exchange.sendResponseHeaders("HEAD".equals(exchange.getRequestMethod()) ? 200 : 204, -1);
+            exchange.close();
+        });
+        server.createContext("/users/4", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write("{\"name\": ".getBytes(StandardCharsets.UTF_8));
+                outputStream.flush();
+                Thread.sleep(300);
+                outputStream.write("\"v4\"}".getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        jsonProvider = new JacksonJsonProvider(new ObjectMapper());
+        okHttpClient = new OkHttpClient();
+        requestDispatcher = new OkHttpRequestDispatcher(okHttpClient);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void dispatch__headers() throws Exception {
+        Response response = requestDispatcher.dispatch(request("GET", "/users/1"), jsonProvider, new DispatchOptions());
+
+        assertEquals(200, response.getStatus().intValue());
+        assertEquals("v1", ((Map<String, Object>) response.getBody()).get("name"));
+        assertEquals(Collections.singletonList("max-age=60"), header(response, "Cache-Control"));
+        assertEquals(Collections.singletonList("\"v1\""), header(response, "ETag"));
+        assertEquals(2, header(response, "X-Tag").size());
+    }
+
+    @Test
+    public void dispatch__noContent() throws Exception {
+        Response response = requestDispatcher.dispatch(request("DELETE", "/users/3"), jsonProvider, new DispatchOptions());
+
+        assertEquals(204, response.getStatus().intValue());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void dispatch__head() throws Exception {
+        Response response = requestDispatcher.dispatch(request("HEAD", "/users/3"), jsonProvider, new DispatchOptions());
+
+        assertEquals(200, response.getStatus().intValue());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void dispatch__unreferencedBody__reuseConnection() throws Exception {
+        Response response = requestDispatcher.dispatch(request("GET", "/users/4"), jsonProvider, new DispatchOptions(), Projection.NONE);
+
+        assertEquals(200, response.getStatus().intValue());
+        assertNull(response.getBody());
+        assertEquals(1, okHttpClient.connectionPool().idleConnectionCount());
+    }
+
+    @Test
+    public void dispatch__revalidateWithCache() throws Exception {
+        CachingRequestDispatcher cachingRequestDispatcher = new CachingRequestDispatcher(requestDispatcher, 1024 * 1024);
+
+        Response response = cachingRequestDispatcher.dispatch(request("GET", "/users/2"), jsonProvider, new DispatchOptions());
+        assertEquals("v2", ((Map<String, Object>) response.getBody()).get("name"));
+        response = cachingRequestDispatcher.dispatch(request("GET", "/users/2"), jsonProvider, new DispatchOptions());
+
+        assertEquals(200, response.getStatus().intValue());
+        assertEquals("v2", ((Map<String, Object>) response.getBody()).get("name"));
+        assertEquals(2, requestCount.get());
+        assertEquals(1, cachingRequestDispatcher.getRevalidationCount());
+    }
+
+    @Test
+    public void dispatchAsync__notModified() throws Exception {
+        Request request = request("GET", "/users/2");
+        request.setHeaders(Collections.singletonMap("If-None-Match", Collections.singletonList("\"v2\"")));
+        Response response = requestDispatcher.dispatchAsync(request, jsonProvider, new DispatchOptions()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(304, response.getStatus().intValue());
+        assertNull(response.getBody());
+    }
+
+    private Request request(String httpMethod, String path) {
+        Request request = new Request();
+        request.setHttpMethod(httpMethod);
+        request.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        request.setHeaders(Collections.emptyMap());
+        return request;
+    }
+
+    private List<String> header(Response response, String name) {
+        return response.getHeaders().entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(name))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+}
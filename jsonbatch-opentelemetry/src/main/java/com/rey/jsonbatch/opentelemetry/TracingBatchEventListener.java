@@ -0,0 +1,357 @@
+package com.rey.jsonbatch.opentelemetry;
+
+import com.rey.jsonbatch.BatchEventListener;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import com.rey.jsonbatch.plan.RequestPlan;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Creates a span per batch execution, with child spans per step, loop iteration and dispatch,
+ * and injects the trace context of the dispatch span into the request headers before it's dispatched.
+ * Steps are opened lazily: a chosen request template gets its span when its request is built, or when its loop starts.
+ * Batch ids are only unique inside an Engine, so an instance must not be shared by several engines.
+ */
+public class TracingBatchEventListener implements BatchEventListener {
+
+    public static final String INSTRUMENTATION_NAME = "com.rey.jsonbatch";
+
+    public static final AttributeKey<Long> BATCH_ID = AttributeKey.longKey("jsonbatch.batch.id");
+    public static final AttributeKey<String> TEMPLATE_ID = AttributeKey.stringKey("jsonbatch.template.id");
+    public static final AttributeKey<Long> TEMPLATE_INDEX = AttributeKey.longKey("jsonbatch.template.index");
+    public static final AttributeKey<Long> LOOP_ITERATION = AttributeKey.longKey("jsonbatch.loop.iteration");
+    public static final AttributeKey<Long> LOOP_ITERATIONS = AttributeKey.longKey("jsonbatch.loop.iterations");
+    public static final AttributeKey<String> LOOP_COUNTER = AttributeKey.stringKey("jsonbatch.loop.counter");
+    public static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.method");
+    public static final AttributeKey<String> HTTP_URL = AttributeKey.stringKey("http.url");
+    public static final AttributeKey<Long> HTTP_STATUS_CODE = AttributeKey.longKey("http.status_code");
+    public static final AttributeKey<Long> HTTP_RESPONSE_CONTENT_LENGTH = AttributeKey.longKey("http.response_content_length");
+
+    private static final TextMapSetter<Request> HEADER_SETTER = (request, key, value) -> {
+        Map<String, List<String>> headers = request.getHeaders() == null ? new LinkedHashMap<>() : new LinkedHashMap<>(request.getHeaders());
+        headers.put(key, Collections.singletonList(value));
+        request.setHeaders(headers);
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    // System.nanoTime() values of the engine are converted to epoch time from this pair
+    private final long anchorEpochNanos;
+    private final long anchorNanoTime;
+
+    private final Map<Long, BatchTrace> traces = new ConcurrentHashMap<>();
+
+    // request templates of a loop, mapped to their loop request template. BatchPlan doesn't override equals/hashCode,
+    // so plans are weakly keyed by identity and a BatchTemplate compiled on each execution doesn't leak
+    private final Map<BatchPlan, Map<RequestPlan, RequestPlan>> loopOwners = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public TracingBatchEventListener(OpenTelemetry openTelemetry) {
+        this(openTelemetry.getTracer(INSTRUMENTATION_NAME), openTelemetry.getPropagators().getTextMapPropagator());
+    }
+
+    public TracingBatchEventListener(Tracer tracer, TextMapPropagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.anchorEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.anchorNanoTime = System.nanoTime();
+    }
+
+    @Override
+    public void onBatchStart(long batchId, Request originalRequest, BatchPlan template, long nanoTime) {
+        Span span = tracer.spanBuilder("jsonbatch.batch")
+                .setParent(Context.current())
+                .setStartTimestamp(toEpochNanos(nanoTime), TimeUnit.NANOSECONDS)
+                .setAttribute(BATCH_ID, batchId)
+                .startSpan();
+        traces.put(batchId, new BatchTrace(span, loopOwners.computeIfAbsent(template, this::findLoopOwners)));
+    }
+
+    @Override
+    public void onBatchEnd(long batchId, Request originalRequest, BatchPlan template, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+        BatchTrace trace = traces.remove(batchId);
+        if (trace != null)
+            trace.end(response, error, toEpochNanos(endNanoTime));
+    }
+
+    @Override
+    public void onStepSelected(long batchId, RequestPlan requestTemplate, int index, long nanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.selectStep(requestTemplate, index, nanoTime);
+    }
+
+    @Override
+    public void onRequestBuilt(long batchId, RequestPlan requestTemplate, Request request, long startNanoTime, long endNanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.openStep(requestTemplate, request);
+    }
+
+    @Override
+    public void onDispatchStart(long batchId, RequestPlan requestTemplate, Request request, long nanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace == null)
+            return;
+        Span span = trace.startDispatch(requestTemplate, request, nanoTime);
+        propagator.inject(Context.root().with(span), request, HEADER_SETTER);
+    }
+
+    @Override
+    public void onDispatchEnd(long batchId, RequestPlan requestTemplate, Request request, Response response, Throwable error, long startNanoTime, long endNanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.endDispatch(request, response, error, endNanoTime);
+    }
+
+    @Override
+    public void onLoopIterationStart(long batchId, RequestPlan requestTemplate, int iteration, Object counter, long nanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.startIteration(requestTemplate, iteration, counter, nanoTime);
+    }
+
+    @Override
+    public void onLoopIterationEnd(long batchId, RequestPlan requestTemplate, int iteration, long startNanoTime, long endNanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.endIteration(requestTemplate, iteration, endNanoTime);
+    }
+
+    @Override
+    public void onLoopEnd(long batchId, RequestPlan requestTemplate, int iterations, long startNanoTime, long endNanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.endLoop(requestTemplate, iterations);
+    }
+
+    @Override
+    public void onBreakResponse(long batchId, RequestPlan requestTemplate, Response response, long nanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.span.addEvent("jsonbatch.break_response", Attributes.of(
+                    TEMPLATE_ID, String.valueOf(requestTemplate.getId()),
+                    HTTP_STATUS_CODE, response.getStatus() == null ? 0L : response.getStatus().longValue()),
+                    toEpochNanos(nanoTime), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onStepEnd(long batchId, RequestPlan requestTemplate, Request request, int index, long startNanoTime, long endNanoTime) {
+        BatchTrace trace = traces.get(batchId);
+        if (trace != null)
+            trace.endStep(requestTemplate, request, endNanoTime);
+    }
+
+    private long toEpochNanos(long nanoTime) {
+        return anchorEpochNanos + (nanoTime - anchorNanoTime);
+    }
+
+    private Map<RequestPlan, RequestPlan> findLoopOwners(BatchPlan template) {
+        Map<RequestPlan, RequestPlan> owners = new IdentityHashMap<>();
+        findLoopOwners(template.getRequests(), null, owners);
+        return owners;
+    }
+
+    private void findLoopOwners(List<RequestPlan> requestTemplates, RequestPlan owner, Map<RequestPlan, RequestPlan> owners) {
+        if (requestTemplates == null)
+            return;
+        for (RequestPlan requestTemplate : requestTemplates) {
+            if (owner != null)
+                owners.put(requestTemplate, owner);
+            findLoopOwners(requestTemplate.getRequests(), owner, owners);
+            if (requestTemplate.getLoop() != null)
+                findLoopOwners(requestTemplate.getLoop().getRequests(), requestTemplate, owners);
+        }
+    }
+
+    // spans of one batch execution. Callbacks of parallel dispatches run on different threads, so every access is synchronized
+    private class BatchTrace {
+
+        final Span span;
+        final Map<RequestPlan, RequestPlan> loopOwners;
+
+        // chosen request templates whose span isn't opened yet: index and start time
+        final Map<RequestPlan, long[]> selectedSteps = new IdentityHashMap<>();
+        // steps are keyed by their request, loop steps (which have no request) by their template
+        final Map<Request, Span> requestSteps = new IdentityHashMap<>();
+        final Map<RequestPlan, Span> loopSteps = new IdentityHashMap<>();
+        final Map<RequestPlan, Span> currentIterations = new IdentityHashMap<>();
+        final Map<IterationKey, Span> iterations = new HashMap<>();
+        final Map<Request, Span> dispatches = new IdentityHashMap<>();
+
+        BatchTrace(Span span, Map<RequestPlan, RequestPlan> loopOwners) {
+            this.span = span;
+            this.loopOwners = loopOwners;
+        }
+
+        synchronized void selectStep(RequestPlan requestTemplate, int index, long nanoTime) {
+            selectedSteps.put(requestTemplate, new long[]{index, nanoTime});
+        }
+
+        synchronized Span openStep(RequestPlan requestTemplate, Request request) {
+            Span stepSpan = request == null ? loopSteps.get(requestTemplate) : requestSteps.get(request);
+            if (stepSpan != null)
+                return stepSpan;
+
+            long[] selected = selectedSteps.remove(requestTemplate);
+            long startNanoTime = selected == null ? System.nanoTime() : selected[1];
+            stepSpan = tracer.spanBuilder("jsonbatch.step")
+                    .setParent(parentOf(requestTemplate))
+                    .setStartTimestamp(toEpochNanos(startNanoTime), TimeUnit.NANOSECONDS)
+                    .setAttribute(TEMPLATE_ID, String.valueOf(requestTemplate.getId()))
+                    .setAttribute(TEMPLATE_INDEX, selected == null ? -1L : selected[0])
+                    .startSpan();
+            if (request == null)
+                loopSteps.put(requestTemplate, stepSpan);
+            else
+                requestSteps.put(request, stepSpan);
+            return stepSpan;
+        }
+
+        synchronized void endStep(RequestPlan requestTemplate, Request request, long endNanoTime) {
+            Span stepSpan = openStep(requestTemplate, request);
+            if (request == null)
+                loopSteps.remove(requestTemplate);
+            else
+                requestSteps.remove(request);
+            stepSpan.end(toEpochNanos(endNanoTime), TimeUnit.NANOSECONDS);
+        }
+
+        synchronized Span startDispatch(RequestPlan requestTemplate, Request request, long nanoTime) {
+            Span stepSpan = openStep(requestTemplate, request);
+            Span dispatchSpan = tracer.spanBuilder(request.getHttpMethod())
+                    .setParent(Context.root().with(stepSpan))
+                    .setSpanKind(SpanKind.CLIENT)
+                    .setStartTimestamp(toEpochNanos(nanoTime), TimeUnit.NANOSECONDS)
+                    .setAttribute(TEMPLATE_ID, String.valueOf(requestTemplate.getId()))
+                    .setAttribute(HTTP_METHOD, request.getHttpMethod())
+                    .setAttribute(HTTP_URL, request.getUrl())
+                    .startSpan();
+            dispatches.put(request, dispatchSpan);
+            return dispatchSpan;
+        }
+
+        synchronized void endDispatch(Request request, Response response, Throwable error, long endNanoTime) {
+            Span dispatchSpan = dispatches.remove(request);
+            if (dispatchSpan == null)
+                return;
+            if (response != null) {
+                if (response.getStatus() != null) {
+                    dispatchSpan.setAttribute(HTTP_STATUS_CODE, response.getStatus().longValue());
+                    if (response.getStatus() >= 400)
+                        dispatchSpan.setStatus(StatusCode.ERROR);
+                }
+                if (response.getBodySize() != null)
+                    dispatchSpan.setAttribute(HTTP_RESPONSE_CONTENT_LENGTH, response.getBodySize());
+            }
+            if (error != null) {
+                dispatchSpan.recordException(error);
+                dispatchSpan.setStatus(StatusCode.ERROR, error.getMessage());
+            }
+            dispatchSpan.end(toEpochNanos(endNanoTime), TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void startIteration(RequestPlan requestTemplate, int iteration, Object counter, long nanoTime) {
+            Span loopSpan = openStep(requestTemplate, null);
+            Span iterationSpan = tracer.spanBuilder("jsonbatch.loop.iteration")
+                    .setParent(Context.root().with(loopSpan))
+                    .setStartTimestamp(toEpochNanos(nanoTime), TimeUnit.NANOSECONDS)
+                    .setAttribute(TEMPLATE_ID, String.valueOf(requestTemplate.getId()))
+                    .setAttribute(LOOP_ITERATION, (long) iteration)
+                    .setAttribute(LOOP_COUNTER, String.valueOf(counter))
+                    .startSpan();
+            iterations.put(new IterationKey(requestTemplate, iteration), iterationSpan);
+            currentIterations.put(requestTemplate, iterationSpan);
+        }
+
+        synchronized void endIteration(RequestPlan requestTemplate, int iteration, long endNanoTime) {
+            Span iterationSpan = iterations.remove(new IterationKey(requestTemplate, iteration));
+            if (iterationSpan != null)
+                iterationSpan.end(toEpochNanos(endNanoTime), TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void endLoop(RequestPlan requestTemplate, int iterations) {
+            openStep(requestTemplate, null).setAttribute(LOOP_ITERATIONS, (long) iterations);
+            currentIterations.remove(requestTemplate);
+        }
+
+        // spans left open by a break response or an error end with the batch
+        synchronized void end(Response response, Throwable error, long endEpochNanos) {
+            endAll(dispatches.values(), error, endEpochNanos);
+            endAll(requestSteps.values(), error, endEpochNanos);
+            endAll(iterations.values(), error, endEpochNanos);
+            endAll(loopSteps.values(), error, endEpochNanos);
+            if (response != null && response.getStatus() != null)
+                span.setAttribute(HTTP_STATUS_CODE, response.getStatus().longValue());
+            if (error != null) {
+                span.recordException(error);
+                span.setStatus(StatusCode.ERROR, error.getMessage());
+            }
+            span.end(endEpochNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void endAll(Iterable<Span> spans, Throwable error, long endEpochNanos) {
+            for (Span openSpan : spans) {
+                if (error != null)
+                    openSpan.setStatus(StatusCode.ERROR);
+                openSpan.end(endEpochNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Context parentOf(RequestPlan requestTemplate) {
+            RequestPlan owner = loopOwners.get(requestTemplate);
+            Span parent = owner == null ? null : currentIterations.get(owner);
+            return Context.root().with(parent == null ? span : parent);
+        }
+
+    }
+
+    private static class IterationKey {
+
+        final RequestPlan requestTemplate;
+        final int iteration;
+
+        IterationKey(RequestPlan requestTemplate, int iteration) {
+            this.requestTemplate = requestTemplate;
+            this.iteration = iteration;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof IterationKey))
+                return false;
+            IterationKey that = (IterationKey) o;
+            return requestTemplate == that.requestTemplate && iteration == that.iteration;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(requestTemplate), iteration);
+        }
+
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.rey.jsonbatch.opentelemetry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import com.rey.jsonbatch.BatchEngine;
+import com.rey.jsonbatch.JsonBuilder;
+import com.rey.jsonbatch.RequestDispatcher;
+import com.rey.jsonbatch.TemplateCompiler;
+import com.rey.jsonbatch.function.Functions;
+import com.rey.jsonbatch.model.BatchTemplate;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import com.rey.jsonbatch.plan.BatchPlan;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TracingBatchEventListenerTest {
+
+    private static final String TEMPLATE = "{" +
+            "  \"requests\": [" +
+            "    {" +
+            "      \"http_method\": \"GET\"," +
+            "      \"url\": \"https://test.com/users/@{$.original.body.id}@\"," +
+            "      \"requests\": [" +
+            "        {" +
+            "          \"loop\": {" +
+            "            \"counter_init\": 1," +
+            "            \"counter_predicate\": \"__cmp(\\\"@{$.requests[1].counter}@ <= 3\\\")\"," +
+            "            \"counter_update\": \"int __sum(\\\"$.requests[1].counter\\\", 1)\"," +
+            "            \"parallelism\": %d," +
+            "            \"requests\": [" +
+            "              {" +
+            "                \"http_method\": \"GET\"," +
+            "                \"url\": \"https://test.com/pages/@{$.requests[1].counter}@\"" +
+            "              }" +
+            "            ]" +
+            "          }" +
+            "        }" +
+            "      ]" +
+            "    }" +
+            "  ]," +
+            "  \"responses\": null" +
+            "}";
+
+    private ObjectMapper objectMapper;
+
+    private Configuration configuration;
+
+    private JsonBuilder jsonBuilder;
+
+    private InMemorySpanExporter exporter;
+
+    private TracingBatchEventListener listener;
+
+    private Map<String, String> traceParents;
+
+    @Before
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        configuration = Configuration.builder()
+                .jsonProvider(new JacksonJsonProvider(objectMapper))
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .build();
+        jsonBuilder = new JsonBuilder(Functions.basic());
+
+        exporter = InMemorySpanExporter.create();
+        OpenTelemetrySdk openTelemetry = OpenTelemetrySdk.builder()
+                .setTracerProvider(SdkTracerProvider.builder()
+                        .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                        .build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+        listener = new TracingBatchEventListener(openTelemetry);
+        traceParents = new ConcurrentHashMap<>();
+    }
+
+    @After
+    public void tearDown() {
+        exporter.reset();
+    }
+
+    @Test
+    public void execute__spanTree() throws Exception {
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), null, listener);
+        batchEngine.execute(request(1), plan(1));
+
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(1 + 5 + 3 + 4, spans.size());
+        assertEquals(1, spans.stream().map(SpanData::getTraceId).distinct().count());
+
+        SpanData batch = single(spans, "jsonbatch.batch");
+        assertFalse(batch.getParentSpanContext().isValid());
+        assertEquals(200L, (long) batch.getAttributes().get(TracingBatchEventListener.HTTP_STATUS_CODE));
+
+        SpanData user = step(spans, "requests[0]").get(0);
+        assertEquals(batch.getSpanId(), user.getParentSpanId());
+        assertEquals(0L, (long) user.getAttributes().get(TracingBatchEventListener.TEMPLATE_INDEX));
+
+        SpanData loop = step(spans, "requests[0].requests[0]").get(0);
+        assertEquals(batch.getSpanId(), loop.getParentSpanId());
+        assertEquals(3L, (long) loop.getAttributes().get(TracingBatchEventListener.LOOP_ITERATIONS));
+
+        List<SpanData> iterations = named(spans, "jsonbatch.loop.iteration");
+        assertEquals(3, iterations.size());
+        for (SpanData iteration : iterations) {
+            assertEquals(loop.getSpanId(), iteration.getParentSpanId());
+            long index = iteration.getAttributes().get(TracingBatchEventListener.LOOP_ITERATION);
+            assertEquals(String.valueOf(index + 1), iteration.getAttributes().get(TracingBatchEventListener.LOOP_COUNTER));
+        }
+
+        List<SpanData> pages = step(spans, "requests[0].requests[0].loop.requests[0]");
+        assertEquals(3, pages.size());
+        List<String> iterationIds = iterations.stream().map(SpanData::getSpanId).collect(Collectors.toList());
+        for (SpanData page : pages)
+            assertTrue(iterationIds.contains(page.getParentSpanId()));
+
+        List<SpanData> dispatches = named(spans, "GET");
+        assertEquals(4, dispatches.size());
+        for (SpanData dispatch : dispatches) {
+            assertEquals(SpanKind.CLIENT, dispatch.getKind());
+            assertEquals(200L, (long) dispatch.getAttributes().get(TracingBatchEventListener.HTTP_STATUS_CODE));
+            String url = dispatch.getAttributes().get(TracingBatchEventListener.HTTP_URL);
+            assertEquals("00-" + dispatch.getTraceId() + "-" + dispatch.getSpanId() + "-01", traceParents.get(url));
+        }
+        SpanData userDispatch = dispatches.stream()
+                .filter(dispatch -> dispatch.getAttributes().get(TracingBatchEventListener.HTTP_URL).contains("users"))
+                .findFirst()
+                .get();
+        assertEquals(user.getSpanId(), userDispatch.getParentSpanId());
+        assertEquals(128L, (long) userDispatch.getAttributes().get(TracingBatchEventListener.HTTP_RESPONSE_CONTENT_LENGTH));
+    }
+
+    @Test
+    public void execute__parallelLoop() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), executor, listener);
+            batchEngine.execute(request(1), plan(3));
+        } finally {
+            executor.shutdown();
+        }
+
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(1 + 5 + 3 + 4, spans.size());
+        List<String> iterationIds = named(spans, "jsonbatch.loop.iteration").stream()
+                .map(SpanData::getSpanId)
+                .collect(Collectors.toList());
+        List<String> parentIds = step(spans, "requests[0].requests[0].loop.requests[0]").stream()
+                .map(SpanData::getParentSpanId)
+                .distinct()
+                .collect(Collectors.toList());
+        assertEquals(3, parentIds.size());
+        assertTrue(iterationIds.containsAll(parentIds));
+    }
+
+    @Test
+    public void execute__error() throws Exception {
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), null, listener);
+        try {
+            batchEngine.execute(request(5), plan(1));
+            fail();
+        } catch (IOException ex) {
+        }
+
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(3, spans.size());
+        assertEquals(StatusCode.ERROR, single(spans, "jsonbatch.batch").getStatus().getStatusCode());
+        assertEquals(StatusCode.ERROR, single(spans, "GET").getStatus().getStatusCode());
+        assertEquals(1, single(spans, "GET").getEvents().size());
+        assertEquals(StatusCode.ERROR, single(spans, "jsonbatch.step").getStatus().getStatusCode());
+    }
+
+    @Test
+    public void execute__async() throws Exception {
+        BatchEngine batchEngine = new BatchEngine(configuration, jsonBuilder, dispatcher(), null, listener);
+        batchEngine.executeAsync(request(1), plan(1)).get();
+
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        assertEquals(1 + 5 + 3 + 4, spans.size());
+        assertEquals(1, spans.stream().map(SpanData::getTraceId).distinct().count());
+    }
+
+    private BatchPlan plan(int parallelism) throws Exception {
+        BatchTemplate template = objectMapper.readValue(String.format(TEMPLATE, parallelism), BatchTemplate.class);
+        return new TemplateCompiler(jsonBuilder).compile(template);
+    }
+
+    private SpanData single(List<SpanData> spans, String name) {
+        List<SpanData> result = named(spans, name);
+        assertEquals(1, result.size());
+        return result.get(0);
+    }
+
+    private List<SpanData> named(List<SpanData> spans, String name) {
+        return spans.stream()
+                .filter(span -> span.getName().equals(name))
+                .collect(Collectors.toList());
+    }
+
+    private List<SpanData> step(List<SpanData> spans, String id) {
+        return named(spans, "jsonbatch.step").stream()
+                .filter(span -> id.equals(span.getAttributes().get(TracingBatchEventListener.TEMPLATE_ID)))
+                .collect(Collectors.toList());
+    }
+
+    private RequestDispatcher dispatcher() {
+        return (request, jsonProvider, options) -> {
+            traceParents.put(request.getUrl(), request.getHeaders().get("traceparent").get(0));
+            if (request.getUrl().endsWith("/5"))
+                throw new IOException("Cannot connect");
+            Response response = new Response();
+            response.setStatus(200);
+            response.setHeaders(Collections.emptyMap());
+            response.setBody(Collections.singletonMap("id", 1));
+            response.setBodySize(request.getUrl().contains("users") ? 128L : null);
+            return response;
+        };
+    }
+
+    private Request request(int id) {
+        Request request = new Request();
+        request.setHttpMethod("POST");
+        request.setUrl("https://test.com/batch");
+        request.setHeaders(Collections.emptyMap());
+        request.setBody(Collections.singletonMap("id", id));
+        return request;
+    }
+
+}
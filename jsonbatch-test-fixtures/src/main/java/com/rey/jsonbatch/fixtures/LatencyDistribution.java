@@ -0,0 +1,30 @@
+package com.rey.jsonbatch.fixtures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public interface LatencyDistribution {
+
+    long sample(Random random);
+
+    static LatencyDistribution fixed(long millis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        return random -> nanos;
+    }
+
+    static LatencyDistribution normal(double meanMillis, double stdDevMillis) {
+        return random -> toNanos(meanMillis + random.nextGaussian() * stdDevMillis);
+    }
+
+    // long tail: most samples are close to minMillis, a small alpha gives a heavier tail
+    static LatencyDistribution pareto(double minMillis, double alpha) {
+        if (minMillis <= 0 || alpha <= 0)
+            throw new IllegalArgumentException("Pareto distribution needs positive min and alpha");
+        return random -> toNanos(minMillis / Math.pow(1.0 - random.nextDouble(), 1.0 / alpha));
+    }
+
+    static long toNanos(double millis) {
+        return millis <= 0 ? 0 : (long) (millis * 1_000_000.0);
+    }
+
+}
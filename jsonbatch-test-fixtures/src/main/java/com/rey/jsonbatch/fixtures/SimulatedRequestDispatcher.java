@@ -0,0 +1,195 @@
+package com.rey.jsonbatch.fixtures;
+
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.rey.jsonbatch.AsyncRequestDispatcher;
+import com.rey.jsonbatch.model.DispatchOptions;
+import com.rey.jsonbatch.model.Request;
+import com.rey.jsonbatch.model.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+public class SimulatedRequestDispatcher implements AsyncRequestDispatcher, Closeable {
+
+    private Logger logger = LoggerFactory.getLogger(SimulatedRequestDispatcher.class);
+
+    private final VirtualClock clock;
+    private final Random random;
+    private final List<Route> routes = new ArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder dispatchCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public SimulatedRequestDispatcher(long seed) {
+        this(null, seed);
+    }
+
+    public SimulatedRequestDispatcher(VirtualClock clock, long seed) {
+        this.clock = clock;
+        this.random = new Random(seed);
+        this.scheduler = clock != null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jsonbatch-simulated");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SimulatedRequestDispatcher addRoute(String urlPattern, LatencyDistribution latency) {
+        return addRoute(urlPattern, latency, 0, null);
+    }
+
+    public SimulatedRequestDispatcher addRoute(String urlPattern, LatencyDistribution latency, double errorRate) {
+        return addRoute(urlPattern, latency, errorRate, null);
+    }
+
+    public SimulatedRequestDispatcher addRoute(String urlPattern, LatencyDistribution latency, double errorRate,
+                                               Function<Request, Response> responder) {
+        if (errorRate < 0 || errorRate > 1) {
+            logger.error("Error rate must be in [0, 1]: {}", errorRate);
+            throw new IllegalArgumentException("Invalid error rate: " + errorRate);
+        }
+        routes.add(new Route(Pattern.compile(urlPattern), latency, errorRate, responder));
+        return this;
+    }
+
+    @Override
+    public Response dispatch(Request request, JsonProvider jsonProvider, DispatchOptions options) throws Exception {
+        Route route = findRoute(request);
+        long latency;
+        boolean failed;
+        synchronized (random) {
+            latency = route.latency.sample(random);
+            failed = route.errorRate > 0 && random.nextDouble() < route.errorRate;
+        }
+        start();
+        try {
+            if (clock != null)
+                clock.advance(latency);
+            else if (latency > 0)
+                TimeUnit.NANOSECONDS.sleep(latency);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        if (failed)
+            throw failure(request);
+        return respond(route, request, jsonProvider);
+    }
+
+    @Override
+    public CompletableFuture<Response> dispatchAsync(Request request, JsonProvider jsonProvider, DispatchOptions options) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Route route;
+        long latency;
+        boolean failed;
+        try {
+            route = findRoute(request);
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+            return future;
+        }
+        synchronized (random) {
+            latency = route.latency.sample(random);
+            failed = route.errorRate > 0 && random.nextDouble() < route.errorRate;
+        }
+        start();
+        Runnable completion = () -> {
+            inFlight.decrementAndGet();
+            if (failed) {
+                future.completeExceptionally(failure(request));
+                return;
+            }
+            try {
+                future.complete(respond(route, request, jsonProvider));
+            } catch (Exception ex) {
+                future.completeExceptionally(ex);
+            }
+        };
+        if (clock != null)
+            clock.schedule(latency, completion);
+        else
+            scheduler.schedule(completion, latency, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    public long getDispatchCount() {
+        return dispatchCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private Route findRoute(Request request) {
+        for (Route route : routes) {
+            if (route.urlPattern.matcher(request.getUrl()).matches())
+                return route;
+        }
+        logger.error("No simulated route for {} {}", request.getHttpMethod(), request.getUrl());
+        throw new IllegalArgumentException("No simulated route for " + request.getHttpMethod() + " " + request.getUrl());
+    }
+
+    private void start() {
+        dispatchCount.increment();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    private IOException failure(Request request) {
+        errorCount.increment();
+        return new IOException("Simulated failure of " + request.getHttpMethod() + " " + request.getUrl());
+    }
+
+    private Response respond(Route route, Request request, JsonProvider jsonProvider) {
+        if (route.responder != null)
+            return route.responder.apply(request);
+        Response response = new Response();
+        response.setStatus(200);
+        response.setHeaders(Collections.emptyMap());
+        response.setBody(jsonProvider.createMap());
+        return response;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    private static class Route {
+
+        private final Pattern urlPattern;
+        private final LatencyDistribution latency;
+        private final double errorRate;
+        private final Function<Request, Response> responder;
+
+        Route(Pattern urlPattern, LatencyDistribution latency, double errorRate, Function<Request, Response> responder) {
+            this.urlPattern = urlPattern;
+            this.latency = latency;
+            this.errorRate = errorRate;
+            this.responder = responder;
+        }
+
+    }
+
+}
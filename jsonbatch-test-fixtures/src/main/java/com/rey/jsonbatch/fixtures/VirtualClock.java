@@ -0,0 +1,82 @@
+package com.rey.jsonbatch.fixtures;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/*
+ * A discrete event clock: time only moves when the next scheduled event runs, so simulated latencies cost no wall time.
+ * Events are run by the thread calling run(...) or runNext(), in time order (then in scheduled order for the same time).
+ */
+public class VirtualClock {
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+
+    public synchronized long nanoTime() {
+        return now;
+    }
+
+    public synchronized void schedule(long delayNanos, Runnable task) {
+        events.add(new Event(now + Math.max(delayNanos, 0), sequence++, task));
+    }
+
+    public synchronized void advance(long nanos) {
+        if (nanos > 0)
+            now += nanos;
+    }
+
+    public synchronized int getPendingCount() {
+        return events.size();
+    }
+
+    public boolean runNext() {
+        Event event;
+        synchronized (this) {
+            event = events.poll();
+            if (event == null)
+                return false;
+            if (event.time > now)
+                now = event.time;
+        }
+        event.task.run();
+        return true;
+    }
+
+    public <T> T run(CompletableFuture<T> future) throws Exception {
+        while (!future.isDone()) {
+            if (!runNext())
+                throw new IllegalStateException("No scheduled event left but the future is not completed");
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw ex;
+        }
+    }
+
+    private static class Event implements Comparable<Event> {
+
+        private final long time;
+        private final long sequence;
+        private final Runnable task;
+
+        Event(long time, long sequence, Runnable task) {
+            this.time = time;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int result = Long.compare(time, other.time);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+
+    }
+
+}
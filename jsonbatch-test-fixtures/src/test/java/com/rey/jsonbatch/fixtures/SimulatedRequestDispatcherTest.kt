@@ -0,0 +1,232 @@
+package com.rey.jsonbatch.fixtures
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.PropertyNamingStrategy
+import com.jayway.jsonpath.Configuration
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider
+import com.rey.jsonbatch.BatchEngine
+import com.rey.jsonbatch.JsonBuilder
+import com.rey.jsonbatch.function.Functions
+import com.rey.jsonbatch.model.BatchTemplate
+import com.rey.jsonbatch.model.DispatchOptions
+import com.rey.jsonbatch.model.Request
+import com.rey.jsonbatch.model.Response
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+
+class SimulatedRequestDispatcherTest {
+
+    private lateinit var objectMapper: ObjectMapper
+
+    private lateinit var configuration: Configuration
+
+    private val template = """
+        {
+            "requests": [
+                {
+                    "http_method": "GET",
+                    "url": "https://test.com/users/@{$.original.body.id}@",
+                    "requests": [
+                        {
+                            "loop": {
+                                "counter_init": 1,
+                                "counter_predicate": "__cmp(\"@{$.requests[1].counter}@ <= 30\")",
+                                "counter_update": "int __sum(\"$.requests[1].counter\", 1)",
+                                "parallelism": %d,
+                                "requests": [
+                                    {
+                                        "http_method": "GET",
+                                        "url": "https://test.com/pages/@{$.requests[1].counter}@"
+                                    }
+                                ]
+                            }
+                        }
+                    ]
+                }
+            ],
+            "responses": [
+                {
+                    "status": 200,
+                    "body": {
+                        "pages": "$.responses[1].times.length()"
+                    }
+                }
+            ],
+            "loop_options": {
+                "max_loop_time": 100
+            }
+        }
+    """
+
+    @Before
+    fun setUp() {
+        objectMapper = ObjectMapper()
+        objectMapper.propertyNamingStrategy = PropertyNamingStrategy.SNAKE_CASE
+        configuration = Configuration.builder()
+                .jsonProvider(JacksonJsonProvider(objectMapper))
+                .mappingProvider(JacksonMappingProvider(objectMapper))
+                .build()
+    }
+
+    @Test
+    fun executeAsync__virtualClock() {
+        val clock = VirtualClock()
+        val dispatcher = SimulatedRequestDispatcher(clock, 1)
+                .addRoute(".*/users/.*", LatencyDistribution.fixed(500))
+                .addRoute(".*/pages/.*", LatencyDistribution.fixed(1000))
+        val batchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val start = System.nanoTime()
+        val response = clock.run(batchEngine.executeAsync(request(1), template(1)))
+        val wallTime = System.nanoTime() - start
+
+        assertEquals(30, (response.body as Map<*, *>)["pages"])
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(30_500), clock.nanoTime())
+        assertTrue(wallTime < TimeUnit.SECONDS.toNanos(5))
+        assertEquals(31, dispatcher.dispatchCount)
+        assertEquals(1, dispatcher.maxInFlight)
+    }
+
+    @Test
+    fun executeAsync__virtualClock__parallelLoop() {
+        val clock = VirtualClock()
+        val dispatcher = SimulatedRequestDispatcher(clock, 1)
+                .addRoute(".*/users/.*", LatencyDistribution.fixed(500))
+                .addRoute(".*/pages/.*", LatencyDistribution.fixed(1000))
+        val batchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val response = clock.run(batchEngine.executeAsync(request(1), template(10)))
+
+        assertEquals(30, (response.body as Map<*, *>)["pages"])
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(3_500), clock.nanoTime())
+        assertEquals(10, dispatcher.maxInFlight)
+    }
+
+    @Test
+    fun executeAsync__sameSeed__sameTimeline() {
+        val times = (1..3).map { simulate(42) }
+        assertEquals(times[0], times[1])
+        assertEquals(times[0], times[2])
+        assertNotEquals(times[0], simulate(43))
+    }
+
+    @Test
+    fun execute__virtualClock() {
+        val clock = VirtualClock()
+        val dispatcher = SimulatedRequestDispatcher(clock, 1)
+                .addRoute(".*", LatencyDistribution.fixed(1000))
+        val batchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        val response = batchEngine.execute(request(1), template(4))
+
+        assertEquals(30, (response.body as Map<*, *>)["pages"])
+        assertEquals(TimeUnit.SECONDS.toNanos(31), clock.nanoTime())
+    }
+
+    @Test
+    fun dispatch__errorRate() {
+        val clock = VirtualClock()
+        val dispatcher = SimulatedRequestDispatcher(clock, 7)
+                .addRoute(".*/flaky/.*", LatencyDistribution.normal(20.0, 5.0), 0.25)
+                .addRoute(".*", LatencyDistribution.fixed(1))
+
+        var errors = 0
+        for (i in 1..1000) {
+            try {
+                dispatcher.dispatch(request("https://test.com/flaky/$i"), configuration.jsonProvider(), DispatchOptions())
+            } catch (e: IOException) {
+                errors++
+            }
+        }
+        dispatcher.dispatch(request("https://test.com/stable/1"), configuration.jsonProvider(), DispatchOptions())
+
+        assertEquals(errors.toLong(), dispatcher.errorCount)
+        assertTrue(errors in 200..300)
+        assertTrue(clock.nanoTime() in TimeUnit.SECONDS.toNanos(19)..TimeUnit.SECONDS.toNanos(21))
+    }
+
+    @Test
+    fun dispatchAsync__errorRate() {
+        val clock = VirtualClock()
+        val dispatcher = SimulatedRequestDispatcher(clock, 1)
+                .addRoute(".*", LatencyDistribution.fixed(100), 1.0)
+        val batchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+
+        try {
+            clock.run(batchEngine.executeAsync(request(1), template(4)))
+            fail()
+        } catch (e: IOException) {
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), clock.nanoTime())
+    }
+
+    @Test
+    fun dispatch__noRoute() {
+        val dispatcher = SimulatedRequestDispatcher(VirtualClock(), 1)
+                .addRoute(".*/users/.*", LatencyDistribution.fixed(1))
+        try {
+            dispatcher.dispatch(request("https://test.com/orders/1"), configuration.jsonProvider(), DispatchOptions())
+            fail()
+        } catch (e: IllegalArgumentException) {
+        }
+    }
+
+    @Test
+    fun dispatchAsync__realTime() {
+        SimulatedRequestDispatcher(2).use { dispatcher ->
+            dispatcher.addRoute(".*", LatencyDistribution.fixed(50), 0.0, Function { request ->
+                val response = Response()
+                response.status = 201
+                response.body = mapOf("url" to request.url)
+                response
+            })
+
+            val start = System.nanoTime()
+            val response = dispatcher.dispatchAsync(request("https://test.com/users/1"), configuration.jsonProvider(), DispatchOptions()).get()
+
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(45))
+            assertEquals(201, response.status)
+            assertEquals("https://test.com/users/1", (response.body as Map<*, *>)["url"])
+        }
+    }
+
+    private fun simulate(seed: Long): Long {
+        val clock = VirtualClock()
+        val dispatcher = SimulatedRequestDispatcher(clock, seed)
+                .addRoute(".*/users/.*", LatencyDistribution.normal(50.0, 10.0))
+                .addRoute(".*/pages/.*", LatencyDistribution.pareto(20.0, 1.5))
+        val batchEngine = BatchEngine(configuration, JsonBuilder(*Functions.basic()), dispatcher)
+        clock.run(batchEngine.executeAsync(request(1), template(4)))
+        return clock.nanoTime()
+    }
+
+    private fun template(parallelism: Int): BatchTemplate {
+        return objectMapper.readValue(template.format(parallelism), BatchTemplate::class.java)
+    }
+
+    private fun request(id: Int): Request {
+        val request = Request()
+        request.httpMethod = "POST"
+        request.url = "https://test.com/batch"
+        request.headers = emptyMap()
+        request.body = mapOf("id" to id)
+        return request
+    }
+
+    private fun request(url: String): Request {
+        val request = Request()
+        request.httpMethod = "GET"
+        request.url = url
+        request.headers = emptyMap()
+        return request
+    }
+
+}